@@ -0,0 +1,181 @@
+package alert;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import util.IpAddress;
+
+/**
+ * An alert about destinations of a monitor changing to the same kind of state within one window.
+ */
+public class Alert {
+    /**
+     * The maximum number of subnets named in the text.
+     */
+    private static final int TEXT_SUBNETS = 10;
+
+    /**
+     * The kinds of state changes to alert.
+     */
+    public enum Kind {
+        /**
+         * The destinations went down.
+         */
+        DOWN("down"),
+        /**
+         * The destinations are flapping.
+         */
+        FLAPPING("flapping"),
+        /**
+         * The destinations are unreachable because their parent (gateway) is down.
+         */
+        UNREACHABLE("unreachable"),
+        /**
+         * The destinations are available again after an alert.
+         */
+        RECOVERED("recovered");
+
+        private final String text;
+
+        Kind(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private final String monitorId;
+    private final Kind kind;
+    private final List<InetAddress> addresses;
+    private final long time;
+    private final int suppressed;
+
+    /**
+     * Create an alert.
+     *
+     * @param monitorId  the id of the monitor
+     * @param kind       the kind of state change
+     * @param addresses  the addresses of the destinations in ascending order
+     * @param time       the time of the alert in milliseconds
+     * @param suppressed the number of alerts suppressed by the rate limit before this one
+     */
+    public Alert(String monitorId, Kind kind, List<InetAddress> addresses, long time, int suppressed) {
+        this.monitorId = monitorId;
+        this.kind = kind;
+        this.addresses = Collections.unmodifiableList(new ArrayList<>(addresses));
+        this.time = time;
+        this.suppressed = suppressed;
+    }
+
+    /**
+     * Get the id of the monitor.
+     *
+     * @return the id
+     */
+    public String getMonitorId() {
+        return monitorId;
+    }
+
+    /**
+     * Get the kind of state change.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Get the addresses of the destinations.
+     *
+     * @return the addresses in ascending order
+     */
+    public List<InetAddress> getAddresses() {
+        return addresses;
+    }
+
+    /**
+     * Get the time of the alert.
+     *
+     * @return the time in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Get the number of alerts suppressed by the rate limit before this one.
+     *
+     * @return the count
+     */
+    public int getSuppressed() {
+        return suppressed;
+    }
+
+    /**
+     * Get the number of destinations per /24 (IPv4) or /120 (IPv6) subnet.
+     *
+     * @return the counts by subnet in CIDR notation in ascending order
+     */
+    public Map<String, Integer> getSubnets() {
+        Map<IpAddress, Integer> counts = new TreeMap<>();
+        for (InetAddress address : addresses) {
+            IpAddress ip = IpAddress.of(address);
+            counts.merge(ip.prefix(ip.getBits() - 8), 1, Integer::sum);
+        }
+
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<IpAddress, Integer> entry : counts.entrySet()) {
+            result.put(entry.getKey().toString() + '/' + (entry.getKey().getBits() - 8), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Get a one line text of the alert.
+     *
+     * @return e.g. "42 hosts down in monitor 10.1.2.1-10.1.2.254: 10.1.2.0/24 (42)"
+     */
+    public String getText() {
+        StringBuilder text = new StringBuilder();
+
+        if (addresses.size() == 1) {
+            text.append(addresses.get(0).getHostAddress()).append(' ').append(kind)
+                    .append(" in monitor ").append(monitorId);
+        }
+        else {
+            text.append(addresses.size()).append(" hosts ").append(kind).append(" in monitor ").append(monitorId);
+
+            Map<String, Integer> subnets = getSubnets();
+            int count = 0;
+            text.append(": ");
+            for (Map.Entry<String, Integer> entry : subnets.entrySet()) {
+                if (count == TEXT_SUBNETS) {
+                    text.append(", ").append(subnets.size() - count).append(" more subnets");
+                    break;
+                }
+                if (count++ > 0) {
+                    text.append(", ");
+                }
+                text.append(entry.getKey()).append(" (").append(entry.getValue()).append(')');
+            }
+        }
+
+        if (suppressed > 0) {
+            text.append("; ").append(suppressed).append(" alerts suppressed before");
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Alert{" + "monitorId=" + monitorId + ", kind=" + kind + ", addresses=" + addresses.size() + ", time=" + time + ", suppressed=" + suppressed + '}';
+    }
+}
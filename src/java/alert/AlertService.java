@@ -0,0 +1,332 @@
+package alert;
+
+import destination.Destination;
+import destination.DestinationState;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+import probe.TokenBucket;
+import util.IpAddress;
+
+/**
+ * The alert stage fed by the state changes of the destinations.<br>
+ * <br>
+ * State changes are collected per monitor and sent once per window, so a core switch failure taking down thousands of
+ * hosts gives one alert for the monitor and not one per host:
+ * <ul>
+ * <li>Coalescing: the changes of a monitor within a window are grouped by kind (down, flapping, unreachable,
+ * recovered); each group becomes one alert listing the affected subnets. The destinations behind a down gateway are
+ * grouped as unreachable, apart from the gateway itself.</li>
+ * <li>Deduplication: only the last state within a window counts, and a kind already alerted for a destination of a
+ * monitor is not alerted again. A host going down and up again within one window gives no alert; a recovery is alerted
+ * only after an alert.</li>
+ * <li>Rate limiting: a token bucket limits the alerts; suppressed alerts are counted in the next one sent.</li>
+ * </ul>
+ * An alert counts as sent once a sink accepted it. The changes of a suppressed or undelivered alert are kept for the
+ * next window unless the destination changed again meanwhile, so a storm delays alerts but does not lose them.<br>
+ * <br>
+ * The service is configured by system properties: networkinframonitor.alert.window (default 30 seconds),
+ * networkinframonitor.alert.rate (default 60 alerts per hour, bursts of 10), networkinframonitor.alert.webhook (the URL
+ * to post to), networkinframonitor.alert.smtp.host, networkinframonitor.alert.smtp.port (default 25),
+ * networkinframonitor.alert.smtp.from and networkinframonitor.alert.smtp.to (comma separated). The log sink is always
+ * used.
+ */
+public class AlertService {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(AlertService.class);
+    /**
+     * The time in seconds to collect state changes before alerting; can be set by system property.
+     */
+    private static final long WINDOW = Long.getLong("networkinframonitor.alert.window", 30);
+    /**
+     * The maximum number of alerts per hour; can be set by system property.
+     */
+    private static final int RATE = Integer.getInteger("networkinframonitor.alert.rate", 60);
+    /**
+     * The number of alerts which can be sent at once.
+     */
+    private static final int BURST = 10;
+    /**
+     * The single instance.
+     */
+    private static final AlertService INSTANCE = new AlertService(TimeUnit.SECONDS.toMillis(WINDOW),
+                                                                  new TokenBucket(RATE / 3600.0, BURST));
+
+    /**
+     * The window in milliseconds.
+     */
+    private final long windowMillis;
+    /**
+     * The rate limit of the alerts.
+     */
+    private final TokenBucket limiter;
+    /**
+     * The sinks to deliver alerts to.
+     */
+    private final List<AlertSink> sinks = new CopyOnWriteArrayList<>();
+    /**
+     * The last state of each changed destination in the current window by monitor; guarded by this.
+     */
+    private Map<String, Map<InetAddress, DestinationState>> pending = new LinkedHashMap<>();
+    /**
+     * The kind last alerted by destination by monitor; a recovered destination is removed. Used by the alert thread
+     * only.
+     */
+    private final Map<String, Map<InetAddress, Alert.Kind>> alerted = new HashMap<>();
+    /**
+     * The monitor and kind of the alerts held back by the rate limit in the last window. Used by the alert thread only.
+     */
+    private Set<String> held = new HashSet<>();
+    /**
+     * The number of alerts suppressed by the rate limit since the last alert sent; an alert held back over several
+     * windows counts once. Used by the alert thread only.
+     */
+    private int suppressed = 0;
+    /**
+     * The alert thread; null if not started.
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Create an alert service.
+     *
+     * @param windowMillis the time to collect state changes in milliseconds
+     * @param limiter      the rate limit of the alerts
+     */
+    AlertService(long windowMillis, TokenBucket limiter) {
+        this.windowMillis = windowMillis;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Get the single instance.
+     *
+     * @return the alert service
+     */
+    public static AlertService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add a sink to deliver alerts to.
+     *
+     * @param sink the sink
+     */
+    public void addSink(AlertSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Create the sinks configured by system properties and start sending alerts once per window.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+
+        sinks.clear();
+        sinks.add(new LogSink());
+
+        String webhook = System.getProperty("networkinframonitor.alert.webhook");
+        if (webhook != null && !webhook.isEmpty()) {
+            try {
+                sinks.add(new WebhookSink(new URL(webhook)));
+            }
+            catch (MalformedURLException muex) {
+                LOG.error("Invalid alert webhook " + webhook + ": " + muex.getMessage());
+            }
+        }
+
+        String smtpHost = System.getProperty("networkinframonitor.alert.smtp.host");
+        String smtpTo = System.getProperty("networkinframonitor.alert.smtp.to");
+        if (smtpHost != null && !smtpHost.isEmpty() && smtpTo != null && !smtpTo.isEmpty()) {
+            sinks.add(new SmtpSink(smtpHost, Integer.getInteger("networkinframonitor.alert.smtp.port", 25),
+                                   System.getProperty("networkinframonitor.alert.smtp.from", "networkinframonitor@localhost"),
+                                   Arrays.asList(smtpTo.split("\\s*,\\s*"))));
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Alert");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Alerts started with " + sinks.size() + " sinks");
+        }
+    }
+
+    /**
+     * Send the pending alerts and stop.
+     */
+    public synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(windowMillis, TimeUnit.MILLISECONDS)) {
+                LOG.warn("Alert thread not stopped");
+            }
+        }
+        catch (InterruptedException iex) {
+            LOG.warn("Waiting for the alert thread interrupted");
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        flush();
+    }
+
+    /**
+     * Collect a state change of a destination; never blocks on delivery. Can be used as state listener of the
+     * destinations of a monitor.
+     *
+     * @param monitorId   the id of the monitor of the destination
+     * @param destination the destination
+     * @param from        the previous state; null for the first probe result
+     * @param to          the new state
+     */
+    public synchronized void submit(String monitorId, Destination destination, DestinationState from, DestinationState to) {
+        pending.computeIfAbsent(monitorId, key -> new HashMap<>()).put(destination.getInetAddr(), to);
+    }
+
+    /**
+     * Build the alerts of the current window and deliver them to the sinks. The changes of the alerts not sent are
+     * kept for the next window.
+     */
+    void flush() {
+        Map<String, Map<InetAddress, DestinationState>> window;
+        synchronized (this) {
+            window = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        Set<String> stillHeld = new HashSet<>();
+        for (Map.Entry<String, Map<InetAddress, DestinationState>> monitor : window.entrySet()) {
+            Map<InetAddress, Alert.Kind> monitorAlerted = alerted.computeIfAbsent(monitor.getKey(), key -> new HashMap<>());
+            Map<Alert.Kind, List<InetAddress>> groups = new EnumMap<>(Alert.Kind.class);
+
+            for (Map.Entry<InetAddress, DestinationState> change : monitor.getValue().entrySet()) {
+                Alert.Kind kind = kind(change.getValue());
+                Alert.Kind last = monitorAlerted.get(change.getKey());
+
+                if (kind == last || (kind == Alert.Kind.RECOVERED && last == null)) {
+                    // Alerted already or nothing to recover from
+                    continue;
+                }
+
+                groups.computeIfAbsent(kind, key -> new ArrayList<>()).add(change.getKey());
+            }
+
+            for (Map.Entry<Alert.Kind, List<InetAddress>> group : groups.entrySet()) {
+                group.getValue().sort((first, second) -> IpAddress.of(first).compareTo(IpAddress.of(second)));
+                Alert alert = new Alert(monitor.getKey(), group.getKey(), group.getValue(), System.currentTimeMillis(), suppressed);
+
+                if (!limiter.tryAcquire()) {
+                    String key = monitor.getKey() + ' ' + group.getKey();
+                    if (!held.contains(key)) {
+                        ++suppressed;
+                    }
+                    stillHeld.add(key);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Rate limit reached; suppressed " + alert);
+                    }
+                    requeue(monitor.getKey(), group.getValue(), monitor.getValue());
+                    continue;
+                }
+
+                if (!deliver(alert)) {
+                    requeue(monitor.getKey(), group.getValue(), monitor.getValue());
+                    continue;
+                }
+
+                // Record what was sent only
+                suppressed = 0;
+                for (InetAddress address : group.getValue()) {
+                    if (group.getKey() == Alert.Kind.RECOVERED) {
+                        monitorAlerted.remove(address);
+                    }
+                    else {
+                        monitorAlerted.put(address, group.getKey());
+                    }
+                }
+            }
+
+            if (monitorAlerted.isEmpty()) {
+                alerted.remove(monitor.getKey());
+            }
+        }
+        held = stillHeld;
+    }
+
+    /**
+     * Keep the changes of an alert not sent for the next window. A change submitted meanwhile is newer and wins.
+     *
+     * @param monitorId the id of the monitor
+     * @param addresses the addresses of the alert
+     * @param changes   the changes of the monitor in the window
+     */
+    private synchronized void requeue(String monitorId, List<InetAddress> addresses, Map<InetAddress, DestinationState> changes) {
+        Map<InetAddress, DestinationState> monitorPending = pending.computeIfAbsent(monitorId, key -> new HashMap<>());
+        for (InetAddress address : addresses) {
+            monitorPending.putIfAbsent(address, changes.get(address));
+        }
+    }
+
+    /**
+     * Deliver an alert to all sinks.
+     *
+     * @param alert the alert
+     *
+     * @return true if at least one sink accepted the alert
+     */
+    private boolean deliver(Alert alert) {
+        boolean sent = false;
+        for (AlertSink sink : sinks) {
+            try {
+                sink.send(alert);
+                sent = true;
+            }
+            catch (IOException | RuntimeException ex) {
+                LOG.error("Alert not sent by " + sink.getClass().getSimpleName() + ": " + ex.getMessage());
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Get the kind of alert for a state.
+     *
+     * @param state the state
+     *
+     * @return the kind
+     */
+    private static Alert.Kind kind(DestinationState state) {
+        if (state == DestinationState.FLAPPING) {
+            return Alert.Kind.FLAPPING;
+        }
+        if (state == DestinationState.UNREACHABLE) {
+            return Alert.Kind.UNREACHABLE;
+        }
+        return state.isAvailable() ? Alert.Kind.RECOVERED : Alert.Kind.DOWN;
+    }
+}
@@ -0,0 +1,17 @@
+package alert;
+
+import java.io.IOException;
+
+/**
+ * Use this interface to define a new way to deliver alerts.
+ */
+public interface AlertSink {
+    /**
+     * Deliver an alert. Called by the single alert thread; a slow sink delays the following alerts.
+     *
+     * @param alert the alert
+     *
+     * @throws IOException in case the alert cannot be delivered
+     */
+    public void send(Alert alert) throws IOException;
+}
@@ -0,0 +1,23 @@
+package alert;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Write alerts to the log. The log configuration routes this logger to its own file.
+ */
+public class LogSink implements AlertSink {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(LogSink.class);
+
+    @Override
+    public void send(Alert alert) {
+        if (alert.getKind() == Alert.Kind.RECOVERED) {
+            LOG.info(alert.getText());
+        }
+        else {
+            LOG.warn(alert.getText());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package alert;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mail alerts by SMTP to a relay without authentication, e.g. the relay of the local network.<br>
+ * <br>
+ * A minimal SMTP client speaking HELO, MAIL, RCPT, DATA and QUIT; enough for an internal relay and without a mail
+ * library.
+ */
+public class SmtpSink implements AlertSink {
+    /**
+     * The connect and read timeout in milliseconds.
+     */
+    private static final int TIMEOUT = 10000;
+    /**
+     * The maximum number of addresses listed in the mail body.
+     */
+    private static final int BODY_ADDRESSES = 1000;
+
+    private final String host;
+    private final int port;
+    private final String from;
+    private final List<String> recipients;
+
+    /**
+     * Create a SMTP sink.
+     *
+     * @param host       the host of the relay
+     * @param port       the port of the relay
+     * @param from       the sender address
+     * @param recipients the recipient addresses
+     */
+    public SmtpSink(String host, int port, String from, List<String> recipients) {
+        this.host = host;
+        this.port = port;
+        this.from = from;
+        this.recipients = new ArrayList<>(recipients);
+    }
+
+    @Override
+    public void send(Alert alert) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), TIMEOUT);
+            socket.setSoTimeout(TIMEOUT);
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+
+            expect(in, 220);
+            command(in, out, "HELO " + InetAddress.getLocalHost().getHostName(), 250);
+            command(in, out, "MAIL FROM:<" + from + ">", 250);
+            for (String recipient : recipients) {
+                command(in, out, "RCPT TO:<" + recipient + ">", 250);
+            }
+            command(in, out, "DATA", 354);
+
+            out.write(buildMessage(alert));
+            command(in, out, ".", 250);
+            command(in, out, "QUIT", 221);
+        }
+    }
+
+    /**
+     * Build the mail headers and body. Lines starting with a dot are escaped (dot stuffing).
+     *
+     * @param alert the alert
+     *
+     * @return the message with CRLF line ends
+     */
+    private String buildMessage(Alert alert) {
+        StringBuilder message = new StringBuilder(1024);
+
+        message.append("From: ").append(from).append("\r\n")
+                .append("To: ").append(String.join(", ", recipients)).append("\r\n")
+                .append("Date: ").append(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now())).append("\r\n")
+                .append("Subject: [NetworkInfraMonitor] ").append(alert.getText().replaceAll("[\r\n]", " ")).append("\r\n")
+                .append("MIME-Version: 1.0\r\n")
+                .append("Content-Type: text/plain; charset=UTF-8\r\n")
+                .append("Content-Transfer-Encoding: 8bit\r\n")
+                .append("\r\n")
+                .append(alert.getText()).append("\r\n\r\n");
+
+        List<InetAddress> addresses = alert.getAddresses();
+        for (int idx = 0; idx < addresses.size() && idx < BODY_ADDRESSES; ++idx) {
+            message.append(addresses.get(idx).getHostAddress()).append("\r\n");
+        }
+        if (addresses.size() > BODY_ADDRESSES) {
+            message.append("... ").append(addresses.size() - BODY_ADDRESSES).append(" more\r\n");
+        }
+
+        return message.toString().replace("\r\n.", "\r\n..");
+    }
+
+    /**
+     * Send a command and check the reply.
+     *
+     * @param in      the reader of the replies
+     * @param out     the writer of the commands
+     * @param command the command
+     * @param code    the expected reply code
+     *
+     * @throws IOException in case of another reply code
+     */
+    private static void command(BufferedReader in, Writer out, String command, int code) throws IOException {
+        out.write(command + "\r\n");
+        out.flush();
+        expect(in, code);
+    }
+
+    /**
+     * Read a reply, maybe of several lines, and check the code.
+     *
+     * @param in   the reader of the replies
+     * @param code the expected reply code
+     *
+     * @throws IOException in case of another reply code
+     */
+    private static void expect(BufferedReader in, int code) throws IOException {
+        String line;
+
+        do {
+            line = in.readLine();
+            if (line == null || line.length() < 3) {
+                throw new IOException("SMTP connection closed");
+            }
+        }
+        while (line.length() > 3 && line.charAt(3) == '-');
+
+        if (!line.startsWith(Integer.toString(code))) {
+            throw new IOException("SMTP answered " + line);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package alert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Post alerts as JSON to a webhook URL, e.g. of a chat or ticket system.<br>
+ * <br>
+ * The body is an object with the fields monitor, kind, count, subnets (counts by subnet), suppressed, time and text.
+ */
+public class WebhookSink implements AlertSink {
+    /**
+     * The connect and read timeout in milliseconds.
+     */
+    private static final int TIMEOUT = 5000;
+
+    private final URL url;
+
+    /**
+     * Create a webhook sink.
+     *
+     * @param url the URL to post to
+     */
+    public WebhookSink(URL url) {
+        this.url = url;
+    }
+
+    @Override
+    public void send(Alert alert) throws IOException {
+        byte[] body = toJson(alert).getBytes(StandardCharsets.UTF_8);
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+
+            int status = connection.getResponseCode();
+            if (status / 100 != 2) {
+                throw new IOException("Webhook " + url + " answered " + status);
+            }
+        }
+        finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Build the JSON body of an alert.
+     *
+     * @param alert the alert
+     *
+     * @return the JSON object
+     */
+    static String toJson(Alert alert) {
+        StringBuilder json = new StringBuilder(256);
+
+        json.append("{\"monitor\":").append(quote(alert.getMonitorId()))
+                .append(",\"kind\":").append(quote(alert.getKind().toString()))
+                .append(",\"count\":").append(alert.getAddresses().size())
+                .append(",\"subnets\":{");
+        int count = 0;
+        for (Map.Entry<String, Integer> entry : alert.getSubnets().entrySet()) {
+            if (count++ > 0) {
+                json.append(',');
+            }
+            json.append(quote(entry.getKey())).append(':').append(entry.getValue());
+        }
+        json.append("},\"suppressed\":").append(alert.getSuppressed())
+                .append(",\"time\":").append(alert.getTime())
+                .append(",\"text\":").append(quote(alert.getText()))
+                .append('}');
+        return json.toString();
+    }
+
+    /**
+     * Quote a JSON string.
+     *
+     * @param value the value
+     *
+     * @return the quoted and escaped value
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+
+        for (int idx = 0; idx < value.length(); ++idx) {
+            char ch = value.charAt(idx);
+            if (ch == '"' || ch == '\\') {
+                quoted.append('\\').append(ch);
+            }
+            else if (ch < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) ch));
+            }
+            else {
+                quoted.append(ch);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * Classes to notify about destinations going down, flapping or recovering.<br>
+ * <br>
+ * The state changes of the destinations are collected per monitor for a short window and sent as one alert per monitor
+ * and kind of change, e.g. "42 hosts down in monitor 10.1.2.1-10.1.2.254: 10.1.2.0/24 (42)". Alerts are delivered
+ * through sinks: the log, a webhook and mail by SMTP. The sinks are configured by system properties, e.g.<br>
+ * {@code -Dnetworkinframonitor.alert.webhook=http://chat.example.com/hooks/network}<br>
+ * {@code -Dnetworkinframonitor.alert.smtp.host=mail.example.com -Dnetworkinframonitor.alert.smtp.to=noc@example.com}
+ */
+package alert;
@@ -0,0 +1,486 @@
+package cluster;
+
+import destination.Destination;
+import destination.DestinationState;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+import util.IpAddress;
+
+/**
+ * The cluster membership and result exchange of a node.<br>
+ * <br>
+ * The nodes send heartbeats to each other by UDP. A node missing three heartbeats is removed from the hash ring; a node
+ * sending a heartbeat is added. Only the configured peers can join: packets of other senders, or of a configured node
+ * id sent from another address, are dropped. The ring decides which node probes a destination. After each probe the
+ * owner queues a compact result delta which is sent to the other nodes with the next heartbeat; the receivers apply it
+ * to their copy of the destination.<br>
+ * <br>
+ * The cluster mode is configured by system properties. Without the property networkinframonitor.cluster.node the
+ * service is disabled and the node owns all destinations.
+ */
+public class ClusterService {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(ClusterService.class);
+    /**
+     * The UDP address of this node as host:port; can be set by system property.
+     */
+    private static final String NODE = System.getProperty("networkinframonitor.cluster.node");
+    /**
+     * The UDP addresses of the other nodes as comma separated host:port list; can be set by system property.
+     */
+    private static final String PEERS = System.getProperty("networkinframonitor.cluster.peers", "");
+    /**
+     * The heartbeat interval in milliseconds; can be set by system property.
+     */
+    private static final long HEARTBEAT_INTERVAL = Long.getLong("networkinframonitor.cluster.heartbeat", 1000);
+    /**
+     * A node missing this number of heartbeats is dead.
+     */
+    private static final int MISSED_HEARTBEATS = 3;
+    /**
+     * Identifies the packets of this protocol; changed with the 128-bit address keys so older nodes ignore them.
+     */
+    private static final int MAGIC = 0x4E494D36;
+    /**
+     * The packet type of a heartbeat.
+     */
+    private static final byte HEARTBEAT = 1;
+    /**
+     * The packet type of result deltas.
+     */
+    private static final byte DELTA = 2;
+    /**
+     * The maximum packet size; stay below the usual MTU.
+     */
+    private static final int MAX_PACKET = 1400;
+    /**
+     * The single instance configured by the system properties.
+     */
+    private static final ClusterService INSTANCE = new ClusterService(NODE, PEERS);
+
+    /**
+     * The id and UDP address of this node; null if the cluster mode is disabled.
+     */
+    private final String nodeId;
+    /**
+     * The UDP addresses of the configured other nodes by node id.
+     */
+    private final ConcurrentMap<String, InetSocketAddress> peers = new ConcurrentHashMap<>();
+    /**
+     * The time (System.nanoTime) of the last heartbeat by node id.
+     */
+    private final ConcurrentMap<String, Long> lastSeen = new ConcurrentHashMap<>();
+    /**
+     * The destinations of the running monitors by IP.
+     */
+    private final ConcurrentMap<IpAddress, Destination> destinations = new ConcurrentHashMap<>();
+    /**
+     * The result deltas to send with the next heartbeat.
+     */
+    private final Queue<Delta> deltas = new ConcurrentLinkedQueue<>();
+    /**
+     * The current hash ring of the live nodes.
+     */
+    private volatile ConsistentHashRing ring;
+    /**
+     * The UDP socket; null if not started.
+     */
+    private volatile DatagramSocket socket;
+
+    /**
+     * A single probe result to exchange.
+     */
+    private static class Delta {
+        private final IpAddress ip;
+        private final long lastProbeMillis;
+        private final boolean probeResult;
+        private final DestinationState state;
+        private final int quality;
+        private final String probe;
+
+        Delta(IpAddress ip, long lastProbeMillis, boolean probeResult, DestinationState state, int quality, String probe) {
+            this.ip = ip;
+            this.lastProbeMillis = lastProbeMillis;
+            this.probeResult = probeResult;
+            this.state = state;
+            this.quality = quality;
+            this.probe = probe;
+        }
+    }
+
+    /**
+     * Create a cluster service.
+     *
+     * @param nodeId the UDP address of this node as host:port; null or empty to disable the cluster mode
+     * @param peers  the UDP addresses of the other nodes as comma separated host:port list
+     */
+    public ClusterService(String nodeId, String peers) {
+        this.nodeId = nodeId == null || nodeId.trim().isEmpty() ? null : nodeId.trim();
+
+        if (this.nodeId != null && peers != null) {
+            for (String peer : peers.split(",")) {
+                if (!peer.trim().isEmpty() && !peer.trim().equals(this.nodeId)) {
+                    try {
+                        this.peers.put(peer.trim(), toAddress(peer.trim()));
+                    }
+                    catch (IllegalArgumentException iaex) {
+                        LOG.error("Cluster peer ignored: " + iaex.getMessage());
+                    }
+                }
+            }
+        }
+
+        this.ring = new ConsistentHashRing(this.nodeId == null ? new TreeSet<>() : Arrays.asList(this.nodeId));
+    }
+
+    /**
+     * Get the single instance configured by the system properties.
+     *
+     * @return the cluster service
+     */
+    public static ClusterService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Convert a host:port string to a socket address.
+     *
+     * @param node the node id
+     *
+     * @return the address
+     *
+     * @throws IllegalArgumentException if the node id is not host:port
+     */
+    private static InetSocketAddress toAddress(String node) {
+        int colon = node.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Node <" + node + "> is not host:port");
+        }
+        try {
+            return new InetSocketAddress(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1)));
+        }
+        catch (IllegalArgumentException iaex) {
+            throw new IllegalArgumentException("Node <" + node + "> is not host:port", iaex);
+        }
+    }
+
+    /**
+     * Check if the cluster mode is enabled.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return nodeId != null;
+    }
+
+    /**
+     * Get the id of this node.
+     *
+     * @return the node id; null if the cluster mode is disabled
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Get the live nodes including this node.
+     *
+     * @return the node ids in ascending order
+     */
+    public Set<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    /**
+     * Check if this node has to probe a destination.
+     *
+     * @param destination the destination
+     *
+     * @return true if this node owns the destination or the cluster mode is disabled
+     */
+    public boolean owns(Destination destination) {
+        return nodeId == null || nodeId.equals(ring.owner(destination.getKey().hashCode()));
+    }
+
+    /**
+     * Register a destination of a started monitor so that results of other nodes can be applied.
+     *
+     * @param destination the destination
+     */
+    public void register(Destination destination) {
+        if (nodeId != null) {
+            destinations.put(destination.getKey(), destination);
+        }
+    }
+
+    /**
+     * Unregister a destination of a stopped monitor.
+     *
+     * @param destination the destination
+     */
+    public void unregister(Destination destination) {
+        if (nodeId != null) {
+            destinations.remove(destination.getKey(), destination);
+        }
+    }
+
+    /**
+     * Queue the probe result of a destination owned by this node for the other nodes.
+     *
+     * @param destination the probed destination
+     */
+    public void publish(Destination destination) {
+        if (nodeId != null && socket != null && ring.getNodes().size() > 1) {
+            deltas.add(new Delta(destination.getKey(), destination.getLastProbeMillis(),
+                                 destination.getProbeResult(), destination.getState(), destination.getQuality(),
+                                 destination.getProbe()));
+        }
+    }
+
+    /**
+     * Start the heartbeats and the receiver. Does nothing if the cluster mode is disabled.
+     *
+     * @throws SocketException in case the UDP socket can not be opened
+     */
+    public synchronized void start() throws SocketException {
+        if (nodeId == null || socket != null) {
+            return;
+        }
+
+        socket = new DatagramSocket(toAddress(nodeId));
+        LOG.info("Cluster node <" + nodeId + "> started; peers " + peers.keySet());
+
+        Thread receiver = new Thread(this::receive, "Cluster-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+
+        Thread heartbeat = new Thread(this::heartbeat, "Cluster-heartbeat");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+    }
+
+    /**
+     * Stop the heartbeats and the receiver. The other nodes take over the destinations of this node after missing
+     * its heartbeats.
+     */
+    public synchronized void stop() {
+        DatagramSocket so = socket;
+
+        if (so != null) {
+            socket = null;
+            so.close();
+            LOG.info("Cluster node <" + nodeId + "> stopped");
+        }
+    }
+
+    /**
+     * Send heartbeats and deltas, and drop dead nodes until stopped.
+     */
+    private void heartbeat() {
+        while (socket != null) {
+            try {
+                updateRing();
+
+                send(HEARTBEAT, null);
+                if (ring.getNodes().size() > 1) {
+                    send(DELTA, deltas);
+                }
+                else {
+                    deltas.clear();
+                }
+
+                TimeUnit.MILLISECONDS.sleep(HEARTBEAT_INTERVAL);
+            }
+            catch (InterruptedException ex) {
+                LOG.warn("Cluster heartbeat interrupted");
+                return;
+            }
+            catch (IOException ex) {
+                if (socket != null) {
+                    LOG.warn("Sending cluster packet failed: " + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Build a new hash ring if nodes joined or left.
+     */
+    private void updateRing() {
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_INTERVAL * MISSED_HEARTBEATS);
+
+        Set<String> live = new TreeSet<>();
+        live.add(nodeId);
+        for (Map.Entry<String, Long> entry : lastSeen.entrySet()) {
+            if (now - entry.getValue() < timeout) {
+                live.add(entry.getKey());
+            }
+        }
+
+        if (!live.equals(ring.getNodes())) {
+            ring = new ConsistentHashRing(live);
+            LOG.info("Cluster nodes changed; now " + live);
+        }
+    }
+
+    /**
+     * Send a packet to all peers; the deltas are split into several packets if needed.
+     *
+     * @param type  the packet type
+     * @param queue the deltas to send for a delta packet; null for a heartbeat
+     *
+     * @throws IOException in case sending fails
+     */
+    private void send(byte type, Queue<Delta> queue) throws IOException {
+        do {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(MAX_PACKET);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(type);
+            out.writeUTF(nodeId);
+
+            if (queue != null) {
+                ByteArrayOutputStream entryBytes = new ByteArrayOutputStream(MAX_PACKET);
+                DataOutputStream entries = new DataOutputStream(entryBytes);
+                int count = 0;
+
+                Delta delta;
+                while (bytes.size() + 2 + entryBytes.size() < MAX_PACKET - 64 && (delta = queue.poll()) != null) {
+                    entries.writeLong(delta.ip.getHigh());
+                    entries.writeLong(delta.ip.getLow());
+                    entries.writeLong(delta.lastProbeMillis);
+                    // The result in bit 0, the state ordinal above
+                    entries.writeByte((delta.probeResult ? 1 : 0) | (delta.state.ordinal() << 1));
+                    entries.writeByte(delta.quality);
+                    entries.writeUTF(delta.probe);
+                    ++count;
+                }
+
+                if (count == 0) {
+                    return;
+                }
+                out.writeShort(count);
+                entryBytes.writeTo(out);
+            }
+
+            out.flush();
+            DatagramSocket so = socket;
+            if (so == null) {
+                return;
+            }
+            for (InetSocketAddress peer : peers.values()) {
+                so.send(new DatagramPacket(bytes.toByteArray(), bytes.size(), peer));
+            }
+        } while (queue != null && !queue.isEmpty());
+    }
+
+    /**
+     * Receive packets until stopped.
+     */
+    private void receive() {
+        byte[] buffer = new byte[MAX_PACKET];
+
+        while (socket != null) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                DatagramSocket so = socket;
+                if (so == null) {
+                    return;
+                }
+                so.receive(packet);
+
+                handle(new DataInputStream(new ByteArrayInputStream(packet.getData(), 0, packet.getLength())),
+                       (InetSocketAddress) packet.getSocketAddress());
+            }
+            catch (IOException ex) {
+                if (socket != null) {
+                    LOG.warn("Receiving cluster packet failed: " + ex.getMessage());
+                }
+            }
+            catch (RuntimeException rex) {
+                // A single bad packet must not end the receiver
+                LOG.warn("Invalid cluster packet ignored", rex);
+            }
+        }
+    }
+
+    /**
+     * Handle a received packet.
+     *
+     * @param in     the packet data
+     * @param source the address the packet was sent from
+     *
+     * @throws IOException in case the packet is invalid
+     */
+    void handle(DataInputStream in, InetSocketAddress source) throws IOException {
+        if (in.readInt() != MAGIC) {
+            LOG.warn("Unknown cluster packet ignored");
+            return;
+        }
+
+        byte type = in.readByte();
+        String sender = in.readUTF();
+        if (sender.equals(nodeId)) {
+            return;
+        }
+
+        InetSocketAddress peer = peers.get(sender);
+        if (peer == null || !peer.equals(source)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Cluster packet of unknown node <" + sender + "> from " + source + " ignored");
+            }
+            return;
+        }
+
+        if (lastSeen.put(sender, System.nanoTime()) == null) {
+            updateRing();
+        }
+
+        if (type == DELTA) {
+            int count = in.readUnsignedShort();
+            for (int idx = 0; idx < count; ++idx) {
+                IpAddress ip = new IpAddress(in.readLong(), in.readLong());
+                long lastProbeMillis = in.readLong();
+                int flags = in.readUnsignedByte();
+                boolean probeResult = (flags & 1) != 0;
+                if (flags >>> 1 >= DestinationState.values().length) {
+                    throw new IOException("Invalid state " + (flags >>> 1) + " of node <" + sender + ">");
+                }
+                DestinationState state = DestinationState.values()[flags >>> 1];
+                int quality = in.readUnsignedByte();
+                String probe = in.readUTF();
+
+                Destination destination = destinations.get(ip);
+                if (destination != null && !owns(destination)) {
+                    destination.applyResult(lastProbeMillis, probeResult, state, quality, probe);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterService{" + "nodeId=" + nodeId + ", peers=" + peers.keySet() + ", ring=" + ring + '}';
+    }
+}
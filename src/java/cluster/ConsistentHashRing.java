@@ -0,0 +1,142 @@
+package cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A consistent hash ring assigning destinations to nodes.<br>
+ * <br>
+ * Each node is placed on the ring many times (virtual nodes) to spread the destinations evenly. A destination belongs
+ * to the first node at or after its hash on the ring. If a node joins or leaves only the destinations of that node
+ * move. The ring is immutable; a membership change builds a new ring.
+ */
+public class ConsistentHashRing {
+    /**
+     * The default number of virtual nodes per node.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    /**
+     * The node ids in ascending order.
+     */
+    private final SortedSet<String> nodes;
+    /**
+     * The ring positions in ascending order.
+     */
+    private final int[] points;
+    /**
+     * The node owning each ring position.
+     */
+    private final String[] owners;
+
+    /**
+     * Build a ring with the default number of virtual nodes.
+     *
+     * @param nodes the node ids
+     */
+    public ConsistentHashRing(Collection<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Build a ring.
+     *
+     * @param nodes        the node ids
+     * @param virtualNodes the number of ring positions per node
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = Collections.unmodifiableSortedSet(new TreeSet<>(nodes));
+
+        long[] entries = new long[this.nodes.size() * virtualNodes];
+        String[] nodeArray = this.nodes.toArray(new String[this.nodes.size()]);
+
+        // Sort the positions together with the node index; position in the upper, index in the lower 32 bits
+        int idx = 0;
+        for (int node = 0; node < nodeArray.length; ++node) {
+            for (int vnode = 0; vnode < virtualNodes; ++vnode) {
+                entries[idx++] = ((long) hash(nodeArray[node] + '#' + vnode) << 32) | node;
+            }
+        }
+        Arrays.sort(entries);
+
+        points = new int[entries.length];
+        owners = new String[entries.length];
+        for (idx = 0; idx < entries.length; ++idx) {
+            points[idx] = (int) (entries[idx] >> 32);
+            owners[idx] = nodeArray[(int) entries[idx]];
+        }
+    }
+
+    /**
+     * Get the nodes of the ring.
+     *
+     * @return the node ids in ascending order
+     */
+    public SortedSet<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the node owning a key.
+     *
+     * @param key the key, e.g. the IPv4 address as int
+     *
+     * @return the node id or null if the ring is empty
+     */
+    public String owner(int key) {
+        if (points.length == 0) {
+            return null;
+        }
+
+        int idx = Arrays.binarySearch(points, mix(key));
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+
+        return owners[idx == points.length ? 0 : idx];
+    }
+
+    /**
+     * Hash a node id to a ring position (FNV-1a).
+     *
+     * @param value the value to hash
+     *
+     * @return the ring position
+     */
+    private static int hash(String value) {
+        int hash = 0x811C9DC5;
+
+        for (byte octet : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= octet & 0xFF;
+            hash *= 0x01000193;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Mix the bits of a key so that neighbouring IPs are spread over the ring (murmur3 finalizer).
+     *
+     * @param key the key
+     *
+     * @return the ring position
+     */
+    private static int mix(int key) {
+        int hash = key;
+
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "ConsistentHashRing{" + "nodes=" + nodes + ", points=" + points.length + '}';
+    }
+}
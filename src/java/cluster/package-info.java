@@ -0,0 +1,10 @@
+/**
+ * Classes to share the probing of the destinations between several nodes.<br>
+ * <br>
+ * All nodes use the same monitor configuration. The destinations are divided between the live nodes by a consistent
+ * hash ring; each node probes its own destinations only and sends the results to the other nodes, so every node can
+ * show all results. Several nodes can run on one host for testing, e.g. three servers started with<br>
+ * {@code -Dnetworkinframonitor.cluster.node=127.0.0.1:7001 -Dnetworkinframonitor.cluster.peers=127.0.0.1:7002,127.0.0.1:7003}<br>
+ * and the other node and peer addresses accordingly.
+ */
+package cluster;
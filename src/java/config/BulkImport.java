@@ -0,0 +1,305 @@
+package config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.apache.log4j.Logger;
+import util.IpAddress;
+import util.IpUtils;
+
+/**
+ * Bulk import of monitors from a list of IP ranges.<br>
+ * <br>
+ * Each line contains an IPv4 or IPv6 range in CIDR notation (e.g. "10.1.2.0/24" or "2001:db8::/120"), as start and
+ * end IP (e.g. "10.1.2.1-10.1.2.20" or "10.1.2.1 - 10.1.2.20") or a single IP, optionally followed by a comment. Empty
+ * lines and lines starting with '#' are ignored. The lines are parsed and checked against the configured monitors in
+ * parallel; then the accepted ranges are checked against each other.
+ */
+public class BulkImport {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(BulkImport.class);
+    /**
+     * Parse up to this number of lines in a single task.
+     */
+    private static final int THRESHOLD = 256;
+
+    /**
+     * Creating an instance is not allowed.
+     */
+    private BulkImport() {
+    }
+
+    /**
+     * The result of an import.
+     */
+    public static class Result {
+        /**
+         * The monitors to add.
+         */
+        private final List<MonitorView> accepted = new ArrayList<>();
+        /**
+         * The rejected lines with the reason.
+         */
+        private final List<String> rejected = new ArrayList<>();
+
+        /**
+         * Get the monitors to add.
+         *
+         * @return the monitors
+         */
+        public List<MonitorView> getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * Get the rejected lines.
+         *
+         * @return the line texts with the reason
+         */
+        public List<String> getRejected() {
+            return rejected;
+        }
+    }
+
+    /**
+     * A single parsed line.
+     */
+    private static class Entry {
+        /**
+         * The line number starting with 1.
+         */
+        private int lineNumber;
+        /**
+         * The line text.
+         */
+        private String line;
+        /**
+         * The start of the range.
+         */
+        private IpAddress start;
+        /**
+         * The end of the range.
+         */
+        private IpAddress end;
+        /**
+         * The comment.
+         */
+        private String comment;
+        /**
+         * The reason for rejecting the line; null if valid.
+         */
+        private String error;
+    }
+
+    /**
+     * Parse a part of the lines; split into subtasks if there are too many lines.
+     */
+    private static class ParseTask extends RecursiveTask<List<Entry>> {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] lines;
+        private final int from;
+        private final int to;
+        private final transient RangeIndex index;
+
+        /**
+         * Create a parse task.
+         *
+         * @param lines the lines
+         * @param from  the first line index (inclusive)
+         * @param to    the last line index (exclusive)
+         * @param index the index of the configured monitors
+         */
+        ParseTask(String[] lines, int from, int to, RangeIndex index) {
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+            this.index = index;
+        }
+
+        @Override
+        protected List<Entry> compute() {
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                ParseTask left = new ParseTask(lines, from, middle, index);
+                ParseTask right = new ParseTask(lines, middle, to, index);
+
+                left.fork();
+                List<Entry> result = right.compute();
+                List<Entry> leftResult = left.join();
+                leftResult.addAll(result);
+
+                return leftResult;
+            }
+
+            List<Entry> result = new ArrayList<>(to - from);
+            for (int idx = from; idx < to; ++idx) {
+                Entry entry = parseLine(lines[idx], idx + 1, index);
+                if (entry != null) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Parse a single line.
+     *
+     * @param text       the line text
+     * @param lineNumber the line number
+     * @param index      the index of the configured monitors
+     *
+     * @return the entry or null if the line is empty or a comment
+     */
+    private static Entry parseLine(String text, int lineNumber, RangeIndex index) {
+        String line = text.trim();
+
+        if (line.isEmpty() || line.startsWith("#")) {
+            return null;
+        }
+
+        Entry entry = new Entry();
+        entry.lineNumber = lineNumber;
+        entry.line = line;
+
+        int end = rangeEnd(line);
+        entry.comment = line.substring(end).trim();
+
+        IpAddress[] range = IpUtils.parseAddressRange(line.substring(0, end));
+        if (range == null) {
+            entry.error = "invalid range";
+            return entry;
+        }
+        entry.start = range[0];
+        entry.end = range[1];
+
+        if (!IpUtils.validIpRange(entry.start.toString(), entry.end.toString())) {
+            entry.error = "invalid range";
+        }
+        else if (index.overlaps(entry.start, entry.end)) {
+            entry.error = "overlaps a configured monitor";
+        }
+
+        return entry;
+    }
+
+    /**
+     * Find the end of the range at the start of a line. The range ends at the first blank, unless the blank is next to
+     * the '-' or '/' of the range, e.g. "10.1.1.1 - 10.1.1.254 core".
+     *
+     * @param line the trimmed line
+     *
+     * @return the index after the range
+     */
+    static int rangeEnd(String line) {
+        int end = wordEnd(line, 0);
+        String word = line.substring(0, end);
+        int next = skipBlanks(line, end);
+
+        if (word.endsWith("-") || word.endsWith("/")) {
+            // "start- end"
+            return wordEnd(line, next);
+        }
+        if (word.indexOf('-') < 0 && word.indexOf('/') < 0 && next < line.length()
+            && (line.charAt(next) == '-' || line.charAt(next) == '/')) {
+            // "start -end" or "start - end"
+            return wordEnd(line, skipBlanks(line, next + 1));
+        }
+        return end;
+    }
+
+    /**
+     * Find the end of a word.
+     *
+     * @param line the line
+     * @param from the index to start at
+     *
+     * @return the index of the first blank or the line length
+     */
+    private static int wordEnd(String line, int from) {
+        int idx = from;
+        while (idx < line.length() && !Character.isWhitespace(line.charAt(idx))) {
+            ++idx;
+        }
+        return idx;
+    }
+
+    /**
+     * Skip blanks.
+     *
+     * @param line the line
+     * @param from the index to start at
+     *
+     * @return the index of the first non blank or the line length
+     */
+    private static int skipBlanks(String line, int from) {
+        int idx = from;
+        while (idx < line.length() && Character.isWhitespace(line.charAt(idx))) {
+            ++idx;
+        }
+        return idx;
+    }
+
+    /**
+     * Import the ranges given as text.
+     *
+     * @param text        the lines to import
+     * @param interval    the interval for the new monitors
+     * @param monitorList the configured monitors
+     *
+     * @return the accepted monitors and the rejected lines
+     */
+    public static Result importRanges(String text, String interval, List<MonitorView> monitorList) {
+        Result result = new Result();
+
+        if (text == null || text.trim().isEmpty()) {
+            return result;
+        }
+
+        String[] lines = text.split("\r?\n");
+        RangeIndex index = new RangeIndex(monitorList);
+
+        List<Entry> entries = ForkJoinPool.commonPool().invoke(new ParseTask(lines, 0, lines.length, index));
+
+        List<Entry> valid = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (entry.error == null) {
+                valid.add(entry);
+            }
+            else {
+                result.rejected.add(entry.lineNumber + ": " + entry.line + " (" + entry.error + ")");
+            }
+        }
+
+        // Check the new ranges against each other; keep the range starting first if ranges overlap
+        Collections.sort(valid, (first, second) -> !first.start.equals(second.start)
+                                ? first.start.compareTo(second.start)
+                                : Integer.compare(first.lineNumber, second.lineNumber));
+
+        IpAddress lastEnd = null;
+        List<Entry> accepted = new ArrayList<>(valid.size());
+        for (Entry entry : valid) {
+            if (lastEnd != null && entry.start.compareTo(lastEnd) <= 0) {
+                result.rejected.add(entry.lineNumber + ": " + entry.line + " (overlaps an imported range)");
+            }
+            else {
+                accepted.add(entry);
+                lastEnd = entry.end;
+            }
+        }
+
+        Collections.sort(accepted, (first, second) -> Integer.compare(first.lineNumber, second.lineNumber));
+        for (Entry entry : accepted) {
+            result.accepted.add(new MonitorView(entry.start.toString(), entry.end.toString(), interval, entry.comment));
+        }
+
+        LOG.info("Import accepted " + result.accepted.size() + " and rejected " + result.rejected.size() + " ranges");
+
+        return result;
+    }
+}
@@ -0,0 +1,520 @@
+package config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import org.apache.log4j.Logger;
+
+/**
+ * A crash safe store for the monitor configuration.<br>
+ * <br>
+ * Every change is appended to a journal file as a single record. Loading reads the snapshot file and replays the
+ * journal in one streaming pass. If the journal grows too large it is compacted: the current configuration is written
+ * to a new snapshot which atomically replaces the old one, then the journal is truncated.<br>
+ * <br>
+ * A record is the operation byte, the payload length, the payload and a CRC32 of the payload. A torn record at the end
+ * of the journal (e.g. after a crash while writing) is dropped on load. A corrupt record followed by other records
+ * fails the load, since dropping the records after it would lose changes. The snapshot is replaced atomically and never
+ * torn, so a corrupt snapshot fails the load too; the files are kept unchanged for recovery then.
+ */
+public class ConfigurationStore {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(ConfigurationStore.class);
+    /**
+     * The snapshot file name.
+     */
+    private static final String SNAPSHOT_FILE = "monitors.snapshot";
+    /**
+     * The journal file name.
+     */
+    private static final String JOURNAL_FILE = "monitors.journal";
+    /**
+     * The legacy properties key prefix.
+     */
+    private static final String KEY_PREFIX = "row";
+    /**
+     * Record operation: add or replace a monitor.
+     */
+    private static final byte OP_ADD = 'A';
+    /**
+     * Record operation: remove a monitor.
+     */
+    private static final byte OP_REMOVE = 'R';
+    /**
+     * The maximum length of a record payload.
+     */
+    private static final int MAX_PAYLOAD_LENGTH = 65536;
+    /**
+     * Compact the journal if it contains more records than this.
+     */
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    /**
+     * The directory containing the store files.
+     */
+    private final File directory;
+    /**
+     * The current configuration; the key is the monitors range.
+     */
+    private final Map<String, MonitorView> monitors = new LinkedHashMap<>();
+    /**
+     * The number of records in the journal.
+     */
+    private int journalRecords = 0;
+    /**
+     * Indicate if the store files have been read.
+     */
+    private boolean loaded = false;
+
+    /**
+     * Create a configuration store.
+     *
+     * @param directory the directory to keep the store files in
+     */
+    public ConfigurationStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get the directory of the store files.
+     *
+     * @return the directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Check if the store files exist.
+     *
+     * @return true if a snapshot or a journal exists
+     */
+    public boolean exists() {
+        return new File(directory, SNAPSHOT_FILE).exists() || new File(directory, JOURNAL_FILE).exists();
+    }
+
+    /**
+     * Load the configuration from snapshot and journal.
+     *
+     * @return the monitors in the order they were added
+     *
+     * @throws IOException in case the files can not be read, the snapshot is corrupt or the journal is corrupt before
+     *                     its last record
+     */
+    public synchronized List<MonitorView> load() throws IOException {
+        monitors.clear();
+        journalRecords = 0;
+
+        File snapshot = new File(directory, SNAPSHOT_FILE);
+        File journal = new File(directory, JOURNAL_FILE);
+        try {
+            if (snapshot.exists() && replay(snapshot) < snapshot.length()) {
+                throw new IOException("Corrupt snapshot " + snapshot.getPath());
+            }
+
+            if (journal.exists()) {
+                long validLength = replay(journal);
+
+                if (validLength < journal.length()) {
+                    LOG.warn("Dropping torn journal tail of " + (journal.length() - validLength) + " bytes");
+                    try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+                        raf.setLength(validLength);
+                    }
+                }
+            }
+        }
+        catch (IOException ioex) {
+            // Not loaded, so no change can overwrite the files before they are repaired
+            monitors.clear();
+            journalRecords = 0;
+            LOG.error(ioex.getMessage() + "; the store files are kept for recovery");
+            throw ioex;
+        }
+
+        loaded = true;
+        LOG.info("Loaded " + monitors.size() + " monitors from " + directory.getPath()
+                + " (" + journalRecords + " journal records)");
+
+        compactIfNeeded();
+
+        return new ArrayList<>(monitors.values());
+    }
+
+    /**
+     * Import a legacy monitors.properties file and make it the current configuration.<br>
+     * The rows are taken in the order of their index; gaps in the index are skipped.
+     *
+     * @param propertiesFile the legacy file
+     *
+     * @return the imported monitors
+     *
+     * @throws IOException in case the legacy file can not be read or the store can not be written
+     */
+    public synchronized List<MonitorView> importProperties(File propertiesFile) throws IOException {
+        Properties props = new Properties();
+
+        try (InputStream in = new FileInputStream(propertiesFile)) {
+            props.load(in);
+        }
+
+        Map<Integer, String> rows = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(KEY_PREFIX)) {
+                try {
+                    rows.put(Integer.parseInt(key.substring(KEY_PREFIX.length())), props.getProperty(key));
+                }
+                catch (NumberFormatException nfex) {
+                    LOG.warn("Skip invalid key " + key);
+                }
+            }
+        }
+
+        monitors.clear();
+        for (String value : rows.values()) {
+            String[] parts = value.split("#", -1);
+            if (parts.length < 4) {
+                LOG.warn("Skip invalid row " + value);
+                continue;
+            }
+            MonitorView monitorView = new MonitorView(parts[0], parts[1], parts[2], parts[3], parts.length > 4 ? parts[4] : "");
+            monitors.put(key(monitorView), monitorView);
+        }
+
+        loaded = true;
+        LOG.info("Imported " + monitors.size() + " monitors from " + propertiesFile.getPath());
+        compact();
+
+        return new ArrayList<>(monitors.values());
+    }
+
+    /**
+     * Add a monitor. A monitor with the same range is replaced.
+     *
+     * @param monitorView the monitor to add
+     *
+     * @throws IOException in case the journal can not be written
+     */
+    public void add(MonitorView monitorView) throws IOException {
+        addAll(Collections.singletonList(monitorView));
+    }
+
+    /**
+     * Add monitors with a single journal write. Monitors with the same range are replaced.
+     *
+     * @param monitorViews the monitors to add
+     *
+     * @throws IOException in case the journal can not be written
+     */
+    public synchronized void addAll(Collection<MonitorView> monitorViews) throws IOException {
+        ensureLoaded();
+        append(OP_ADD, monitorViews);
+
+        for (MonitorView monitorView : monitorViews) {
+            monitors.put(key(monitorView), monitorView);
+        }
+
+        compactIfNeeded();
+    }
+
+    /**
+     * Remove a monitor.
+     *
+     * @param monitorView the monitor to remove
+     *
+     * @throws IOException in case the journal can not be written
+     */
+    public void remove(MonitorView monitorView) throws IOException {
+        removeAll(Collections.singletonList(monitorView));
+    }
+
+    /**
+     * Remove monitors with a single journal write.
+     *
+     * @param monitorViews the monitors to remove
+     *
+     * @throws IOException in case the journal can not be written
+     */
+    public synchronized void removeAll(Collection<MonitorView> monitorViews) throws IOException {
+        ensureLoaded();
+        append(OP_REMOVE, monitorViews);
+
+        for (MonitorView monitorView : monitorViews) {
+            monitors.remove(key(monitorView));
+        }
+
+        compactIfNeeded();
+    }
+
+    /**
+     * Write the current configuration to a new snapshot and clear the journal.<br>
+     * The snapshot is written to a temporary file first, then it replaces the old snapshot by an atomic rename. A crash
+     * at any time leaves either the old snapshot with the full journal or the new snapshot.
+     *
+     * @throws IOException in case the files can not be written
+     */
+    public synchronized void compact() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory.getPath());
+        }
+
+        File snapshot = new File(directory, SNAPSHOT_FILE);
+        File tmp = new File(directory, SNAPSHOT_FILE + ".tmp");
+
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            for (MonitorView monitorView : monitors.values()) {
+                writeRecord(out, OP_ADD, monitorView);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        try {
+            Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException amnsex) {
+            LOG.warn("Atomic move not supported; " + amnsex.getMessage());
+            Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(new File(directory, JOURNAL_FILE), "rw")) {
+            raf.setLength(0);
+        }
+        journalRecords = 0;
+
+        LOG.info("Compacted " + monitors.size() + " monitors into " + snapshot.getPath());
+    }
+
+    /**
+     * Append records to the journal and sync them to disk.
+     *
+     * @param op           the operation
+     * @param monitorViews the monitors
+     *
+     * @throws IOException in case the journal can not be written
+     */
+    private void append(byte op, Collection<MonitorView> monitorViews) throws IOException {
+        if (monitorViews.isEmpty()) {
+            return;
+        }
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory.getPath());
+        }
+
+        try (FileOutputStream fos = new FileOutputStream(new File(directory, JOURNAL_FILE), true)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            for (MonitorView monitorView : monitorViews) {
+                writeRecord(out, op, monitorView);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        journalRecords += monitorViews.size();
+    }
+
+    /**
+     * Read the store files before the first change. Otherwise a compaction would drop the monitors not read yet.
+     *
+     * @throws IOException in case the files can not be read
+     */
+    private void ensureLoaded() throws IOException {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    /**
+     * Compact the journal if it contains too many records.
+     *
+     * @throws IOException in case the files can not be written
+     */
+    private void compactIfNeeded() throws IOException {
+        if (journalRecords > COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Replay the records of a file. Replay stops at a torn last record.
+     *
+     * @param file the snapshot or journal file
+     *
+     * @return the length of the valid records in bytes
+     *
+     * @throws IOException in case the file can not be read or a record other than the last one is corrupt
+     */
+    private long replay(File file) throws IOException {
+        long fileLength = file.length();
+        long validLength = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                }
+                catch (EOFException eofex) {
+                    break;
+                }
+
+                int length = -1;
+                byte[] payload = null;
+                String error = null;
+                boolean torn = false;
+                try {
+                    length = in.readInt();
+                    if (length < 0 || length > MAX_PAYLOAD_LENGTH) {
+                        error = "Invalid record length " + length;
+                    }
+                    else {
+                        payload = new byte[length];
+                        in.readFully(payload);
+
+                        CRC32 crc = new CRC32();
+                        crc.update(payload);
+                        if ((int) crc.getValue() != in.readInt()) {
+                            error = "Invalid record checksum";
+                        }
+                        else if (op != OP_ADD && op != OP_REMOVE) {
+                            error = "Invalid record operation " + op;
+                        }
+                    }
+                }
+                catch (EOFException eofex) {
+                    error = "Incomplete record";
+                    torn = true;
+                }
+
+                if (error != null) {
+                    // Only the last record can be torn by a crash while appending; if records follow, the file is corrupt
+                    if (!torn && (payload == null || validLength + 1 + 4 + length + 4 < fileLength)) {
+                        throw new IOException(error + " at offset " + validLength + " in " + file.getPath());
+                    }
+                    LOG.warn(error + " at the end of " + file.getName());
+                    break;
+                }
+
+                MonitorView monitorView = readPayload(payload);
+                if (op == OP_ADD) {
+                    monitors.put(key(monitorView), monitorView);
+                }
+                else {
+                    monitors.remove(key(monitorView));
+                }
+
+                validLength += 1 + 4 + payload.length + 4;
+                if (file.getName().equals(JOURNAL_FILE)) {
+                    ++journalRecords;
+                }
+            }
+        }
+
+        return validLength;
+    }
+
+    /**
+     * Write a single record.
+     *
+     * @param out         the stream to write to
+     * @param op          the operation
+     * @param monitorView the monitor
+     *
+     * @throws IOException in case the record can not be written
+     */
+    private static void writeRecord(DataOutputStream out, byte op, MonitorView monitorView) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeUTF(nullToEmpty(monitorView.getStartIp()));
+        payload.writeUTF(nullToEmpty(monitorView.getEndIp()));
+        payload.writeUTF(nullToEmpty(monitorView.getInterval()));
+        payload.writeUTF(nullToEmpty(monitorView.getComment()));
+        payload.writeUTF(nullToEmpty(monitorView.getGateway()));
+        payload.writeBoolean(monitorView.isDiscoveryEnabled());
+        payload.writeUTF(nullToEmpty(monitorView.getProbeProfile()));
+        payload.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+
+        out.writeByte(op);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Read the monitor from a record payload.
+     *
+     * @param payload the payload bytes
+     *
+     * @return the monitor
+     *
+     * @throws IOException in case the payload is invalid
+     */
+    private static MonitorView readPayload(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            MonitorView monitorView = new MonitorView(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+            if (in.available() > 0) {
+                // The gateway is missing in records written before it was added
+                monitorView.setGateway(in.readUTF());
+            }
+            if (in.available() > 0) {
+                // The host discovery is missing in records written before it was added; disabled then
+                monitorView.setDiscoveryEnabled(in.readBoolean());
+            }
+            if (in.available() > 0) {
+                // The probe profile is missing in records written before it was added
+                monitorView.setProbeProfile(in.readUTF());
+            }
+            return monitorView;
+        }
+    }
+
+    /**
+     * Build the key of a monitor. Monitors must not overlap, so the range is unique.
+     *
+     * @param monitorView the monitor
+     *
+     * @return the key
+     */
+    private static String key(MonitorView monitorView) {
+        return monitorView.getStartIp() + "-" + monitorView.getEndIp();
+    }
+
+    /**
+     * Replace null by an empty string.
+     *
+     * @param value the value
+     *
+     * @return the value or an empty string
+     */
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -1,27 +1,39 @@
 package config;
 
+import alert.AlertService;
+import cluster.ClusterService;
+import destination.Destination;
+import destination.DestinationSnapshot;
+import discovery.HostDiscovery;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.Serializable;
+import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Properties;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.faces.bean.ApplicationScoped;
 import javax.faces.bean.ManagedBean;
 import javax.faces.context.FacesContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 import javax.servlet.annotation.WebListener;
+import metrics.ProbeMetrics;
 import monitor.Monitor;
+import monitor.MonitorRegistry;
 import org.apache.log4j.Logger;
+import probe.ProbeRegistry;
+import util.IpAddress;
 import util.IpUtils;
 import util.MsgUtils;
+import util.ReverseDnsCache;
 
 /**
  * Handle the monitoring configuration view.
@@ -47,9 +59,15 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
      */
     private static final String MONITORS_CFG = "WEB-INF/monitors.properties";
     /**
-     * Key prefix value.
+     * The directory to put the configuration store if the default directory is not usable.
      */
-    private static final String KEY_PREFIX = "row";
+    private static final String CFG_DIR = "WEB-INF";
+    /**
+     * The default configuration directory; can be set by system property, e.g. to a directory shared by the nodes of
+     * a cluster.
+     */
+    private static final String DEFAULT_CFG_DIR = System.getProperty("networkinframonitor.config.dir",
+                                                                      new File(System.getProperty("catalina.base"), "conf").getPath());
     /**
      * The default interval value.
      */
@@ -62,6 +80,27 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
      * The maximum interval entry value to test for.
      */
     private static final int INTERVAL_MAX_VALUE = 300;
+    /**
+     * The file name of the destination snapshot.
+     */
+    private static final String SNAPSHOT_FILE = "destinations.snapshot";
+    /**
+     * The time between two destination snapshots in seconds; can be set by system property.
+     */
+    private static final long SNAPSHOT_INTERVAL = Long.getLong("networkinframonitor.snapshot.interval", 60);
+    /**
+     * The number of monitors started in parallel; can be set by system property.
+     */
+    private static final int STARTUP_THREADS = Integer.getInteger("networkinframonitor.startup.threads",
+                                                                   Runtime.getRuntime().availableProcessors());
+    /**
+     * The pool starting the monitors, so a start request returns at once.
+     */
+    private static final ExecutorService STARTUP = Executors.newFixedThreadPool(STARTUP_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "MonitorStartup");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Start IP entry.
@@ -79,6 +118,23 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
      * Comment entry.
      */
     private String comment;
+    /**
+     * Gateway entry; empty if the range does not depend on a gateway.
+     */
+    private String gateway = "";
+    /**
+     * Probe profile entry; empty for the default profile.
+     */
+    private String probeProfile = "";
+    /**
+     * Host discovery entry.
+     */
+    private boolean discoveryEnabled;
+
+    /**
+     * Import entry; a list of ranges, one per line.
+     */
+    private String importText;
 
     /**
      * A list of configured monitors in the datatable view.
@@ -88,11 +144,32 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
      * A list of selected monitors in the datatable view.
      */
     private List<MonitorView> selectedMonitors;
+    /**
+     * The store for the configured monitors.
+     */
+    private transient ConfigurationStore store;
 
     /**
-     * A synchronized list of running monitors
+     * The running monitors; readers get a snapshot without locking.
      */
-    private static final List<Monitor> RUNNING_MONITORS = Collections.synchronizedList(new ArrayList<>());
+    private static final MonitorRegistry RUNNING_MONITORS = new MonitorRegistry();
+    /**
+     * Serializes starting and stopping monitors; readers of the running monitors do not take it.
+     */
+    private static final Object LIFECYCLE = new Object();
+    /**
+     * The monitors queued on the startup pool by id; the value identifies the start request, so a monitor stopped or
+     * restarted while queued is not added by an outdated request. Changed while holding the LIFECYCLE lock.
+     */
+    private static final Map<String, Object> STARTING = new ConcurrentHashMap<>();
+    /**
+     * The start requests since the startup pool was idle the last time.
+     */
+    private static final AtomicInteger START_REQUESTS = new AtomicInteger();
+    /**
+     * The destination states restored at startup and saved periodically; null before the context is initialized.
+     */
+    private static volatile DestinationSnapshot snapshot;
 
     /**
      * Is add button disabled.
@@ -127,13 +204,33 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
     }
 
     /**
-     * Load the last configuration from properties file.
+     * Get the configuration store. The store is kept in the servers configuration directory if possible, else in the
+     * web applications WEB-INF directory.
+     *
+     * @return the store
      */
-    public void loadConfiguration() {
-        Properties props = new Properties();
-        FileInputStream fis = null;
+    private ConfigurationStore getStore() {
+        if (store == null) {
+            File configDir = new File(DEFAULT_CFG_DIR);
 
-        File configDir = new File(System.getProperty("catalina.base"), "conf");
+            if (!configDir.isDirectory() || !configDir.canWrite()) {
+                LOG.warn("DEFAULT monitor configuration directory not usable [" + configDir.getPath() + "]");
+                configDir = new File(FacesContext.getCurrentInstance().getExternalContext().getRealPath(CFG_DIR));
+            }
+            LOG.info(configDir.getPath());
+
+            store = new ConfigurationStore(configDir);
+        }
+        return store;
+    }
+
+    /**
+     * Get the legacy properties file to import if the configuration store does not exist yet.
+     *
+     * @return the legacy properties file
+     */
+    private File getLegacyConfiguration() {
+        File configDir = new File(DEFAULT_CFG_DIR);
         File cfgPropertiesFile = new File(configDir, DEFAULT_MONITORS_CFG);
 
         if (!cfgPropertiesFile.exists()) {
@@ -142,93 +239,80 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
         }
         LOG.info(cfgPropertiesFile.getPath());
 
+        return cfgPropertiesFile;
+    }
+
+    /**
+     * Load the last configuration from the configuration store. Import the legacy properties file if the store does
+     * not exist yet.<br>
+     * If the store files are corrupt, adding, importing and deleting monitors stays disabled until the files are
+     * repaired and loaded again, so no change overwrites them.
+     */
+    public void loadConfiguration() {
+        configuredMonitors.clear();
+
         try {
-            fis = new FileInputStream(cfgPropertiesFile);
-            props.load(fis);
-            Set<String> keySet = props.stringPropertyNames();
-            configuredMonitors.clear();
+            List<MonitorView> monitorViews;
 
-            for (int idx = 0; idx < keySet.size(); ++idx) {
-                String value = props.getProperty(KEY_PREFIX + idx);
-                String[] parts = value.split("#");
+            if (getStore().exists()) {
+                monitorViews = getStore().load();
+            }
+            else {
+                monitorViews = getStore().importProperties(getLegacyConfiguration());
+            }
 
-                setStartIp(parts[0]);
-                setEndIp(parts[1]);
-                setInterval(parts[2]);
-                setComment(parts[3]);
+            for (MonitorView monitorView : monitorViews) {
+                setStartIp(monitorView.getStartIp());
+                setEndIp(monitorView.getEndIp());
+                setInterval(monitorView.getInterval());
+                setComment(monitorView.getComment());
+                setGateway(monitorView.getGateway());
+                setProbeProfile(monitorView.getProbeProfile());
+                setDiscoveryEnabled(monitorView.isDiscoveryEnabled());
 
-                addMonitor();
+                addMonitorView();
             }
-            fis.close();
+
+            setAddDisabled(false);
         }
         catch (IOException ioex) {
-            if (fis != null) {
-                try {
-                    fis.close();
-                }
-                catch (IOException ex) {
-                    LOG.error(ex.getMessage());
-                }
-            }
-            LOG.info(ioex.getMessage());
+            LOG.error("Configuration could NOT be loaded because:" + ioex.getMessage());
+            MsgUtils.showErrorMessage("Configuration could not be loaded ! Repair the files in "
+                    + getStore().getDirectory().getPath() + " and load again.");
             configuredMonitors.clear();
+            setAddDisabled(true);
+            setDeleteDisabled(true);
+            setStartDisabled(true);
         }
     }
 
     /**
-     * Save the current configuration in properties file.
+     * Save added monitors in the configuration store.
+     *
+     * @param monitorViews the added monitors
      */
-    private void saveConfiguration() {
-        Properties props = new Properties();
-
-        int idx = 0;
-        for (MonitorView monitor : configuredMonitors) {
-            String key = KEY_PREFIX + idx;
-            String value = monitor.getStartIp() + "#" + monitor.getEndIp() + "#"
-                    + monitor.getInterval() + "#" + monitor.getComment();
-
-            props.setProperty(key, value);
-
-            ++idx;
+    private void saveAdded(List<MonitorView> monitorViews) {
+        try {
+            getStore().addAll(monitorViews);
         }
+        catch (IOException ioex) {
+            LOG.warn(ioex.getLocalizedMessage());
+            MsgUtils.showWarningMessage("Configuration could not be saved !");
+        }
+    }
 
-        OutputStream oStream = null;
-
-        File configDir = new File(System.getProperty("catalina.base"), "conf");
-        File cfgPropertiesFile = new File(configDir, DEFAULT_MONITORS_CFG);
-
+    /**
+     * Save removed monitors in the configuration store.
+     *
+     * @param monitorViews the removed monitors
+     */
+    private void saveRemoved(List<MonitorView> monitorViews) {
         try {
-            LOG.info(cfgPropertiesFile.getPath());
-
-            oStream = new FileOutputStream(cfgPropertiesFile);
-            props.store(oStream, "");
-
-            oStream.close();
+            getStore().removeAll(monitorViews);
         }
         catch (IOException ioex) {
-            LOG.warn("DEFAULT monitor configuration file [" + ioex.getLocalizedMessage() + "]");
-
-            cfgPropertiesFile = new File(FacesContext.getCurrentInstance().getExternalContext().getRealPath(MONITORS_CFG));
-
-            try {
-                LOG.info(cfgPropertiesFile.getPath());
-
-                oStream = new FileOutputStream(cfgPropertiesFile);
-                props.store(oStream, "");
-
-                oStream.close();
-            }
-            catch (IOException ex) {
-                if (oStream != null) {
-                    try {
-                        oStream.close();
-                    }
-                    catch (IOException inex) {
-                        LOG.error(inex.getMessage());
-                    }
-                }
-                LOG.warn(ex.getLocalizedMessage());
-            }
+            LOG.warn(ioex.getLocalizedMessage());
+            MsgUtils.showWarningMessage("Configuration could not be saved !");
         }
     }
 
@@ -304,6 +388,89 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
         this.comment = comment;
     }
 
+    /**
+     * Get the gateway entry value.
+     *
+     * @return the gateway IP; empty if none
+     */
+    public String getGateway() {
+        return gateway;
+    }
+
+    /**
+     * Set the gateway entry value.
+     *
+     * @param gateway the gateway IP; empty if none
+     */
+    public void setGateway(String gateway) {
+        this.gateway = gateway == null ? "" : gateway.trim();
+    }
+
+    /**
+     * Get the probe profile entry value.
+     *
+     * @return the profile name; empty for the default profile
+     */
+    public String getProbeProfile() {
+        return probeProfile;
+    }
+
+    /**
+     * Set the probe profile entry value.
+     *
+     * @param probeProfile the profile name; empty for the default profile
+     */
+    public void setProbeProfile(String probeProfile) {
+        this.probeProfile = probeProfile == null || probeProfile.equals(ProbeRegistry.DEFAULT_PROFILE) ? "" : probeProfile.trim();
+    }
+
+    /**
+     * Get the host discovery entry value.
+     *
+     * @return true if the hosts of the range are discovered
+     */
+    public boolean isDiscoveryEnabled() {
+        return discoveryEnabled;
+    }
+
+    /**
+     * Set the host discovery entry value.
+     *
+     * @param discoveryEnabled true to discover the hosts of the range; false to probe all addresses
+     */
+    public void setDiscoveryEnabled(boolean discoveryEnabled) {
+        this.discoveryEnabled = discoveryEnabled;
+    }
+
+    /**
+     * Get the probe profiles to select from besides the default profile.
+     *
+     * @return the profile names
+     */
+    public List<String> getProbeProfiles() {
+        List<String> profiles = new ArrayList<>(ProbeRegistry.getInstance().getProfileNames());
+        profiles.remove(ProbeRegistry.DEFAULT_PROFILE);
+        return profiles;
+    }
+
+    /**
+     * Get the import entry value.
+     *
+     * @return the ranges to import, one per line
+     */
+    public String getImportText() {
+        return importText;
+    }
+
+    /**
+     * Set the import entry value.
+     *
+     * @param importText the ranges to import, one per line
+     */
+    public void setImportText(String importText) {
+        this.importText = importText;
+    }
+
     /**
      * Get all the configured monitors.
      *
@@ -343,10 +510,19 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
     /**
      * Get the currently running monitors.
      *
-     * @return the monitors
+     * @return an unmodifiable snapshot of the monitors; safe to iterate while monitors are started and stopped
      */
     public List<Monitor> getRunningMonitors() {
-        return RUNNING_MONITORS;
+        return RUNNING_MONITORS.getMonitors();
+    }
+
+    /**
+     * Get the currently running monitors outside of JSF, e.g. in a servlet.
+     *
+     * @return an unmodifiable snapshot of the monitors; safe to iterate while monitors are started and stopped
+     */
+    public static List<Monitor> listRunningMonitors() {
+        return RUNNING_MONITORS.getMonitors();
     }
 
     /**
@@ -458,13 +634,215 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
     }
 
     /**
-     * Add a monitor to the list of configured monitors.
+     * Add a monitor to the list of configured monitors and save it.
      */
     public void addMonitor() {
+        MonitorView monitorView = addMonitorView();
+
+        if (monitorView != null) {
+            LOG.info("Save configuration");
+            saveAdded(Collections.singletonList(monitorView));
+
+            if (isMonitoring() && findRunningMonitor(monitorView.getStartIp(), monitorView.getEndIp()) == null
+                && !STARTING.containsKey(Monitor.buildId(monitorView.getStartIp(), monitorView.getEndIp()))) {
+                startMonitor(monitorView);
+            }
+        }
+    }
+
+    /**
+     * Check if the monitors are started.
+     *
+     * @return true if started, else false
+     */
+    private boolean isMonitoring() {
+        return !isStopDisabled();
+    }
+
+    /**
+     * Find a configured monitor by its range.
+     *
+     * @param start the start IP of the monitor
+     * @param end   the end IP of the monitor
+     *
+     * @return the monitor or null if not found
+     */
+    private MonitorView findConfiguredMonitor(String start, String end) {
+        for (MonitorView monitorView : getConfiguredMonitors()) {
+            if (monitorView.getStartIp().equals(start) && monitorView.getEndIp().equals(end)) {
+                return monitorView;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find a running monitor by its range.
+     *
+     * @param start the start IP of the monitor
+     * @param end   the end IP of the monitor
+     *
+     * @return the monitor or null if not running
+     */
+    private Monitor findRunningMonitor(String start, String end) {
+        return RUNNING_MONITORS.get(Monitor.buildId(start, end));
+    }
+
+    /**
+     * Start a monitor on the startup pool and add it to the running monitors. Returns at once.
+     *
+     * @param monitorView the monitor to start
+     */
+    private void startMonitor(MonitorView monitorView) {
+        String id = Monitor.buildId(monitorView.getStartIp(), monitorView.getEndIp());
+        Object request = new Object();
+
+        synchronized (LIFECYCLE) {
+            STARTING.put(id, request);
+            START_REQUESTS.incrementAndGet();
+        }
+
+        STARTUP.execute(() -> {
+            Monitor monitor = null;
+            try {
+                monitor = new Monitor(monitorView.getStartIp(), monitorView.getEndIp(), Integer.parseInt(monitorView.getInterval()), monitorView.getComment());
+                monitor.setGateway(monitorView.getGateway());
+                monitor.setProbeProfile(monitorView.getProbeProfile());
+                monitor.setDiscoveryEnabled(monitorView.isDiscoveryEnabled());
+                monitor.setSnapshot(snapshot);
+
+                if (STARTING.get(id) != request) {
+                    // Stopped or restarted while queued
+                    return;
+                }
+
+                // Start without the lock, so stopping or starting other monitors does not wait for this one
+                monitor.start();
+
+                boolean current;
+                synchronized (LIFECYCLE) {
+                    current = STARTING.remove(id, request);
+                    if (current) {
+                        RUNNING_MONITORS.add(monitor);
+                    }
+                }
+                if (!current) {
+                    // Stopped or restarted while starting
+                    monitor.stop();
+                    return;
+                }
+                LOG.info("Started " + monitor.getId());
+            }
+            catch (InterruptedException | RuntimeException ex) {
+                boolean registered;
+                synchronized (LIFECYCLE) {
+                    STARTING.remove(id, request);
+                    registered = monitor != null && RUNNING_MONITORS.get(monitor.getId()) == monitor;
+                }
+                if (monitor != null && !registered) {
+                    // Release the threads of a partially started monitor
+                    monitor.stop();
+                }
+                LOG.error("Could NOT start " + monitorView + " because:" + ex.getMessage());
+            }
+            finally {
+                synchronized (LIFECYCLE) {
+                    if (STARTING.isEmpty()) {
+                        START_REQUESTS.set(0);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop a running monitor and remove it from the running monitors. A monitor still queued is not started. The other
+     * monitors keep running.
+     *
+     * @param monitorView the monitor to stop
+     */
+    private void stopMonitor(MonitorView monitorView) {
+        Monitor monitor;
+
+        synchronized (LIFECYCLE) {
+            STARTING.remove(Monitor.buildId(monitorView.getStartIp(), monitorView.getEndIp()));
+            monitor = findRunningMonitor(monitorView.getStartIp(), monitorView.getEndIp());
+            if (monitor != null) {
+                RUNNING_MONITORS.remove(monitor);
+            }
+        }
+
+        if (monitor != null) {
+            monitor.stop();
+            LOG.info("Stopped " + monitor.getId());
+        }
+    }
+
+    /**
+     * Get the progress of starting the monitors: the monitors started and the destinations created of the ranges.
+     *
+     * @return the progress text; empty if all monitors are started and all destinations are created
+     */
+    public String getStartProgress() {
+        int requested = START_REQUESTS.get();
+        int queued = STARTING.size();
+        long planned = 0;
+        long created = 0;
+
+        for (Monitor monitor : RUNNING_MONITORS.getMonitors()) {
+            if (monitor.getPlanned() > 0) {
+                planned += monitor.getPlanned();
+                created += Math.min(monitor.getDestinations().size(), monitor.getPlanned());
+            }
+        }
+
+        if (queued == 0 && created == planned) {
+            return "";
+        }
+        return "Started " + Math.max(0, requested - queued) + " of " + Math.max(requested, queued) + " monitors, created "
+               + created + " of " + planned + " destinations";
+    }
+
+    /**
+     * Check the interval entry value. Show a message if it is invalid.
+     *
+     * @param value the interval entry value
+     *
+     * @return the interval to use or null if invalid
+     */
+    private String checkInterval(String value) {
+        if (value == null || value.isEmpty()) {
+            // Take a default if no input
+            return DEFAULT_INTERVAL;
+        }
+
+        try {
+            int num = Integer.parseInt(value);
+            if (num <= INTERVAL_MIN_VALUE || num > INTERVAL_MAX_VALUE) {
+                MsgUtils.showErrorMessage("Interval is out of range " + INTERVAL_MIN_VALUE + "-" + INTERVAL_MAX_VALUE
+                        + ". Enter an interval between " + INTERVAL_MIN_VALUE + " and " + INTERVAL_MAX_VALUE + " !");
+                return null;
+            }
+        }
+        catch (NumberFormatException nfex) {
+            MsgUtils.showErrorMessage("Interval is invalid. Enter a number !");
+            return null;
+        }
+
+        return value;
+    }
+
+    /**
+     * Add a monitor built from the entry values to the list of configured monitors. Show a message if the entries are
+     * invalid.
+     *
+     * @return the added monitor or null if not added
+     */
+    private MonitorView addMonitorView() {
         // Check the start IP
         if (!IpUtils.validIp(startIp)) {
             MsgUtils.showErrorMessage("Start IP is invalid !");
-            return;
+            return null;
         }
 
         if (endIp.isEmpty()) {
@@ -475,26 +853,22 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
         else if (!IpUtils.validIp(endIp)) {
             // Check the end IP
             MsgUtils.showErrorMessage("End IP is invalid !");
-            return;
+            return null;
         }
 
-        if (interval.isEmpty()) {
-            // Take a default if no input
-            interval = DEFAULT_INTERVAL;
+        interval = checkInterval(interval);
+        if (interval == null) {
+            return null;
         }
-        else {
-            try {
-                int num = Integer.parseInt(interval);
-                if (num <= INTERVAL_MIN_VALUE || num > INTERVAL_MAX_VALUE) {
-                    MsgUtils.showErrorMessage("Interval is out of range " + INTERVAL_MIN_VALUE + "-" + INTERVAL_MAX_VALUE
-                            + ". Enter an interval between " + INTERVAL_MIN_VALUE + " and " + INTERVAL_MAX_VALUE + " !");
-                    return;
-                }
-            }
-            catch (NumberFormatException nfex) {
-                MsgUtils.showErrorMessage("Interval is invalid. Enter a number !");
-                return;
-            }
+
+        if (!gateway.isEmpty() && !IpUtils.validIp(gateway)) {
+            MsgUtils.showErrorMessage("Gateway IP is invalid !");
+            return null;
+        }
+
+        if (!ProbeRegistry.getInstance().hasProfile(probeProfile)) {
+            MsgUtils.showErrorMessage("Probe profile is unknown !");
+            return null;
         }
 
         LOG.debug("Configured monitors:");
@@ -502,9 +876,46 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
             LOG.debug(item.toString());
         });
 
-        MonitorView monitorView = new MonitorView(startIp, endIp, interval, comment);
+        IpAddress first = IpAddress.parse(startIp);
+        IpAddress last = IpAddress.parse(endIp);
+        if (!discoveryEnabled && first.compareTo(last) <= 0 && IpAddress.count(first, last) > Monitor.getMaxDestinations()) {
+            // Kept, so a stored monitor is not lost; it is not started without the discovery
+            MsgUtils.showErrorMessage("Range has more than " + Monitor.getMaxDestinations() + " IPs. Enable the host discovery !");
+        }
+
+        MonitorView monitorView = new MonitorView(startIp, endIp, interval, comment, gateway);
+        monitorView.setProbeProfile(probeProfile);
+        monitorView.setDiscoveryEnabled(discoveryEnabled);
         LOG.debug("Try adding " + monitorView.toString());
 
+        MonitorView existing = findConfiguredMonitor(startIp, endIp);
+        if (existing != null && !existing.equals(monitorView)) {
+            // Same range; change interval, comment, gateway, probe profile and host discovery of the existing monitor
+            boolean restart = !existing.getGateway().equals(gateway) || !existing.getProbeProfile().equals(probeProfile)
+                              || existing.isDiscoveryEnabled() != discoveryEnabled;
+            existing.setInterval(interval);
+            existing.setComment(comment);
+            existing.setGateway(gateway);
+            existing.setProbeProfile(probeProfile);
+            existing.setDiscoveryEnabled(discoveryEnabled);
+            LOG.debug("Updated " + existing.toString());
+
+            Monitor monitor = findRunningMonitor(startIp, endIp);
+            if (monitor != null && restart) {
+                // A new gateway may need its own prober, new probes need new probers and the discovery changes the
+                // destinations; restart the monitor
+                stopMonitor(existing);
+                startMonitor(existing);
+            }
+            else if (monitor != null) {
+                monitor.setInterval(Integer.parseInt(interval));
+                monitor.setComment(comment);
+            }
+
+            MsgUtils.showMessage("Monitor updated.");
+            return existing;
+        }
+
         if (!getConfiguredMonitors().contains(monitorView)) {
             if (monitorView.isValidAgainst(getConfiguredMonitors())) {
                 configuredMonitors.add(monitorView);
@@ -513,13 +924,13 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
             else {
                 LOG.debug(monitorView.toString() + " invalid");
                 MsgUtils.showErrorMessage("Monitor is invalid. Check the range entered !");
-                return;
+                return null;
             }
         }
         else {
             LOG.debug(monitorView.toString() + " already exists");
             MsgUtils.showErrorMessage("Monitor already exists. Enter a different monitor !");
-            return;
+            return null;
         }
 
         if (isDeleteDisabled()) {
@@ -530,8 +941,53 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
             setStartDisabled(false);
         }
 
-        LOG.info("Save configuration");
-        saveConfiguration();
+        return monitorView;
+    }
+
+    /**
+     * Import the monitors given as text in the import entry. Each line contains a range in CIDR notation, as start and
+     * end IP separated by '-' or a single IP, optionally followed by a comment. All new monitors get the interval entry
+     * value and are saved in a single write.
+     */
+    public void importMonitors() {
+        String importInterval = checkInterval(interval);
+        if (importInterval == null) {
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        BulkImport.Result result = BulkImport.importRanges(importText, importInterval, getConfiguredMonitors());
+
+        if (!result.getAccepted().isEmpty()) {
+            configuredMonitors.addAll(result.getAccepted());
+
+            LOG.info("Save configuration");
+            saveAdded(result.getAccepted());
+
+            if (isMonitoring()) {
+                result.getAccepted().forEach((monitorView) -> {
+                    startMonitor(monitorView);
+                });
+            }
+
+            setDeleteDisabled(false);
+            setStartDisabled(false);
+        }
+
+        for (String rejected : result.getRejected()) {
+            LOG.warn("Import rejected " + rejected);
+        }
+
+        LOG.info("Import took " + (System.nanoTime() - startTime) / 1000000 + " ms");
+
+        if (result.getRejected().isEmpty()) {
+            MsgUtils.showMessage("Imported " + result.getAccepted().size() + " monitors.");
+            importText = "";
+        }
+        else {
+            MsgUtils.showWarningMessage("Imported " + result.getAccepted().size() + " monitors, rejected "
+                    + result.getRejected().size() + ". First rejected line " + result.getRejected().get(0));
+        }
     }
 
     /**
@@ -551,25 +1007,35 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
         // CAUTION: Do not use the following
         //          for (MonitorView monitorView : getConfiguredMonitors())
         //          It will result in an exception
+        List<MonitorView> removed = new ArrayList<>();
         for (Iterator<MonitorView> iterator = getConfiguredMonitors().iterator(); iterator.hasNext();) {
             MonitorView monitorView = iterator.next();
             if (getSelectedMonitors().contains(monitorView)) {
                 iterator.remove();
+                removed.add(monitorView);
                 LOG.debug("Removed " + monitorView);
+
+                if (isMonitoring()) {
+                    stopMonitor(monitorView);
+                }
             }
         }
 
         if (getConfiguredMonitors().isEmpty()) {
             setDeleteDisabled(true);
-            setStartDisabled(true);
+            if (!isMonitoring()) {
+                setStartDisabled(true);
+            }
         }
 
         LOG.info("Save configuration");
-        saveConfiguration();
+        saveRemoved(removed);
     }
 
     /**
-     * Start the monitors of the configured monitors list. Set buttons accordingly.
+     * Start the monitors of the configured monitors list. Set buttons accordingly.<br>
+     * While the monitors are running, added monitors are started and deleted monitors are stopped at once; the other
+     * running monitors keep their state.
      *
      * @return the next faces page to go
      */
@@ -577,29 +1043,19 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
         if (!isStartDisabled()) {
             LOG.info("Start monitors");
 
-            synchronized (RUNNING_MONITORS) {
-                getConfiguredMonitors().forEach((monitorView) -> {
-                    try {
-                        Monitor monitor = new Monitor(monitorView.getStartIp(), monitorView.getEndIp(), Integer.parseInt(monitorView.getInterval()), monitorView.getComment());
-                        monitor.start();
-                        RUNNING_MONITORS.add(monitor);
-                    }
-                    catch (InterruptedException iex) {
-                        LOG.error("Could NOT start " + monitorView + " because:" + iex.getMessage());
-                        MsgUtils.showMessage("Could not start a monitor");
-                    }
-                });
-            }
+            // The monitors are started on the startup pool; the progress is shown until all are started
+            getConfiguredMonitors().forEach((monitorView) -> {
+                startMonitor(monitorView);
+            });
 
-            setAddDisabled(true);
-            setDeleteDisabled(true);
+            // Monitors can be added, changed and deleted while running
             setStartDisabled(true);
             setLoadDisabled(true);
             setStopDisabled(false);
             setResultsDisabled(false);
 
-            MsgUtils.showMessage("Monitors started");
-            LOG.info("Finished starting monitors");
+            MsgUtils.showMessage("Starting monitors");
+            LOG.info("Queued starting monitors");
 
         }
         else {
@@ -609,6 +1065,70 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
         return ("go_results");
     }
 
+    /**
+     * Get the destinations of all running monitors.
+     *
+     * @return the destinations
+     */
+    private static List<Destination> getRunningDestinations() {
+        List<Destination> destinations = new ArrayList<>();
+
+        for (Monitor monitor : RUNNING_MONITORS.getMonitors()) {
+            destinations.addAll(monitor.getDestinations());
+        }
+        return destinations;
+    }
+
+    /**
+     * Save the states of the running destinations in the snapshot.
+     */
+    private static void saveSnapshot() {
+        if (snapshot != null) {
+            try {
+                snapshot.save(getRunningDestinations());
+            }
+            catch (IOException ioex) {
+                LOG.warn("Destination snapshot not saved: " + ioex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stop all running monitors and remove them. All monitors are signalled first, then they are awaited with a common
+     * deadline; so the stop takes at most the stop timeout of a single monitor.
+     *
+     * @return the number of probes still in progress after the deadline
+     */
+    private int stopRunningMonitors() {
+        int stragglers = 0;
+
+        saveSnapshot();
+
+        List<Monitor> stopped;
+        synchronized (LIFECYCLE) {
+            // Monitors still queued are not started any more
+            STARTING.clear();
+            START_REQUESTS.set(0);
+            stopped = RUNNING_MONITORS.clear();
+        }
+
+        stopped.forEach((monitor) -> {
+            monitor.shutdown();
+        });
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Monitor.getStopTimeout());
+        for (Monitor monitor : stopped) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            stragglers += monitor.awaitTermination(Math.max(0, remaining));
+        }
+
+        if (stragglers > 0) {
+            LOG.warn(stragglers + " probes still in progress after stopping the monitors");
+        }
+
+        return stragglers;
+    }
+
     /**
      * Stop the currently running monitors. Set buttons accordingly.
      */
@@ -616,21 +1136,11 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
         if (!isStopDisabled()) {
             LOG.info("Stop monitors");
 
-            synchronized (RUNNING_MONITORS) {
-                // CAUTION: Do not use the following
-                //          for (Monitor monitor : RUNNING_MONITORS)
-                //          It will result in an exception
-                for (Iterator<Monitor> iterator = RUNNING_MONITORS.iterator(); iterator.hasNext();) {
-                    Monitor monitor = iterator.next();
-                    monitor.stop();
-                    iterator.remove();
-                }
-            }
+            stopRunningMonitors();
 
-            setAddDisabled(false);
-            setDeleteDisabled(false);
+            setDeleteDisabled(getConfiguredMonitors().isEmpty());
             setLoadDisabled(false);
-            setStartDisabled(false);
+            setStartDisabled(getConfiguredMonitors().isEmpty());
             setStopDisabled(true);
             setResultsDisabled(true);
 
@@ -643,13 +1153,35 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
     }
 
     /**
-     * Nothing to implement here.
+     * Publish the probe metrics as JMX MBean if the web server starts. Restore the destination states of the last run.
      *
      * @param sce the servlet context event
      */
     @Override
     public void contextInitialized(ServletContextEvent sce) {
-        // Nothing to do here
+        ProbeMetrics.getInstance().register();
+
+        File configDir = new File(DEFAULT_CFG_DIR);
+        if (!configDir.isDirectory() || !configDir.canWrite()) {
+            configDir = new File(sce.getServletContext().getRealPath(CFG_DIR));
+        }
+        snapshot = new DestinationSnapshot(new File(configDir, SNAPSHOT_FILE));
+        try {
+            snapshot.load();
+        }
+        catch (IOException ioex) {
+            LOG.warn("Destination snapshot not restored: " + ioex.getMessage());
+        }
+        snapshot.schedule(MonitorConfigurationBean::getRunningDestinations, SNAPSHOT_INTERVAL);
+
+        try {
+            ClusterService.getInstance().start();
+        }
+        catch (SocketException ex) {
+            LOG.error("Cluster mode not started: " + ex.getMessage());
+        }
+
+        AlertService.getInstance().start();
     }
 
     /**
@@ -660,16 +1192,28 @@ public class MonitorConfigurationBean implements Serializable, ServletContextLis
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
         LOG.info("Context destroyed; stop all monitors...");
-        synchronized (RUNNING_MONITORS) {
-            // CAUTION: Do not use the following
-            //          for (Monitor monitor : RUNNING_MONITORS)
-            //          It will result in an exception
-            for (Iterator<Monitor> iterator = RUNNING_MONITORS.iterator(); iterator.hasNext();) {
-                Monitor monitor = iterator.next();
-                monitor.stop();
-                iterator.remove();
+        if (snapshot != null) {
+            snapshot.cancel();
+        }
+
+        // A start still running could otherwise register its monitor after the running monitors are stopped
+        STARTUP.shutdownNow();
+        try {
+            if (!STARTUP.awaitTermination(Monitor.getStopTimeout(), TimeUnit.MILLISECONDS)) {
+                LOG.warn("Monitor startup threads not stopped");
             }
         }
+        catch (InterruptedException iex) {
+            LOG.warn("Waiting for the monitor startup threads interrupted");
+            Thread.currentThread().interrupt();
+        }
+        stopRunningMonitors();
         LOG.info("All monitors stopped...");
+
+        HostDiscovery.shutdown();
+        ReverseDnsCache.getInstance().stop();
+        ProbeMetrics.getInstance().unregister();
+        ClusterService.getInstance().stop();
+        AlertService.getInstance().stop();
     }
 }
@@ -5,15 +5,15 @@ import java.util.List;
 import java.util.Objects;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ViewScoped;
-import org.apache.commons.lang.math.LongRange;
 import org.apache.log4j.Logger;
-import util.IpUtils;
+import util.IpAddress;
 
 /**
  * A view on a monitors data.<br>
  * <br>
- * A monitor covers a range of IP addresses to handle. An interval defines when to do the monitoring action in sequence.
- * A comment defines a brief description for the monitor.
+ * A monitor covers a range of IPv4 or IPv6 addresses to handle. An interval defines when to do the monitoring action in sequence.
+ * A comment defines a brief description for the monitor. An optional gateway is the parent of all destinations of the
+ * range; while it is down they are unreachable by dependency and probed at a slow canary rate only.
  */
 @ManagedBean(name = "MonitorView")
 @ViewScoped
@@ -26,6 +26,9 @@ public class MonitorView implements Serializable {
     private String endIp;
     private String interval;
     private String comment;
+    private String gateway;
+    private String probeProfile;
+    private boolean discoveryEnabled;
 
     /**
      * Creates a new instance of MonitorView.
@@ -40,6 +43,22 @@ public class MonitorView implements Serializable {
         this.endIp = endIp;
         this.interval = interval;
         this.comment = comment;
+        this.gateway = "";
+        this.probeProfile = "";
+    }
+
+    /**
+     * Creates a new instance of MonitorView with a gateway.
+     *
+     * @param startIp  the start IP of the monitoring range
+     * @param endIp    the end IP of the monitoring range
+     * @param interval the monitoring interval
+     * @param comment  the comment for the monitor
+     * @param gateway  the IP of the gateway the range depends on; empty if none
+     */
+    public MonitorView(String startIp, String endIp, String interval, String comment, String gateway) {
+        this(startIp, endIp, interval, comment);
+        this.gateway = gateway == null ? "" : gateway;
     }
 
     /**
@@ -114,6 +133,60 @@ public class MonitorView implements Serializable {
         this.comment = comment;
     }
 
+    /**
+     * Get the gateway the monitor range depends on.
+     *
+     * @return the gateway IP; empty if none
+     */
+    public String getGateway() {
+        return gateway;
+    }
+
+    /**
+     * Set the gateway the monitor range depends on.
+     *
+     * @param gateway the gateway IP; empty if none
+     */
+    public void setGateway(String gateway) {
+        this.gateway = gateway == null ? "" : gateway;
+    }
+
+    /**
+     * Get the probe profile of the monitor.
+     *
+     * @return the profile name; empty for the default profile
+     */
+    public String getProbeProfile() {
+        return probeProfile;
+    }
+
+    /**
+     * Set the probe profile of the monitor.
+     *
+     * @param probeProfile the profile name; empty for the default profile
+     */
+    public void setProbeProfile(String probeProfile) {
+        this.probeProfile = probeProfile == null ? "" : probeProfile;
+    }
+
+    /**
+     * Check if the hosts of the range are discovered instead of probing all addresses.
+     *
+     * @return true if the host discovery is enabled
+     */
+    public boolean isDiscoveryEnabled() {
+        return discoveryEnabled;
+    }
+
+    /**
+     * Enable the host discovery of the range.
+     *
+     * @param discoveryEnabled true to discover the hosts; false to probe all addresses
+     */
+    public void setDiscoveryEnabled(boolean discoveryEnabled) {
+        this.discoveryEnabled = discoveryEnabled;
+    }
+
     /**
      * Check if this monitor view is valid against all others from the monitor list.<br>
      * <br>
@@ -124,19 +197,18 @@ public class MonitorView implements Serializable {
      * @return true if valid, else false
      */
     public boolean isValidAgainst(List<MonitorView> monitorList) {
+        IpAddress currentStart = IpAddress.parse(startIp);
+        IpAddress currentEnd = IpAddress.parse(endIp);
+
         for (MonitorView monitor : monitorList) {
-            LongRange monitorRange = new LongRange(IpUtils.ipToLong(monitor.startIp), IpUtils.ipToLong(monitor.endIp));
-            LongRange currentRange = new LongRange(IpUtils.ipToLong(startIp), IpUtils.ipToLong(endIp));
+            IpAddress monitorStart = IpAddress.parse(monitor.startIp);
+            IpAddress monitorEnd = IpAddress.parse(monitor.endIp);
 
-            if (currentRange.overlapsRange(monitorRange)) {
+            // Overlapping includes containing; IPv4 and IPv6 ranges never overlap
+            if (currentStart.compareTo(monitorEnd) <= 0 && currentEnd.compareTo(monitorStart) >= 0) {
                 LOG.error("Overlap: " + startIp + " " + endIp + " " + monitor + " ");
                 return false;
             }
-
-            if (monitorRange.containsRange(currentRange)) {
-                LOG.error("Contain: " + monitor + " " + startIp + " " + endIp);
-                return false;
-            }
         }
         return true;
     }
@@ -148,6 +220,9 @@ public class MonitorView implements Serializable {
         hash = 29 * hash + Objects.hashCode(this.endIp);
         hash = 29 * hash + Objects.hashCode(this.interval);
         hash = 29 * hash + Objects.hashCode(this.comment);
+        hash = 29 * hash + Objects.hashCode(this.gateway);
+        hash = 29 * hash + Objects.hashCode(this.probeProfile);
+        hash = 29 * hash + (this.discoveryEnabled ? 1 : 0);
         return hash;
     }
 
@@ -175,11 +250,20 @@ public class MonitorView implements Serializable {
         if (!Objects.equals(this.comment, other.comment)) {
             return false;
         }
+        if (!Objects.equals(this.gateway, other.gateway)) {
+            return false;
+        }
+        if (!Objects.equals(this.probeProfile, other.probeProfile)) {
+            return false;
+        }
+        if (this.discoveryEnabled != other.discoveryEnabled) {
+            return false;
+        }
         return true;
     }
 
     @Override
     public String toString() {
-        return "MonitorView{" + "startIp=" + startIp + ", endIp=" + endIp + ", interval=" + interval + ", comment=" + comment + '}';
+        return "MonitorView{" + "startIp=" + startIp + ", endIp=" + endIp + ", interval=" + interval + ", comment=" + comment + ", gateway=" + gateway + ", probeProfile=" + probeProfile + ", discoveryEnabled=" + discoveryEnabled + '}';
     }
 }
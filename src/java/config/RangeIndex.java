@@ -0,0 +1,105 @@
+package config;
+
+import java.util.Arrays;
+import java.util.List;
+import util.IpAddress;
+
+/**
+ * A sorted index of monitor IP ranges for fast overlap checks.<br>
+ * <br>
+ * The configured monitors never overlap, so sorting by start also sorts by end. An overlap check is a binary search for
+ * the last range starting before the end of the tested range. The range bounds are 128-bit keys (IPv4 mapped into the
+ * IPv6 space) kept as pairs of longs in primitive arrays. The index is immutable and can be used by many threads.
+ */
+public class RangeIndex {
+    /**
+     * The range starts in ascending order; upper and lower 64 bits of each start in turn.
+     */
+    private final long[] starts;
+    /**
+     * The range ends in the order of the starts; upper and lower 64 bits of each end in turn.
+     */
+    private final long[] ends;
+
+    /**
+     * Build the index for the given monitors.
+     *
+     * @param monitorList the monitors; they must not overlap
+     */
+    public RangeIndex(List<MonitorView> monitorList) {
+        IpAddress[][] ranges = new IpAddress[monitorList.size()][];
+
+        int count = 0;
+        for (MonitorView monitor : monitorList) {
+            IpAddress start = IpAddress.parse(monitor.getStartIp());
+            IpAddress end = IpAddress.parse(monitor.getEndIp());
+            if (start != null && end != null) {
+                ranges[count++] = new IpAddress[]{start, end};
+            }
+        }
+
+        Arrays.sort(ranges, 0, count, (first, second) -> first[0].compareTo(second[0]));
+
+        starts = new long[2 * count];
+        ends = new long[2 * count];
+        for (int idx = 0; idx < count; ++idx) {
+            starts[2 * idx] = ranges[idx][0].getHigh();
+            starts[2 * idx + 1] = ranges[idx][0].getLow();
+            ends[2 * idx] = ranges[idx][1].getHigh();
+            ends[2 * idx + 1] = ranges[idx][1].getLow();
+        }
+    }
+
+    /**
+     * Get the number of ranges in the index.
+     *
+     * @return the size
+     */
+    public int size() {
+        return starts.length / 2;
+    }
+
+    /**
+     * Check if a range overlaps or contains any range of the index.
+     *
+     * @param start the start of the range to check
+     * @param end   the end of the range to check
+     *
+     * @return true if it overlaps, else false
+     */
+    public boolean overlaps(IpAddress start, IpAddress end) {
+        // The last range starting at or before end
+        int low = 0;
+        int high = size() - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+
+            if (compare(starts, mid, end) <= 0) {
+                found = mid;
+                low = mid + 1;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+
+        return found >= 0 && compare(ends, found, start) >= 0;
+    }
+
+    /**
+     * Compare a key of the index with an address.
+     *
+     * @param keys    the starts or ends
+     * @param idx     the range index
+     * @param address the address
+     *
+     * @return less than, equal to or greater than 0 if the key is before, equal to or after the address
+     */
+    private static int compare(long[] keys, int idx, IpAddress address) {
+        int result = Long.compareUnsigned(keys[2 * idx], address.getHigh());
+
+        return result != 0 ? result : Long.compareUnsigned(keys[2 * idx + 1], address.getLow());
+    }
+}
@@ -2,9 +2,14 @@ package destination;
 
 import java.io.Serializable;
 import java.net.InetAddress;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.log4j.Logger;
+import util.IpAddress;
 
 /**
  * A destination to probe.<br>
@@ -29,18 +34,66 @@ public class Destination implements Serializable {
      * The upper level for a good connection quality. Stop increasing the quality counter if this value is reached.
      */
     private static final long QUALITY_UPPER_LEVEL = 10;
+    /**
+     * The number of probe cycles kept in the history.
+     */
+    private static final int HISTORY_SIZE = Long.SIZE;
+    /**
+     * The number of probe cycles to count state changes for the flap detection.
+     */
+    private static final int FLAP_WINDOW = 20;
+    /**
+     * Start flapping if the probe result changed this often within the flap window.
+     */
+    private static final int FLAP_START = 6;
+    /**
+     * Stop flapping if the probe result changed at most this often within the flap window.
+     */
+    private static final int FLAP_STOP = 2;
+    /**
+     * The number of successful probe cycles in a row needed to come up.
+     */
+    private static final int RISE = 2;
+    /**
+     * The number of failed probe cycles in a row needed to go down.
+     */
+    private static final int FALL = 3;
+    /**
+     * Counts the state changes of all destinations, so views can tell if anything changed since they were built.
+     */
+    private static final AtomicLong STATE_VERSION = new AtomicLong();
+    /**
+     * The number of probe cycles to count failures for the degraded state.
+     */
+    private static final int DEGRADED_WINDOW = 10;
+    /**
+     * Degraded if at least this number of probe cycles failed within the degraded window.
+     */
+    private static final int DEGRADED_FAILURES = 2;
     /**
      * The IP of the destination.
      */
     private InetAddress inetAddr;
+    /**
+     * The IP of the destination as 128-bit key for the indexes.
+     */
+    private IpAddress key;
     /**
      * The interval for probing.
      */
     private long interval;
     /**
-     * The time of the last probe action.
+     * The monotonic time (System.nanoTime) of the last probe action; 0 if not probed yet.
      */
-    private LocalDateTime lastProbe;
+    private long lastProbeNanos;
+    /**
+     * The wall clock time in milliseconds of the last probe action; 0 if not probed yet. Used for display only.
+     */
+    private long lastProbeMillis;
+    /**
+     * The monotonic time (System.nanoTime) the next probe is due; used for scheduling.
+     */
+    private long nextProbeNanos;
     /**
      * The last prebe result.
      */
@@ -53,6 +106,42 @@ public class Destination implements Serializable {
      * The probes name.
      */
     private String probe = "";
+    /**
+     * The results of the last probe cycles; bit 0 is the last cycle, a set bit is a success.
+     */
+    private long history = 0;
+    /**
+     * The number of valid bits in the history.
+     */
+    private int historySize = 0;
+    /**
+     * The debounced state.
+     */
+    private volatile DestinationState state = DestinationState.DOWN;
+    /**
+     * The subnet index counting this destination; null if not indexed.
+     */
+    private transient SubnetIndex index;
+    /**
+     * The position of the destination in the bitmaps of the subnet index.
+     */
+    private transient int ordinal;
+    /**
+     * The state counted in the subnet index.
+     */
+    private transient volatile DestinationState countedState;
+    /**
+     * The probe counted in the subnet index.
+     */
+    private transient volatile String countedProbe;
+    /**
+     * The listener notified of state changes; null if none.
+     */
+    private transient volatile StateListener stateListener;
+    /**
+     * The destination this one depends on, e.g. its gateway; null if none.
+     */
+    private transient volatile Destination parent;
 
     /**
      * Create a destination with a default probe interval time.
@@ -60,11 +149,14 @@ public class Destination implements Serializable {
      * @param inetAddr the IP of this destination
      */
     public Destination(InetAddress inetAddr) {
-        LOG.trace("inetAddr=[" + inetAddr.getHostAddress() + ']');
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("inetAddr=[" + inetAddr.getHostAddress() + ']');
+        }
 
         this.inetAddr = inetAddr;
+        this.key = IpAddress.of(inetAddr);
         this.interval = DEFAULT_INTERVAL;
-        this.lastProbe = LocalDateTime.now().minusSeconds(this.interval);
+        setPhaseOffset(0);
     }
 
     /**
@@ -75,9 +167,12 @@ public class Destination implements Serializable {
      *                 used
      */
     public Destination(InetAddress inetAddr, int interval) {
-        LOG.trace("inetAddr=[" + inetAddr.getHostAddress() + "] interval=" + interval);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("inetAddr=[" + inetAddr.getHostAddress() + "] interval=" + interval);
+        }
 
         this.inetAddr = inetAddr;
+        this.key = IpAddress.of(inetAddr);
 
         if (interval <= 0) {
             LOG.warn("interval=" + interval + " is invalid (<=0); take DEFAULT=" + DEFAULT_INTERVAL);
@@ -87,7 +182,7 @@ public class Destination implements Serializable {
             this.interval = interval;
         }
 
-        this.lastProbe = LocalDateTime.now().minusSeconds(this.interval);
+        setPhaseOffset(0);
     }
 
     /**
@@ -99,6 +194,15 @@ public class Destination implements Serializable {
         return inetAddr;
     }
 
+    /**
+     * Get the IP of this destination as key for the indexes.
+     *
+     * @return the IPv4 or IPv6 address key
+     */
+    public IpAddress getKey() {
+        return key;
+    }
+
     /**
      * Set the IP of this destination.
      *
@@ -106,24 +210,92 @@ public class Destination implements Serializable {
      */
     public void setInetAddr(InetAddress inetAddr) {
         this.inetAddr = inetAddr;
+        this.key = IpAddress.of(inetAddr);
     }
 
     /**
-     * Get the last time when a probe was done.
+     * Get the last time when a probe was done. For display only; the scheduling uses getNextProbeNanos.
      *
-     * @return the probe time
+     * @return the probe time in the system time zone or null if not probed yet
      */
     public LocalDateTime getLastProbe() {
-        return lastProbe;
+        return lastProbeMillis == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(lastProbeMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * Get the monotonic time when a probe was done last.
+     *
+     * @return the probe time as given by System.nanoTime
+     */
+    public long getLastProbeNanos() {
+        return lastProbeNanos;
+    }
+
+    /**
+     * Set the time when a probe was done last. The next probe is due one interval later.<br>
+     * The wall clock time for display is derived from the current time.
+     *
+     * @param lastProbeNanos the probe time as given by System.nanoTime
+     */
+    public void setLastProbeNanos(long lastProbeNanos) {
+        this.lastProbeNanos = lastProbeNanos;
+        this.lastProbeMillis = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastProbeNanos);
+        this.nextProbeNanos = lastProbeNanos + TimeUnit.SECONDS.toNanos(interval);
+    }
+
+    /**
+     * Get the wall clock time when a probe was done last.
+     *
+     * @return the probe time in milliseconds since the epoch or 0 if not probed yet
+     */
+    public long getLastProbeMillis() {
+        return lastProbeMillis;
+    }
+
+    /**
+     * Take over a probe result done elsewhere, e.g. by another cluster node or restored from a snapshot.<br>
+     * The scheduling time is not changed.
+     *
+     * @param lastProbeMillis the wall clock time of the probe in milliseconds since the epoch
+     * @param probeResult     the probe result
+     * @param state           the debounced state
+     * @param quality         the probe quality
+     * @param probe           the probes name
+     */
+    public void applyResult(long lastProbeMillis, boolean probeResult, DestinationState state, int quality, String probe) {
+        this.lastProbeMillis = lastProbeMillis;
+        this.probeResult = probeResult;
+        this.quality = quality;
+        this.probe = probe;
+
+        // Start a new history consistent with the state
+        this.history = state.isAvailable() ? -1L : 0L;
+        this.historySize = state == DestinationState.FLAPPING ? 0 : RISE + FALL;
+        if (this.state != state) {
+            this.state = state;
+            STATE_VERSION.incrementAndGet();
+        }
+        updateIndex();
+    }
+
+    /**
+     * Get the monotonic time when the next probe is due.
+     *
+     * @return the due time as given by System.nanoTime
+     */
+    public long getNextProbeNanos() {
+        return nextProbeNanos;
     }
 
     /**
-     * Set the time when a probe was done last.
+     * Delay the first probe of this destination by a phase offset.<br>
+     * Destinations of a monitor get different offsets to spread their probes over the interval. The last probe time is
+     * not changed.
      *
-     * @param lastProbe the probe time
+     * @param offsetMillis the delay in milliseconds; 0 means probe immediately
      */
-    public void setLastProbe(LocalDateTime lastProbe) {
-        this.lastProbe = lastProbe;
+    public void setPhaseOffset(long offsetMillis) {
+        nextProbeNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offsetMillis);
     }
 
     /**
@@ -144,6 +316,268 @@ public class Destination implements Serializable {
         this.probeResult = probeResult;
     }
 
+    /**
+     * Get the debounced state.
+     *
+     * @return the state
+     */
+    public DestinationState getState() {
+        return state;
+    }
+
+    /**
+     * Check if the destination is available according to its debounced state.
+     *
+     * @return true if up or degraded
+     */
+    public boolean isAvailable() {
+        return state.isAvailable();
+    }
+
+    /**
+     * Get the results of the last probe cycles.
+     *
+     * @return bit 0 is the last cycle, a set bit is a success; only the lower {@link #getHistorySize()} bits are valid
+     */
+    public long getHistory() {
+        return history;
+    }
+
+    /**
+     * Get the number of probe cycles in the history.
+     *
+     * @return the count; at most 64
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * Get the number of probe result changes within the flap window.
+     *
+     * @return the count
+     */
+    public int getFlapCount() {
+        int size = Math.min(historySize, FLAP_WINDOW);
+
+        if (size < 2) {
+            return 0;
+        }
+        // A set bit for each pair of neighbouring cycles with different results
+        return Long.bitCount((history ^ (history >>> 1)) & ((1L << (size - 1)) - 1));
+    }
+
+    /**
+     * Set the subnet index counting this destination; used by the index only.
+     *
+     * @param index        the index
+     * @param ordinal      the position in the bitmaps of the index
+     * @param countedState the state counted in the index
+     * @param countedProbe the probe counted in the index
+     */
+    void setIndex(SubnetIndex index, int ordinal, DestinationState countedState, String countedProbe) {
+        this.index = index;
+        this.ordinal = ordinal;
+        this.countedState = countedState;
+        this.countedProbe = countedProbe;
+    }
+
+    /**
+     * Get the position in the bitmaps of the subnet index.
+     *
+     * @return the ordinal
+     */
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Get the state counted in the subnet index.
+     *
+     * @return the state
+     */
+    DestinationState getCountedState() {
+        return countedState;
+    }
+
+    /**
+     * Get the probe counted in the subnet index.
+     *
+     * @return the probes name
+     */
+    String getCountedProbe() {
+        return countedProbe;
+    }
+
+    /**
+     * Get the number of state changes of all destinations so far.
+     *
+     * @return the version; increases with each state change
+     */
+    public static long getStateVersion() {
+        return STATE_VERSION.get();
+    }
+
+    /**
+     * Update the subnet index if the state or the probe changed. The index is locked only on changes.
+     */
+    private void updateIndex() {
+        if (index != null && (state != countedState || !probe.equals(countedProbe))) {
+            index.update(this);
+        }
+    }
+
+    /**
+     * Set the listener notified of state changes. Only the probe results of this node notify the listener; results
+     * applied from a snapshot or another cluster node do not.
+     *
+     * @param stateListener the listener; null to remove it
+     */
+    public void setStateListener(StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    /**
+     * Add the result of a probe cycle to the history and compute the new state. Notify the listener of a change.
+     *
+     * @param success true if the probe cycle was successful
+     */
+    private void record(boolean success) {
+        history = (history << 1) | (success ? 1 : 0);
+        if (historySize < HISTORY_SIZE) {
+            ++historySize;
+        }
+
+        DestinationState next = nextState();
+        if (next != state || historySize == 1) {
+            // The first result is a change too; the initial state is a placeholder only
+            changeState(historySize == 1 ? null : state, next);
+        }
+    }
+
+    /**
+     * Change the state and notify the index and the listener.
+     *
+     * @param previous the previous state; null for the first probe result
+     * @param next     the new state
+     */
+    private void changeState(DestinationState previous, DestinationState next) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<" + inetAddr.getHostAddress() + "> " + previous + " -> " + next);
+        }
+        state = next;
+        STATE_VERSION.incrementAndGet();
+        updateIndex();
+
+        StateListener listener = stateListener;
+        if (listener != null) {
+            listener.stateChanged(this, previous, next);
+        }
+    }
+
+    /**
+     * Set the destination this one depends on, e.g. the gateway of its range. While the parent is down a failing
+     * destination is unreachable instead of down.
+     *
+     * @param parent the parent; null if none
+     */
+    public void setParent(Destination parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Get the destination this one depends on.
+     *
+     * @return the parent; null if none
+     */
+    public Destination getParent() {
+        return parent;
+    }
+
+    /**
+     * Check if the parent is known to be down, i.e. down or unreachable itself after at least one probe result.
+     *
+     * @return true if the parent is down; false if it is up or there is no parent
+     */
+    public boolean isParentDown() {
+        Destination current = parent;
+        if (current == null) {
+            return false;
+        }
+
+        DestinationState parentState = current.state;
+        return (parentState == DestinationState.DOWN || parentState == DestinationState.UNREACHABLE)
+               && current.historySize > 0;
+    }
+
+    /**
+     * Mark the destination unreachable by dependency without a probe; used while its parent is down. The history is
+     * kept, so the next probe results continue from it.
+     *
+     * @return true if the state changed
+     */
+    public boolean setUnreachable() {
+        if (state == DestinationState.UNREACHABLE) {
+            return false;
+        }
+        changeState(state, DestinationState.UNREACHABLE);
+        return true;
+    }
+
+    /**
+     * The state machine. Going down needs FALL failed cycles in a row, coming up needs RISE successful cycles in a
+     * row. Failures within the degraded window make an up destination degraded. Many result changes within the flap
+     * window start flapping; few changes stop it (hysteresis). A destination going down while its parent is down is
+     * unreachable instead.
+     *
+     * @return the new state
+     */
+    private DestinationState nextState() {
+        int flaps = getFlapCount();
+        if (state == DestinationState.FLAPPING ? flaps > FLAP_STOP : flaps >= FLAP_START) {
+            return DestinationState.FLAPPING;
+        }
+
+        if (historySize == 1) {
+            // No history yet; take the first result
+            return probeResultState();
+        }
+
+        int successes = Math.min(Long.numberOfTrailingZeros(~history), historySize);
+        int failures = Math.min(Long.numberOfTrailingZeros(history), historySize);
+
+        if (failures >= FALL) {
+            return downState();
+        }
+        if (!state.isAvailable() && successes < RISE) {
+            // Not up long enough to leave the down, unreachable or flapping state
+            return state == DestinationState.DOWN ? state : downState();
+        }
+
+        int window = Math.min(historySize, DEGRADED_WINDOW);
+        int windowFailures = window - Long.bitCount(history & ((1L << window) - 1));
+
+        return windowFailures >= DEGRADED_FAILURES ? DestinationState.DEGRADED : DestinationState.UP;
+    }
+
+    /**
+     * Get the state matching the last probe cycle only.
+     *
+     * @return UP, DOWN or UNREACHABLE
+     */
+    private DestinationState probeResultState() {
+        return (history & 1) != 0 ? DestinationState.UP : downState();
+    }
+
+    /**
+     * Get the state of a destination not answering.
+     *
+     * @return UNREACHABLE if the parent is down, else DOWN
+     */
+    private DestinationState downState() {
+        return isParentDown() ? DestinationState.UNREACHABLE : DestinationState.DOWN;
+    }
+
     /**
      * Get the probes interval for this destination.
      *
@@ -190,8 +624,9 @@ public class Destination implements Serializable {
     }
 
     /**
-     * Set the probe done.<br>
+     * Set the probe done at the end of a probe cycle.<br>
      * If the probe is empty then probing failed. Decrease the quality in this case. Otherwise increase the quality.
+     * The result is added to the history and the debounced state is updated.
      *
      * @param probe the probe done
      */
@@ -204,6 +639,9 @@ public class Destination implements Serializable {
         else {
             incQuality();
         }
+
+        record(!this.probe.isEmpty());
+        updateIndex();
     }
 
     /**
@@ -239,6 +677,6 @@ public class Destination implements Serializable {
 
     @Override
     public String toString() {
-        return "Destination{" + "inetAddr=" + inetAddr + ", interval=" + interval + ", lastProbe=" + lastProbe + ", probeResult=" + probeResult + ", quality=" + quality + ", probe=" + probe + '}';
+        return "Destination{" + "inetAddr=" + inetAddr + ", interval=" + interval + ", lastProbe=" + getLastProbe() + ", probeResult=" + probeResult + ", state=" + state + ", quality=" + quality + ", probe=" + probe + '}';
     }
 }
@@ -0,0 +1,435 @@
+package destination;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import org.apache.log4j.Logger;
+import util.IpAddress;
+
+/**
+ * A binary snapshot of the destination states to warm up after a restart.<br>
+ * <br>
+ * The snapshot keeps the probe result, state, quality, last probe time and probe type of each destination. It is restored
+ * when the web application starts and applied to the destinations of each started monitor, so the results are
+ * meaningful at once instead of starting with a quality of 0. The state is held in packed arrays sorted by IP and saved
+ * periodically and at shutdown.<br>
+ * <br>
+ * File format: magic, version, the probe type names, the number of entries, the entries (IP as two longs, last probe
+ * time in milliseconds, result and state flags, quality and probe type index) and a CRC32 of all bytes before. Version 1
+ * and 2 files have the IPv4 address as int; version 1 files have no state, it is taken from the result.
+ */
+public class DestinationSnapshot {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(DestinationSnapshot.class);
+    /**
+     * Identifies a snapshot file.
+     */
+    private static final int MAGIC = 0x4E494D53;
+    /**
+     * The file format version.
+     */
+    private static final byte VERSION = 3;
+    /**
+     * Keep the state of destinations not running any more for this time in milliseconds.
+     */
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * The snapshot file.
+     */
+    private final File file;
+    /**
+     * The current state; replaced as a whole on load and save.
+     */
+    private volatile Table table = new Table(0);
+    /**
+     * The periodic writer; null if not scheduled.
+     */
+    private ScheduledExecutorService writer;
+
+    /**
+     * The packed destination states sorted by IP.
+     */
+    private static class Table {
+        private final long[] highs;
+        private final long[] lows;
+        private final long[] lastProbes;
+        private final byte[] flags;
+        private final byte[] qualities;
+        private final byte[] probes;
+        private final List<String> probeTypes = new ArrayList<>();
+
+        Table(int size) {
+            highs = new long[size];
+            lows = new long[size];
+            lastProbes = new long[size];
+            flags = new byte[size];
+            qualities = new byte[size];
+            probes = new byte[size];
+        }
+
+        /**
+         * Get the index of a probe type; add it if new.
+         *
+         * @param probe the probes name
+         *
+         * @return the index
+         */
+        byte probeIndex(String probe) {
+            int idx = probeTypes.indexOf(probe);
+            if (idx < 0) {
+                idx = probeTypes.size();
+                probeTypes.add(probe);
+            }
+            return (byte) idx;
+        }
+
+        /**
+         * Find the entry of an address by binary search.
+         *
+         * @param ip the address
+         *
+         * @return the index or a negative value if not found
+         */
+        int find(IpAddress ip) {
+            int low = 0;
+            int high = highs.length - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(mid, ip);
+                if (cmp < 0) {
+                    low = mid + 1;
+                }
+                else if (cmp > 0) {
+                    high = mid - 1;
+                }
+                else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Compare the address of an entry with an address as unsigned 128-bit numbers.
+         *
+         * @param idx the index of the entry
+         * @param ip  the address
+         *
+         * @return a negative value, 0 or a positive value if the entry is before, equal or after the address
+         */
+        int compare(int idx, IpAddress ip) {
+            int result = Long.compareUnsigned(highs[idx], ip.getHigh());
+
+            return result != 0 ? result : Long.compareUnsigned(lows[idx], ip.getLow());
+        }
+    }
+
+    /**
+     * Create a snapshot using the given file. Nothing is read until load is called.
+     *
+     * @param file the snapshot file
+     */
+    public DestinationSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the number of destination states.
+     *
+     * @return the size
+     */
+    public int size() {
+        return table.highs.length;
+    }
+
+    /**
+     * Load the snapshot file. A missing file gives an empty snapshot.
+     *
+     * @throws IOException in case the file can not be read or is corrupt
+     */
+    public void load() throws IOException {
+        if (!file.exists()) {
+            LOG.info("No destination snapshot " + file.getPath());
+            return;
+        }
+
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file.getPath() + " is not a destination snapshot");
+            }
+            byte version = in.readByte();
+            if (version < 1 || version > VERSION) {
+                throw new IOException(file.getPath() + " has the unknown version " + version);
+            }
+
+            List<String> probeTypes = new ArrayList<>();
+            int types = in.readUnsignedByte();
+            for (int idx = 0; idx < types; ++idx) {
+                probeTypes.add(in.readUTF());
+            }
+
+            Table loaded = new Table(in.readInt());
+            loaded.probeTypes.addAll(probeTypes);
+            for (int idx = 0; idx < loaded.highs.length; ++idx) {
+                if (version < 3) {
+                    IpAddress ip = IpAddress.ofV4(in.readInt());
+                    loaded.highs[idx] = ip.getHigh();
+                    loaded.lows[idx] = ip.getLow();
+                }
+                else {
+                    loaded.highs[idx] = in.readLong();
+                    loaded.lows[idx] = in.readLong();
+                }
+                loaded.lastProbes[idx] = in.readLong();
+                loaded.flags[idx] = in.readByte();
+                if (version == 1) {
+                    // Version 1 has the probe result only
+                    loaded.flags[idx] = loaded.flags[idx] != 0 ? flags(true, DestinationState.UP)
+                                        : flags(false, DestinationState.DOWN);
+                }
+                loaded.qualities[idx] = in.readByte();
+                loaded.probes[idx] = in.readByte();
+            }
+
+            long expected = crc.getValue();
+            if (in.readInt() != (int) expected) {
+                throw new IOException(file.getPath() + " has a bad checksum");
+            }
+
+            table = loaded;
+        }
+        catch (EOFException eofex) {
+            throw new IOException(file.getPath() + " is truncated", eofex);
+        }
+
+        LOG.info("Loaded " + size() + " destination states from " + file.getPath());
+    }
+
+    /**
+     * Apply the saved states to destinations, e.g. before the probing of a monitor starts.
+     *
+     * @param destinations the destinations
+     *
+     * @return the number of destinations found in the snapshot
+     */
+    public int apply(Collection<Destination> destinations) {
+        Table current = table;
+        int applied = 0;
+
+        for (Destination destination : destinations) {
+            int idx = current.find(destination.getKey());
+
+            if (idx >= 0) {
+                byte entryFlags = current.flags[idx];
+                destination.applyResult(current.lastProbes[idx], (entryFlags & 1) != 0,
+                                        DestinationState.values()[entryFlags >>> 1], current.qualities[idx],
+                                        current.probeTypes.get(current.probes[idx] & 0xFF));
+                ++applied;
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Applied " + applied + " of " + destinations.size() + " destination states");
+        }
+        return applied;
+    }
+
+    /**
+     * Merge the states of the given destinations into the snapshot and write the file. States of other destinations
+     * are kept for one day, also over destinations not probed yet.
+     *
+     * @param destinations the destinations to save
+     *
+     * @throws IOException in case the file can not be written
+     */
+    public synchronized void save(Collection<Destination> destinations) throws IOException {
+        Destination[] sorted = destinations.toArray(new Destination[destinations.size()]);
+        Arrays.sort(sorted, (first, second) -> first.getKey().compareTo(second.getKey()));
+
+        Table old = table;
+        Table merged = new Table(old.highs.length + sorted.length);
+        long oldest = System.currentTimeMillis() - MAX_AGE;
+
+        // Merge join the sorted old states and the sorted destinations; a destination replaces an old state
+        int size = 0;
+        int oldIdx = 0;
+        int newIdx = 0;
+        while (oldIdx < old.highs.length || newIdx < sorted.length) {
+            IpAddress newKey = newIdx < sorted.length ? sorted[newIdx].getKey() : null;
+            int cmp = oldIdx >= old.highs.length ? 1 : newKey == null ? -1 : old.compare(oldIdx, newKey);
+
+            if (cmp >= 0 && sorted[newIdx].getLastProbeMillis() == 0) {
+                // Not probed yet; an old state is kept
+                ++newIdx;
+            }
+            else if (cmp >= 0) {
+                Destination destination = sorted[newIdx++];
+                if (size > 0 && merged.compare(size - 1, newKey) == 0) {
+                    // The same IP in several monitors; keep the first
+                    continue;
+                }
+                merged.highs[size] = newKey.getHigh();
+                merged.lows[size] = newKey.getLow();
+                merged.lastProbes[size] = destination.getLastProbeMillis();
+                merged.flags[size] = flags(destination.getProbeResult(), destination.getState());
+                merged.qualities[size] = (byte) destination.getQuality();
+                merged.probes[size] = merged.probeIndex(destination.getProbe());
+                ++size;
+
+                if (cmp == 0) {
+                    ++oldIdx;
+                }
+            }
+            else {
+                if (old.lastProbes[oldIdx] >= oldest && (size == 0 || merged.highs[size - 1] != old.highs[oldIdx]
+                                                                   || merged.lows[size - 1] != old.lows[oldIdx])) {
+                    merged.highs[size] = old.highs[oldIdx];
+                    merged.lows[size] = old.lows[oldIdx];
+                    merged.lastProbes[size] = old.lastProbes[oldIdx];
+                    merged.flags[size] = old.flags[oldIdx];
+                    merged.qualities[size] = old.qualities[oldIdx];
+                    merged.probes[size] = merged.probeIndex(old.probeTypes.get(old.probes[oldIdx] & 0xFF));
+                    ++size;
+                }
+                ++oldIdx;
+            }
+        }
+
+        Table result = new Table(size);
+        result.probeTypes.addAll(merged.probeTypes);
+        System.arraycopy(merged.highs, 0, result.highs, 0, size);
+        System.arraycopy(merged.lows, 0, result.lows, 0, size);
+        System.arraycopy(merged.lastProbes, 0, result.lastProbes, 0, size);
+        System.arraycopy(merged.flags, 0, result.flags, 0, size);
+        System.arraycopy(merged.qualities, 0, result.qualities, 0, size);
+        System.arraycopy(merged.probes, 0, result.probes, 0, size);
+
+        write(result);
+        table = result;
+    }
+
+    /**
+     * Pack the probe result and the state.
+     *
+     * @param probeResult the probe result
+     * @param state       the state
+     *
+     * @return the result in bit 0, the state ordinal above
+     */
+    private static byte flags(boolean probeResult, DestinationState state) {
+        return (byte) ((probeResult ? 1 : 0) | (state.ordinal() << 1));
+    }
+
+    /**
+     * Write a table to a temporary file and replace the snapshot file with it.
+     *
+     * @param toWrite the table
+     *
+     * @throws IOException in case the file can not be written
+     */
+    private void write(Table toWrite) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory.getPath());
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fos), crc));
+
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(toWrite.probeTypes.size());
+            for (String probeType : toWrite.probeTypes) {
+                out.writeUTF(probeType);
+            }
+            out.writeInt(toWrite.highs.length);
+            for (int idx = 0; idx < toWrite.highs.length; ++idx) {
+                out.writeLong(toWrite.highs[idx]);
+                out.writeLong(toWrite.lows[idx]);
+                out.writeLong(toWrite.lastProbes[idx]);
+                out.writeByte(toWrite.flags[idx]);
+                out.writeByte(toWrite.qualities[idx]);
+                out.writeByte(toWrite.probes[idx]);
+            }
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException amnsex) {
+            LOG.warn("Atomic move not supported; " + amnsex.getMessage());
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Saved " + toWrite.highs.length + " destination states to " + file.getPath());
+        }
+    }
+
+    /**
+     * Save the snapshot periodically.
+     *
+     * @param source        supplies the destinations to save
+     * @param periodSeconds the time between two saves in seconds
+     */
+    public synchronized void schedule(Supplier<Collection<Destination>> source, long periodSeconds) {
+        if (writer != null) {
+            return;
+        }
+
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DestinationSnapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(() -> {
+            try {
+                save(source.get());
+            }
+            catch (IOException | RuntimeException ex) {
+                LOG.warn("Saving destination snapshot failed: " + ex.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop saving the snapshot periodically.
+     */
+    public synchronized void cancel() {
+        if (writer != null) {
+            writer.shutdownNow();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package destination;
+
+/**
+ * The debounced state of a destination.<br>
+ * <br>
+ * The state changes only after several probe cycles confirm it; a single failed or successful probe does not change
+ * it. See the state machine in Destination.
+ */
+public enum DestinationState {
+    /**
+     * The destination answers.
+     */
+    UP,
+    /**
+     * The destination answers, but some of the recent probes failed.
+     */
+    DEGRADED,
+    /**
+     * The destination does not answer.
+     */
+    DOWN,
+    /**
+     * The probe result changes too often to decide between up and down.
+     */
+    FLAPPING,
+    /**
+     * The destination does not answer and its parent (e.g. the gateway of its range) is down too; unreachable by
+     * dependency. It is probed at a slow canary rate only until the parent recovers.
+     */
+    UNREACHABLE;
+
+    /**
+     * Check if a destination in this state is counted as available.
+     *
+     * @return true for UP and DEGRADED
+     */
+    public boolean isAvailable() {
+        return this == UP || this == DEGRADED;
+    }
+}
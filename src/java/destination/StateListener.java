@@ -0,0 +1,16 @@
+package destination;
+
+/**
+ * Use this interface to be notified of the debounced state changes of a destination.
+ */
+@FunctionalInterface
+public interface StateListener {
+    /**
+     * The state of a destination changed. Called by the probing thread; do not block.
+     *
+     * @param destination the destination
+     * @param from        the previous state; null for the first probe result
+     * @param to          the new state
+     */
+    public void stateChanged(Destination destination, DestinationState from, DestinationState to);
+}
@@ -0,0 +1,466 @@
+package destination;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import util.IpAddress;
+import util.RoaringBitmap;
+
+/**
+ * A hierarchical index of destinations by subnet with up and down counts. IPv4 destinations are grouped by /16 network
+ * and /24 subnet, IPv6 destinations by /64 network and /120 subnet.<br>
+ * <br>
+ * The counts are updated incrementally when the debounced state of an indexed destination changes between available
+ * (up, degraded) and not available (down, flapping), so the aggregates of a subnet are available without visiting its
+ * destinations. A subnet has at most 256 hosts and an IPv4 network at most 256 subnets; this keeps a single expansion
+ * in the result tree small. IPv6 networks are sparse, so they have only the subnets with destinations.<br>
+ * <br>
+ * In addition each destination gets an ordinal in the order added, and the index keeps a compressed bitmap of the
+ * ordinals per state and per probe. The bitmaps are updated on each state or probe change, so counts and selections
+ * by state and probe (e.g. "up via EchoProbe") are bitmap operations instead of scans over all destinations.
+ */
+public class SubnetIndex {
+    /**
+     * The networks by their first address.
+     */
+    private final NavigableMap<IpAddress, Network> networks = new TreeMap<>();
+    /**
+     * The destinations up (available).
+     */
+    private int up = 0;
+    /**
+     * The destinations down.
+     */
+    private int down = 0;
+    /**
+     * The destinations by ordinal.
+     */
+    private final List<Destination> ordinals = new ArrayList<>();
+    /**
+     * The ordinals of the destinations by state.
+     */
+    private final Map<DestinationState, RoaringBitmap> states = new EnumMap<>(DestinationState.class);
+    /**
+     * The ordinals of the destinations by the probe of their last successful probe cycle.
+     */
+    private final Map<String, RoaringBitmap> probes = new HashMap<>();
+
+    /**
+     * A /24 or /120 subnet with its hosts.
+     */
+    private static class Subnet {
+        private int up = 0;
+        private int down = 0;
+        private final Destination[] hosts = new Destination[256];
+    }
+
+    /**
+     * A /16 or /64 network with its subnets.
+     */
+    private static class Network {
+        private int up = 0;
+        private int down = 0;
+        private final NavigableMap<IpAddress, Subnet> subnets = new TreeMap<>();
+    }
+
+    /**
+     * The aggregated state of a subnet.
+     */
+    public static class Summary {
+        private final IpAddress key;
+        private final int length;
+        private final int up;
+        private final int down;
+
+        /**
+         * Create a summary.
+         *
+         * @param key    the first address of the subnet
+         * @param length the prefix length
+         * @param up     the destinations up
+         * @param down   the destinations down
+         */
+        Summary(IpAddress key, int length, int up, int down) {
+            this.key = key;
+            this.length = length;
+            this.up = up;
+            this.down = down;
+        }
+
+        /**
+         * Get the key to look up the children of this subnet.
+         *
+         * @return the first address of the subnet
+         */
+        public IpAddress getKey() {
+            return key;
+        }
+
+        /**
+         * Get the prefix length.
+         *
+         * @return 16 or 24 for IPv4, 64 or 120 for IPv6
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Get the number of destinations up.
+         *
+         * @return the count
+         */
+        public int getUp() {
+            return up;
+        }
+
+        /**
+         * Get the number of destinations down.
+         *
+         * @return the count
+         */
+        public int getDown() {
+            return down;
+        }
+
+        /**
+         * Get the subnet in CIDR notation.
+         *
+         * @return e.g. "10.1.2.0/24" or "2001:db8::/64"
+         */
+        public String getName() {
+            return key.toString() + '/' + length;
+        }
+
+        @Override
+        public String toString() {
+            return "Summary{" + "name=" + getName() + ", up=" + up + ", down=" + down + '}';
+        }
+    }
+
+    /**
+     * Add a destination to the index. Its availability changes are counted from now on.
+     *
+     * @param destination the destination; it must not be in another index
+     */
+    public synchronized void add(Destination destination) {
+        IpAddress ip = destination.getKey();
+
+        Network network = networks.computeIfAbsent(ip.prefix(networkLength(ip)), key -> new Network());
+        Subnet subnet = network.subnets.computeIfAbsent(ip.prefix(subnetLength(ip)), key -> new Subnet());
+        subnet.hosts[(int) ip.getLow() & 0xFF] = destination;
+
+        DestinationState state = destination.getState();
+        String probe = destination.getProbe();
+        int ordinal = ordinals.size();
+        ordinals.add(destination);
+        count(ip, state.isAvailable() ? 1 : 0, state.isAvailable() ? 0 : 1);
+        mark(ordinal, state, probe);
+        destination.setIndex(this, ordinal, state, probe);
+    }
+
+    /**
+     * Get the prefix length of the networks of an address family.
+     *
+     * @param ip an address of the family
+     *
+     * @return 16 for IPv4, 64 for IPv6
+     */
+    private static int networkLength(IpAddress ip) {
+        return ip.isV4() ? 16 : 64;
+    }
+
+    /**
+     * Get the prefix length of the subnets of an address family; a subnet always has up to 256 hosts.
+     *
+     * @param ip an address of the family
+     *
+     * @return 24 for IPv4, 120 for IPv6
+     */
+    private static int subnetLength(IpAddress ip) {
+        return ip.getBits() - 8;
+    }
+
+    /**
+     * Count the change of a destination if its state or probe differs from the counted one.
+     *
+     * @param destination the destination
+     */
+    synchronized void update(Destination destination) {
+        DestinationState state = destination.getState();
+        String probe = destination.getProbe();
+        DestinationState countedState = destination.getCountedState();
+        String countedProbe = destination.getCountedProbe();
+
+        if (state == countedState && probe.equals(countedProbe)) {
+            return;
+        }
+
+        if (state.isAvailable() != countedState.isAvailable()) {
+            int change = state.isAvailable() ? 1 : -1;
+            count(destination.getKey(), change, -change);
+        }
+
+        int ordinal = destination.getOrdinal();
+        if (state != countedState) {
+            states.get(countedState).remove(ordinal);
+        }
+        if (!probe.equals(countedProbe) && !countedProbe.isEmpty()) {
+            probes.get(countedProbe).remove(ordinal);
+        }
+        mark(ordinal, state, probe);
+        destination.setIndex(this, ordinal, state, probe);
+    }
+
+    /**
+     * Add an ordinal to the bitmaps of a state and a probe.
+     *
+     * @param ordinal the ordinal of the destination
+     * @param state   the state
+     * @param probe   the probe; empty for none
+     */
+    private void mark(int ordinal, DestinationState state, String probe) {
+        states.computeIfAbsent(state, key -> new RoaringBitmap()).add(ordinal);
+        if (!probe.isEmpty()) {
+            probes.computeIfAbsent(probe, key -> new RoaringBitmap()).add(ordinal);
+        }
+    }
+
+    /**
+     * Change the counts on all levels.
+     *
+     * @param ip         the IP of the destination
+     * @param upChange   the change of the up count
+     * @param downChange the change of the down count
+     */
+    private void count(IpAddress ip, int upChange, int downChange) {
+        Network network = networks.get(ip.prefix(networkLength(ip)));
+        Subnet subnet = network.subnets.get(ip.prefix(subnetLength(ip)));
+
+        up += upChange;
+        down += downChange;
+        network.up += upChange;
+        network.down += downChange;
+        subnet.up += upChange;
+        subnet.down += downChange;
+    }
+
+    /**
+     * Get the number of destinations up.
+     *
+     * @return the count
+     */
+    public synchronized int getUp() {
+        return up;
+    }
+
+    /**
+     * Get the number of destinations down.
+     *
+     * @return the count
+     */
+    public synchronized int getDown() {
+        return down;
+    }
+
+    /**
+     * Get the networks.
+     *
+     * @return the summaries in ascending order; IPv4 before IPv6
+     */
+    public synchronized List<Summary> getNetworks() {
+        List<Summary> result = new ArrayList<>(networks.size());
+
+        for (Map.Entry<IpAddress, Network> entry : networks.entrySet()) {
+            result.add(new Summary(entry.getKey(), networkLength(entry.getKey()), entry.getValue().up, entry.getValue().down));
+        }
+        return result;
+    }
+
+    /**
+     * Get the subnets of a network.
+     *
+     * @param networkKey the key of the network
+     *
+     * @return the summaries in ascending order; at most 256 for IPv4
+     */
+    public synchronized List<Summary> getSubnets(IpAddress networkKey) {
+        List<Summary> result = new ArrayList<>();
+        Network network = networks.get(networkKey);
+
+        if (network != null) {
+            for (Map.Entry<IpAddress, Subnet> entry : network.subnets.entrySet()) {
+                Subnet subnet = entry.getValue();
+                result.add(new Summary(entry.getKey(), subnetLength(entry.getKey()), subnet.up, subnet.down));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the destinations of a subnet.
+     *
+     * @param subnetKey the key of the subnet
+     *
+     * @return the destinations in ascending order; at most 256
+     */
+    public synchronized List<Destination> getHosts(IpAddress subnetKey) {
+        List<Destination> result = new ArrayList<>();
+        Network network = networks.get(subnetKey.prefix(networkLength(subnetKey)));
+        Subnet subnet = network == null ? null : network.subnets.get(subnetKey);
+
+        if (subnet != null) {
+            for (Destination host : subnet.hosts) {
+                if (host != null) {
+                    result.add(host);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the destinations of a range, e.g. a CIDR block; only the networks and subnets overlapping the range are
+     * visited.
+     *
+     * @param start the first address of the range
+     * @param end   the last address of the range
+     *
+     * @return the destinations in ascending order
+     */
+    public synchronized List<Destination> getHosts(IpAddress start, IpAddress end) {
+        List<Destination> result = new ArrayList<>();
+
+        for (Network network : networks.subMap(start.prefix(networkLength(start)), true, end, true).values()) {
+            for (Subnet subnet : network.subnets.subMap(start.prefix(subnetLength(start)), true, end, true).values()) {
+                for (Destination host : subnet.hosts) {
+                    if (host != null && host.getKey().compareTo(start) >= 0 && host.getKey().compareTo(end) <= 0) {
+                        result.add(host);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get an indexed destination.
+     *
+     * @param ip the address of the destination
+     *
+     * @return the destination or null if not indexed
+     */
+    public synchronized Destination get(IpAddress ip) {
+        Network network = networks.get(ip.prefix(networkLength(ip)));
+        Subnet subnet = network == null ? null : network.subnets.get(ip.prefix(subnetLength(ip)));
+
+        return subnet == null ? null : subnet.hosts[(int) ip.getLow() & 0xFF];
+    }
+
+    /**
+     * Get the probes of the last successful probe cycles of the destinations.
+     *
+     * @return the probe names in ascending order
+     */
+    public synchronized List<String> getProbes() {
+        List<String> result = new ArrayList<>();
+
+        for (Map.Entry<String, RoaringBitmap> entry : probes.entrySet()) {
+            if (entry.getValue().getCardinality() > 0) {
+                result.add(entry.getKey());
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Select the destinations by state and probe.
+     *
+     * @param selectedStates the states; null for any
+     * @param probe          the probe of the last successful probe cycle; null for any
+     *
+     * @return a new bitmap of the ordinals of the destinations in one of the states and with the probe
+     */
+    public synchronized RoaringBitmap select(Set<DestinationState> selectedStates, String probe) {
+        RoaringBitmap result = new RoaringBitmap();
+
+        // Each destination is in exactly one state bitmap
+        for (Map.Entry<DestinationState, RoaringBitmap> entry : states.entrySet()) {
+            if (selectedStates == null || selectedStates.contains(entry.getKey())) {
+                result = RoaringBitmap.or(result, entry.getValue());
+            }
+        }
+
+        if (probe != null) {
+            RoaringBitmap bitmap = probes.get(probe);
+            result = bitmap == null ? new RoaringBitmap() : RoaringBitmap.and(result, bitmap);
+        }
+        return result;
+    }
+
+    /**
+     * Count the destinations by state and probe without building a selection if possible.
+     *
+     * @param selectedStates the states; null for any
+     * @param probe          the probe of the last successful probe cycle; null for any
+     *
+     * @return the count
+     */
+    public synchronized int count(Set<DestinationState> selectedStates, String probe) {
+        if (probe == null) {
+            if (selectedStates == null) {
+                return ordinals.size();
+            }
+
+            int count = 0;
+            for (DestinationState state : selectedStates) {
+                RoaringBitmap bitmap = states.get(state);
+                count += bitmap == null ? 0 : bitmap.getCardinality();
+            }
+            return count;
+        }
+
+        RoaringBitmap bitmap = probes.get(probe);
+        if (bitmap == null) {
+            return 0;
+        }
+        if (selectedStates == null) {
+            return bitmap.getCardinality();
+        }
+
+        int count = 0;
+        for (DestinationState state : selectedStates) {
+            RoaringBitmap stateBitmap = states.get(state);
+            count += stateBitmap == null ? 0 : RoaringBitmap.andCardinality(stateBitmap, bitmap);
+        }
+        return count;
+    }
+
+    /**
+     * Get the destinations of a selection.
+     *
+     * @param selection the ordinals as returned by {@link #select(Set, String)}
+     * @param offset    the number of destinations to skip
+     * @param limit     the maximum number of destinations
+     *
+     * @return the destinations in the order added
+     */
+    public synchronized List<Destination> getDestinations(RoaringBitmap selection, int offset, int limit) {
+        List<Destination> result = new ArrayList<>(Math.min(limit, selection.getCardinality()));
+        int[] position = {0};
+
+        selection.forEach(ordinal -> {
+            if (position[0]++ >= offset && result.size() < limit) {
+                result.add(ordinals.get(ordinal));
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,410 @@
+package discovery;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.apache.log4j.Logger;
+import probe.TokenBucket;
+import util.IpAddress;
+import util.IpUtils;
+
+/**
+ * The host discovery of a large, sparse range; enabled per monitor.<br>
+ * <br>
+ * A discovery run takes the addresses of the range from the neighbor table and sweeps the other addresses with one
+ * non-blocking TCP connect per port. A host accepting or refusing the connection is alive; this is the same answer the
+ * echo probe accepts. Addresses already known are skipped, so after the first run a sweep only looks for new hosts.
+ * Ranges with more addresses than a sweep can handle, e.g. an IPv6 /64, are discovered by the neighbor table only.<br>
+ * <br>
+ * The discovery is configured by system properties: networkinframonitor.discovery.interval (the time between two
+ * runs; default 3600 seconds), networkinframonitor.discovery.ports (comma separated; default 7,8001,37, the ports of
+ * the probes), networkinframonitor.discovery.timeout (the connect timeout; default 1000 milliseconds) and
+ * networkinframonitor.discovery.rate (the connects per second; default 1000).
+ */
+public class HostDiscovery {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(HostDiscovery.class);
+    /**
+     * The time between two discovery runs in seconds; can be set by system property.
+     */
+    private static final long INTERVAL = Long.getLong("networkinframonitor.discovery.interval", 3600);
+    /**
+     * The ports to connect to; can be set by system property.
+     */
+    private static final int[] PORTS = parsePorts(System.getProperty("networkinframonitor.discovery.ports", "7,8001,37"));
+    /**
+     * The connect timeout in milliseconds; can be set by system property.
+     */
+    private static final int TIMEOUT = Integer.getInteger("networkinframonitor.discovery.timeout", 1000);
+    /**
+     * The connects per second of a sweep; can be set by system property.
+     */
+    private static final int RATE = Integer.getInteger("networkinframonitor.discovery.rate", 1000);
+    /**
+     * Ranges with more addresses are not swept.
+     */
+    private static final long MAX_SWEEP = 1 << 20;
+    /**
+     * The maximum number of connects in progress.
+     */
+    private static final int MAX_PENDING = 512;
+    /**
+     * The discovery runs of all monitors; the runs of two monitors can overlap.
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "HostDiscovery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The first address of the range.
+     */
+    private final IpAddress first;
+    /**
+     * The last address of the range.
+     */
+    private final IpAddress last;
+    /**
+     * The neighbor table.
+     */
+    private final NeighborTable neighbors;
+    /**
+     * The ports to connect to.
+     */
+    private final int[] ports;
+    /**
+     * The connect timeout in milliseconds.
+     */
+    private final long timeoutMillis;
+    /**
+     * The rate limit of the connects.
+     */
+    private final TokenBucket limiter;
+    /**
+     * The scheduled runs; null if not started.
+     */
+    private ScheduledFuture<?> future;
+    /**
+     * Indicate if a run may go on.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * A connect in progress.
+     */
+    private static class Pending {
+        private final IpAddress ip;
+        private final long deadline;
+
+        Pending(IpAddress ip, long deadline) {
+            this.ip = ip;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Create the discovery of a range using the configured ports and timeout.
+     *
+     * @param first the first address of the range
+     * @param last  the last address of the range
+     */
+    public HostDiscovery(IpAddress first, IpAddress last) {
+        this(first, last, new NeighborTable(), PORTS, TIMEOUT, new TokenBucket(RATE, Math.max(1, RATE / 10)));
+    }
+
+    /**
+     * Create the discovery of a range.
+     *
+     * @param first         the first address of the range
+     * @param last          the last address of the range
+     * @param neighbors     the neighbor table
+     * @param ports         the ports to connect to
+     * @param timeoutMillis the connect timeout in milliseconds
+     * @param limiter       the rate limit of the connects
+     */
+    HostDiscovery(IpAddress first, IpAddress last, NeighborTable neighbors, int[] ports, long timeoutMillis,
+                  TokenBucket limiter) {
+        this.first = first;
+        this.last = last;
+        this.neighbors = neighbors;
+        this.ports = ports;
+        this.timeoutMillis = timeoutMillis;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Stop the discovery runs of all monitors, e.g. when the application stops. No discovery can be started after.
+     */
+    public static void shutdown() {
+        SCHEDULER.shutdownNow();
+    }
+
+    /**
+     * Parse a comma separated list of ports.
+     *
+     * @param text the list
+     *
+     * @return the ports; invalid entries are ignored
+     */
+    private static int[] parsePorts(String text) {
+        List<Integer> ports = new ArrayList<>();
+
+        for (String part : text.split(",")) {
+            try {
+                int port = Integer.parseInt(part.trim());
+                if (port > 0 && port < 65536) {
+                    ports.add(port);
+                }
+            }
+            catch (NumberFormatException nfex) {
+                LOG.warn("Invalid discovery port " + part);
+            }
+        }
+        return ports.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Start the discovery runs: the first at once, the next ones in the discovery interval.
+     *
+     * @param known the supplier of the addresses already known, e.g. the destinations of the monitor
+     * @param found the consumer of the new hosts of each run
+     */
+    public synchronized void start(Supplier<Set<IpAddress>> known, Consumer<Collection<InetAddress>> found) {
+        running = true;
+        future = SCHEDULER.scheduleWithFixedDelay(() -> {
+            try {
+                List<InetAddress> hosts = discover(known.get());
+                if (running && !hosts.isEmpty()) {
+                    found.accept(hosts);
+                }
+            }
+            catch (InterruptedException iex) {
+                LOG.debug("Discovery of " + first + " - " + last + " interrupted");
+            }
+            catch (RuntimeException rex) {
+                // Keep the next runs scheduled
+                LOG.error("Discovery of " + first + " - " + last + " failed", rex);
+            }
+        }, 0, INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop the discovery runs; a run in progress ends after the connects in progress.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (future != null) {
+            future.cancel(true);
+            future = null;
+        }
+    }
+
+    /**
+     * Discover the hosts of the range not known yet.
+     *
+     * @param known the addresses already known
+     *
+     * @return the new hosts in ascending order
+     *
+     * @throws InterruptedException in case the thread is interrupted
+     */
+    public List<InetAddress> discover(Set<IpAddress> known) throws InterruptedException {
+        long startTime = System.nanoTime();
+        Set<IpAddress> alive = new TreeSet<>();
+
+        for (IpAddress ip : neighbors.read()) {
+            if (ip.compareTo(first) >= 0 && ip.compareTo(last) <= 0 && !known.contains(ip)) {
+                alive.add(ip);
+            }
+        }
+        int fromNeighbors = alive.size();
+
+        long count = IpAddress.count(first, last);
+        if (count <= MAX_SWEEP && ports.length > 0) {
+            sweep(IpUtils.iterateRange(first, last).iterator(), known, alive);
+        }
+
+        List<InetAddress> hosts = new ArrayList<>(alive.size());
+        for (IpAddress ip : alive) {
+            hosts.add(ip.toInetAddress());
+        }
+
+        LOG.info("Discovered " + hosts.size() + " new hosts in " + first + " - " + last + " (" + fromNeighbors
+                 + " from the neighbor table) in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+        return hosts;
+    }
+
+    /**
+     * Sweep addresses with non-blocking connects; at most a limited number of connects is in progress.
+     *
+     * @param addresses the addresses to sweep
+     * @param known     the addresses to skip
+     * @param alive     the addresses alive; the answering addresses are added
+     *
+     * @throws InterruptedException in case the thread is interrupted
+     */
+    private void sweep(Iterator<IpAddress> addresses, Set<IpAddress> known, Set<IpAddress> alive) throws InterruptedException {
+        // The connects in the order started; all have the same timeout, so the deadlines are ascending
+        Deque<SelectionKey> pending = new ArrayDeque<>();
+
+        try (Selector selector = Selector.open()) {
+            while (running && (addresses.hasNext() || !pending.isEmpty())) {
+                while (running && addresses.hasNext() && pending.size() < MAX_PENDING) {
+                    IpAddress ip = addresses.next();
+                    if (known.contains(ip) || alive.contains(ip)) {
+                        continue;
+                    }
+
+                    for (int port : ports) {
+                        limiter.acquire();
+                        SelectionKey key = connect(selector, ip, port, alive);
+                        if (key != null) {
+                            pending.add(key);
+                        }
+                    }
+                }
+
+                selector.select(Math.max(1, timeoutMillis / 10));
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    finish(key, alive);
+                }
+                selector.selectedKeys().clear();
+
+                // Close the timed out connects and drop the finished ones
+                long now = System.nanoTime();
+                while (!pending.isEmpty()) {
+                    SelectionKey key = pending.peek();
+                    if (key.isValid() && ((Pending) key.attachment()).deadline - now > 0) {
+                        break;
+                    }
+                    close(pending.poll());
+                }
+
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+        catch (IOException ioex) {
+            LOG.warn("Sweep of " + first + " - " + last + " failed: " + ioex.getMessage());
+        }
+        finally {
+            for (SelectionKey key : pending) {
+                close(key);
+            }
+        }
+    }
+
+    /**
+     * Start a non-blocking connect.
+     *
+     * @param selector the selector to register the connect with
+     * @param ip       the address
+     * @param port     the port
+     * @param alive    the addresses alive; the address is added if it answers at once
+     *
+     * @return the key of the connect in progress; null if it finished at once
+     */
+    private SelectionKey connect(Selector selector, IpAddress ip, int port, Set<IpAddress> alive) {
+        SocketChannel channel = null;
+
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(new InetSocketAddress(ip.toInetAddress(), port))) {
+                alive.add(ip);
+                channel.close();
+                return null;
+            }
+            return channel.register(selector, SelectionKey.OP_CONNECT,
+                                    new Pending(ip, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)));
+        }
+        catch (IOException ioex) {
+            if (isRefused(ioex)) {
+                alive.add(ip);
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                }
+                catch (IOException ex) {
+                    LOG.debug("Closing channel failed, but that is ok...");
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Finish a connect which is ready.
+     *
+     * @param key   the key of the connect
+     * @param alive the addresses alive; the address is added if it answered
+     */
+    private static void finish(SelectionKey key, Set<IpAddress> alive) {
+        Pending connect = (Pending) key.attachment();
+
+        try {
+            if (((SocketChannel) key.channel()).finishConnect()) {
+                alive.add(connect.ip);
+            }
+        }
+        catch (IOException ioex) {
+            if (isRefused(ioex)) {
+                alive.add(connect.ip);
+            }
+        }
+        close(key);
+    }
+
+    /**
+     * Check if a connect failed because the host refused it; the host is alive then. A refused connect ends in a
+     * ConnectException; other connect errors, e.g. an unreachable host or network (NoRouteToHostException or another
+     * SocketException), are no answer of the host. The connects time out long before the operating system gives up, so
+     * a ConnectException is a refusal.
+     *
+     * @param ioex the connect error
+     *
+     * @return true if the connection was refused
+     */
+    static boolean isRefused(IOException ioex) {
+        return ioex instanceof ConnectException;
+    }
+
+    /**
+     * Cancel a key and close its channel.
+     *
+     * @param key the key
+     */
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        }
+        catch (IOException ex) {
+            LOG.debug("Closing channel failed, but that is ok...");
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package discovery;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+import util.IpAddress;
+
+/**
+ * The neighbor table (ARP and NDP cache) of the operating system.<br>
+ * <br>
+ * On Linux the IPv4 entries are read from /proc/net/arp and the IPv6 entries from the output of "ip -6 neigh show"; on
+ * other systems or without the file and the command the table is empty. Only complete entries are used; an incomplete
+ * or failed entry is an address the system tried to reach without an answer.
+ */
+public class NeighborTable {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(NeighborTable.class);
+    /**
+     * The ARP flag of a complete entry.
+     */
+    private static final int ATF_COM = 0x2;
+    /**
+     * The states of incomplete IPv6 entries.
+     */
+    private static final List<String> INCOMPLETE_STATES = Arrays.asList("INCOMPLETE", "FAILED", "NONE");
+    /**
+     * The time to wait for the IPv6 command in seconds.
+     */
+    private static final long COMMAND_TIMEOUT = 10;
+
+    /**
+     * The IPv4 table file.
+     */
+    private final File file;
+    /**
+     * The command printing the IPv6 table; null for none.
+     */
+    private final List<String> command;
+
+    /**
+     * Create a neighbor table reading the Linux ARP and NDP caches.
+     */
+    public NeighborTable() {
+        this(new File("/proc/net/arp"), Arrays.asList("ip", "-6", "neigh", "show"));
+    }
+
+    /**
+     * Create a neighbor table reading the given IPv4 file only.
+     *
+     * @param file a file in the format of /proc/net/arp
+     */
+    public NeighborTable(File file) {
+        this(file, null);
+    }
+
+    /**
+     * Create a neighbor table reading the given IPv4 file and the output of the given IPv6 command.
+     *
+     * @param file    a file in the format of /proc/net/arp
+     * @param command a command printing the IPv6 table in the format of "ip -6 neigh show"; null for none
+     */
+    public NeighborTable(File file, List<String> command) {
+        this.file = file;
+        this.command = command;
+    }
+
+    /**
+     * Read the addresses of the table.
+     *
+     * @return the addresses of the complete entries; empty if the table is not available
+     */
+    public List<IpAddress> read() {
+        List<IpAddress> addresses = new ArrayList<>();
+
+        if (file.canRead()) {
+            try (Reader in = new FileReader(file)) {
+                addresses.addAll(parse(in));
+            }
+            catch (IOException ioex) {
+                LOG.warn("Neighbor table " + file.getPath() + " not read: " + ioex.getMessage());
+            }
+        }
+
+        if (command != null) {
+            addresses.addAll(readIpv6());
+        }
+        return addresses;
+    }
+
+    /**
+     * Read the IPv6 addresses printed by the command.
+     *
+     * @return the addresses of the complete entries; empty if the command is not available
+     */
+    private List<IpAddress> readIpv6() {
+        Process process = null;
+
+        try {
+            // Error messages are mixed into the output; they are no entries
+            process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+            List<IpAddress> addresses;
+            try (Reader in = new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII)) {
+                addresses = parseIpv6(in);
+            }
+            if (!process.waitFor(COMMAND_TIMEOUT, TimeUnit.SECONDS)) {
+                LOG.warn("Neighbor table command " + command + " timed out");
+            }
+            return addresses;
+        }
+        catch (IOException ioex) {
+            // No such command on this system
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Neighbor table command " + command + " not run: " + ioex.getMessage());
+            }
+            return new ArrayList<>();
+        }
+        catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            return new ArrayList<>();
+        }
+        finally {
+            if (process != null) {
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Parse a table in the format of /proc/net/arp: a header line and one line per entry with the IP address, the
+     * hardware type, the flags, the hardware address, the mask and the device.
+     *
+     * @param in the table text
+     *
+     * @return the addresses of the complete entries
+     *
+     * @throws IOException in case the text can not be read
+     */
+    static List<IpAddress> parse(Reader in) throws IOException {
+        List<IpAddress> addresses = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(in);
+
+        // Skip the header
+        String line = reader.readLine();
+        while ((line = reader.readLine()) != null) {
+            String[] columns = line.trim().split("\\s+");
+            if (columns.length < 3) {
+                continue;
+            }
+
+            IpAddress ip = IpAddress.parse(columns[0]);
+            int flags;
+            try {
+                flags = Integer.decode(columns[2]);
+            }
+            catch (NumberFormatException nfex) {
+                continue;
+            }
+
+            if (ip != null && (flags & ATF_COM) != 0) {
+                addresses.add(ip);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Parse a table in the format of "ip -6 neigh show": one line per entry with the IP address, the device, the
+     * hardware address and flags, ending with the state, e.g. "2001:db8::5 dev eth0 lladdr 02:fc:00:00:00:05 REACHABLE".
+     *
+     * @param in the table text
+     *
+     * @return the addresses of the complete entries
+     *
+     * @throws IOException in case the text can not be read
+     */
+    static List<IpAddress> parseIpv6(Reader in) throws IOException {
+        List<IpAddress> addresses = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(in);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] columns = line.trim().split("\\s+");
+            if (columns.length < 2 || INCOMPLETE_STATES.contains(columns[columns.length - 1])) {
+                continue;
+            }
+
+            IpAddress ip = IpAddress.parse(columns[0]);
+            if (ip != null && !ip.isV4()) {
+                addresses.add(ip);
+            }
+        }
+        return addresses;
+    }
+}
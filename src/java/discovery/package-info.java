@@ -0,0 +1,8 @@
+/**
+ * Classes to discover the live hosts of large, sparse ranges.<br>
+ * <br>
+ * Instead of probing every address of a large range with all probes, the hosts are discovered from the neighbor table
+ * of the operating system and a fast TCP connect sweep; only discovered hosts are probed in the monitoring interval.
+ * The addresses not found are swept again rarely.
+ */
+package discovery;
@@ -0,0 +1,128 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with fixed buckets.<br>
+ * <br>
+ * Recording is lock free and cheap enough for the probe hot path. The bucket counts are not cumulative; the Prometheus
+ * format needs cumulative counts, see {@link #getCumulativeCounts()}.
+ */
+public class Histogram {
+    /**
+     * The default upper bucket bounds in milliseconds.
+     */
+    private static final long[] DEFAULT_BOUNDS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    /**
+     * The upper bucket bounds in milliseconds.
+     */
+    private final long[] boundsMillis;
+    /**
+     * The counts per bucket; the last bucket counts values above the last bound.
+     */
+    private final LongAdder[] buckets;
+    /**
+     * The sum of all recorded values in nanoseconds.
+     */
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Create a histogram with the default buckets from 1 ms to 10 s.
+     */
+    public Histogram() {
+        this(DEFAULT_BOUNDS);
+    }
+
+    /**
+     * Create a histogram with the given buckets.
+     *
+     * @param boundsMillis the upper bucket bounds in milliseconds in ascending order
+     */
+    public Histogram(long[] boundsMillis) {
+        this.boundsMillis = boundsMillis.clone();
+        this.buckets = new LongAdder[boundsMillis.length + 1];
+
+        for (int idx = 0; idx < buckets.length; ++idx) {
+            buckets[idx] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos the duration in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : nanos;
+
+        // A bucket counts the values less or equal its bound
+        int idx = 0;
+        while (idx < boundsMillis.length && value > TimeUnit.MILLISECONDS.toNanos(boundsMillis[idx])) {
+            ++idx;
+        }
+
+        buckets[idx].increment();
+        sumNanos.add(value);
+    }
+
+    /**
+     * Get the upper bucket bounds.
+     *
+     * @return the bounds in milliseconds
+     */
+    public long[] getBoundsMillis() {
+        return boundsMillis.clone();
+    }
+
+    /**
+     * Get the cumulative counts per bucket; the last value is the count of all recorded values.
+     *
+     * @return the counts
+     */
+    public long[] getCumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long sum = 0;
+
+        for (int idx = 0; idx < buckets.length; ++idx) {
+            sum += buckets[idx].sum();
+            counts[idx] = sum;
+        }
+        return counts;
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Get the sum of all recorded values.
+     *
+     * @return the sum in nanoseconds
+     */
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Get the mean of all recorded values.
+     *
+     * @return the mean in milliseconds; 0 if nothing was recorded
+     */
+    public double getMeanMillis() {
+        long count = getCount();
+
+        return count == 0 ? 0 : (double) getSumNanos() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
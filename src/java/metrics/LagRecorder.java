@@ -0,0 +1,116 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Record the scheduler lag of the probe cycles of a monitor.<br>
+ * <br>
+ * The lag is the time a probe cycle started after it was due. The recorder keeps the most recent lag samples to
+ * calculate percentiles and counts the overruns; an overrun is a probe cycle taking longer than the interval, so the
+ * next cycle can not start in time.
+ */
+public class LagRecorder {
+    /**
+     * The number of recent samples to keep.
+     */
+    private static final int SAMPLES = 1024;
+
+    /**
+     * The recent samples in nanoseconds; a ring buffer.
+     */
+    private final long[] samples = new long[SAMPLES];
+    /**
+     * The index of the next sample to write.
+     */
+    private int next = 0;
+    /**
+     * The number of valid samples.
+     */
+    private int size = 0;
+    /**
+     * The number of probe cycles.
+     */
+    private final LongAdder cycles = new LongAdder();
+    /**
+     * The number of overruns.
+     */
+    private final LongAdder overruns = new LongAdder();
+
+    /**
+     * Record the lag of a probe cycle.
+     *
+     * @param lagNanos the time the cycle started after it was due in nanoseconds
+     */
+    public void record(long lagNanos) {
+        cycles.increment();
+
+        synchronized (samples) {
+            samples[next] = lagNanos;
+            next = (next + 1) % SAMPLES;
+            if (size < SAMPLES) {
+                ++size;
+            }
+        }
+    }
+
+    /**
+     * Record an overrun.
+     */
+    public void overrun() {
+        overruns.increment();
+    }
+
+    /**
+     * Get the number of probe cycles.
+     *
+     * @return the count
+     */
+    public long getCycles() {
+        return cycles.sum();
+    }
+
+    /**
+     * Get the number of overruns.
+     *
+     * @return the count
+     */
+    public long getOverruns() {
+        return overruns.sum();
+    }
+
+    /**
+     * Get a percentile of the recent lag samples.
+     *
+     * @param percentile the percentile between 0 and 100
+     *
+     * @return the lag in nanoseconds; 0 if there are no samples
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+
+        synchronized (samples) {
+            if (size == 0) {
+                return 0;
+            }
+            sorted = Arrays.copyOf(samples, size);
+        }
+
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    /**
+     * Get a percentile of the recent lag samples in milliseconds.
+     *
+     * @param percentile the percentile between 0 and 100
+     *
+     * @return the lag in milliseconds
+     */
+    public double percentileMillis(double percentile) {
+        return (double) percentile(percentile) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,109 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Publish the probe engine metrics in the Prometheus text format.
+ */
+public class MetricsServlet extends HttpServlet {
+    /**
+     * Needed for proper serializable implementation.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * The prefix of all metric names.
+     */
+    private static final String PREFIX = "networkinframonitor_";
+    /**
+     * The content type of the Prometheus text format.
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-cache");
+
+        PrintWriter out = response.getWriter();
+        write(out, ProbeMetrics.getInstance());
+        out.flush();
+    }
+
+    /**
+     * Write all metrics.
+     *
+     * @param out     the writer
+     * @param metrics the metrics registry
+     */
+    static void write(PrintWriter out, ProbeMetrics metrics) {
+        Map<String, ProbeMetrics.TypeMetrics> types = metrics.getTypes();
+
+        header(out, "probes_total", "counter", "Probe attempts by probe type and outcome.");
+        types.forEach((type, typeMetrics) -> {
+            out.println(PREFIX + "probes_total{probe=\"" + type + "\",outcome=\"success\"} " + typeMetrics.getSuccess());
+            out.println(PREFIX + "probes_total{probe=\"" + type + "\",outcome=\"failure\"} " + typeMetrics.getFailure());
+            out.println(PREFIX + "probes_total{probe=\"" + type + "\",outcome=\"timeout\"} " + typeMetrics.getTimeout());
+        });
+
+        header(out, "probe_latency_seconds", "histogram", "Probe duration by probe type.");
+        types.forEach((type, typeMetrics) -> {
+            histogram(out, "probe_latency_seconds", "probe=\"" + type + "\",", typeMetrics.getLatency());
+        });
+
+        header(out, "scheduler_lag_seconds", "histogram", "Time a probe started after it was due.");
+        histogram(out, "scheduler_lag_seconds", "", metrics.getSchedulerLag());
+
+        header(out, "probes_suppressed_total", "counter", "Probes skipped because the parent of the destination is down.");
+        out.println(PREFIX + "probes_suppressed_total " + metrics.getSuppressedTotal());
+
+        header(out, "probes_in_flight", "gauge", "Probes in progress.");
+        out.println(PREFIX + "probes_in_flight " + metrics.getInFlight());
+
+        header(out, "prober_threads", "gauge", "Prober threads.");
+        out.println(PREFIX + "prober_threads " + metrics.getProberThreads());
+
+        header(out, "prober_utilization", "gauge", "Part of the prober threads busy with probing.");
+        out.println(PREFIX + "prober_utilization " + metrics.getProberUtilization());
+    }
+
+    /**
+     * Write the header lines of a metric.
+     *
+     * @param out  the writer
+     * @param name the metric name without prefix
+     * @param type the metric type
+     * @param help the help text
+     */
+    private static void header(PrintWriter out, String name, String type, String help) {
+        out.println("# HELP " + PREFIX + name + " " + help);
+        out.println("# TYPE " + PREFIX + name + " " + type);
+    }
+
+    /**
+     * Write the lines of a histogram.
+     *
+     * @param out       the writer
+     * @param name      the metric name without prefix
+     * @param labels    additional labels, each followed by ','
+     * @param histogram the histogram
+     */
+    private static void histogram(PrintWriter out, String name, String labels, Histogram histogram) {
+        long[] bounds = histogram.getBoundsMillis();
+        long[] counts = histogram.getCumulativeCounts();
+
+        for (int idx = 0; idx < bounds.length; ++idx) {
+            out.println(PREFIX + name + "_bucket{" + labels + "le=\"" + bounds[idx] / 1000.0 + "\"} " + counts[idx]);
+        }
+        out.println(PREFIX + name + "_bucket{" + labels + "le=\"+Inf\"} " + counts[counts.length - 1]);
+
+        String sumLabels = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        out.println(PREFIX + name + "_sum" + sumLabels + " " + (double) histogram.getSumNanos() / TimeUnit.SECONDS.toNanos(1));
+        out.println(PREFIX + name + "_count" + sumLabels + " " + counts[counts.length - 1]);
+    }
+}
@@ -0,0 +1,380 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.log4j.Logger;
+
+/**
+ * The metrics registry of the probe engine.<br>
+ * <br>
+ * Counts probes by type and outcome, records probe latencies and scheduler lag and tracks the probes in progress. All
+ * updates are lock free. The registry is a singleton; it is published as JMX MBean and by the metrics servlet.
+ */
+public class ProbeMetrics implements ProbeMetricsMBean {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(ProbeMetrics.class);
+    /**
+     * The JMX object name.
+     */
+    private static final String OBJECT_NAME = "networkinframonitor:type=ProbeMetrics";
+    /**
+     * The single instance.
+     */
+    private static final ProbeMetrics INSTANCE = new ProbeMetrics();
+    /**
+     * The length of the sliding window of the probe rate in seconds.
+     */
+    private static final int RATE_WINDOW = 10;
+
+    /**
+     * The metrics per probe type.
+     */
+    private final ConcurrentMap<String, TypeMetrics> types = new ConcurrentHashMap<>();
+    /**
+     * The scheduler lag; the time a probe started after it was due.
+     */
+    private final Histogram schedulerLag = new Histogram();
+    /**
+     * The probes in progress.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /**
+     * The prober threads.
+     */
+    private final AtomicInteger proberThreads = new AtomicInteger();
+    /**
+     * The probes skipped because the parent of the destination is down.
+     */
+    private final LongAdder suppressed = new LongAdder();
+    /**
+     * The finished probes per second of the sliding window and the current second; a ring buffer indexed by the
+     * second.
+     */
+    private final AtomicLongArray rateCounts = new AtomicLongArray(RATE_WINDOW + 1);
+    /**
+     * The second (System.nanoTime in seconds) counted by each slot of the ring buffer.
+     */
+    private final AtomicLongArray rateSeconds = new AtomicLongArray(RATE_WINDOW + 1);
+
+    /**
+     * The metrics of a single probe type.
+     */
+    public static class TypeMetrics {
+        private final LongAdder success = new LongAdder();
+        private final LongAdder failure = new LongAdder();
+        private final LongAdder timeout = new LongAdder();
+        private final Histogram latency = new Histogram();
+
+        /**
+         * Get the number of successful probes.
+         *
+         * @return the count
+         */
+        public long getSuccess() {
+            return success.sum();
+        }
+
+        /**
+         * Get the number of failed probes without timeouts.
+         *
+         * @return the count
+         */
+        public long getFailure() {
+            return failure.sum();
+        }
+
+        /**
+         * Get the number of probes failed with a timeout.
+         *
+         * @return the count
+         */
+        public long getTimeout() {
+            return timeout.sum();
+        }
+
+        /**
+         * Get the probe latency.
+         *
+         * @return the histogram
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+    }
+
+    /**
+     * Creating an instance from outside the package is not allowed.
+     */
+    ProbeMetrics() {
+        for (int idx = 0; idx < rateSeconds.length(); ++idx) {
+            rateSeconds.set(idx, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Get the single instance.
+     *
+     * @return the metrics registry
+     */
+    public static ProbeMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register the MBean at the platform MBean server.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+                LOG.info("Registered MBean " + OBJECT_NAME);
+            }
+        }
+        catch (JMException jmex) {
+            LOG.warn("Could not register MBean " + OBJECT_NAME + ": " + jmex.getMessage());
+        }
+    }
+
+    /**
+     * Unregister the MBean from the platform MBean server.
+     */
+    public void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+                LOG.info("Unregistered MBean " + OBJECT_NAME);
+            }
+        }
+        catch (JMException jmex) {
+            LOG.warn("Could not unregister MBean " + OBJECT_NAME + ": " + jmex.getMessage());
+        }
+    }
+
+    /**
+     * Get the metrics of a probe type; create them if needed.
+     *
+     * @param type the probe type
+     *
+     * @return the metrics
+     */
+    private TypeMetrics type(String type) {
+        TypeMetrics metrics = types.get(type);
+
+        if (metrics == null) {
+            metrics = types.computeIfAbsent(type, (key) -> new TypeMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Record the start of a probe.
+     */
+    public void probeStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Record the end of a probe.
+     *
+     * @param type    the probe type
+     * @param success true if the probe was successful
+     * @param timeout true if the probe failed with a timeout
+     * @param nanos   the probe duration in nanoseconds
+     */
+    public void probeFinished(String type, boolean success, boolean timeout, long nanos) {
+        inFlight.decrementAndGet();
+
+        TypeMetrics metrics = type(type);
+        if (success) {
+            metrics.success.increment();
+        }
+        else if (timeout) {
+            metrics.timeout.increment();
+        }
+        else {
+            metrics.failure.increment();
+        }
+        metrics.latency.record(nanos);
+        countProbe(System.nanoTime());
+    }
+
+    /**
+     * Count a finished probe in the sliding window of the probe rate.<br>
+     * A slot is reused once its second left the window. A probe counted by another thread while the slot is reset can
+     * get lost; that is good enough for a rate.
+     *
+     * @param nowNanos the current time as given by System.nanoTime
+     */
+    void countProbe(long nowNanos) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(nowNanos);
+        int idx = (int) Math.floorMod(second, (long) rateSeconds.length());
+        long slotSecond = rateSeconds.get(idx);
+
+        if (slotSecond != second && rateSeconds.compareAndSet(idx, slotSecond, second)) {
+            rateCounts.set(idx, 0);
+        }
+        rateCounts.incrementAndGet(idx);
+    }
+
+    /**
+     * Get the probe rate of the complete seconds in the sliding window.
+     *
+     * @param nowNanos the current time as given by System.nanoTime
+     *
+     * @return the probes per second
+     */
+    double probesPerSecond(long nowNanos) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(nowNanos);
+        long count = 0;
+
+        // The current second is still counting
+        for (int idx = 0; idx < rateSeconds.length(); ++idx) {
+            long slotSecond = rateSeconds.get(idx);
+            if (slotSecond < second && slotSecond >= second - RATE_WINDOW) {
+                count += rateCounts.get(idx);
+            }
+        }
+        return (double) count / RATE_WINDOW;
+    }
+
+    /**
+     * Record a probe skipped because the parent of the destination is down.
+     */
+    public void probeSuppressed() {
+        suppressed.increment();
+    }
+
+    /**
+     * Record the scheduler lag of a probe.
+     *
+     * @param nanos the time the probe started after it was due in nanoseconds
+     */
+    public void recordLag(long nanos) {
+        schedulerLag.record(nanos);
+    }
+
+    /**
+     * Record the start of a prober thread.
+     */
+    public void proberStarted() {
+        proberThreads.incrementAndGet();
+    }
+
+    /**
+     * Record the end of a prober thread.
+     */
+    public void proberStopped() {
+        proberThreads.decrementAndGet();
+    }
+
+    /**
+     * Get the metrics of all probe types.
+     *
+     * @return the metrics by probe type
+     */
+    public Map<String, TypeMetrics> getTypes() {
+        return types;
+    }
+
+    /**
+     * Get the scheduler lag.
+     *
+     * @return the histogram
+     */
+    public Histogram getSchedulerLag() {
+        return schedulerLag;
+    }
+
+    @Override
+    public long getProbesTotal() {
+        return getSuccessTotal() + getFailureTotal();
+    }
+
+    @Override
+    public long getSuccessTotal() {
+        long sum = 0;
+        for (TypeMetrics metrics : types.values()) {
+            sum += metrics.getSuccess();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getFailureTotal() {
+        long sum = 0;
+        for (TypeMetrics metrics : types.values()) {
+            sum += metrics.getFailure() + metrics.getTimeout();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getTimeoutTotal() {
+        long sum = 0;
+        for (TypeMetrics metrics : types.values()) {
+            sum += metrics.getTimeout();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getSuppressedTotal() {
+        return suppressed.sum();
+    }
+
+    @Override
+    public double getProbesPerSecond() {
+        return probesPerSecond(System.nanoTime());
+    }
+
+    @Override
+    public double getMeanLatencyMillis() {
+        long count = 0;
+        long sumNanos = 0;
+
+        for (TypeMetrics metrics : types.values()) {
+            count += metrics.latency.getCount();
+            sumNanos += metrics.latency.getSumNanos();
+        }
+        return count == 0 ? 0 : (double) sumNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getMeanSchedulerLagMillis() {
+        return schedulerLag.getMeanMillis();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public int getProberThreads() {
+        return proberThreads.get();
+    }
+
+    @Override
+    public double getProberUtilization() {
+        int threads = getProberThreads();
+
+        return threads == 0 ? 0 : Math.min(1.0, (double) getInFlight() / threads);
+    }
+}
@@ -0,0 +1,83 @@
+package metrics;
+
+/**
+ * The JMX view on the probe engine metrics.
+ */
+public interface ProbeMetricsMBean {
+    /**
+     * Get the number of all probe attempts.
+     *
+     * @return the count
+     */
+    public long getProbesTotal();
+
+    /**
+     * Get the number of successful probes.
+     *
+     * @return the count
+     */
+    public long getSuccessTotal();
+
+    /**
+     * Get the number of failed probes, timeouts included.
+     *
+     * @return the count
+     */
+    public long getFailureTotal();
+
+    /**
+     * Get the number of probes that failed with a timeout.
+     *
+     * @return the count
+     */
+    public long getTimeoutTotal();
+
+    /**
+     * Get the number of probes skipped because the parent of the destination is down.
+     *
+     * @return the count
+     */
+    public long getSuppressedTotal();
+
+    /**
+     * Get the probe rate over the last ten seconds.
+     *
+     * @return the probes per second
+     */
+    public double getProbesPerSecond();
+
+    /**
+     * Get the mean probe latency.
+     *
+     * @return the latency in milliseconds
+     */
+    public double getMeanLatencyMillis();
+
+    /**
+     * Get the mean scheduler lag; the time a probe started after it was due.
+     *
+     * @return the lag in milliseconds
+     */
+    public double getMeanSchedulerLagMillis();
+
+    /**
+     * Get the number of probes in progress.
+     *
+     * @return the count
+     */
+    public int getInFlight();
+
+    /**
+     * Get the number of prober threads.
+     *
+     * @return the count
+     */
+    public int getProberThreads();
+
+    /**
+     * Get the part of the prober threads busy with probing.
+     *
+     * @return the utilization between 0 and 1
+     */
+    public double getProberUtilization();
+}
@@ -0,0 +1,4 @@
+/**
+ * Classes to measure the probe engine.
+ */
+package metrics;
@@ -1,36 +1,94 @@
 package monitor;
 
+import alert.AlertService;
+import cluster.ClusterService;
 import destination.Destination;
+import destination.DestinationSnapshot;
+import destination.SubnetIndex;
+import discovery.HostDiscovery;
 import java.io.Serializable;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import metrics.LagRecorder;
 import org.apache.log4j.Logger;
+import probe.ProbeProvider;
+import probe.ProbeRegistry;
 import probe.Prober;
+import probe.TokenBucket;
+import util.IpAddress;
 import util.IpUtils;
+import util.ReverseDnsCache;
 
 /**
  * A monitor for an IP address range.<br>
  * <br>
- * The monitor contains a list of all desinations controlled by the monitor.
+ * The monitor contains a list of all desinations controlled by the monitor. An optional gateway is the parent of all
+ * destinations; if it is outside the range it is probed as additional destination which is not shown in the results.
+ * The destinations are not built when the monitor is created: the destinations of a range are created while the
+ * monitor runs, each shortly before its first probe is due, so starting a monitor returns at once. If the host
+ * discovery is enabled, the destinations are not built from all addresses; they are discovered and only the
+ * discovered hosts are probed. This is the way to monitor a large, sparse range.
  */
 public class Monitor implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = Logger.getLogger(Monitor.class);
+    /**
+     * Allow the monitor to probe faster than the average rate by this factor to catch up delays.
+     */
+    private static final double ADMISSION_HEADROOM = 2.0;
+    /**
+     * The maximum time in milliseconds to wait for the probes in progress when stopping; can be set by system
+     * property. The default is a little longer than the probes connect timeout.
+     */
+    private static final long STOP_TIMEOUT = Long.getLong("networkinframonitor.monitor.stopTimeout", 6000);
+    /**
+     * The maximum number of destinations built from a range; can be set by system property. Larger ranges, e.g. an
+     * IPv6 /64, need the host discovery.
+     */
+    private static final long MAX_DESTINATIONS = Long.getLong("networkinframonitor.monitor.maxDestinations", 65536);
+    /**
+     * Create the destinations due within this time in milliseconds at once.
+     */
+    private static final long MATERIALIZE_AHEAD = 1000;
 
     private final String start;
     private final String end;
     private int interval;
-    private final String comment;
-
-    private transient List<Destination> destinations = new ArrayList<>();
+    private String comment;
+    private String gateway = "";
+    private String probeProfile = "";
+    private boolean discoveryEnabled;
+
+    private transient List<Destination> destinations = new CopyOnWriteArrayList<>();
+    private transient Destination gatewayDestination;
+    private transient boolean externalGateway;
+    private transient HostDiscovery discovery;
+    private transient IpAddress first;
+    private transient IpAddress last;
+    private transient long planned;
+    private transient DestinationSnapshot snapshot;
     private ExecutorService service;
     private transient List<Future> futureList;
+    private transient List<Prober> proberList;
+    private transient TokenBucket admission;
+    private transient double globalDemand;
+    private final transient LagRecorder lagRecorder = new LagRecorder();
+    private final transient SubnetIndex subnetIndex = new SubnetIndex();
 
     /**
      * Create a monitor with default values.
@@ -55,7 +113,7 @@ public class Monitor implements Serializable {
         this.interval = interval;
         this.comment = comment;
 
-        destinations = buildDestinations(ip, ip);
+        planDestinations(ip, ip);
     }
 
     /**
@@ -72,7 +130,7 @@ public class Monitor implements Serializable {
         this.interval = interval;
         this.comment = comment;
 
-        destinations = buildDestinations(start, end);
+        planDestinations(start, end);
     }
 
     /**
@@ -113,6 +171,13 @@ public class Monitor implements Serializable {
         destinations.forEach((target) -> {
             target.setInterval(interval);
         });
+        if (externalGateway) {
+            gatewayDestination.setInterval(interval);
+        }
+
+        if (admission != null) {
+            updateAdmission();
+        }
     }
 
     /**
@@ -124,6 +189,157 @@ public class Monitor implements Serializable {
         return comment;
     }
 
+    /**
+     * Set the comment text for the monitor.
+     *
+     * @param comment the comment text
+     */
+    public void setComment(String comment) {
+        this.comment = comment;
+    }
+
+    /**
+     * Get the gateway all destinations of the monitor depend on.
+     *
+     * @return the gateway IP; empty if none
+     */
+    public String getGateway() {
+        return gateway;
+    }
+
+    /**
+     * Set the gateway all destinations of the monitor depend on. Set it before starting; a running monitor must be
+     * restarted to probe a new gateway outside the range.
+     *
+     * @param gateway the gateway IP; empty if none
+     */
+    public void setGateway(String gateway) {
+        this.gateway = gateway == null ? "" : gateway;
+        gatewayDestination = null;
+        externalGateway = false;
+
+        if (!this.gateway.isEmpty()) {
+            try {
+                InetAddress address = InetAddress.getByName(this.gateway);
+                IpAddress key = IpAddress.of(address);
+
+                for (Destination target : destinations) {
+                    if (target.getKey().equals(key)) {
+                        gatewayDestination = target;
+                        break;
+                    }
+                }
+
+                if (gatewayDestination == null) {
+                    // A gateway in a range still to build is taken over when its turn comes
+                    gatewayDestination = new Destination(address, interval);
+                    externalGateway = discovery != null || !inRange(key);
+                }
+            }
+            catch (UnknownHostException uhex) {
+                LOG.error("Invalid gateway " + this.gateway + ": " + uhex.getMessage());
+            }
+        }
+
+        for (Destination target : destinations) {
+            target.setParent(target == gatewayDestination ? null : gatewayDestination);
+        }
+    }
+
+    /**
+     * Get the destination of the gateway.
+     *
+     * @return the gateway destination; null if none
+     */
+    public Destination getGatewayDestination() {
+        return gatewayDestination;
+    }
+
+    /**
+     * Get the id of the monitor. Monitors do not overlap, so the range identifies a monitor.
+     *
+     * @return the id
+     */
+    public String getId() {
+        return buildId(start, end);
+    }
+
+    /**
+     * Build the id of a monitor.
+     *
+     * @param start the start IP of the monitor
+     * @param end   the end IP of the monitor
+     *
+     * @return the id
+     */
+    public static String buildId(String start, String end) {
+        return start + "-" + end;
+    }
+
+    /**
+     * Get the average probe rate needed for the destinations plus a headroom to catch up delays.
+     *
+     * @return the probe rate per second
+     */
+    private double admissionRate() {
+        // A probe cycle takes a token per probe; up to all probes of the profile if the cheap ones fail
+        int probes = ProbeRegistry.getInstance().getProfile(probeProfile).size();
+        return ADMISSION_HEADROOM * Math.max(destinations.size(), planned) * Math.max(1, probes) / Math.max(1, interval);
+    }
+
+    /**
+     * Adapt the admission control to the number of destinations and the interval, and tell the prober what the
+     * monitor needs of the global probe rate.
+     */
+    private void updateAdmission() {
+        admission.setRatePerSecond(admissionRate());
+
+        int cost = 0;
+        for (ProbeProvider provider : ProbeRegistry.getInstance().getProfile(probeProfile)) {
+            cost += provider.getCost();
+        }
+        // Without headroom; every probe chain may run to its end
+        double demand = (double) Math.max(destinations.size(), planned) * cost / Math.max(1, interval);
+        Prober.addGlobalDemand(demand - globalDemand);
+        globalDemand = demand;
+    }
+
+    /**
+     * Get the scheduler lag recorder of the monitor.
+     *
+     * @return the lag recorder
+     */
+    public LagRecorder getLagRecorder() {
+        return lagRecorder;
+    }
+
+    /**
+     * Get the median scheduler lag of the recent probe cycles.
+     *
+     * @return the lag in milliseconds
+     */
+    public double getLagMedianMillis() {
+        return lagRecorder.percentileMillis(50);
+    }
+
+    /**
+     * Get the 99th percentile scheduler lag of the recent probe cycles.
+     *
+     * @return the lag in milliseconds
+     */
+    public double getLagP99Millis() {
+        return lagRecorder.percentileMillis(99);
+    }
+
+    /**
+     * Get the number of probe cycles taking longer than the interval.
+     *
+     * @return the count
+     */
+    public long getOverruns() {
+        return lagRecorder.getOverruns();
+    }
+
     /**
      * Get all the destinations the monitor handles.
      *
@@ -134,37 +350,232 @@ public class Monitor implements Serializable {
     }
 
     /**
-     * Build the destinations that are in the range to monitor.
+     * Plan the destinations of the range to monitor. Nothing is built yet; the destinations are created by
+     * {@link #materialize()} when the monitor runs. A range with the host discovery enabled gets a discovery instead.
      *
      * @param start the start of the range
      * @param end   the end of the range
+     */
+    private void planDestinations(String start, String end) {
+        first = IpAddress.parse(start);
+        last = IpAddress.parse(end);
+        if (first == null || last == null || first.compareTo(last) > 0) {
+            LOG.error("Invalid range " + start + " - " + end);
+            first = null;
+            last = null;
+            return;
+        }
+
+        long count = IpAddress.count(first, last);
+        if (discoveryEnabled) {
+            LOG.info("The destinations of range " + start + " - " + end + " are discovered");
+            discovery = new HostDiscovery(first, last);
+            planned = 0;
+        }
+        else {
+            discovery = null;
+            planned = count <= MAX_DESTINATIONS ? count : 0;
+        }
+    }
+
+    /**
+     * Check if the hosts of the range are discovered instead of probing all addresses.
+     *
+     * @return true if the host discovery is enabled
+     */
+    public boolean isDiscoveryEnabled() {
+        return discoveryEnabled;
+    }
+
+    /**
+     * Enable the host discovery of the range (see {@link HostDiscovery}): only the hosts found are probed. Needed for
+     * ranges with more addresses than the maximum number of destinations. Set it before starting.
+     *
+     * @param discoveryEnabled true to discover the hosts; false to probe all addresses
+     */
+    public void setDiscoveryEnabled(boolean discoveryEnabled) {
+        if (this.discoveryEnabled != discoveryEnabled) {
+            this.discoveryEnabled = discoveryEnabled;
+            planDestinations(start, end);
+            setGateway(gateway);
+        }
+    }
+
+    /**
+     * Check if an address is in the range of the monitor.
+     *
+     * @param ip the address
+     *
+     * @return true if it is in the range
+     */
+    private boolean inRange(IpAddress ip) {
+        return first != null && ip.compareTo(first) >= 0 && ip.compareTo(last) <= 0;
+    }
+
+    /**
+     * Set the snapshot to take the saved states of new destinations from.
+     *
+     * @param snapshot the snapshot; null if none
+     */
+    public void setSnapshot(DestinationSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Get the number of destinations planned for the range.
      *
-     * @return the destinations in the range
+     * @return the number of addresses in the range; 0 if the hosts are discovered
      */
-    private List<Destination> buildDestinations(String start, String end) {
-        destinations.clear();
+    public long getPlanned() {
+        return planned;
+    }
+
+    /**
+     * Create the destinations of the range in the order of their first probe until all are created or the monitor is
+     * stopped. The first probes are spread evenly over the interval with a jitter inside each slot; each destination
+     * and its prober are created shortly before the first probe is due.
+     */
+    private void materialize() {
+        long slotNanos = Math.max(1, TimeUnit.SECONDS.toNanos(interval) / planned);
+        long startNanos = System.nanoTime();
+        long slot = 0;
+        Iterator<IpAddress> addresses = IpUtils.iterateRange(first, last).iterator();
 
         try {
-            List<String> addrList = IpUtils.createIpRange(start, end);
+            while (addresses.hasNext()) {
+                long now = System.nanoTime();
+                long horizon = now + TimeUnit.MILLISECONDS.toNanos(MATERIALIZE_AHEAD);
+                List<Destination> batch = new ArrayList<>();
+
+                while (addresses.hasNext() && startNanos + slot * slotNanos - horizon <= 0) {
+                    IpAddress ip = addresses.next();
+                    long due = startNanos + slot * slotNanos + ThreadLocalRandom.current().nextLong(slotNanos);
+                    ++slot;
+
+                    Destination destination = gatewayDestination != null && ip.equals(gatewayDestination.getKey())
+                                              ? gatewayDestination : new Destination(ip.toInetAddress(), interval);
+                    destination.setPhaseOffset(Math.max(0, TimeUnit.NANOSECONDS.toMillis(due - now)));
+                    batch.add(destination);
+                }
+
+                synchronized (this) {
+                    if (service.isShutdown()) {
+                        return;
+                    }
+                    add(batch);
+                }
+
+                if (addresses.hasNext()) {
+                    TimeUnit.NANOSECONDS.sleep(startNanos + slot * slotNanos - horizon);
+                }
+            }
+            LOG.debug("Created " + destinations.size() + " destinations of " + getId());
+        }
+        catch (InterruptedException iex) {
+            LOG.debug("Creating the destinations of " + getId() + " interrupted");
+        }
+    }
 
-            for (String addr : addrList) {
-                InetAddress address = InetAddress.getByName(addr);
-                destinations.add(new Destination(address, interval));
+    /**
+     * Add destinations, e.g. the hosts discovered in a sparse range. Addresses outside the range and addresses already
+     * monitored are ignored. The probing of the new destinations starts at once if the monitor is running.
+     *
+     * @param addresses the addresses to add
+     *
+     * @return the number of destinations added
+     */
+    public synchronized int addDestinations(Collection<InetAddress> addresses) {
+        Set<IpAddress> known = getKeys();
+
+        List<Destination> added = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            IpAddress ip = IpAddress.of(address);
+            if (inRange(ip) && known.add(ip)) {
+                added.add(new Destination(address, interval));
             }
         }
-        catch (UnknownHostException uhex) {
-            LOG.error(uhex.getMessage());
+
+        long slotMillis = added.isEmpty() ? 0 : Math.max(1, interval * 1000L / added.size());
+        long offset = 0;
+        for (Destination destination : added) {
+            destination.setPhaseOffset(offset + ThreadLocalRandom.current().nextLong(slotMillis));
+            offset += slotMillis;
+        }
+        add(added);
+
+        if (!added.isEmpty() && LOG.isDebugEnabled()) {
+            LOG.debug("Added " + added.size() + " destinations to " + getId());
         }
+        return added.size();
+    }
 
-        return destinations;
+    /**
+     * Index new destinations, apply their saved states and start probing them if the monitor is running. The caller
+     * holds the lock of the monitor.
+     *
+     * @param added the new destinations
+     */
+    private void add(List<Destination> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+
+        List<InetAddress> addresses = new ArrayList<>(added.size());
+        for (Destination destination : added) {
+            destination.setParent(destination == gatewayDestination ? null : gatewayDestination);
+            subnetIndex.add(destination);
+            addresses.add(destination.getInetAddr());
+        }
+        if (snapshot != null) {
+            snapshot.apply(added);
+        }
+
+        // Add all at once; the list is copied on each write
+        destinations.addAll(added);
+
+        if (service != null && !service.isShutdown()) {
+            updateAdmission();
+            for (Destination destination : added) {
+                startProber(destination);
+            }
+
+            // Resolve the host names for the result views in the background
+            ReverseDnsCache.getInstance().prefetch(addresses);
+        }
+    }
+
+    /**
+     * Get the addresses of the destinations.
+     *
+     * @return the addresses
+     */
+    private Set<IpAddress> getKeys() {
+        Set<IpAddress> keys = new HashSet<>();
+
+        for (Destination target : destinations) {
+            keys.add(target.getKey());
+        }
+        if (externalGateway) {
+            keys.add(gatewayDestination.getKey());
+        }
+        return keys;
     }
 
     /**
-     * Start the monitoring for the range.
+     * Get the subnet index of the destinations with the up and down counts.
+     *
+     * @return the index
+     */
+    public SubnetIndex getSubnetIndex() {
+        return subnetIndex;
+    }
+
+    /**
+     * Start the monitoring for the range. Returns at once; the destinations are created in the background.
      *
      * @throws InterruptedException in case the thread is interrupted
      */
-    public void start() throws InterruptedException {
+    public synchronized void start() throws InterruptedException {
         LOG.debug("Start");
 
         if (destinations == null) {
@@ -172,28 +583,138 @@ public class Monitor implements Serializable {
             return;
         }
 
-        if (destinations.isEmpty()) {
-            LOG.info("No destinations defined...");
+        if (destinations.isEmpty() && discovery == null && planned == 0) {
+            if (first != null && IpAddress.count(first, last) > MAX_DESTINATIONS) {
+                LOG.error("Range " + getId() + " has more than " + MAX_DESTINATIONS + " addresses; enable the host discovery");
+            }
+            else {
+                LOG.info("No destinations defined...");
+            }
             return;
         }
 
-        service = Executors.newFixedThreadPool(destinations.size());
+        double rate = admissionRate();
+        admission = new TokenBucket(rate, (long) Math.ceil(rate));
+        updateAdmission();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Admission " + admission);
+        }
+
+        // One thread per prober; created and discovered destinations add probers while running
+        service = Executors.newCachedThreadPool(new ProberThreadFactory(getId()));
         futureList = new ArrayList<>();
+        proberList = new ArrayList<>();
 
         for (Destination target : destinations) {
-            Future future = service.submit(new Prober(target));
-            futureList.add(future);
+            startProber(target);
+        }
+
+        if (externalGateway) {
+            startProber(gatewayDestination);
+        }
+
+        // Resolve the host names for the result views in the background
+        List<InetAddress> addresses = new ArrayList<>(destinations.size());
+        for (Destination target : destinations) {
+            addresses.add(target.getInetAddr());
+        }
+        ReverseDnsCache.getInstance().prefetch(addresses);
+
+        if (planned > destinations.size()) {
+            futureList.add(service.submit(this::materialize));
+        }
+
+        if (discovery != null) {
+            discovery.start(this::getKeys, this::addDestinations);
         }
 
         LOG.debug("Finished start");
     }
 
     /**
-     * Stop the monitoring for the range.
+     * Get the probe profile of the monitor.
+     *
+     * @return the profile name; empty for the default profile
+     */
+    public String getProbeProfile() {
+        return probeProfile;
+    }
+
+    /**
+     * Set the probe profile of the monitor (see {@link ProbeRegistry}). Set it before starting; destinations already
+     * probed keep their probes until the monitor is restarted.
+     *
+     * @param probeProfile the profile name; empty for the default profile
+     */
+    public void setProbeProfile(String probeProfile) {
+        this.probeProfile = probeProfile == null ? "" : probeProfile;
+    }
+
+    /**
+     * Start probing a destination.
+     *
+     * @param target the destination
+     */
+    private void startProber(Destination target) {
+        String monitorId = getId();
+        AlertService alerts = AlertService.getInstance();
+
+        ClusterService.getInstance().register(target);
+        target.setStateListener((destination, from, to) -> alerts.submit(monitorId, destination, from, to));
+        Prober prober = new Prober(target, admission, lagRecorder, ProbeRegistry.getInstance().getProfile(probeProfile));
+        proberList.add(prober);
+        futureList.add(service.submit(prober));
+    }
+
+    /**
+     * Get the maximum number of destinations built from a range without the host discovery.
+     *
+     * @return the number of addresses
+     */
+    public static long getMaxDestinations() {
+        return MAX_DESTINATIONS;
+    }
+
+    /**
+     * Get the maximum time to wait for the probes in progress when stopping.
+     *
+     * @return the time in milliseconds
+     */
+    public static long getStopTimeout() {
+        return STOP_TIMEOUT;
+    }
+
+    /**
+     * Stop the monitoring for the range. Wait until all probes are finished, but not longer than the stop timeout.
+     *
+     * @return the number of probes still in progress after the timeout
+     */
+    public int stop() {
+        shutdown();
+        return awaitTermination(STOP_TIMEOUT);
+    }
+
+    /**
+     * Signal all probes to stop; do not wait. Probes blocking on a connection are aborted by closing it.
      */
-    public void stop() {
+    public synchronized void shutdown() {
         LOG.debug("Stop");
 
+        if (discovery != null) {
+            discovery.stop();
+        }
+
+        Prober.addGlobalDemand(-globalDemand);
+        globalDemand = 0;
+
+        if (proberList != null) {
+            for (Prober prober : proberList) {
+                prober.stop();
+                ClusterService.getInstance().unregister(prober.getDestination());
+                prober.getDestination().setStateListener(null);
+            }
+        }
+
         if (futureList != null) {
             for (Future future : futureList) {
                 future.cancel(true);
@@ -204,21 +725,89 @@ public class Monitor implements Serializable {
         if (service != null) {
             service.shutdownNow();
         }
+    }
+
+    /**
+     * Wait until all probes are finished after {@link #shutdown()}.
+     *
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     *
+     * @return the number of probes still in progress after the timeout
+     */
+    public int awaitTermination(long timeoutMillis) {
+        int stragglers = 0;
+
+        if (service != null) {
+            try {
+                if (!service.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    for (Prober prober : proberList) {
+                        if (prober.isActive()) {
+                            LOG.warn("Probe on <" + prober.getDestination().getInetAddr().getHostAddress() + "> still in progress after stop");
+                            ++stragglers;
+                        }
+                    }
+                }
+            }
+            catch (InterruptedException iex) {
+                LOG.warn("Waiting for stop of " + getId() + " interrupted");
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (proberList != null) {
+            proberList.clear();
+        }
 
-        LOG.debug("Stop finished");
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Stop finished; stragglers=" + stragglers);
+        }
+        return stragglers;
+    }
+
+    /**
+     * Create named threads for the probers of a monitor. The names help to find threads left over after a stop.
+     */
+    private static class ProberThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Create the thread factory.
+         *
+         * @param monitorId the id of the monitor
+         */
+        ProberThreadFactory(String monitorId) {
+            this.prefix = "Prober-" + monitorId + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 
+    /**
+     * The hash code is built from the range only; the interval and the comment change while the monitor is running.
+     *
+     * @return the hash code
+     */
     @Override
     public int hashCode() {
         int hash = 3;
         hash = 41 * hash + Objects.hashCode(this.start);
         hash = 41 * hash + Objects.hashCode(this.end);
-        hash = 41 * hash + this.interval;
-        hash = 41 * hash + Objects.hashCode(this.comment);
-        hash = 41 * hash + Objects.hashCode(this.service);
         return hash;
     }
 
+    /**
+     * Monitors are equal if they have the same range, i.e. the same id.
+     *
+     * @param obj the other object
+     *
+     * @return true if equal
+     */
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -231,26 +820,14 @@ public class Monitor implements Serializable {
             return false;
         }
         final Monitor other = (Monitor) obj;
-        if (this.interval != other.interval) {
-            return false;
-        }
         if (!Objects.equals(this.start, other.start)) {
             return false;
         }
-        if (!Objects.equals(this.end, other.end)) {
-            return false;
-        }
-        if (!Objects.equals(this.comment, other.comment)) {
-            return false;
-        }
-        if (!Objects.equals(this.service, other.service)) {
-            return false;
-        }
-        return true;
+        return Objects.equals(this.end, other.end);
     }
 
     @Override
     public String toString() {
-        return "Monitor{" + "start=" + start + ", end=" + end + ", interval=" + interval + ", comment=" + comment + ", service=" + service + '}';
+        return "Monitor{" + "start=" + start + ", end=" + end + ", interval=" + interval + ", comment=" + comment + ", gateway=" + gateway + ", probeProfile=" + probeProfile + ", discoveryEnabled=" + discoveryEnabled + ", service=" + service + '}';
     }
 }
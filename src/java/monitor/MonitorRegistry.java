@@ -0,0 +1,135 @@
+package monitor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A registry of monitors by id.<br>
+ * <br>
+ * The registry holds an immutable snapshot of the monitors: an array in the order added and a hash index by id. A
+ * change copies the snapshot and swaps it atomically, so readers never block, never see a half-updated list and can
+ * iterate a snapshot while monitors are started and stopped. Changes are rare compared to reads (every poll of every
+ * result view), so the copy on write is cheap.
+ */
+public class MonitorRegistry {
+    /**
+     * The registry without monitors.
+     */
+    private static final Snapshot EMPTY = new Snapshot(new Monitor[0]);
+
+    /**
+     * The current snapshot.
+     */
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(EMPTY);
+
+    /**
+     * An immutable state of the registry.
+     */
+    private static class Snapshot {
+        private final Monitor[] monitors;
+        private final List<Monitor> list;
+        private final Map<String, Monitor> byId;
+
+        Snapshot(Monitor[] monitors) {
+            this.monitors = monitors;
+            this.list = Collections.unmodifiableList(Arrays.asList(monitors));
+
+            Map<String, Monitor> index = new HashMap<>(monitors.length * 2);
+            for (Monitor monitor : monitors) {
+                index.put(monitor.getId(), monitor);
+            }
+            this.byId = index;
+        }
+    }
+
+    /**
+     * Get the monitors.
+     *
+     * @return an unmodifiable snapshot in the order added; not changed by later changes of the registry
+     */
+    public List<Monitor> getMonitors() {
+        return current.get().list;
+    }
+
+    /**
+     * Get a monitor by id.
+     *
+     * @param id the id of the monitor
+     *
+     * @return the monitor or null if not registered
+     */
+    public Monitor get(String id) {
+        return current.get().byId.get(id);
+    }
+
+    /**
+     * Get the number of monitors.
+     *
+     * @return the size
+     */
+    public int size() {
+        return current.get().monitors.length;
+    }
+
+    /**
+     * Add a monitor unless a monitor with the same id is registered.
+     *
+     * @param monitor the monitor
+     *
+     * @return true if added
+     */
+    public boolean add(Monitor monitor) {
+        while (true) {
+            Snapshot snapshot = current.get();
+            if (snapshot.byId.containsKey(monitor.getId())) {
+                return false;
+            }
+
+            Monitor[] monitors = Arrays.copyOf(snapshot.monitors, snapshot.monitors.length + 1);
+            monitors[monitors.length - 1] = monitor;
+            if (current.compareAndSet(snapshot, new Snapshot(monitors))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove a monitor.
+     *
+     * @param monitor the monitor
+     *
+     * @return true if removed
+     */
+    public boolean remove(Monitor monitor) {
+        while (true) {
+            Snapshot snapshot = current.get();
+            int idx = 0;
+            while (idx < snapshot.monitors.length && snapshot.monitors[idx] != monitor) {
+                ++idx;
+            }
+            if (idx == snapshot.monitors.length) {
+                return false;
+            }
+
+            Monitor[] monitors = new Monitor[snapshot.monitors.length - 1];
+            System.arraycopy(snapshot.monitors, 0, monitors, 0, idx);
+            System.arraycopy(snapshot.monitors, idx + 1, monitors, idx, monitors.length - idx);
+            if (current.compareAndSet(snapshot, new Snapshot(monitors))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove all monitors.
+     *
+     * @return the removed monitors
+     */
+    public List<Monitor> clear() {
+        return current.getAndSet(EMPTY).list;
+    }
+}
@@ -3,8 +3,7 @@ package probe;
 import destination.Destination;
 import java.io.IOException;
 import java.net.InetAddress;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
 import org.apache.log4j.Logger;
 
 /**
@@ -41,6 +40,12 @@ public class EchoProbe implements Probe, Runnable {
         return destination;
     }
 
+    @Override
+    public void abort() {
+        // An echo request can not be closed; it ends with its timeout or if the thread is interrupted
+        running = false;
+    }
+
     @Override
     public boolean isRunning() {
         return running;
@@ -55,11 +60,11 @@ public class EchoProbe implements Probe, Runnable {
     public void probe() {
         boolean result;
 
-        destination.setLastProbe(LocalDateTime.now());
+        destination.setLastProbeNanos(System.nanoTime());
 
         try {
             InetAddress inet = InetAddress.getByAddress(destination.getInetAddr().getAddress());
-            result = inet.isReachable(5000);
+            result = inet.isReachable(TIMEOUT);
         }
         catch (IOException ex) {
             LOG.error(ex.getMessage());
@@ -68,7 +73,9 @@ public class EchoProbe implements Probe, Runnable {
 
         destination.setProbeResult(result);
 
-        LOG.debug("Echo <" + destination.getInetAddr().getHostAddress() + "> quality=" + destination.getQuality());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Echo <" + destination.getInetAddr().getHostAddress() + "> quality=" + destination.getQuality());
+        }
     }
 
     @Override
@@ -76,18 +83,16 @@ public class EchoProbe implements Probe, Runnable {
         while (running) {
             try {
                 // Check if a new probe is needed
-                long diffSecs = destination.getLastProbe().until(LocalDateTime.now(), ChronoUnit.SECONDS);
-                LOG.trace("diffSecs=" + diffSecs);
+                long waitNanos = destination.getNextProbeNanos() - System.nanoTime();
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("waitNanos=" + waitNanos);
+                }
 
-                if (diffSecs >= destination.getInterval()) {
+                if (waitNanos <= 0) {
                     probe();
                 }
                 else {
-                    if (destination.getInterval() - diffSecs > 0) {
-                        long sleepTime = destination.getInterval() - diffSecs;
-                        LOG.trace("sleepTime=" + sleepTime);
-                        Thread.sleep(sleepTime * 1000);
-                    }
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
                 }
             }
             catch (InterruptedException iex) {
@@ -96,4 +101,34 @@ public class EchoProbe implements Probe, Runnable {
             }
         }
     }
+
+    /**
+     * The provider of an echo probe. An ICMP echo or a TCP connect to the echo port; cheap.
+     */
+    public static class Provider implements ProbeProvider {
+        @Override
+        public String getName() {
+            return EchoProbe.class.getSimpleName();
+        }
+
+        @Override
+        public Probe create(Destination destination) {
+            return new EchoProbe(destination);
+        }
+
+        @Override
+        public int getCost() {
+            return 1;
+        }
+
+        @Override
+        public long getExpectedLatencyMillis() {
+            return 100;
+        }
+
+        @Override
+        public int getMaxConcurrency() {
+            return 0;
+        }
+    }
 }
@@ -5,9 +5,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import org.apache.log4j.Logger;
 
 /**
@@ -33,6 +32,10 @@ public class PingProbe implements Probe, Runnable {
      * Indicate if this echo probe is running.
      */
     private boolean running = true;
+    /**
+     * The ping process in progress; null if no probe is in progress.
+     */
+    private volatile Process process;
 
     /**
      * Create a ping probe for the given destination.
@@ -48,6 +51,17 @@ public class PingProbe implements Probe, Runnable {
         return destination;
     }
 
+    @Override
+    public void abort() {
+        running = false;
+
+        Process proc = process;
+        if (proc != null) {
+            // Destroying the process closes its output; the reading probe returns at once
+            proc.destroy();
+        }
+    }
+
     @Override
     public boolean isRunning() {
         return running;
@@ -63,13 +77,14 @@ public class PingProbe implements Probe, Runnable {
         BufferedReader bufferedReader = null;
         boolean result = true;
 
-        destination.setLastProbe(LocalDateTime.now());
+        destination.setLastProbeNanos(System.nanoTime());
 
         try {
             boolean isWindows = System.getProperty("os.name").toLowerCase(Locale.getDefault()).contains("win");
 
             ProcessBuilder processBuilder = new ProcessBuilder("ping", isWindows ? "-n" : "-c", "1", destination.getInetAddr().getHostAddress());
             Process proc = processBuilder.start();
+            process = proc;
 
             bufferedReader = new BufferedReader(new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8));
             String line;
@@ -95,9 +110,12 @@ public class PingProbe implements Probe, Runnable {
             }
         }
 
+        process = null;
         destination.setProbeResult(result);
 
-        LOG.debug("Ping <" + destination.getInetAddr().getHostAddress() + "> quality=" + destination.getQuality());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Ping <" + destination.getInetAddr().getHostAddress() + "> quality=" + destination.getQuality());
+        }
     }
 
     @Override
@@ -105,18 +123,16 @@ public class PingProbe implements Probe, Runnable {
         while (running) {
             try {
                 // Check if a new probe is needed
-                long diffSecs = destination.getLastProbe().until(LocalDateTime.now(), ChronoUnit.SECONDS);
-                LOG.trace("diffSecs=" + diffSecs);
+                long waitNanos = destination.getNextProbeNanos() - System.nanoTime();
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("waitNanos=" + waitNanos);
+                }
 
-                if (diffSecs >= destination.getInterval()) {
+                if (waitNanos <= 0) {
                     probe();
                 }
                 else {
-                    if (destination.getInterval() - diffSecs > 0) {
-                        long sleepTime = destination.getInterval() - diffSecs;
-                        LOG.trace("sleepTime=" + sleepTime);
-                        Thread.sleep(sleepTime * 1000);
-                    }
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
                 }
             }
             catch (InterruptedException iex) {
@@ -134,7 +150,9 @@ public class PingProbe implements Probe, Runnable {
      * @return true if line contains a fail keyword
      */
     private static boolean containsFailKeywords(String line) {
-        LOG.trace("line=[" + line + ']');
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("line=[" + line + ']');
+        }
         boolean result = false;
 
         for (String failKeyword : KEYWORDS) {
@@ -144,7 +162,44 @@ public class PingProbe implements Probe, Runnable {
             }
         }
 
-        LOG.trace("result=" + result);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("result=" + result);
+        }
         return result;
     }
+
+    /**
+     * The provider of a ping probe. Starts a ping process per probe; expensive, so not in the default profile and limited to a few processes at a time.
+     */
+    public static class Provider implements ProbeProvider {
+        @Override
+        public String getName() {
+            return PingProbe.class.getSimpleName();
+        }
+
+        @Override
+        public Probe create(Destination destination) {
+            return new PingProbe(destination);
+        }
+
+        @Override
+        public int getCost() {
+            return 10;
+        }
+
+        @Override
+        public long getExpectedLatencyMillis() {
+            return 1000;
+        }
+
+        @Override
+        public int getMaxConcurrency() {
+            return 16;
+        }
+
+        @Override
+        public boolean isDefault() {
+            return false;
+        }
+    }
 }
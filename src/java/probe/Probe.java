@@ -6,11 +6,21 @@ import destination.Destination;
  * Use this interface to define a new probe.
  */
 public interface Probe {
+    /**
+     * The timeout in milliseconds for a single probe.
+     */
+    public static final int TIMEOUT = 5000;
+
     /**
      * Probe a destination.
      */
     public void probe();
 
+    /**
+     * Abort a probe in progress. Close open connections so that a blocking probe returns at once.
+     */
+    public void abort();
+
     /**
      * Is running allowed for the probe thread.
      *
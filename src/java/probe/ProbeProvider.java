@@ -0,0 +1,60 @@
+package probe;
+
+import destination.Destination;
+
+/**
+ * A provider of a probe type; the service provider interface to add probe types without changing the prober.<br>
+ * <br>
+ * Providers are discovered by {@link java.util.ServiceLoader}: a jar or the application lists its implementations in
+ * META-INF/services/probe.ProbeProvider. An implementation needs a public constructor without arguments. Each provider
+ * declares what a probe costs, so the prober can try cheap probes first, charge expensive probes more of the global
+ * probe rate and limit how many of them run at the same time.
+ */
+public interface ProbeProvider {
+    /**
+     * Get the name of the probe type. The name identifies the probe in profiles, results and metrics.
+     *
+     * @return the name, e.g. "EchoProbe"
+     */
+    public String getName();
+
+    /**
+     * Create a probe for a destination.
+     *
+     * @param destination the destination to probe
+     *
+     * @return the probe
+     */
+    public Probe create(Destination destination);
+
+    /**
+     * Get the cost of a single probe in tokens of the global probe rate; e.g. 1 for a TCP connect, more for a probe
+     * starting a process.
+     *
+     * @return the cost; at least 1
+     */
+    public int getCost();
+
+    /**
+     * Get the expected time of a successful probe. Probes of equal cost are tried in the order of their latencies.
+     *
+     * @return the latency in milliseconds
+     */
+    public long getExpectedLatencyMillis();
+
+    /**
+     * Get the maximum number of probes of this type running at the same time over all monitors.
+     *
+     * @return the limit; 0 if unlimited
+     */
+    public int getMaxConcurrency();
+
+    /**
+     * Check if the probe type is in the default profile.
+     *
+     * @return true if monitors without a profile use it
+     */
+    public default boolean isDefault() {
+        return true;
+    }
+}
@@ -0,0 +1,189 @@
+package probe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import org.apache.log4j.Logger;
+
+/**
+ * The probe types discovered by {@link java.util.ServiceLoader} and the probe profiles built of them.<br>
+ * <br>
+ * A profile is the list of probe types a monitor tries in each probe cycle; the first successful probe ends the
+ * cycle. The probes of a profile are ordered by cost and expected latency, so cheap probes are tried first and an
+ * expensive probe runs only if all cheap ones failed. There are these profiles:
+ * <ul>
+ * <li>"default": all probe types declaring to be default</li>
+ * <li>a profile of each probe type with its name only, e.g. "EchoProbe"</li>
+ * <li>the profiles defined by the system property networkinframonitor.probe.profiles, e.g.
+ * "fast=EchoProbe;full=ServerPortProbe,EchoProbe,TimeServerProbe,PingProbe"</li>
+ * </ul>
+ * Each probe type declaring a concurrency limit gets a semaphore shared by all probers.
+ */
+public final class ProbeRegistry {
+    /**
+     * The name of the default profile.
+     */
+    public static final String DEFAULT_PROFILE = "default";
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(ProbeRegistry.class);
+    /**
+     * The order of the probes in a profile.
+     */
+    private static final Comparator<ProbeProvider> BY_COST = Comparator.comparingInt(ProbeProvider::getCost)
+            .thenComparingLong(ProbeProvider::getExpectedLatencyMillis);
+    /**
+     * The single instance.
+     */
+    private static final ProbeRegistry INSTANCE = new ProbeRegistry(ServiceLoader.load(ProbeProvider.class, ProbeRegistry.class.getClassLoader()),
+                                                                    System.getProperty("networkinframonitor.probe.profiles", ""));
+
+    /**
+     * The providers by name in the order discovered.
+     */
+    private final Map<String, ProbeProvider> providers = new LinkedHashMap<>();
+    /**
+     * The profiles by name.
+     */
+    private final Map<String, List<ProbeProvider>> profiles = new TreeMap<>();
+    /**
+     * The concurrency limits by probe name; probe types without a limit are missing.
+     */
+    private final Map<String, Semaphore> limits = new LinkedHashMap<>();
+
+    /**
+     * Create a registry.
+     *
+     * @param discovered  the providers
+     * @param definitions the additional profiles; "name=probe,probe;name=probe", empty if none
+     */
+    ProbeRegistry(Iterable<ProbeProvider> discovered, String definitions) {
+        List<ProbeProvider> defaults = new ArrayList<>();
+
+        try {
+            for (ProbeProvider provider : discovered) {
+                if (providers.putIfAbsent(provider.getName(), provider) != null) {
+                    LOG.warn("Probe " + provider.getName() + " provided twice; " + provider.getClass().getName() + " ignored");
+                    continue;
+                }
+                if (provider.isDefault()) {
+                    defaults.add(provider);
+                }
+                if (provider.getMaxConcurrency() > 0) {
+                    limits.put(provider.getName(), new Semaphore(provider.getMaxConcurrency(), true));
+                }
+                profiles.put(provider.getName(), Collections.singletonList(provider));
+                LOG.info("Probe " + provider.getName() + " cost=" + provider.getCost() + " latency=" + provider.getExpectedLatencyMillis()
+                         + "ms maxConcurrency=" + provider.getMaxConcurrency());
+            }
+        }
+        catch (ServiceConfigurationError scerr) {
+            LOG.error("Loading probes failed: " + scerr.getMessage());
+        }
+
+        defaults.sort(BY_COST);
+        profiles.put(DEFAULT_PROFILE, Collections.unmodifiableList(defaults));
+
+        for (String definition : definitions.split(";")) {
+            int equals = definition.indexOf('=');
+            if (equals < 0) {
+                if (!definition.trim().isEmpty()) {
+                    LOG.error("Invalid probe profile " + definition);
+                }
+                continue;
+            }
+
+            List<ProbeProvider> profile = new ArrayList<>();
+            for (String name : definition.substring(equals + 1).split(",")) {
+                ProbeProvider provider = providers.get(name.trim());
+                if (provider == null) {
+                    LOG.error("Unknown probe " + name.trim() + " in profile " + definition);
+                }
+                else if (!profile.contains(provider)) {
+                    profile.add(provider);
+                }
+            }
+            profile.sort(BY_COST);
+            profiles.put(definition.substring(0, equals).trim(), Collections.unmodifiableList(profile));
+        }
+    }
+
+    /**
+     * Get the single instance.
+     *
+     * @return the registry
+     */
+    public static ProbeRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get a provider.
+     *
+     * @param name the probe name
+     *
+     * @return the provider or null if unknown
+     */
+    public ProbeProvider getProvider(String name) {
+        return providers.get(name);
+    }
+
+    /**
+     * Get the names of the profiles.
+     *
+     * @return the names in ascending order
+     */
+    public Set<String> getProfileNames() {
+        return Collections.unmodifiableSet(profiles.keySet());
+    }
+
+    /**
+     * Check if a profile exists.
+     *
+     * @param name the profile name; empty for the default profile
+     *
+     * @return true if it exists
+     */
+    public boolean hasProfile(String name) {
+        return name == null || name.isEmpty() || profiles.containsKey(name);
+    }
+
+    /**
+     * Get the probes of a profile.
+     *
+     * @param name the profile name; null or empty for the default profile
+     *
+     * @return the providers ordered by cost and latency; the default profile if the name is unknown
+     */
+    public List<ProbeProvider> getProfile(String name) {
+        List<ProbeProvider> profile = name == null || name.isEmpty() ? null : profiles.get(name);
+
+        if (profile == null) {
+            if (name != null && !name.isEmpty()) {
+                LOG.warn("Unknown probe profile " + name + "; using " + DEFAULT_PROFILE);
+            }
+            profile = profiles.get(DEFAULT_PROFILE);
+        }
+        return profile;
+    }
+
+    /**
+     * Get the concurrency limit of a probe type.
+     *
+     * @param name the probe name
+     *
+     * @return the semaphore shared by all probers or null if unlimited
+     */
+    public Semaphore getLimit(String name) {
+        return limits.get(name);
+    }
+}
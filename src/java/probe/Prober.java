@@ -1,20 +1,61 @@
 package probe;
 
+import cluster.ClusterService;
 import destination.Destination;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import metrics.LagRecorder;
+import metrics.ProbeMetrics;
 import org.apache.log4j.Logger;
 
 /**
- * Probe a destination using different probes.
+ * Probe a destination using different probes.<br>
+ * <br>
+ * The probes are created by the providers of a probe profile (see {@link ProbeRegistry}) and tried in the order of
+ * their costs. Each probe takes as many tokens of the global admission control as it costs, and a probe type with a
+ * concurrency limit waits for its semaphore; so cheap probes get a high fan-out while expensive ones are throttled.
  */
 public class Prober implements Runnable {
     /**
      * A logger.
      */
     private static final Logger LOG = Logger.getLogger(Prober.class);
+    /**
+     * The global probe rate per second; can be set by system property.
+     */
+    private static final int GLOBAL_RATE = Integer.getInteger("networkinframonitor.probe.rate", 200);
+    /**
+     * The global admission control shared by all probers of all monitors.
+     */
+    private static final TokenBucket GLOBAL_ADMISSION = new TokenBucket(GLOBAL_RATE, GLOBAL_RATE);
+    /**
+     * The tokens per second of the global admission control the running monitors need; guarded by the class.
+     */
+    private static double globalDemand = 0;
+    /**
+     * A failed probe taking at least this time in nanoseconds is counted as timeout.
+     */
+    private static final long TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(Probe.TIMEOUT) - TimeUnit.MILLISECONDS.toNanos(50);
+    /**
+     * The metrics registry.
+     */
+    private static final ProbeMetrics METRICS = ProbeMetrics.getInstance();
+    /**
+     * The cluster deciding which node probes the destination.
+     */
+    private static final ClusterService CLUSTER = ClusterService.getInstance();
+    /**
+     * A destination unreachable behind a down parent is probed every this many cycles only (canary probe); can be set
+     * by system property.
+     */
+    private static final int CANARY_CYCLES = Integer.getInteger("networkinframonitor.dependency.canaryCycles", 10);
+    /**
+     * The probe types and profiles.
+     */
+    private static final ProbeRegistry REGISTRY = ProbeRegistry.getInstance();
 
     /**
      * A destination to work on.
@@ -23,11 +64,31 @@ public class Prober implements Runnable {
     /**
      * Indicate if this thread is running.
      */
-    private boolean running = true;
+    private volatile boolean running = true;
+    /**
+     * Indicate if the run loop has not finished yet.
+     */
+    private volatile boolean active = false;
     /**
      * A list of probes to do.
      */
     private final List<Probe> probeList;
+    /**
+     * The providers of the probes; in the order of the probes.
+     */
+    private final List<ProbeProvider> providers;
+    /**
+     * The admission control of the monitor owning the destination; may be null.
+     */
+    private final TokenBucket admission;
+    /**
+     * The lag recorder of the monitor owning the destination; may be null.
+     */
+    private final LagRecorder lagRecorder;
+    /**
+     * The cycles skipped since the last canary probe; starts random so the canary probes of a range are spread.
+     */
+    private int skippedCycles = ThreadLocalRandom.current().nextInt(CANARY_CYCLES);
 
     /**
      * Define a prober for a destination.
@@ -35,16 +96,38 @@ public class Prober implements Runnable {
      * @param destination the target destination to use the probes for
      */
     public Prober(Destination destination) {
-        this.destination = destination;
+        this(destination, null, null);
+    }
 
-        this.probeList = new ArrayList<>();
+    /**
+     * Define a prober for a destination using the admission control and lag recorder of its monitor.
+     *
+     * @param destination the target destination to use the probes for
+     * @param admission   the admission control of the monitor; null to use the global admission control only
+     * @param lagRecorder the lag recorder of the monitor; null if not needed
+     */
+    public Prober(Destination destination, TokenBucket admission, LagRecorder lagRecorder) {
+        this(destination, admission, lagRecorder, REGISTRY.getProfile(ProbeRegistry.DEFAULT_PROFILE));
+    }
 
-        probeList.add(new ServerPortProbe(destination));
-        probeList.add(new EchoProbe(destination));
-        probeList.add(new TimeServerProbe(destination));
+    /**
+     * Define a prober for a destination using the probes of a profile.
+     *
+     * @param destination the target destination to use the probes for
+     * @param admission   the admission control of the monitor; null to use the global admission control only
+     * @param lagRecorder the lag recorder of the monitor; null if not needed
+     * @param providers   the providers of the probes in the order to try, e.g. from {@link ProbeRegistry#getProfile}
+     */
+    public Prober(Destination destination, TokenBucket admission, LagRecorder lagRecorder, List<ProbeProvider> providers) {
+        this.destination = destination;
+        this.admission = admission;
+        this.lagRecorder = lagRecorder;
+        this.providers = providers;
 
-        // Do not use ping until it is more improved
-        // probeList.add(new PingProbe(destination));
+        this.probeList = new ArrayList<>(providers.size());
+        for (ProbeProvider provider : providers) {
+            probeList.add(provider.create(destination));
+        }
     }
 
     /**
@@ -74,19 +157,100 @@ public class Prober implements Runnable {
         this.running = running;
     }
 
+    /**
+     * Check if the run loop has not finished yet; e.g. a probe is still in progress after stopping.
+     *
+     * @return true if the run loop is active
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Stop the prober. Abort the probe in progress so that the run loop ends as fast as possible.
+     */
+    public void stop() {
+        running = false;
+
+        for (Probe probe : probeList) {
+            probe.abort();
+        }
+    }
+
+    /**
+     * Change the global probe rate the running monitors need; warn if it exceeds the global probe rate, since the
+     * probes of all monitors are delayed then.
+     *
+     * @param tokensPerSecond the change of the tokens per second needed; negative if a monitor needs less or stopped
+     */
+    public static synchronized void addGlobalDemand(double tokensPerSecond) {
+        double before = globalDemand;
+
+        globalDemand = Math.max(0, globalDemand + tokensPerSecond);
+        if (before <= GLOBAL_RATE && globalDemand > GLOBAL_RATE) {
+            LOG.warn("The running monitors need up to " + (long) Math.ceil(globalDemand) + " probe tokens per second, but the global "
+                     + "probe rate (networkinframonitor.probe.rate) is " + GLOBAL_RATE + "; probes will be late");
+        }
+    }
+
+    /**
+     * Wait until the monitors and the global admission control allow the next probe.
+     *
+     * @param cost the tokens of the global admission control the probe costs
+     *
+     * @throws InterruptedException in case the thread is interrupted while waiting
+     */
+    private void admit(int cost) throws InterruptedException {
+        if (admission != null) {
+            admission.acquire();
+        }
+        GLOBAL_ADMISSION.acquire(Math.max(1, cost));
+    }
+
     /**
      * Do the probes for a destination.
      *
      * @param destination the destination to probe
+     *
+     * @throws InterruptedException in case the thread is interrupted while waiting for admission
      */
-    public void probe(Destination destination) {
-        for (Probe probe : probeList) {
+    public void probe(Destination destination) throws InterruptedException {
+        for (int idx = 0; idx < probeList.size(); ++idx) {
+            Probe probe = probeList.get(idx);
+            ProbeProvider provider = providers.get(idx);
+            admit(provider.getCost());
+
+            String type = provider.getName();
+            Semaphore limit = REGISTRY.getLimit(type);
+            if (limit != null) {
+                limit.acquire();
+            }
+            METRICS.probeStarted();
+            long startTime = System.nanoTime();
+            boolean result = false;
 
-            probe.probe();
+            try {
+                probe.probe();
+                result = destination.getProbeResult();
+            }
+            finally {
+                if (limit != null) {
+                    limit.release();
+                }
+
+                // Also for a probe throwing an exception, so the probes in progress stay right
+                long duration = System.nanoTime() - startTime;
+                METRICS.probeFinished(type, result, !result && duration >= TIMEOUT_NANOS, duration);
+            }
+
+            if (!running) {
+                // Stopped while probing; the result of an aborted probe is meaningless
+                return;
+            }
 
-            if (destination.getProbeResult() == true) {
+            if (result == true) {
                 // A single true probe is enough; set the probe in destination
-                destination.setProbe(probe.getClass().getSimpleName());
+                destination.setProbe(type);
                 return;
             }
         }
@@ -97,25 +261,81 @@ public class Prober implements Runnable {
 
     @Override
     public void run() {
+        active = true;
+        METRICS.proberStarted();
+
+        try {
+            loop();
+        }
+        finally {
+            METRICS.proberStopped();
+            active = false;
+        }
+    }
+
+    /**
+     * Probe the destination in its interval until stopped.<br>
+     * Each probe cycle is due one interval after the previous one was due. The lag of each cycle is recorded; a cycle
+     * taking longer than the interval is an overrun and the next cycle starts at once. The due times are monotonic
+     * (System.nanoTime) so wall clock changes do not skip or repeat probe cycles.<br>
+     * While the parent of a destination not available is down, the destination is marked unreachable and only every
+     * few cycles a canary probe is done; this saves the probe timeouts of all destinations behind a failed gateway.
+     */
+    private void loop() {
+        long due = destination.getNextProbeNanos();
+
         while (running) {
             try {
                 // Check if a new probe is needed
-                long diffSecs = destination.getLastProbe().until(LocalDateTime.now(), ChronoUnit.SECONDS);
-                LOG.trace("diffSecs=" + diffSecs);
+                long lagNanos = System.nanoTime() - due;
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("lagNanos=" + lagNanos);
+                }
+
+                if (lagNanos >= 0) {
+                    // In cluster mode another node may own the destination; keep the schedule but skip the probe
+                    if (CLUSTER.owns(destination)) {
+                        if (destination.isParentDown() && !destination.isAvailable() && ++skippedCycles < CANARY_CYCLES) {
+                            METRICS.probeSuppressed();
+                            if (destination.setUnreachable()) {
+                                CLUSTER.publish(destination);
+                            }
+                        }
+                        else {
+                            skippedCycles = 0;
+                            METRICS.recordLag(lagNanos);
+                            if (lagRecorder != null) {
+                                lagRecorder.record(lagNanos);
+                            }
 
-                if (diffSecs >= destination.getInterval()) {
-                    probe(destination);
+                            probe(destination);
+                            CLUSTER.publish(destination);
+                        }
+                    }
+
+                    due += TimeUnit.SECONDS.toNanos(destination.getInterval());
+                    long finished = System.nanoTime();
+
+                    if (due - finished < 0) {
+                        // The cycle took too long; do not try to catch up the missed cycles
+                        LOG.trace("Overrun");
+                        if (lagRecorder != null) {
+                            lagRecorder.overrun();
+                        }
+                        due = finished;
+                    }
                 }
                 else {
-                    if (destination.getInterval() - diffSecs > 0) {
-                        long sleepTime = destination.getInterval() - diffSecs;
-                        LOG.trace("sleepTime=" + sleepTime);
-                        Thread.sleep(sleepTime * 1000);
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("sleepTime=" + -lagNanos);
                     }
+                    TimeUnit.NANOSECONDS.sleep(-lagNanos);
                 }
             }
             catch (InterruptedException iex) {
-                LOG.debug("Probe on <" + destination.getInetAddr().getHostAddress() + "> interrupted");
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Probe on <" + destination.getInetAddr().getHostAddress() + "> interrupted");
+                }
                 running = false;
             }
         }
@@ -5,8 +5,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
 import org.apache.log4j.Logger;
 
 /**
@@ -33,6 +32,10 @@ public class ServerPortProbe implements Probe, Runnable {
      * Indicate if this time server probe is running.
      */
     private boolean running = true;
+    /**
+     * The socket of the probe in progress; null if no probe is in progress.
+     */
+    private volatile Socket socket;
 
     /**
      * Create a server port probe for the given destination.
@@ -50,22 +53,27 @@ public class ServerPortProbe implements Probe, Runnable {
         long time = 0;
         boolean result;
 
-        destination.setLastProbe(LocalDateTime.now());
+        destination.setLastProbeNanos(System.nanoTime());
 
         try {
             so = new Socket();
+            socket = so;
             InetSocketAddress soaddr = new InetSocketAddress(destination.getInetAddr(), PORT);
             // Set the connect timeout; this is needed because the default is too long
             // Depends highly on destination.getInterval()
-            so.connect(soaddr, 5000);
+            so.connect(soaddr, TIMEOUT);
             in = so.getInputStream();
             result = true;
         }
         catch (IOException ex) {
-            LOG.info(destination.getInetAddr().getHostAddress() + " " + ex.getMessage());
+            // Failures are counted by the probe metrics; log details only on demand
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(destination.getInetAddr().getHostAddress() + " " + ex.getMessage());
+            }
             result = false;
         }
         finally {
+            socket = null;
             if (in != null) {
                 try {
                     in.close();
@@ -87,7 +95,25 @@ public class ServerPortProbe implements Probe, Runnable {
         // Set the probe result; set it for further display
         destination.setProbeResult(result);
 
-        LOG.debug("TimeServer <" + destination.getInetAddr().getHostAddress() + "> quality=" + destination.getQuality());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TimeServer <" + destination.getInetAddr().getHostAddress() + "> quality=" + destination.getQuality());
+        }
+    }
+
+    @Override
+    public void abort() {
+        running = false;
+
+        Socket so = socket;
+        if (so != null) {
+            try {
+                // Closing the socket makes a blocking connect or read return at once
+                so.close();
+            }
+            catch (IOException ex) {
+                LOG.debug("Closing socket failed, but that is ok...");
+            }
+        }
     }
 
     @Override
@@ -110,18 +136,16 @@ public class ServerPortProbe implements Probe, Runnable {
         while (running) {
             try {
                 // Check if a new probe is needed
-                long diffSecs = destination.getLastProbe().until(LocalDateTime.now(), ChronoUnit.SECONDS);
-                LOG.trace("diffSecs=" + diffSecs);
+                long waitNanos = destination.getNextProbeNanos() - System.nanoTime();
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("waitNanos=" + waitNanos);
+                }
 
-                if (diffSecs >= destination.getInterval()) {
+                if (waitNanos <= 0) {
                     probe();
                 }
                 else {
-                    if (destination.getInterval() - diffSecs > 0) {
-                        long sleepTime = destination.getInterval() - diffSecs;
-                        LOG.trace("sleepTime=" + sleepTime);
-                        Thread.sleep(sleepTime * 1000);
-                    }
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
                 }
             }
             catch (InterruptedException iex) {
@@ -130,4 +154,34 @@ public class ServerPortProbe implements Probe, Runnable {
             }
         }
     }
+
+    /**
+     * The provider of a server port probe. A TCP connect; cheap and fast.
+     */
+    public static class Provider implements ProbeProvider {
+        @Override
+        public String getName() {
+            return ServerPortProbe.class.getSimpleName();
+        }
+
+        @Override
+        public Probe create(Destination destination) {
+            return new ServerPortProbe(destination);
+        }
+
+        @Override
+        public int getCost() {
+            return 1;
+        }
+
+        @Override
+        public long getExpectedLatencyMillis() {
+            return 50;
+        }
+
+        @Override
+        public int getMaxConcurrency() {
+            return 0;
+        }
+    }
 }
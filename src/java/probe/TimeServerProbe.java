@@ -6,9 +6,8 @@ import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.text.SimpleDateFormat;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import org.apache.log4j.Logger;
 
 /**
@@ -39,6 +38,10 @@ public class TimeServerProbe implements Probe, Runnable {
      * Indicate if this time server probe is running.
      */
     private boolean running = true;
+    /**
+     * The socket of the probe in progress; null if no probe is in progress.
+     */
+    private volatile Socket socket;
 
     /**
      * Create a time server probe for the given destination.
@@ -56,28 +59,35 @@ public class TimeServerProbe implements Probe, Runnable {
         long time = 0;
         boolean result;
 
-        destination.setLastProbe(LocalDateTime.now());
+        destination.setLastProbeNanos(System.nanoTime());
 
         try {
             so = new Socket();
+            socket = so;
             InetSocketAddress soaddr = new InetSocketAddress(destination.getInetAddr(), 37);
             // Set the connect timeout; this is needed because the default is too long
             // Depends highly on destination.getInterval()
-            so.connect(soaddr, 5000);
+            so.connect(soaddr, TIMEOUT);
             in = so.getInputStream();
             for (int i = 3; i >= 0; i--) {
                 time ^= (long) in.read() << i * 8;
             }
             // The Time Server returns the seconds since 1900, Java expects milliseconds since 1970
             // Calculate to get the correct format
-            LOG.debug(DATEFORMAT.format(new Date((time - SECONDS_1900_1970) * 1000)));
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(DATEFORMAT.format(new Date((time - SECONDS_1900_1970) * 1000)));
+            }
             result = true;
         }
         catch (IOException ex) {
-            LOG.info(destination.getInetAddr().getHostAddress() + " " + ex.getMessage());
+            // Failures are counted by the probe metrics; log details only on demand
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(destination.getInetAddr().getHostAddress() + " " + ex.getMessage());
+            }
             result = false;
         }
         finally {
+            socket = null;
             if (in != null) {
                 try {
                     in.close();
@@ -99,7 +109,25 @@ public class TimeServerProbe implements Probe, Runnable {
         // Set the probe result; set it for further display
         destination.setProbeResult(result);
 
-        LOG.debug("TimeServer <" + destination.getInetAddr().getHostAddress() + "> quality=" + destination.getQuality());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TimeServer <" + destination.getInetAddr().getHostAddress() + "> quality=" + destination.getQuality());
+        }
+    }
+
+    @Override
+    public void abort() {
+        running = false;
+
+        Socket so = socket;
+        if (so != null) {
+            try {
+                // Closing the socket makes a blocking connect or read return at once
+                so.close();
+            }
+            catch (IOException ex) {
+                LOG.debug("Closing socket failed, but that is ok...");
+            }
+        }
     }
 
     @Override
@@ -122,18 +150,16 @@ public class TimeServerProbe implements Probe, Runnable {
         while (running) {
             try {
                 // Check if a new probe is needed
-                long diffSecs = destination.getLastProbe().until(LocalDateTime.now(), ChronoUnit.SECONDS);
-                LOG.trace("diffSecs=" + diffSecs);
+                long waitNanos = destination.getNextProbeNanos() - System.nanoTime();
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("waitNanos=" + waitNanos);
+                }
 
-                if (diffSecs >= destination.getInterval()) {
+                if (waitNanos <= 0) {
                     probe();
                 }
                 else {
-                    if (destination.getInterval() - diffSecs > 0) {
-                        long sleepTime = destination.getInterval() - diffSecs;
-                        LOG.trace("sleepTime=" + sleepTime);
-                        Thread.sleep(sleepTime * 1000);
-                    }
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
                 }
             }
             catch (InterruptedException iex) {
@@ -142,4 +168,34 @@ public class TimeServerProbe implements Probe, Runnable {
             }
         }
     }
+
+    /**
+     * The provider of a time server probe. A TCP connect reading the time; a bit more than a connect.
+     */
+    public static class Provider implements ProbeProvider {
+        @Override
+        public String getName() {
+            return TimeServerProbe.class.getSimpleName();
+        }
+
+        @Override
+        public Probe create(Destination destination) {
+            return new TimeServerProbe(destination);
+        }
+
+        @Override
+        public int getCost() {
+            return 2;
+        }
+
+        @Override
+        public long getExpectedLatencyMillis() {
+            return 100;
+        }
+
+        @Override
+        public int getMaxConcurrency() {
+            return 0;
+        }
+    }
 }
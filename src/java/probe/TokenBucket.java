@@ -0,0 +1,170 @@
+package probe;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * A token bucket for probe admission control.<br>
+ * <br>
+ * The bucket is refilled with a fixed rate of tokens per second up to its capacity. Each probe takes one token before
+ * it is allowed to contact a destination. If no token is available the calling thread waits until the next token is
+ * due. This spreads the probe load evenly instead of firing all probes at once.
+ */
+public class TokenBucket {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(TokenBucket.class);
+
+    /**
+     * The maximum number of tokens (burst size).
+     */
+    private final long capacity;
+    /**
+     * The time in nanoseconds needed to refill a single token.
+     */
+    private long nanosPerToken;
+    /**
+     * The tokens currently available.
+     */
+    private long tokens;
+    /**
+     * The time in nanoseconds of the last refill.
+     */
+    private long lastRefill;
+
+    /**
+     * Create a token bucket.
+     *
+     * @param ratePerSecond the tokens added per second; values less than 1 are set to 1
+     * @param capacity      the maximum number of tokens; values less than 1 are set to 1
+     */
+    public TokenBucket(double ratePerSecond, long capacity) {
+        double rate = ratePerSecond < 1 ? 1 : ratePerSecond;
+
+        this.capacity = capacity < 1 ? 1 : capacity;
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        this.tokens = this.capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Get the maximum number of tokens.
+     *
+     * @return the capacity
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the refill rate.
+     *
+     * @return the tokens per second
+     */
+    public synchronized double getRatePerSecond() {
+        return (double) TimeUnit.SECONDS.toNanos(1) / nanosPerToken;
+    }
+
+    /**
+     * Change the refill rate. Tokens already available are kept.
+     *
+     * @param ratePerSecond the tokens added per second; values less than 1 are set to 1
+     */
+    public synchronized void setRatePerSecond(double ratePerSecond) {
+        refill(System.nanoTime());
+
+        double rate = ratePerSecond < 1 ? 1 : ratePerSecond;
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    /**
+     * Refill the bucket according to the time passed since the last refill.
+     *
+     * @param now the current time in nanoseconds
+     */
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+
+        if (elapsed >= nanosPerToken) {
+            long newTokens = elapsed / nanosPerToken;
+
+            if (tokens + newTokens >= capacity) {
+                tokens = capacity;
+                lastRefill = now;
+            }
+            else {
+                tokens += newTokens;
+                lastRefill += newTokens * nanosPerToken;
+            }
+        }
+    }
+
+    /**
+     * Take a token if one is available. Never waits.
+     *
+     * @return true if a token was taken, else false
+     */
+    public synchronized boolean tryAcquire() {
+        refill(System.nanoTime());
+
+        if (tokens > 0) {
+            --tokens;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reserve tokens and get the time to wait until they may be used.<br>
+     * The token count may become negative; this queues up the waiting callers in a fair order.
+     *
+     * @param count the number of tokens
+     *
+     * @return the time to wait in nanoseconds; 0 if the tokens can be used immediately
+     */
+    private synchronized long reserve(int count) {
+        long now = System.nanoTime();
+        refill(now);
+
+        tokens -= count;
+        if (tokens >= 0) {
+            return 0;
+        }
+
+        // Time until the reserved token is refilled
+        return (-tokens) * nanosPerToken - (now - lastRefill);
+    }
+
+    /**
+     * Take a token. Wait until one is available.
+     *
+     * @throws InterruptedException in case the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        acquire(1);
+    }
+
+    /**
+     * Take several tokens, e.g. for an expensive probe. Wait until they are available.
+     *
+     * @param count the number of tokens; at least 1
+     *
+     * @throws InterruptedException in case the thread is interrupted while waiting
+     */
+    public void acquire(int count) throws InterruptedException {
+        long waitNanos = reserve(count);
+
+        if (waitNanos > 0) {
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("waitNanos=" + waitNanos);
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TokenBucket{" + "capacity=" + capacity + ", ratePerSecond=" + getRatePerSecond() + ", tokens=" + tokens + '}';
+    }
+}
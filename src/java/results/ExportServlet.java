@@ -0,0 +1,328 @@
+package results;
+
+import config.MonitorConfigurationBean;
+import destination.Destination;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import monitor.Monitor;
+import util.ReverseDnsCache;
+
+/**
+ * Export the current state of all running destinations as CSV or NDJSON.<br>
+ * <br>
+ * The rows are written straight from the destination lists of the running monitors to the response; no intermediate
+ * list is built and the response has no content length, so it is sent with chunked encoding and uses constant memory
+ * for any number of destinations. The response is compressed if the client accepts gzip.<br>
+ * <br>
+ * Request parameters:
+ * <ul>
+ * <li>format: csv (default) or ndjson</li>
+ * <li>monitor: the id of a monitor, e.g. "10.1.1.1-10.1.1.254"; all running monitors if missing</li>
+ * <li>history: the number of last probe cycles to add as history window (0 - 64, default 0)</li>
+ * </ul>
+ */
+public class ExportServlet extends HttpServlet {
+    /**
+     * Needed for proper serializable implementation.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * The size of the buffer in front of the response stream.
+     */
+    private static final int BUFFER_SIZE = 16 * 1024;
+    /**
+     * The maximum history window; the destinations keep 64 probe cycles.
+     */
+    private static final int MAX_HISTORY = Long.SIZE;
+    /**
+     * The columns of the current state.
+     */
+    private static final String[] COLUMNS = {"monitor", "ip", "hostname", "state", "result", "quality", "probe", "lastProbe"};
+
+    /**
+     * The export formats.
+     */
+    enum Format {
+        CSV("text/csv; charset=utf-8", "csv"),
+        NDJSON("application/x-ndjson; charset=utf-8", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Format format = parseFormat(request.getParameter("format"));
+        int history = parseHistory(request.getParameter("history"));
+        if (format == null || history < 0) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be csv or ndjson, history 0 - " + MAX_HISTORY);
+            return;
+        }
+        String monitorId = request.getParameter("monitor");
+
+        response.setContentType(format.contentType);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Content-Disposition", "attachment; filename=\"destinations." + format.extension + "\"");
+        response.setHeader("Vary", "Accept-Encoding");
+
+        OutputStream stream = response.getOutputStream();
+        if (acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            response.setHeader("Content-Encoding", "gzip");
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            write(out, MonitorConfigurationBean.listRunningMonitors(), monitorId, format, history);
+        }
+    }
+
+    /**
+     * Parse the format parameter.
+     *
+     * @param value the parameter; null for the default
+     *
+     * @return the format or null if unknown
+     */
+    static Format parseFormat(String value) {
+        if (value == null || value.isEmpty() || value.equalsIgnoreCase("csv")) {
+            return Format.CSV;
+        }
+        return value.equalsIgnoreCase("ndjson") ? Format.NDJSON : null;
+    }
+
+    /**
+     * Parse the history parameter.
+     *
+     * @param value the parameter; null for no history
+     *
+     * @return the number of probe cycles or -1 if invalid
+     */
+    static int parseHistory(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            int history = Integer.parseInt(value);
+            return history <= MAX_HISTORY ? history : -1;
+        }
+        catch (NumberFormatException nfex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Check if a client accepts a gzip compressed response.
+     *
+     * @param acceptEncoding the Accept-Encoding header; null if missing
+     *
+     * @return true if gzip is listed and not refused by q=0
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int idx = 1; idx < parts.length; ++idx) {
+                    if (parts[idx].trim().matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the header and a row per destination of the monitors.
+     *
+     * @param out       the writer
+     * @param monitors  the monitors
+     * @param monitorId the id of the monitor to export; null for all
+     * @param format    the format
+     * @param history   the number of probe cycles of the history window
+     *
+     * @throws IOException in case of a write error, e.g. the client closed the connection
+     */
+    static void write(Writer out, List<Monitor> monitors, String monitorId, Format format, int history) throws IOException {
+        writeHeader(out, format, history);
+
+        for (Monitor monitor : monitors) {
+            if (monitorId == null || monitorId.equals(monitor.getId())) {
+                for (Destination destination : monitor.getDestinations()) {
+                    writeRow(out, format, monitor.getId(), destination, history);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the header line; NDJSON has none.
+     *
+     * @param out     the writer
+     * @param format  the format
+     * @param history the number of probe cycles of the history window
+     *
+     * @throws IOException in case of a write error
+     */
+    static void writeHeader(Writer out, Format format, int history) throws IOException {
+        if (format == Format.CSV) {
+            out.write(String.join(",", COLUMNS));
+            if (history > 0) {
+                out.write(",history,availability");
+            }
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Write the row of a destination.<br>
+     * The history is a string of '1' (success) and '0' (failure) with the last probe cycle first; cycles not probed
+     * yet are left out. The availability is the percentage of successes in the history window.
+     *
+     * @param out         the writer
+     * @param format      the format
+     * @param monitorId   the id of the monitor of the destination
+     * @param destination the destination
+     * @param history     the number of probe cycles of the history window
+     *
+     * @throws IOException in case of a write error
+     */
+    static void writeRow(Writer out, Format format, String monitorId, Destination destination, int history) throws IOException {
+        long lastProbe = destination.getLastProbeMillis();
+        String[] values = {
+            monitorId,
+            destination.getKey().toString(),
+            ReverseDnsCache.getInstance().getHostName(destination.getInetAddr()),
+            destination.getState().toString(),
+            destination.getProbeResult() ? "1" : "0",
+            Integer.toString(destination.getQuality()),
+            destination.getProbe(),
+            lastProbe == 0 ? null : Instant.ofEpochMilli(lastProbe).toString()
+        };
+
+        for (int idx = 0; idx < values.length; ++idx) {
+            if (format == Format.CSV) {
+                if (idx > 0) {
+                    out.write(',');
+                }
+                writeCsv(out, values[idx]);
+            }
+            else {
+                out.write(idx == 0 ? "{\"" : ",\"");
+                out.write(COLUMNS[idx]);
+                out.write("\":");
+                writeJson(out, values[idx]);
+            }
+        }
+
+        if (history > 0) {
+            long bits = destination.getHistory();
+            int size = Math.min(history, destination.getHistorySize());
+            char[] window = new char[size];
+            for (int idx = 0; idx < size; ++idx) {
+                window[idx] = (bits & (1L << idx)) != 0 ? '1' : '0';
+            }
+            long successes = size == 0 ? 0 : Long.bitCount(size == Long.SIZE ? bits : bits & ((1L << size) - 1));
+            String availability = size == 0 ? null : Long.toString(successes * 100 / size);
+
+            if (format == Format.CSV) {
+                out.write(',');
+                out.write(window);
+                out.write(',');
+                writeCsv(out, availability);
+            }
+            else {
+                out.write(",\"history\":\"");
+                out.write(window);
+                out.write("\",\"availability\":");
+                out.write(availability == null ? "null" : availability);
+            }
+        }
+
+        out.write(format == Format.CSV ? "\n" : "}\n");
+    }
+
+    /**
+     * Write a CSV field; quoted if needed (RFC 4180).
+     *
+     * @param out   the writer
+     * @param value the value; null for an empty field
+     *
+     * @throws IOException in case of a write error
+     */
+    private static void writeCsv(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        boolean quote = false;
+        for (int idx = 0; idx < value.length() && !quote; ++idx) {
+            char c = value.charAt(idx);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int idx = 0; idx < value.length(); ++idx) {
+            char c = value.charAt(idx);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    /**
+     * Write a JSON string.
+     *
+     * @param out   the writer
+     * @param value the value; null for a JSON null
+     *
+     * @throws IOException in case of a write error
+     */
+    static void writeJson(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+
+        out.write('"');
+        for (int idx = 0; idx < value.length(); ++idx) {
+            char c = value.charAt(idx);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            }
+            else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            }
+            else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
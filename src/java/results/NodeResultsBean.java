@@ -2,22 +2,32 @@ package results;
 
 import config.MonitorConfigurationBean;
 import destination.Destination;
+import destination.SubnetIndex;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.PostConstruct;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ManagedProperty;
 import javax.faces.bean.SessionScoped;
 import monitor.Monitor;
 import org.apache.log4j.Logger;
+import org.primefaces.PrimeFaces;
 import org.primefaces.event.NodeCollapseEvent;
 import org.primefaces.event.NodeExpandEvent;
 import org.primefaces.model.DefaultTreeNode;
 import org.primefaces.model.TreeNode;
+import util.IpAddress;
+import util.ReverseDnsCache;
 
 /**
- * Handle the monitoring results as tree (TableTree).
+ * Handle the monitoring results as tree (TableTree).<br>
+ * <br>
+ * The documents of the nodes are built once per version of the shared results model and shared by all sessions; each
+ * session only links them into its own tree with its expanded nodes. A poll rebuilds and updates the tree only if the
+ * model has a new version since the last update.
  */
 @ManagedBean(name = "NodeResultsBean")
 @SessionScoped
@@ -39,6 +49,14 @@ public class NodeResultsBean implements Serializable {
      * The destination type value.
      */
     private static final String DESTINATION_TYPE = "destination";
+    /**
+     * The subnet type value.
+     */
+    private static final String SUBNET_TYPE = "subnet";
+    /**
+     * The type value of a placeholder making a node expandable before its children are loaded.
+     */
+    private static final String PLACEHOLDER_TYPE = "placeholder";
 
     /**
      * A reference to the monitor configuration.
@@ -50,6 +68,64 @@ public class NodeResultsBean implements Serializable {
      * The trees root.
      */
     private TreeNode root;
+    /**
+     * The paths of the expanded nodes.
+     */
+    private final Set<String> expandedPaths = new HashSet<>();
+    /**
+     * The snapshot of the results model shown; null if none yet.
+     */
+    private transient ResultsModel.Snapshot snapshot;
+
+    /**
+     * A monitor or subnet node; its children are loaded from the subnet index of the monitor.
+     */
+    private static class SubnetTreeNode extends DefaultTreeNode {
+        private static final long serialVersionUID = 1L;
+
+        private final Monitor monitor;
+        private final IpAddress key;
+        private final int level;
+
+        /**
+         * Create a node.
+         *
+         * @param type     the node type
+         * @param document the document to display
+         * @param parent   the parent node
+         * @param monitor  the monitor
+         * @param key      the subnet key; null for the monitor node
+         * @param level    0 for the monitor node, 1 for a network node, 2 for a subnet node
+         */
+        SubnetTreeNode(String type, NodeResultsDocument document, TreeNode parent, Monitor monitor, IpAddress key, int level) {
+            super(type, document, parent);
+            this.monitor = monitor;
+            this.key = key;
+            this.level = level;
+        }
+    }
+
+    /**
+     * A child of a node as built from the subnet index; shared by all sessions.
+     */
+    private static class Child {
+        private final NodeResultsDocument document;
+        private final IpAddress key;
+        private final int level;
+
+        /**
+         * Create a child.
+         *
+         * @param document the document to display
+         * @param key      the subnet key; null for a destination
+         * @param level    the level of a subnet node
+         */
+        Child(NodeResultsDocument document, IpAddress key, int level) {
+            this.document = document;
+            this.key = key;
+            this.level = level;
+        }
+    }
 
     /**
      * Creates a new instance of NodeResultsBean.
@@ -111,88 +187,190 @@ public class NodeResultsBean implements Serializable {
         return DESTINATION_TYPE;
     }
 
+    /**
+     * Get the subnet type value.
+     *
+     * @return the subnet type
+     */
+    public String getSUBNET_TYPE() {
+        return SUBNET_TYPE;
+    }
+
     /**
      * Initialize the tree.
      */
     @PostConstruct
     public void init() {
-        root = createTree();
+        root = new DefaultTreeNode("Root", null);
+        snapshot = ResultsModel.getInstance().get(configuration.getRunningMonitors());
+        fillTree();
     }
 
     /**
-     * Buildup the tree to display.
-     *
-     * @return the root node of the tree
+     * Buildup the tree to display.<br>
+     * Only the monitors and the children of expanded nodes are created; a collapsed node gets a placeholder child so
+     * that it can be expanded. Its children are loaded when it is expanded.
      */
-    private TreeNode createTree() {
+    private void fillTree() {
         LOG.debug("-->");
 
-        root = new DefaultTreeNode("Root", null);
-        NodeResultsDocument document;
-
-        for (Monitor monitor : configuration.getRunningMonitors()) {
-            document = new NodeResultsDocument(buildMonitorNodeText(monitor), buildSummary(monitor), Integer.toString(monitor.getInterval()));
-            TreeNode monitorNode = new DefaultTreeNode(MONITOR_TYPE,
-                                                       document,
-                                                       root);
-
-            for (Destination destination : monitor.getDestinations()) {
-                document = new NodeResultsDocument(destination.getInetAddr(), destination.getLastProbe(),
-                                                   destination.getProbeResult() ? 1 : 0, destination.getQuality(),
-                                                   destination.getProbe());
-                TreeNode destinationNode = new DefaultTreeNode(DESTINATION_TYPE,
-                                                               document,
-                                                               monitorNode);
-            }
+        root.getChildren().clear();
+        for (Monitor monitor : snapshot.getMonitors()) {
+            NodeResultsDocument document = snapshot.getView(monitor.getId(), () -> buildMonitorDocument(monitor));
+            prepareNode(new SubnetTreeNode(MONITOR_TYPE, document, root, monitor, null, 0));
         }
 
         LOG.debug("<--");
-        return root;
     }
 
     /**
-     * Update the tree to display.
+     * Build the document of a monitor node.
+     *
+     * @param monitor the monitor
+     *
+     * @return the document
+     */
+    private NodeResultsDocument buildMonitorDocument(Monitor monitor) {
+        SubnetIndex index = monitor.getSubnetIndex();
+        NodeResultsDocument document = new NodeResultsDocument(buildMonitorNodeText(monitor), buildSummary(monitor), Integer.toString(monitor.getInterval()),
+                                                               monitor.getLagMedianMillis(), monitor.getLagP99Millis(), monitor.getOverruns());
+        document.setUp(index.getUp());
+        document.setDown(index.getDown());
+        return document;
+    }
+
+    /**
+     * Update the tree to display if the results model changed since the last update; otherwise the poll has nothing
+     * to render.
      */
     public void update() {
         LOG.debug("-->");
+        ResultsModel.Snapshot current = ResultsModel.getInstance().get(configuration.getRunningMonitors());
+
+        if (snapshot == null || current.getVersion() != snapshot.getVersion()) {
+            snapshot = current;
+            fillTree();
+            PrimeFaces.current().ajax().update("nodeResultsForm:treeResult");
+        }
+        LOG.debug("<--");
+    }
+
+    /**
+     * Load the children of a node if it was expanded before, else add a placeholder child.
+     *
+     * @param node the new node
+     */
+    private void prepareNode(SubnetTreeNode node) {
+        if (expandedPaths.contains(buildPath(node))) {
+            node.setExpanded(true);
+            loadChildren(node);
+        }
+        else {
+            TreeNode placeholder = new DefaultTreeNode(PLACEHOLDER_TYPE, null, node);
+        }
+    }
+
+    /**
+     * Load the children of a node from the subnet index of its monitor; at most 256. The children are built once per
+     * snapshot and shared by all sessions.
+     *
+     * @param node the node to load the children for
+     */
+    private void loadChildren(SubnetTreeNode node) {
+        node.getChildren().clear();
 
-        List<String> expandedList = new ArrayList<>();
-        NodeResultsDocument document;
+        if (snapshot == null) {
+            snapshot = ResultsModel.getInstance().get(configuration.getRunningMonitors());
+        }
+        List<Child> children = snapshot.getView(node.monitor.getId() + '>' + node.key + '>' + node.level,
+                                                () -> buildChildren(node.monitor, node.key, node.level));
 
-        // Create a list of expanded nodes (monitor nodes only)
-        for (TreeNode node : root.getChildren()) {
-            if (node.isExpanded()) {
-                String monitorId = ((NodeResultsDocument) node.getData()).getMonitorId();
-                LOG.debug("Expanded " + monitorId);
-                expandedList.add(monitorId);
+        for (Child child : children) {
+            if (child.key == null) {
+                TreeNode destinationNode = new DefaultTreeNode(DESTINATION_TYPE,
+                                                               child.document,
+                                                               node);
+            }
+            else {
+                prepareNode(new SubnetTreeNode(SUBNET_TYPE, child.document, node, node.monitor, child.key, child.level));
             }
         }
+    }
 
-        String monitorNodeText;
+    /**
+     * Build the children of a node from the subnet index of its monitor.<br>
+     * Below a monitor the levels having a single subnet only are skipped; e.g. a /24 monitor shows its hosts directly.
+     *
+     * @param monitor the monitor of the node
+     * @param key     the subnet key of the node; null for a monitor node
+     * @param level   the level of the node
+     *
+     * @return the children
+     */
+    private static List<Child> buildChildren(Monitor monitor, IpAddress key, int level) {
+        SubnetIndex index = monitor.getSubnetIndex();
+        int nodeLevel = level;
 
-        root.getChildren().clear();
-        for (Monitor monitor : configuration.getRunningMonitors()) {
-            monitorNodeText = buildMonitorNodeText(monitor);
-            document = new NodeResultsDocument(monitorNodeText, buildSummary(monitor), Integer.toString(monitor.getInterval()));
-            TreeNode monitorNode = new DefaultTreeNode(MONITOR_TYPE,
-                                                       document,
-                                                       root);
-
-            if (expandedList.contains(monitorNodeText)) {
-                monitorNode.setExpanded(true);
+        if (level == 0) {
+            List<SubnetIndex.Summary> networks = index.getNetworks();
+            if (networks.size() != 1) {
+                return buildSubnetChildren(networks, 1);
             }
+            key = networks.get(0).getKey();
+            level = 1;
+        }
 
-            for (Destination destination : monitor.getDestinations()) {
-                document = new NodeResultsDocument(destination.getInetAddr(), destination.getLastProbe(),
-                                                   destination.getProbeResult() ? 1 : 0, destination.getQuality(),
-                                                   destination.getProbe());
-                TreeNode destinationNode = new DefaultTreeNode(DESTINATION_TYPE,
-                                                               document,
-                                                               monitorNode);
+        if (level == 1) {
+            List<SubnetIndex.Summary> subnets = index.getSubnets(key);
+            if (subnets.size() != 1 || nodeLevel == 1) {
+                return buildSubnetChildren(subnets, 2);
             }
+            key = subnets.get(0).getKey();
         }
 
-        LOG.debug("<--");
+        List<Child> children = new ArrayList<>();
+        for (Destination destination : index.getHosts(key)) {
+            NodeResultsDocument document = new NodeResultsDocument(destination.getInetAddr(), destination.getLastProbe(),
+                                                                   destination.getProbeResult() ? 1 : 0, destination.getQuality(),
+                                                                   destination.getProbe());
+            document.setHostName(ReverseDnsCache.getInstance().getHostName(destination.getInetAddr()));
+            document.setState(destination.getState().toString());
+            children.add(new Child(document, null, 0));
+        }
+        return children;
+    }
+
+    /**
+     * Build a child for each subnet.
+     *
+     * @param subnets the subnets
+     * @param level   the level of the subnet nodes; 1 for networks, 2 for subnets
+     *
+     * @return the children
+     */
+    private static List<Child> buildSubnetChildren(List<SubnetIndex.Summary> subnets, int level) {
+        List<Child> children = new ArrayList<>(subnets.size());
+
+        for (SubnetIndex.Summary subnet : subnets) {
+            children.add(new Child(new NodeResultsDocument(subnet.getName(), subnet.getUp(), subnet.getDown()), subnet.getKey(), level));
+        }
+        return children;
+    }
+
+    /**
+     * Build a path identifying a node over tree updates.
+     *
+     * @param node the node
+     *
+     * @return the monitor and subnet texts from the root to the node
+     */
+    private static String buildPath(TreeNode node) {
+        StringBuilder path = new StringBuilder();
+
+        for (TreeNode item = node; item != null && item.getData() instanceof NodeResultsDocument; item = item.getParent()) {
+            path.insert(0, ((NodeResultsDocument) item.getData()).getMonitorId()).insert(0, '>');
+        }
+        return path.toString();
     }
 
     /**
@@ -237,12 +415,7 @@ public class NodeResultsBean implements Serializable {
      * @return 0 if a probe result for a destination in the monitor is false, else true
      */
     private int buildSummary(Monitor monitor) {
-        for (Destination destination : monitor.getDestinations()) {
-            if (destination.getProbeResult() == false) {
-                return 0;
-            }
-        }
-        return 1;
+        return monitor.getSubnetIndex().getDown() == 0 ? 1 : 0;
     }
 
     /**
@@ -251,8 +424,16 @@ public class NodeResultsBean implements Serializable {
      * @param event the triggering event
      */
     public void nodeExpand(NodeExpandEvent event) {
-        LOG.debug("Expand " + event.getTreeNode().getData().toString());
-        event.getTreeNode().setExpanded(true);
+        TreeNode node = event.getTreeNode();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Expand " + node.getData().toString());
+        }
+
+        node.setExpanded(true);
+        expandedPaths.add(buildPath(node));
+        if (node instanceof SubnetTreeNode) {
+            loadChildren((SubnetTreeNode) node);
+        }
     }
 
     /**
@@ -261,7 +442,15 @@ public class NodeResultsBean implements Serializable {
      * @param event the triggering event
      */
     public void nodeCollapse(NodeCollapseEvent event) {
-        LOG.debug("Collapse " + event.getTreeNode().getData().toString());
-        event.getTreeNode().setExpanded(false);
+        TreeNode node = event.getTreeNode();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Collapse " + node.getData().toString());
+        }
+
+        node.setExpanded(false);
+
+        // Forget the expanded nodes below too
+        String path = buildPath(node);
+        expandedPaths.removeIf(item -> item.equals(path) || item.startsWith(path + '>'));
     }
 }
@@ -23,11 +23,18 @@ public class NodeResultsDocument implements Serializable, Comparable<NodeResults
     private String monitorId;
     private int summary;
     private String interval;
+    private double lagMedian = -1;
+    private double lagP99 = -1;
+    private long overruns = -1;
+    private int up = -1;
+    private int down = -1;
 
     // Destination items to display
     private InetAddress inetAddr;
+    private String hostName;
     private LocalDateTime lastProbe;
     private int probeResult = -1;
+    private String state = "";
     private int quality = -1;
     private String probe = "";
 
@@ -47,6 +54,36 @@ public class NodeResultsDocument implements Serializable, Comparable<NodeResults
         this.probe = "";
     }
 
+    /**
+     * Create a Node Results Document for display.
+     *
+     * @param monitorId the monitor id
+     * @param summary   a summary text
+     * @param interval  the interval to run the monitor
+     * @param lagMedian the median scheduler lag in milliseconds
+     * @param lagP99    the 99th percentile scheduler lag in milliseconds
+     * @param overruns  the number of probe cycles taking longer than the interval
+     */
+    public NodeResultsDocument(String monitorId, int summary, String interval, double lagMedian, double lagP99, long overruns) {
+        this(monitorId, summary, interval);
+        this.lagMedian = lagMedian;
+        this.lagP99 = lagP99;
+        this.overruns = overruns;
+    }
+
+    /**
+     * Create a Node Results Document for display.
+     *
+     * @param subnet the subnet in CIDR notation
+     * @param up     the destinations up in the subnet
+     * @param down   the destinations down in the subnet
+     */
+    public NodeResultsDocument(String subnet, int up, int down) {
+        this(subnet, down == 0 ? 1 : 0, "");
+        this.up = up;
+        this.down = down;
+    }
+
     /**
      * Create a Node Results Document for display.
      *
@@ -119,6 +156,96 @@ public class NodeResultsDocument implements Serializable, Comparable<NodeResults
         this.interval = interval;
     }
 
+    /**
+     * Get the monitors median scheduler lag.
+     *
+     * @return the lag in milliseconds; -1 if not a monitor
+     */
+    public double getLagMedian() {
+        return lagMedian;
+    }
+
+    /**
+     * Set the monitors median scheduler lag.
+     *
+     * @param lagMedian the lag in milliseconds
+     */
+    public void setLagMedian(double lagMedian) {
+        this.lagMedian = lagMedian;
+    }
+
+    /**
+     * Get the monitors 99th percentile scheduler lag.
+     *
+     * @return the lag in milliseconds; -1 if not a monitor
+     */
+    public double getLagP99() {
+        return lagP99;
+    }
+
+    /**
+     * Set the monitors 99th percentile scheduler lag.
+     *
+     * @param lagP99 the lag in milliseconds
+     */
+    public void setLagP99(double lagP99) {
+        this.lagP99 = lagP99;
+    }
+
+    /**
+     * Get the monitors number of probe cycles taking longer than the interval.
+     *
+     * @return the count; -1 if not a monitor
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * Set the monitors number of probe cycles taking longer than the interval.
+     *
+     * @param overruns the count
+     */
+    public void setOverruns(long overruns) {
+        this.overruns = overruns;
+    }
+
+    /**
+     * Get the number of destinations up in a monitor or subnet.
+     *
+     * @return the count; -1 if not set
+     */
+    public int getUp() {
+        return up;
+    }
+
+    /**
+     * Set the number of destinations up in a monitor or subnet.
+     *
+     * @param up the count
+     */
+    public void setUp(int up) {
+        this.up = up;
+    }
+
+    /**
+     * Get the number of destinations down in a monitor or subnet.
+     *
+     * @return the count; -1 if not set
+     */
+    public int getDown() {
+        return down;
+    }
+
+    /**
+     * Set the number of destinations down in a monitor or subnet.
+     *
+     * @param down the count
+     */
+    public void setDown(int down) {
+        this.down = down;
+    }
+
     /**
      * Get the IP the monitor is responsible for.
      *
@@ -137,6 +264,42 @@ public class NodeResultsDocument implements Serializable, Comparable<NodeResults
         this.inetAddr = inetAddr;
     }
 
+    /**
+     * Get the host name of the destination.
+     *
+     * @return the name; null if not known
+     */
+    public String getHostName() {
+        return hostName;
+    }
+
+    /**
+     * Set the host name of the destination.
+     *
+     * @param hostName the name
+     */
+    public void setHostName(String hostName) {
+        this.hostName = hostName;
+    }
+
+    /**
+     * Get the debounced state of the destination.
+     *
+     * @return the state; empty if not a destination
+     */
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * Set the debounced state of the destination.
+     *
+     * @param state the state
+     */
+    public void setState(String state) {
+        this.state = state;
+    }
+
     /**
      * Get the last probe time.
      *
@@ -215,7 +378,14 @@ public class NodeResultsDocument implements Serializable, Comparable<NodeResults
         hash = 11 * hash + Objects.hashCode(this.monitorId);
         hash = 11 * hash + this.summary;
         hash = 11 * hash + Objects.hashCode(this.interval);
+        hash = 11 * hash + Long.hashCode(Double.doubleToLongBits(this.lagMedian));
+        hash = 11 * hash + Long.hashCode(Double.doubleToLongBits(this.lagP99));
+        hash = 11 * hash + Long.hashCode(this.overruns);
+        hash = 11 * hash + this.up;
+        hash = 11 * hash + this.down;
         hash = 11 * hash + Objects.hashCode(this.inetAddr);
+        hash = 11 * hash + Objects.hashCode(this.hostName);
+        hash = 11 * hash + Objects.hashCode(this.state);
         hash = 11 * hash + Objects.hashCode(this.lastProbe);
         hash = 11 * hash + this.probeResult;
         hash = 11 * hash + this.quality;
@@ -244,6 +414,21 @@ public class NodeResultsDocument implements Serializable, Comparable<NodeResults
         if (this.quality != other.quality) {
             return false;
         }
+        if (Double.doubleToLongBits(this.lagMedian) != Double.doubleToLongBits(other.lagMedian)) {
+            return false;
+        }
+        if (Double.doubleToLongBits(this.lagP99) != Double.doubleToLongBits(other.lagP99)) {
+            return false;
+        }
+        if (this.overruns != other.overruns) {
+            return false;
+        }
+        if (this.up != other.up) {
+            return false;
+        }
+        if (this.down != other.down) {
+            return false;
+        }
         if (!Objects.equals(this.monitorId, other.monitorId)) {
             return false;
         }
@@ -256,6 +441,12 @@ public class NodeResultsDocument implements Serializable, Comparable<NodeResults
         if (!Objects.equals(this.inetAddr, other.inetAddr)) {
             return false;
         }
+        if (!Objects.equals(this.hostName, other.hostName)) {
+            return false;
+        }
+        if (!Objects.equals(this.state, other.state)) {
+            return false;
+        }
         if (!Objects.equals(this.lastProbe, other.lastProbe)) {
             return false;
         }
@@ -264,7 +455,7 @@ public class NodeResultsDocument implements Serializable, Comparable<NodeResults
 
     @Override
     public String toString() {
-        return "NodeResultsDocument{" + "monitorId=" + monitorId + ", summary=" + summary + ", interval=" + interval + ", inetAddr=" + inetAddr + ", lastProbe=" + lastProbe + ", probeResult=" + probeResult + ", quality=" + quality + ", probe=" + probe + '}';
+        return "NodeResultsDocument{" + "monitorId=" + monitorId + ", summary=" + summary + ", interval=" + interval + ", lagMedian=" + lagMedian + ", lagP99=" + lagP99 + ", overruns=" + overruns + ", up=" + up + ", down=" + down + ", inetAddr=" + inetAddr + ", hostName=" + hostName + ", lastProbe=" + lastProbe + ", probeResult=" + probeResult + ", state=" + state + ", quality=" + quality + ", probe=" + probe + '}';
     }
 
     @Override
@@ -277,9 +468,10 @@ public class NodeResultsDocument implements Serializable, Comparable<NodeResults
 
         if (this.getInetAddr().equals(o.getInetAddr())
                 && this.getProbeResult() == o.getProbeResult()
+                && this.getState().equals(o.getState())
                 && this.getQuality() == o.getQuality()
                 && this.getProbe().compareTo(o.getProbe()) == 0
-                && this.getLastProbe().compareTo(o.getLastProbe()) == 0) {
+                && Objects.equals(this.getLastProbe(), o.getLastProbe())) {
             return 0;
         }
 
@@ -0,0 +1,380 @@
+package results;
+
+import config.MonitorConfigurationBean;
+import destination.Destination;
+import destination.DestinationState;
+import destination.SubnetIndex;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import monitor.Monitor;
+import util.IpAddress;
+import util.IpUtils;
+import util.RoaringBitmap;
+
+/**
+ * A read-only JSON API of the monitoring results for scripts and dashboards.<br>
+ * <br>
+ * Resources:
+ * <ul>
+ * <li>/api/monitors: the running monitors with their summaries</li>
+ * <li>/api/destinations: the destinations matching the filters; paginated by offset and limit (default 100, at most
+ * 1000). Filters: monitor (id), cidr (e.g. "10.1.2.0/24" or a range "10.1.2.1-10.1.2.9"), state (e.g. "DOWN,FLAPPING"),
+ * minQuality, maxQuality and probe (e.g. "EchoProbe")</li>
+ * <li>/api/destinations/{ip}: a single destination</li>
+ * </ul>
+ * A CIDR filter and a single destination are looked up in the subnet indexes of the monitors, so only the subnets
+ * concerned are visited. State and probe filters are answered from the bitmaps of the indexes; without a quality
+ * filter only the destinations of the page requested are visited.<br>
+ * <br>
+ * Every response carries an ETag; a request with If-None-Match of the current ETag gets 304 Not Modified without any
+ * result being built. The ETag is the version of the shared results model, which changes with the running monitors
+ * and the destination states only, plus the current period of the maximum age. Quality, probe and last probe time are
+ * read live but not covered by the version, so a 304 response stands for them for at most the maximum age: 5 seconds,
+ * can be set by the system property networkinframonitor.api.maxAge (seconds).
+ */
+public class QueryServlet extends HttpServlet {
+    /**
+     * Needed for proper serializable implementation.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * The content type of the responses.
+     */
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    /**
+     * The default page size.
+     */
+    private static final int DEFAULT_LIMIT = 100;
+    /**
+     * The maximum page size.
+     */
+    private static final int MAX_LIMIT = 1000;
+    /**
+     * The time in milliseconds an ETag stays valid without a change of the monitors or states; can be set by system
+     * property.
+     */
+    private static final long MAX_AGE = TimeUnit.SECONDS.toMillis(Long.getLong("networkinframonitor.api.maxAge", 5));
+
+    /**
+     * The filters of a destination query.
+     */
+    static class Query {
+        private String monitorId;
+        private IpAddress[] range;
+        private Set<DestinationState> states;
+        private int minQuality = Integer.MIN_VALUE;
+        private int maxQuality = Integer.MAX_VALUE;
+        private String probe;
+
+        /**
+         * Check if a destination matches the filters other than the monitor and the range.
+         *
+         * @param destination the destination
+         *
+         * @return true if it matches
+         */
+        boolean matches(Destination destination) {
+            int quality = destination.getQuality();
+
+            return (states == null || states.contains(destination.getState()))
+                   && quality >= minQuality && quality <= maxQuality
+                   && (probe == null || probe.equals(destination.getProbe()));
+        }
+
+        /**
+         * Check if the query filters by quality.
+         *
+         * @return true if a quality range is set
+         */
+        boolean filtersQuality() {
+            return minQuality != Integer.MIN_VALUE || maxQuality != Integer.MAX_VALUE;
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = request.getPathInfo() == null ? "" : request.getPathInfo();
+        ResultsModel.Snapshot snapshot = ResultsModel.getInstance().get(MonitorConfigurationBean.listRunningMonitors());
+        String etag = buildEtag(snapshot.getVersion(), System.currentTimeMillis(), MAX_AGE);
+
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("ETag", etag);
+        if (matchesEtag(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        try {
+            if (path.equals("/monitors")) {
+                writeMonitors(response.getWriter(), snapshot.getMonitors());
+            }
+            else if (path.equals("/destinations")) {
+                Query query = parseQuery(request);
+                int offset = parseInt(request.getParameter("offset"), 0, 0, Integer.MAX_VALUE);
+                int limit = parseInt(request.getParameter("limit"), DEFAULT_LIMIT, 0, MAX_LIMIT);
+                writeDestinations(response.getWriter(), snapshot.getMonitors(), query, offset, limit);
+            }
+            else if (path.startsWith("/destinations/")) {
+                IpAddress ip = IpAddress.parse(path.substring("/destinations/".length()));
+                if (ip == null) {
+                    throw new IllegalArgumentException("Invalid IP address");
+                }
+                if (!writeDestination(response.getWriter(), snapshot.getMonitors(), ip)) {
+                    response.reset();
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown destination " + ip);
+                }
+            }
+            else {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+        catch (IllegalArgumentException iaex) {
+            response.reset();
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, iaex.getMessage());
+        }
+    }
+
+    /**
+     * Build the ETag of a response.
+     *
+     * @param version      the version of the results model
+     * @param nowMillis    the current time in milliseconds
+     * @param maxAgeMillis the time an ETag stays valid without a new version
+     *
+     * @return the weak ETag
+     */
+    static String buildEtag(long version, long nowMillis, long maxAgeMillis) {
+        return "W/\"" + version + '.' + nowMillis / Math.max(1, maxAgeMillis) + '"';
+    }
+
+    /**
+     * Check if the If-None-Match header of a request matches the current ETag.
+     *
+     * @param ifNoneMatch the header; null if missing
+     * @param etag        the current ETag
+     *
+     * @return true if the client has the current version
+     */
+    static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        String weak = etag.substring(2);
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (value.equals("*") || value.equals(etag) || value.equals(weak)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse the filters of a destination query.
+     *
+     * @param request the request
+     *
+     * @return the query
+     *
+     * @throws IllegalArgumentException if a filter is invalid
+     */
+    static Query parseQuery(HttpServletRequest request) {
+        Query query = new Query();
+
+        query.monitorId = request.getParameter("monitor");
+        query.probe = request.getParameter("probe");
+
+        String cidr = request.getParameter("cidr");
+        if (cidr != null) {
+            query.range = IpUtils.parseAddressRange(cidr);
+            if (query.range == null) {
+                throw new IllegalArgumentException("Invalid cidr " + cidr);
+            }
+        }
+
+        String states = request.getParameter("state");
+        if (states != null) {
+            query.states = EnumSet.noneOf(DestinationState.class);
+            for (String state : states.split(",")) {
+                try {
+                    query.states.add(DestinationState.valueOf(state.trim().toUpperCase()));
+                }
+                catch (IllegalArgumentException iaex) {
+                    throw new IllegalArgumentException("Invalid state " + state);
+                }
+            }
+        }
+
+        query.minQuality = parseInt(request.getParameter("minQuality"), Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        query.maxQuality = parseInt(request.getParameter("maxQuality"), Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        return query;
+    }
+
+    /**
+     * Parse an integer parameter.
+     *
+     * @param value        the parameter; null if missing
+     * @param defaultValue the value if missing
+     * @param min          the minimum value
+     * @param max          the maximum value
+     *
+     * @return the value
+     *
+     * @throws IllegalArgumentException if the value is not a number or out of range
+     */
+    static int parseInt(String value, int defaultValue, int min, int max) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+
+        int result = Integer.parseInt(value.trim());
+        if (result < min || result > max) {
+            throw new IllegalArgumentException("Value " + value + " not within " + min + " - " + max);
+        }
+        return result;
+    }
+
+    /**
+     * Write the monitors with their summaries as JSON array.
+     *
+     * @param out      the writer
+     * @param monitors the monitors
+     *
+     * @throws IOException in case of a write error
+     */
+    static void writeMonitors(Writer out, List<Monitor> monitors) throws IOException {
+        out.write('[');
+        for (int idx = 0; idx < monitors.size(); ++idx) {
+            Monitor monitor = monitors.get(idx);
+            SubnetIndex index = monitor.getSubnetIndex();
+
+            out.write(idx == 0 ? "\n{\"id\":" : ",\n{\"id\":");
+            ExportServlet.writeJson(out, monitor.getId());
+            out.write(",\"start\":");
+            ExportServlet.writeJson(out, monitor.getStart());
+            out.write(",\"end\":");
+            ExportServlet.writeJson(out, monitor.getEnd());
+            out.write(",\"interval\":" + monitor.getInterval());
+            out.write(",\"comment\":");
+            ExportServlet.writeJson(out, monitor.getComment());
+            out.write(",\"gateway\":");
+            ExportServlet.writeJson(out, monitor.getGateway());
+            out.write(",\"destinations\":" + monitor.getDestinations().size());
+            out.write(",\"planned\":" + monitor.getPlanned());
+            out.write(",\"up\":" + index.getUp());
+            out.write(",\"down\":" + index.getDown());
+            out.write(",\"states\":{");
+            for (DestinationState state : DestinationState.values()) {
+                out.write(state.ordinal() == 0 ? "\"" : ",\"");
+                out.write(state.toString());
+                out.write("\":" + index.count(EnumSet.of(state), null));
+            }
+            out.write('}');
+            out.write(",\"lagMedianMillis\":" + monitor.getLagMedianMillis());
+            out.write(",\"lagP99Millis\":" + monitor.getLagP99Millis());
+            out.write(",\"overruns\":" + monitor.getOverruns());
+            out.write('}');
+        }
+        out.write("\n]\n");
+    }
+
+    /**
+     * Write a page of the destinations matching a query as JSON object with the total number of matches.
+     *
+     * @param out      the writer
+     * @param monitors the monitors
+     * @param query    the query
+     * @param offset   the number of matches to skip
+     * @param limit    the maximum number of matches to write
+     *
+     * @throws IOException in case of a write error
+     */
+    static void writeDestinations(Writer out, List<Monitor> monitors, Query query, int offset, int limit) throws IOException {
+        int total = 0;
+        int written = 0;
+
+        out.write("{\"items\":[");
+        for (Monitor monitor : monitors) {
+            if (query.monitorId != null && !query.monitorId.equals(monitor.getId())) {
+                continue;
+            }
+
+            SubnetIndex index = monitor.getSubnetIndex();
+            List<Destination> candidates;
+            if (query.range != null) {
+                candidates = index.getHosts(query.range[0], query.range[1]);
+            }
+            else if (query.states != null || query.probe != null) {
+                RoaringBitmap selection = index.select(query.states, query.probe);
+                if (!query.filtersQuality()) {
+                    // The selection is the result; only the page is resolved
+                    for (Destination destination : index.getDestinations(selection, Math.max(0, offset - total), limit - written)) {
+                        writeItem(out, monitor, destination, written++);
+                    }
+                    total += selection.getCardinality();
+                    continue;
+                }
+                candidates = index.getDestinations(selection, 0, Integer.MAX_VALUE);
+            }
+            else {
+                candidates = monitor.getDestinations();
+            }
+
+            for (Destination destination : candidates) {
+                if (query.matches(destination)) {
+                    if (total >= offset && written < limit) {
+                        writeItem(out, monitor, destination, written++);
+                    }
+                    ++total;
+                }
+            }
+        }
+        out.write("],\"offset\":" + offset + ",\"limit\":" + limit + ",\"total\":" + total + "}\n");
+    }
+
+    /**
+     * Write a destination as item of a JSON array.
+     *
+     * @param out         the writer
+     * @param monitor     the monitor of the destination
+     * @param destination the destination
+     * @param position    the position of the item in the array
+     *
+     * @throws IOException in case of a write error
+     */
+    private static void writeItem(Writer out, Monitor monitor, Destination destination, int position) throws IOException {
+        out.write(position == 0 ? "\n" : ",\n");
+        ExportServlet.writeRow(out, ExportServlet.Format.NDJSON, monitor.getId(), destination, 0);
+    }
+
+    /**
+     * Write a single destination as JSON object.
+     *
+     * @param out      the writer
+     * @param monitors the monitors
+     * @param ip       the address of the destination
+     *
+     * @return false if no monitor has the destination; nothing is written then
+     *
+     * @throws IOException in case of a write error
+     */
+    static boolean writeDestination(Writer out, List<Monitor> monitors, IpAddress ip) throws IOException {
+        for (Monitor monitor : monitors) {
+            Destination destination = monitor.getSubnetIndex().get(ip);
+            if (destination != null) {
+                ExportServlet.writeRow(out, ExportServlet.Format.NDJSON, monitor.getId(), destination, Long.SIZE);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,243 @@
+package results;
+
+import destination.Destination;
+import destination.DestinationState;
+import destination.SubnetIndex;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import monitor.Monitor;
+
+/**
+ * The model of the result views shared by all sessions.<br>
+ * <br>
+ * The model is an immutable snapshot with a version number. A new snapshot is built only if the running monitors
+ * changed or a destination changed its state (see {@link Destination#getStateVersion()}), so all sessions polling the
+ * same data share one snapshot and a session seeing the version it rendered last has nothing to update. Snapshots are
+ * not built more often than once per second however many sessions poll. The probe times and qualities do not change
+ * the state version, so a snapshot is also rebuilt at least every 3 seconds, the poll interval of the result views;
+ * the maximum age can be set by the system property networkinframonitor.results.maxAge (seconds).<br>
+ * <br>
+ * Counts and filters by state or probe are taken from the bitmaps of the subnet indexes of the monitors, so they do
+ * not scan the destinations.
+ */
+public final class ResultsModel {
+    /**
+     * A snapshot is reused for this time in nanoseconds even if something changed.
+     */
+    private static final long MIN_AGE = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * A snapshot is rebuilt after this time in nanoseconds even if nothing changed; can be set by system property.
+     */
+    private static final long MAX_AGE = TimeUnit.SECONDS.toNanos(Long.getLong("networkinframonitor.results.maxAge", 3));
+    /**
+     * The single instance.
+     */
+    private static final ResultsModel INSTANCE = new ResultsModel();
+
+    /**
+     * The current snapshot.
+     */
+    private volatile Snapshot current = new Snapshot(0, Collections.emptyList(), -1, System.nanoTime());
+
+    /**
+     * An immutable state of the results.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<Monitor> monitors;
+        private final long stateVersion;
+        private final long built;
+        private volatile List<Destination> destinations;
+        private final ConcurrentMap<String, Object> views = new ConcurrentHashMap<>();
+
+        /**
+         * Create a snapshot.
+         *
+         * @param version      the version of the snapshot
+         * @param monitors     the running monitors; an unmodifiable list
+         * @param stateVersion the state version of the destinations
+         * @param built        the time (System.nanoTime) the snapshot was built
+         */
+        Snapshot(long version, List<Monitor> monitors, long stateVersion, long built) {
+            this.version = version;
+            this.monitors = monitors;
+            this.stateVersion = stateVersion;
+            this.built = built;
+        }
+
+        /**
+         * Get the version of the snapshot.
+         *
+         * @return the version; a newer snapshot has a higher version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Get the running monitors.
+         *
+         * @return the unmodifiable list of monitors
+         */
+        public List<Monitor> getMonitors() {
+            return monitors;
+        }
+
+        /**
+         * Get the destinations of all running monitors. The list is built once per snapshot.
+         *
+         * @return the unmodifiable list of destinations
+         */
+        public List<Destination> getDestinations() {
+            List<Destination> result = destinations;
+
+            if (result == null) {
+                List<Destination> all = new ArrayList<>();
+                for (Monitor monitor : monitors) {
+                    all.addAll(monitor.getDestinations());
+                }
+                result = Collections.unmodifiableList(all);
+                destinations = result;
+            }
+            return result;
+        }
+
+        /**
+         * Get the destinations of all running monitors in one of the states and with the probe. The list is built
+         * once per snapshot and filtered from the bitmaps of the subnet indexes.
+         *
+         * @param selectedStates the states; null for any
+         * @param probe          the probe of the last successful probe cycle; null for any
+         *
+         * @return the unmodifiable list of destinations
+         */
+        public List<Destination> getDestinations(Set<DestinationState> selectedStates, String probe) {
+            if (selectedStates == null && probe == null) {
+                return getDestinations();
+            }
+
+            return getView("destinations " + selectedStates + ' ' + probe, () -> {
+                List<Destination> selected = new ArrayList<>();
+                for (Monitor monitor : monitors) {
+                    SubnetIndex index = monitor.getSubnetIndex();
+                    selected.addAll(index.getDestinations(index.select(selectedStates, probe), 0, Integer.MAX_VALUE));
+                }
+                return Collections.unmodifiableList(selected);
+            });
+        }
+
+        /**
+         * Count the destinations of all running monitors by state. The counts are taken once per snapshot from the
+         * bitmaps of the subnet indexes.
+         *
+         * @return the unmodifiable counts by state
+         */
+        public Map<DestinationState, Integer> getStateCounts() {
+            return getView("stateCounts", () -> {
+                Map<DestinationState, Integer> counts = new EnumMap<>(DestinationState.class);
+                for (DestinationState state : DestinationState.values()) {
+                    int count = 0;
+                    for (Monitor monitor : monitors) {
+                        count += monitor.getSubnetIndex().count(EnumSet.of(state), null);
+                    }
+                    counts.put(state, count);
+                }
+                return Collections.unmodifiableMap(counts);
+            });
+        }
+
+        /**
+         * Get the probes of the last successful probe cycles of the destinations of all running monitors.
+         *
+         * @return the unmodifiable list of probe names in ascending order
+         */
+        public List<String> getProbes() {
+            return getView("probes", () -> {
+                Set<String> probes = new TreeSet<>();
+                for (Monitor monitor : monitors) {
+                    probes.addAll(monitor.getSubnetIndex().getProbes());
+                }
+                return Collections.unmodifiableList(new ArrayList<>(probes));
+            });
+        }
+
+        /**
+         * Get a view of the snapshot, e.g. the documents of a tree node. The view is built once per snapshot and
+         * shared by all sessions; it must not be changed.
+         *
+         * @param <T>     the type of the view
+         * @param key     the key of the view
+         * @param builder builds the view if it does not exist yet
+         *
+         * @return the view
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getView(String key, Supplier<T> builder) {
+            return (T) views.computeIfAbsent(key, item -> builder.get());
+        }
+    }
+
+    /**
+     * Creating an instance from outside is not allowed.
+     */
+    private ResultsModel() {
+    }
+
+    /**
+     * Get the single instance.
+     *
+     * @return the model
+     */
+    public static ResultsModel getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the current snapshot; build a new one if the monitors or the destination states changed.
+     *
+     * @param monitors the running monitors; an unmodifiable list replaced on each change of the running monitors
+     *
+     * @return the snapshot
+     */
+    public Snapshot get(List<Monitor> monitors) {
+        Snapshot snapshot = current;
+
+        if (isOutdated(snapshot, monitors)) {
+            synchronized (this) {
+                snapshot = current;
+                if (isOutdated(snapshot, monitors)) {
+                    snapshot = new Snapshot(snapshot.version + 1, monitors, Destination.getStateVersion(), System.nanoTime());
+                    current = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Check if a snapshot has to be rebuilt.
+     *
+     * @param snapshot the snapshot
+     * @param monitors the running monitors
+     *
+     * @return true if it is outdated
+     */
+    private static boolean isOutdated(Snapshot snapshot, List<Monitor> monitors) {
+        long age = System.nanoTime() - snapshot.built;
+
+        if (snapshot.monitors != monitors || age >= MAX_AGE) {
+            return true;
+        }
+        return age >= MIN_AGE && snapshot.stateVersion != Destination.getStateVersion();
+    }
+}
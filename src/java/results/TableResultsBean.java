@@ -2,17 +2,25 @@ package results;
 
 import config.MonitorConfigurationBean;
 import destination.Destination;
+import destination.DestinationState;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ManagedProperty;
 import javax.faces.bean.ViewScoped;
-import monitor.Monitor;
 import org.apache.log4j.Logger;
+import org.primefaces.PrimeFaces;
+import util.ReverseDnsCache;
 
 /**
- * Handle the monitoring results as table.
+ * Handle the monitoring results as table.<br>
+ * <br>
+ * The destinations are taken from the shared results model. A poll updates the tables only if the model has a new
+ * version since the last update. The state counts and the state and probe filters use the bitmaps of the subnet
+ * indexes.
  */
 @ManagedBean(name = "TableResultsBean")
 @ViewScoped
@@ -27,9 +35,17 @@ public class TableResultsBean implements Serializable {
     private static final Logger LOG = Logger.getLogger(TableResultsBean.class);
 
     /**
-     * A list of destinations.
+     * The version of the results model shown; -1 if none yet.
      */
-    private final List<Destination> destinations = new ArrayList<>();
+    private long version = -1;
+    /**
+     * The state to show; empty for any.
+     */
+    private String stateFilter = "";
+    /**
+     * The probe of the last successful probe cycle to show; empty for any.
+     */
+    private String probeFilter = "";
 
     /**
      * A reference to the monitor configuration.
@@ -62,23 +78,128 @@ public class TableResultsBean implements Serializable {
     }
 
     /**
-     * Get all the destinations of the current configuration.
+     * Get the current snapshot of the shared results model.
+     *
+     * @return the snapshot
+     */
+    private ResultsModel.Snapshot getSnapshot() {
+        return ResultsModel.getInstance().get(configuration.getRunningMonitors());
+    }
+
+    /**
+     * Get the state filter.
+     *
+     * @return the state name; empty for any
+     */
+    public String getStateFilter() {
+        return stateFilter;
+    }
+
+    /**
+     * Set the state filter.
      *
-     * @return the destinations
+     * @param stateFilter the state name; empty or null for any
+     */
+    public void setStateFilter(String stateFilter) {
+        this.stateFilter = stateFilter == null ? "" : stateFilter;
+    }
+
+    /**
+     * Get the probe filter.
+     *
+     * @return the probe name; empty for any
+     */
+    public String getProbeFilter() {
+        return probeFilter;
+    }
+
+    /**
+     * Set the probe filter.
+     *
+     * @param probeFilter the probe name; empty or null for any
+     */
+    public void setProbeFilter(String probeFilter) {
+        this.probeFilter = probeFilter == null ? "" : probeFilter;
+    }
+
+    /**
+     * Get the states to filter by.
+     *
+     * @return the state names
+     */
+    public List<String> getStates() {
+        List<String> states = new ArrayList<>();
+        for (DestinationState state : DestinationState.values()) {
+            states.add(state.name());
+        }
+        return states;
+    }
+
+    /**
+     * Get the probes to filter by.
+     *
+     * @return the probe names of the running monitors
+     */
+    public List<String> getProbes() {
+        return getSnapshot().getProbes();
+    }
+
+    /**
+     * Get the summary of the destination states of the running monitors.
+     *
+     * @return the summary text
+     */
+    public String getSummary() {
+        ResultsModel.Snapshot snapshot = getSnapshot();
+        StringBuilder summary = new StringBuilder();
+        int total = 0;
+
+        for (Map.Entry<DestinationState, Integer> count : snapshot.getStateCounts().entrySet()) {
+            summary.append(", ").append(count.getValue()).append(' ').append(count.getKey());
+            total += count.getValue();
+        }
+        return total + " destinations" + summary;
+    }
+
+    /**
+     * Get the destinations of the current configuration matching the filters.
+     *
+     * @return the destinations; shared by all sessions and not to be changed
      */
     public List<Destination> getDestinations() {
-        destinations.clear();
-
-        if (configuration != null) {
-            for (Monitor monitor : configuration.getRunningMonitors()) {
-                for (Destination destination : monitor.getDestinations()) {
-                    destinations.add(destination);
-                }
-            }
-            LOG.debug("Found " + configuration.getRunningMonitors().size() + " monitors "
-                    + "and overall " + destinations.size() + " destinations");
+        ResultsModel.Snapshot snapshot = getSnapshot();
+        version = snapshot.getVersion();
 
+        List<Destination> destinations = snapshot.getDestinations(
+                stateFilter.isEmpty() ? null : EnumSet.of(DestinationState.valueOf(stateFilter)),
+                probeFilter.isEmpty() ? null : probeFilter);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Found " + snapshot.getMonitors().size() + " monitors "
+                    + "and overall " + destinations.size() + " destinations");
         }
         return destinations;
     }
+
+    /**
+     * Update the tables if the results model changed since the last update; otherwise the poll has nothing to render.
+     */
+    public void poll() {
+        if (getSnapshot().getVersion() != version) {
+            PrimeFaces.current().ajax().update("resultsTableForm:monitors", "resultsTableForm:summary",
+                                               "resultsTableForm:destinations");
+        }
+    }
+
+    /**
+     * Get the host name of a destination from the name cache. Never waits for a lookup.
+     *
+     * @param destination the destination
+     *
+     * @return the name; empty if not known (yet)
+     */
+    public String getHostName(Destination destination) {
+        String hostName = ReverseDnsCache.getInstance().getHostName(destination.getInetAddr());
+        return hostName == null ? "" : hostName;
+    }
 }
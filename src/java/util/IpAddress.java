@@ -0,0 +1,415 @@
+package util;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * An IPv4 or IPv6 address as a compact 128-bit key of two longs.<br>
+ * <br>
+ * IPv4 addresses are mapped into ::ffff:0:0/96, so addresses of both families share one ordered key space and IPv4
+ * ranges never overlap IPv6 ranges. The keys are immutable and ordered as unsigned 128-bit numbers. Indexes store the
+ * two longs in primitive arrays; this class is used where a single address is handled.
+ */
+public final class IpAddress implements Comparable<IpAddress>, Serializable {
+    /**
+     * Needed for proper serializable implementation.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * The lower long of the IPv4 mapped prefix ::ffff:0:0/96.
+     */
+    private static final long V4_MAPPED = 0x0000FFFF00000000L;
+
+    /**
+     * The upper 64 bits.
+     */
+    private final long high;
+    /**
+     * The lower 64 bits.
+     */
+    private final long low;
+
+    /**
+     * Create an address from its bits.
+     *
+     * @param high the upper 64 bits
+     * @param low  the lower 64 bits
+     */
+    public IpAddress(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Create an IPv4 address.
+     *
+     * @param ip the IPv4 address as a number, e.g. from {@link IpUtils#parseIp(CharSequence)}
+     *
+     * @return the mapped address
+     */
+    public static IpAddress ofV4(long ip) {
+        return new IpAddress(0, V4_MAPPED | (ip & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Create an address from an InetAddress.
+     *
+     * @param inetAddr the address
+     *
+     * @return the key
+     */
+    public static IpAddress of(InetAddress inetAddr) {
+        byte[] bytes = inetAddr.getAddress();
+
+        if (bytes.length == 4) {
+            return ofV4(((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16) | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL));
+        }
+
+        long high = 0;
+        long low = 0;
+        for (int idx = 0; idx < 8; ++idx) {
+            high = (high << 8) | (bytes[idx] & 0xFFL);
+            low = (low << 8) | (bytes[idx + 8] & 0xFFL);
+        }
+        return new IpAddress(high, low);
+    }
+
+    /**
+     * Parse an IPv4 address (e.g. "192.168.1.23") or an IPv6 address (e.g. "2001:db8::1" or "::ffff:10.1.2.3")
+     * without splitting or regular expressions. Zone ids are not supported.
+     *
+     * @param text the address text
+     *
+     * @return the address or null if the text is invalid
+     */
+    public static IpAddress parse(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+
+        int length = text.length();
+        boolean colon = false;
+        for (int idx = 0; idx < length && !colon; ++idx) {
+            colon = text.charAt(idx) == ':';
+        }
+
+        if (!colon) {
+            long ip = IpUtils.parseIp(text);
+            return ip < 0 ? null : ofV4(ip);
+        }
+
+        return parseV6(text);
+    }
+
+    /**
+     * Parse an IPv6 address.
+     *
+     * @param text the address text containing at least one colon
+     *
+     * @return the address or null if the text is invalid
+     */
+    private static IpAddress parseV6(CharSequence text) {
+        int length = text.length();
+        int[] groups = new int[8];
+        int count = 0;
+        int gap = -1;
+        int idx = 0;
+
+        if (length >= 2 && text.charAt(0) == ':' && text.charAt(1) == ':') {
+            gap = 0;
+            idx = 2;
+        }
+        else if (length >= 1 && text.charAt(0) == ':') {
+            return null;
+        }
+
+        while (idx < length) {
+            int start = idx;
+            int value = 0;
+            int digits = 0;
+
+            while (idx < length && text.charAt(idx) != ':' && text.charAt(idx) != '.') {
+                int digit = Character.digit(text.charAt(idx), 16);
+                if (digit < 0 || ++digits > 4) {
+                    return null;
+                }
+                value = (value << 4) | digit;
+                ++idx;
+            }
+
+            if (idx < length && text.charAt(idx) == '.') {
+                // An embedded IPv4 address ends the text and fills two groups
+                long ip = IpUtils.parseIp(text.subSequence(start, length));
+                if (ip < 0 || count > 6) {
+                    return null;
+                }
+                groups[count++] = (int) (ip >>> 16);
+                groups[count++] = (int) (ip & 0xFFFF);
+                idx = length;
+                break;
+            }
+
+            if (digits == 0 || count == 8) {
+                return null;
+            }
+            groups[count++] = value;
+
+            if (idx < length) {
+                // A colon; a second one marks the gap
+                ++idx;
+                if (idx < length && text.charAt(idx) == ':') {
+                    if (gap >= 0) {
+                        return null;
+                    }
+                    gap = count;
+                    ++idx;
+                }
+                else if (idx == length) {
+                    return null;
+                }
+            }
+        }
+
+        if (gap < 0 ? count != 8 : count > 7) {
+            return null;
+        }
+
+        int[] full = new int[8];
+        if (gap < 0) {
+            System.arraycopy(groups, 0, full, 0, 8);
+        }
+        else {
+            System.arraycopy(groups, 0, full, 0, gap);
+            System.arraycopy(groups, gap, full, 8 - (count - gap), count - gap);
+        }
+
+        long high = 0;
+        long low = 0;
+        for (int group = 0; group < 4; ++group) {
+            high = (high << 16) | full[group];
+            low = (low << 16) | full[group + 4];
+        }
+        return new IpAddress(high, low);
+    }
+
+    /**
+     * Get the upper 64 bits.
+     *
+     * @return the bits
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Get the lower 64 bits.
+     *
+     * @return the bits
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Check if this is an IPv4 address.
+     *
+     * @return true if it is in ::ffff:0:0/96
+     */
+    public boolean isV4() {
+        return high == 0 && (low & 0xFFFFFFFF00000000L) == V4_MAPPED;
+    }
+
+    /**
+     * Get the IPv4 address as a number.
+     *
+     * @return the lower 32 bits
+     */
+    public long toV4() {
+        return low & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Get the number of bits of the address family.
+     *
+     * @return 32 for IPv4, 128 for IPv6
+     */
+    public int getBits() {
+        return isV4() ? 32 : 128;
+    }
+
+    /**
+     * Create an InetAddress; no name service lookup is done.
+     *
+     * @return an Inet4Address or Inet6Address
+     */
+    public InetAddress toInetAddress() {
+        byte[] bytes;
+
+        if (isV4()) {
+            bytes = new byte[]{(byte) (low >>> 24), (byte) (low >>> 16), (byte) (low >>> 8), (byte) low};
+        }
+        else {
+            bytes = new byte[16];
+            for (int idx = 0; idx < 8; ++idx) {
+                bytes[idx] = (byte) (high >>> (56 - idx * 8));
+                bytes[idx + 8] = (byte) (low >>> (56 - idx * 8));
+            }
+        }
+
+        try {
+            return InetAddress.getByAddress(bytes);
+        }
+        catch (UnknownHostException uhex) {
+            // Not possible with 4 or 16 bytes
+            throw new IllegalStateException(uhex);
+        }
+    }
+
+    /**
+     * Add a number to the address; the result wraps around at the end of the 128-bit space.
+     *
+     * @param count the unsigned number to add
+     *
+     * @return the new address
+     */
+    public IpAddress add(long count) {
+        long sum = low + count;
+        long carry = Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+
+        return new IpAddress(high + carry, sum);
+    }
+
+    /**
+     * Get the first address of the prefix containing this address.
+     *
+     * @param prefix the prefix length within the address family, e.g. 24 for IPv4 or 64 for IPv6
+     *
+     * @return the network address
+     */
+    public IpAddress prefix(int prefix) {
+        int bits = 128 - getBits() + prefix;
+
+        return new IpAddress(high & mask(bits), low & mask(bits - 64));
+    }
+
+    /**
+     * Get the last address of the prefix containing this address.
+     *
+     * @param prefix the prefix length within the address family
+     *
+     * @return the last address
+     */
+    public IpAddress last(int prefix) {
+        int bits = 128 - getBits() + prefix;
+
+        return new IpAddress(high | ~mask(bits), low | ~mask(bits - 64));
+    }
+
+    /**
+     * Get a mask of the upper bits of a long.
+     *
+     * @param bits the number of set bits; values outside 0..64 are clamped
+     *
+     * @return the mask
+     */
+    private static long mask(int bits) {
+        if (bits <= 0) {
+            return 0;
+        }
+        return bits >= 64 ? -1L : -1L << (64 - bits);
+    }
+
+    /**
+     * Get the number of addresses in a range.
+     *
+     * @param start the first address
+     * @param end   the last address; not before start
+     *
+     * @return the count; Long.MAX_VALUE if the range is larger
+     */
+    public static long count(IpAddress start, IpAddress end) {
+        long highDiff = end.high - start.high;
+        long lowDiff = end.low - start.low;
+
+        if (Long.compareUnsigned(end.low, start.low) < 0) {
+            --highDiff;
+        }
+        if (highDiff != 0 || lowDiff < 0 || lowDiff == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return lowDiff + 1;
+    }
+
+    @Override
+    public int compareTo(IpAddress other) {
+        int result = Long.compareUnsigned(high, other.high);
+
+        return result != 0 ? result : Long.compareUnsigned(low, other.low);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high) * 31 + Long.hashCode(low);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IpAddress)) {
+            return false;
+        }
+        final IpAddress other = (IpAddress) obj;
+        return high == other.high && low == other.low;
+    }
+
+    /**
+     * Get the address text; IPv4 in dotted notation, IPv6 in the canonical form of RFC 5952 (lower case, the longest
+     * run of zero groups compressed).
+     *
+     * @return e.g. "10.1.2.3" or "2001:db8::1"
+     */
+    @Override
+    public String toString() {
+        if (isV4()) {
+            return IpUtils.longToIp(toV4());
+        }
+
+        int[] groups = new int[8];
+        for (int idx = 0; idx < 4; ++idx) {
+            groups[idx] = (int) (high >>> (48 - idx * 16)) & 0xFFFF;
+            groups[idx + 4] = (int) (low >>> (48 - idx * 16)) & 0xFFFF;
+        }
+
+        // The longest run of at least two zero groups
+        int gapStart = -1;
+        int gapLength = 1;
+        for (int idx = 0; idx < 8;) {
+            int end = idx;
+            while (end < 8 && groups[end] == 0) {
+                ++end;
+            }
+            if (end - idx > gapLength) {
+                gapStart = idx;
+                gapLength = end - idx;
+            }
+            idx = Math.max(end, idx + 1);
+        }
+
+        StringBuilder text = new StringBuilder(39);
+        for (int idx = 0; idx < 8; ++idx) {
+            if (idx == gapStart) {
+                text.append("::");
+                idx += gapLength - 1;
+                continue;
+            }
+            if (text.length() > 0 && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(groups[idx]));
+        }
+        return text.toString();
+    }
+}
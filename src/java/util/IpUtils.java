@@ -1,11 +1,16 @@
 package util;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import org.apache.log4j.Logger;
 
 /**
- * Helper methods for IP addresses.
+ * Helper methods for IP addresses.<br>
+ * <br>
+ * The methods taking IPv4 addresses as long numbers are for IPv4 only. The range methods based on {@link IpAddress}
+ * handle IPv4 and IPv6.
  */
 public class IpUtils {
     /**
@@ -35,18 +40,24 @@ public class IpUtils {
     /**
      * Check if an IP addresses format and value is valid.
      *
-     * @param ip the IP address e.g. "198.168.1.23"
+     * @param ip the IP address e.g. "198.168.1.23" or "2001:db8::1"
      *
      * @return true if the IP address is valid, else false
      */
     public static boolean validIp(String ip) {
-        LOG.trace("ip=[" + ip + ']');
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("ip=[" + ip + ']');
+        }
 
         try {
             if (ip == null || ip.isEmpty()) {
                 return false;
             }
 
+            if (ip.indexOf(':') >= 0) {
+                return IpAddress.parse(ip) != null;
+            }
+
             String[] parts = ip.split("\\.");
             if (parts.length != 4) {
                 return false;
@@ -78,7 +89,9 @@ public class IpUtils {
      * @return true if the range is valid, else false
      */
     public static boolean validIpRange(String start, String end) {
-        LOG.trace("start=[" + start + "] end=[" + end + ']');
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("start=[" + start + "] end=[" + end + ']');
+        }
 
         if (!validIp(start)) {
             return false;
@@ -87,6 +100,14 @@ public class IpUtils {
             return false;
         }
 
+        if (start.indexOf(':') >= 0 || end.indexOf(':') >= 0) {
+            // IPv6 or mixed; both must be of the same family
+            IpAddress startAddr = IpAddress.parse(start);
+            IpAddress endAddr = IpAddress.parse(end);
+
+            return startAddr.isV4() == endAddr.isV4() && startAddr.compareTo(endAddr) <= 0;
+        }
+
         try {
             String[] startParts = start.split("\\.");
             String[] endParts = end.split("\\.");
@@ -112,7 +133,8 @@ public class IpUtils {
     }
 
     /**
-     * Create a list of IP addresses in the given range.
+     * Create a list of IPv4 addresses in the given range. Materializes the whole range; use
+     * {@link #iterateRange(IpAddress, IpAddress)} for large or IPv6 ranges.
      *
      * @param start the starting IP address of the range definition
      * @param end   the ending IP address of the range definition
@@ -120,7 +142,9 @@ public class IpUtils {
      * @return a list of IP address strings. The list is empty if the given IP range is invalid
      */
     public static List<String> createIpRange(String start, String end) {
-        LOG.trace("start=[" + start + "] end=[" + end + ']');
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("start=[" + start + "] end=[" + end + ']');
+        }
 
         List<String> list = new ArrayList<>();
 
@@ -134,6 +158,135 @@ public class IpUtils {
         return list;
     }
 
+    /**
+     * Iterate the addresses of a range lazily; nothing is materialized in advance.
+     *
+     * @param start the first address
+     * @param end   the last address
+     *
+     * @return the addresses in ascending order; empty if start is after end
+     */
+    public static Iterable<IpAddress> iterateRange(IpAddress start, IpAddress end) {
+        return () -> new Iterator<IpAddress>() {
+            private IpAddress next = start.compareTo(end) <= 0 ? start : null;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public IpAddress next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+
+                IpAddress current = next;
+                next = current.equals(end) ? null : current.add(1);
+                return current;
+            }
+        };
+    }
+
+    /**
+     * Parse an IPv4 or IPv6 address range. The range can be given in CIDR notation (e.g. "192.168.1.0/24" or
+     * "2001:db8::/64"), as start and end address separated by '-' (e.g. "2001:db8::1-2001:db8::ff") or as a single
+     * address.
+     *
+     * @param range the range text
+     *
+     * @return the start and end of the range or null if the range is invalid or mixes address families
+     */
+    public static IpAddress[] parseAddressRange(String range) {
+        if (range == null) {
+            return null;
+        }
+
+        String text = range.trim();
+        int slash = text.indexOf('/');
+        int dash = text.indexOf('-');
+
+        if (slash >= 0) {
+            IpAddress ip = IpAddress.parse(text.substring(0, slash).trim());
+            int prefix;
+
+            try {
+                prefix = Integer.parseInt(text.substring(slash + 1).trim());
+            }
+            catch (NumberFormatException nfex) {
+                return null;
+            }
+
+            if (ip == null || prefix < 0 || prefix > ip.getBits()) {
+                return null;
+            }
+
+            return new IpAddress[]{ip.prefix(prefix), ip.last(prefix)};
+        }
+
+        if (dash >= 0) {
+            IpAddress start = IpAddress.parse(text.substring(0, dash).trim());
+            IpAddress end = IpAddress.parse(text.substring(dash + 1).trim());
+
+            if (start == null || end == null || start.isV4() != end.isV4() || start.compareTo(end) > 0) {
+                return null;
+            }
+
+            return new IpAddress[]{start, end};
+        }
+
+        IpAddress ip = IpAddress.parse(text);
+
+        return ip == null ? null : new IpAddress[]{ip, ip};
+    }
+
+    /**
+     * Parse an IP address without splitting or regular expressions.
+     *
+     * @param ip the IP address e.g. "198.168.1.23"
+     *
+     * @return the IP address as a number or -1 if the IP address is invalid
+     */
+    public static long parseIp(CharSequence ip) {
+        if (ip == null) {
+            return -1;
+        }
+
+        int length = ip.length();
+        long result = 0;
+        int part = 0;
+        int digits = 0;
+        int dots = 0;
+
+        for (int idx = 0; idx < length; ++idx) {
+            char ch = ip.charAt(idx);
+
+            if (ch >= '0' && ch <= '9') {
+                part = part * 10 + (ch - '0');
+                if (++digits > 3 || part > 255) {
+                    return -1;
+                }
+            }
+            else if (ch == '.') {
+                if (digits == 0 || ++dots > 3) {
+                    return -1;
+                }
+                result = (result << 8) | part;
+                part = 0;
+                digits = 0;
+            }
+            else {
+                return -1;
+            }
+        }
+
+        if (digits == 0 || dots != 3) {
+            return -1;
+        }
+
+        return (result << 8) | part;
+    }
+
     /**
      * Convert an IP address to a hex string.
      *
@@ -142,7 +295,9 @@ public class IpUtils {
      * @return the IP address in hex form
      */
     public static String toHex(String ipAddress) {
-        LOG.trace("ipAddress=[" + ipAddress + ']');
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("ipAddress=[" + ipAddress + ']');
+        }
 
         return Long.toHexString(ipToLong(ipAddress));
     }
@@ -155,7 +310,9 @@ public class IpUtils {
      * @return the IP address as a number
      */
     public static long ipToLong(String ipAddress) {
-        LOG.trace("ipAddress=[" + ipAddress + ']');
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("ipAddress=[" + ipAddress + ']');
+        }
 
         long result = 0;
         String[] atoms = ipAddress.split("\\.");
@@ -175,7 +332,9 @@ public class IpUtils {
      * @return the IP address as a String
      */
     public static String longToIp(long ip) {
-        LOG.trace("ip=[" + ip + ']');
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("ip=[" + ip + ']');
+        }
 
         StringBuilder sb = new StringBuilder(15);
 
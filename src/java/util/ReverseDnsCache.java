@@ -0,0 +1,315 @@
+package util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.log4j.Logger;
+
+/**
+ * A cache of host names resolved by reverse DNS lookups.<br>
+ * <br>
+ * Reading a name never blocks: a missing or expired name is queued and resolved in the background by a few resolver
+ * threads, each taking a batch of addresses at a time. The cache is a LRU map bounded in size; names expire after a
+ * TTL. Addresses without a name are cached too (negative caching) but expire earlier.<br>
+ * <br>
+ * The cache is configured by system properties: networkinframonitor.dns.enabled (default true),
+ * networkinframonitor.dns.cacheSize (default 65536 entries), networkinframonitor.dns.ttl (default 3600 seconds) and
+ * networkinframonitor.dns.negativeTtl (default 300 seconds).
+ */
+public class ReverseDnsCache {
+    /**
+     * A logger.
+     */
+    private static final Logger LOG = Logger.getLogger(ReverseDnsCache.class);
+    /**
+     * Indicate if names are resolved; can be set by system property.
+     */
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("networkinframonitor.dns.enabled", "true"));
+    /**
+     * The maximum number of cached addresses; can be set by system property.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger("networkinframonitor.dns.cacheSize", 65536);
+    /**
+     * The time to keep a name in seconds; can be set by system property.
+     */
+    private static final long TTL = Long.getLong("networkinframonitor.dns.ttl", 3600);
+    /**
+     * The time to keep a missing name in seconds; can be set by system property.
+     */
+    private static final long NEGATIVE_TTL = Long.getLong("networkinframonitor.dns.negativeTtl", 300);
+    /**
+     * The number of resolver threads.
+     */
+    private static final int RESOLVERS = 4;
+    /**
+     * The maximum number of addresses a resolver takes at a time.
+     */
+    private static final int BATCH_SIZE = 64;
+    /**
+     * The maximum number of queued addresses; more requests are dropped and asked again on the next read.
+     */
+    private static final int QUEUE_SIZE = 16384;
+    /**
+     * The single instance.
+     */
+    private static final ReverseDnsCache INSTANCE = new ReverseDnsCache();
+
+    /**
+     * Indicate if names are resolved.
+     */
+    private final boolean enabled;
+    /**
+     * The time to keep a name in nanoseconds.
+     */
+    private final long ttlNanos;
+    /**
+     * The time to keep a missing name in nanoseconds.
+     */
+    private final long negativeTtlNanos;
+    /**
+     * The reverse lookup; gives null if the address has no name.
+     */
+    private final Function<InetAddress, String> resolver;
+    /**
+     * The cached names in access order; guarded by itself.
+     */
+    private final Map<InetAddress, CachedName> cache;
+    /**
+     * The resolver threads.
+     */
+    private final List<Thread> threads = new ArrayList<>(RESOLVERS);
+    /**
+     * The addresses to resolve.
+     */
+    private final BlockingQueue<InetAddress> queue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+    /**
+     * The addresses queued or being resolved; avoids duplicate lookups.
+     */
+    private final Set<InetAddress> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A cached name.
+     */
+    private static class CachedName {
+        /**
+         * The host name; null if the address has no name.
+         */
+        private final String name;
+        /**
+         * The time (System.nanoTime) when the entry expires.
+         */
+        private final long expires;
+
+        CachedName(String name, long expires) {
+            this.name = name;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Creating an instance from outside is not allowed.
+     */
+    private ReverseDnsCache() {
+        this(ENABLED, CACHE_SIZE, TimeUnit.SECONDS.toNanos(TTL), TimeUnit.SECONDS.toNanos(NEGATIVE_TTL),
+             ReverseDnsCache::lookup);
+    }
+
+    /**
+     * Create a cache and start its resolver threads if enabled.
+     *
+     * @param enabled          true to resolve names
+     * @param cacheSize        the maximum number of cached addresses
+     * @param ttlNanos         the time to keep a name in nanoseconds
+     * @param negativeTtlNanos the time to keep a missing name in nanoseconds
+     * @param resolver         the reverse lookup; gives null if the address has no name
+     */
+    ReverseDnsCache(boolean enabled, int cacheSize, long ttlNanos, long negativeTtlNanos,
+                    Function<InetAddress, String> resolver) {
+        this.enabled = enabled;
+        this.ttlNanos = ttlNanos;
+        this.negativeTtlNanos = negativeTtlNanos;
+        this.resolver = resolver;
+        this.cache = new LinkedHashMap<InetAddress, CachedName>(1024, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<InetAddress, CachedName> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
+        if (enabled) {
+            for (int idx = 0; idx < RESOLVERS; ++idx) {
+                Thread thread = new Thread(this::resolve, "ReverseDns-" + idx);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+        }
+    }
+
+    /**
+     * Get the single instance.
+     *
+     * @return the cache
+     */
+    public static ReverseDnsCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the host name of an address from the cache. Never blocks on a lookup; a missing or expired name is queued to
+     * be resolved in the background. An expired name is returned until it is resolved again.
+     *
+     * @param inetAddr the address
+     *
+     * @return the host name or null if not known (yet)
+     */
+    public String getHostName(InetAddress inetAddr) {
+        if (!enabled || inetAddr == null) {
+            return null;
+        }
+
+        CachedName entry;
+        synchronized (cache) {
+            entry = cache.get(inetAddr);
+        }
+
+        if (entry == null || entry.expires - System.nanoTime() < 0) {
+            request(inetAddr);
+        }
+        return entry == null ? null : entry.name;
+    }
+
+    /**
+     * Queue addresses to be resolved in the background unless they are cached or queued already.
+     *
+     * @param inetAddrs the addresses
+     */
+    public void prefetch(Collection<InetAddress> inetAddrs) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        List<InetAddress> missing = new ArrayList<>();
+
+        synchronized (cache) {
+            for (InetAddress inetAddr : inetAddrs) {
+                CachedName entry = cache.get(inetAddr);
+                if (entry == null || entry.expires - now < 0) {
+                    missing.add(inetAddr);
+                }
+            }
+        }
+
+        for (InetAddress inetAddr : missing) {
+            request(inetAddr);
+        }
+    }
+
+    /**
+     * Stop the resolver threads, e.g. when the application stops. Lookups in progress end first; nothing is resolved
+     * afterwards, but the cached names can still be read.
+     */
+    public void stop() {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        threads.clear();
+    }
+
+    /**
+     * Get the number of cached addresses.
+     *
+     * @return the size
+     */
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Queue an address to be resolved if it is not queued already.
+     *
+     * @param inetAddr the address
+     */
+    private void request(InetAddress inetAddr) {
+        if (pending.add(inetAddr) && !queue.offer(inetAddr)) {
+            // Queue full; it is asked again with the next read
+            pending.remove(inetAddr);
+        }
+    }
+
+    /**
+     * Resolve queued addresses in batches until the thread is interrupted.
+     */
+    private void resolve() {
+        List<InetAddress> batch = new ArrayList<>(BATCH_SIZE);
+        List<CachedName> entries = new ArrayList<>(BATCH_SIZE);
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+
+                for (InetAddress inetAddr : batch) {
+                    String name = resolver.apply(inetAddr);
+                    entries.add(new CachedName(name, System.nanoTime() + (name == null ? negativeTtlNanos : ttlNanos)));
+                }
+
+                synchronized (cache) {
+                    for (int idx = 0; idx < batch.size(); ++idx) {
+                        cache.put(batch.get(idx), entries.get(idx));
+                    }
+                }
+                pending.removeAll(batch);
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Resolved " + batch.size() + " addresses");
+                }
+                batch.clear();
+                entries.clear();
+            }
+        }
+        catch (InterruptedException iex) {
+            LOG.debug("Reverse DNS resolver stopped");
+        }
+    }
+
+    /**
+     * Do a reverse lookup of an address.
+     *
+     * @param inetAddr the address
+     *
+     * @return the host name or null if the address has no name
+     */
+    private static String lookup(InetAddress inetAddr) {
+        String name = null;
+
+        try {
+            // Use a new instance; the given one may carry a host name already
+            InetAddress address = InetAddress.getByAddress(inetAddr.getAddress());
+            String canonical = address.getCanonicalHostName();
+
+            if (!canonical.equals(address.getHostAddress())) {
+                name = canonical;
+            }
+        }
+        catch (UnknownHostException uhex) {
+            LOG.debug(uhex.getMessage());
+        }
+        return name;
+    }
+}
@@ -0,0 +1,628 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed bitmap of non-negative integers in the style of Roaring bitmaps.<br>
+ * <br>
+ * The integers are split by their upper 16 bits into chunks of 65536 values. A chunk with at most 4096 values is kept
+ * as sorted array of its lower 16 bits (2 bytes per value), a fuller chunk as plain bitmap (8 KB). So sparse and dense
+ * sets both stay compact, and AND, OR and their cardinalities work chunk by chunk on arrays of primitives. The bitmap
+ * is not synchronized.
+ */
+public class RoaringBitmap {
+    /**
+     * The maximum number of values of an array chunk.
+     */
+    private static final int ARRAY_MAX = 4096;
+    /**
+     * The number of longs of a bitmap chunk.
+     */
+    private static final int BITMAP_WORDS = 1024;
+
+    /**
+     * The upper 16 bits of the chunks in ascending order.
+     */
+    private char[] keys = new char[4];
+    /**
+     * The chunks in the order of their keys.
+     */
+    private Container[] containers = new Container[4];
+    /**
+     * The number of chunks.
+     */
+    private int size = 0;
+
+    /**
+     * The lower 16 bits of the values of a chunk.
+     */
+    private abstract static class Container {
+        /**
+         * Get the number of values.
+         *
+         * @return the cardinality
+         */
+        abstract int cardinality();
+
+        /**
+         * Check for a value.
+         *
+         * @param value the lower 16 bits
+         *
+         * @return true if contained
+         */
+        abstract boolean contains(char value);
+
+        /**
+         * Add a value.
+         *
+         * @param value the lower 16 bits
+         *
+         * @return the container holding the result; this or a converted one
+         */
+        abstract Container add(char value);
+
+        /**
+         * Remove a value.
+         *
+         * @param value the lower 16 bits
+         *
+         * @return the container holding the result; this or a converted one
+         */
+        abstract Container remove(char value);
+
+        /**
+         * Intersect with another container.
+         *
+         * @param other the other container
+         *
+         * @return a new container
+         */
+        abstract Container and(Container other);
+
+        /**
+         * Unite with another container.
+         *
+         * @param other the other container
+         *
+         * @return a new container
+         */
+        abstract Container or(Container other);
+
+        /**
+         * Count the values of the intersection without building it.
+         *
+         * @param other the other container
+         *
+         * @return the cardinality of the intersection
+         */
+        abstract int andCardinality(Container other);
+
+        /**
+         * Pass the values in ascending order.
+         *
+         * @param high     the upper 16 bits of the chunk, already shifted
+         * @param consumer the consumer
+         */
+        abstract void forEach(int high, IntConsumer consumer);
+
+        /**
+         * Copy the container.
+         *
+         * @return an independent copy
+         */
+        abstract Container copy();
+    }
+
+    /**
+     * A chunk as sorted array.
+     */
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int idx = Arrays.binarySearch(values, 0, cardinality, value);
+            if (idx >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+
+            idx = -idx - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, idx, values, idx + 1, cardinality - idx);
+            values[idx] = value;
+            ++cardinality;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int idx = Arrays.binarySearch(values, 0, cardinality, value);
+            if (idx >= 0) {
+                System.arraycopy(values, idx + 1, values, idx, cardinality - idx - 1);
+                --cardinality;
+            }
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int idx = 0;
+                int otherIdx = 0;
+                while (idx < cardinality && otherIdx < array.cardinality) {
+                    if (values[idx] < array.values[otherIdx]) {
+                        ++idx;
+                    }
+                    else if (values[idx] > array.values[otherIdx]) {
+                        ++otherIdx;
+                    }
+                    else {
+                        result[count++] = values[idx++];
+                        ++otherIdx;
+                    }
+                }
+            }
+            else {
+                for (int idx = 0; idx < cardinality; ++idx) {
+                    if (other.contains(values[idx])) {
+                        result[count++] = values[idx];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (!(other instanceof ArrayContainer)) {
+                return other.or(this);
+            }
+
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int idx = 0;
+            int otherIdx = 0;
+            while (idx < cardinality || otherIdx < array.cardinality) {
+                if (otherIdx == array.cardinality || (idx < cardinality && values[idx] < array.values[otherIdx])) {
+                    result[count++] = values[idx++];
+                }
+                else if (idx == cardinality || values[idx] > array.values[otherIdx]) {
+                    result[count++] = array.values[otherIdx++];
+                }
+                else {
+                    result[count++] = values[idx++];
+                    ++otherIdx;
+                }
+            }
+
+            ArrayContainer union = new ArrayContainer(result, count);
+            return count > ARRAY_MAX ? union.toBitmap() : union;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int count = 0;
+
+            for (int idx = 0; idx < cardinality; ++idx) {
+                if (other.contains(values[idx])) {
+                    ++count;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int idx = 0; idx < cardinality; ++idx) {
+                consumer.accept(high | values[idx]);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        /**
+         * Convert to a bitmap chunk.
+         *
+         * @return the bitmap
+         */
+        BitmapContainer toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+
+            for (int idx = 0; idx < cardinality; ++idx) {
+                words[values[idx] >>> 6] |= 1L << values[idx];
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+
+    /**
+     * A chunk as plain bitmap.
+     */
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                ++cardinality;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                --cardinality;
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int idx = 0; idx < BITMAP_WORDS; ++idx) {
+                result[idx] = words[idx] & otherWords[idx];
+                count += Long.bitCount(result[idx]);
+            }
+
+            BitmapContainer intersection = new BitmapContainer(result, count);
+            return count <= ARRAY_MAX ? intersection.toArray() : intersection;
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            int count = cardinality;
+
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int idx = 0; idx < array.cardinality; ++idx) {
+                    char value = array.values[idx];
+                    if ((result[value >>> 6] & (1L << value)) == 0) {
+                        result[value >>> 6] |= 1L << value;
+                        ++count;
+                    }
+                }
+            }
+            else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                count = 0;
+                for (int idx = 0; idx < BITMAP_WORDS; ++idx) {
+                    result[idx] |= otherWords[idx];
+                    count += Long.bitCount(result[idx]);
+                }
+            }
+            return new BitmapContainer(result, count);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int idx = 0; idx < BITMAP_WORDS; ++idx) {
+                count += Long.bitCount(words[idx] & otherWords[idx]);
+            }
+            return count;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int idx = 0; idx < BITMAP_WORDS; ++idx) {
+                long word = words[idx];
+                while (word != 0) {
+                    consumer.accept(high | (idx << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        /**
+         * Convert to an array chunk.
+         *
+         * @return the array
+         */
+        ArrayContainer toArray() {
+            char[] values = new char[Math.max(cardinality, 1)];
+            int count = 0;
+
+            for (int idx = 0; idx < BITMAP_WORDS; ++idx) {
+                long word = words[idx];
+                while (word != 0) {
+                    values[count++] = (char) ((idx << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+
+    /**
+     * Find the chunk of a key.
+     *
+     * @param key the upper 16 bits
+     *
+     * @return the index of the chunk or (-(insertion point) - 1) if there is none
+     */
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Append a chunk; the key must be higher than all keys.
+     *
+     * @param key       the upper 16 bits
+     * @param container the chunk; not appended if empty
+     */
+    private void append(char key, Container container) {
+        if (container.cardinality() == 0) {
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        keys[size] = key;
+        containers[size] = container;
+        ++size;
+    }
+
+    /**
+     * Add a value.
+     *
+     * @param value the value; not negative
+     */
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int idx = find(key);
+
+        if (idx < 0) {
+            idx = -idx - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            System.arraycopy(keys, idx, keys, idx + 1, size - idx);
+            System.arraycopy(containers, idx, containers, idx + 1, size - idx);
+            keys[idx] = key;
+            containers[idx] = new ArrayContainer(new char[4], 0);
+            ++size;
+        }
+        containers[idx] = containers[idx].add((char) value);
+    }
+
+    /**
+     * Remove a value.
+     *
+     * @param value the value
+     */
+    public void remove(int value) {
+        int idx = find((char) (value >>> 16));
+
+        if (idx >= 0) {
+            containers[idx] = containers[idx].remove((char) value);
+            if (containers[idx].cardinality() == 0) {
+                System.arraycopy(keys, idx + 1, keys, idx, size - idx - 1);
+                System.arraycopy(containers, idx + 1, containers, idx, size - idx - 1);
+                containers[--size] = null;
+            }
+        }
+    }
+
+    /**
+     * Check for a value.
+     *
+     * @param value the value
+     *
+     * @return true if contained
+     */
+    public boolean contains(int value) {
+        int idx = find((char) (value >>> 16));
+
+        return idx >= 0 && containers[idx].contains((char) value);
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return the cardinality
+     */
+    public int getCardinality() {
+        int count = 0;
+
+        for (int idx = 0; idx < size; ++idx) {
+            count += containers[idx].cardinality();
+        }
+        return count;
+    }
+
+    /**
+     * Check if there are no values.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Pass the values in ascending order.
+     *
+     * @param consumer the consumer
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int idx = 0; idx < size; ++idx) {
+            containers[idx].forEach(keys[idx] << 16, consumer);
+        }
+    }
+
+    /**
+     * Copy the bitmap.
+     *
+     * @return an independent copy
+     */
+    public RoaringBitmap copy() {
+        RoaringBitmap result = new RoaringBitmap();
+
+        for (int idx = 0; idx < size; ++idx) {
+            result.append(keys[idx], containers[idx].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Intersect two bitmaps.
+     *
+     * @param first  the first bitmap
+     * @param second the second bitmap
+     *
+     * @return a new bitmap with the values in both
+     */
+    public static RoaringBitmap and(RoaringBitmap first, RoaringBitmap second) {
+        RoaringBitmap result = new RoaringBitmap();
+        int idx = 0;
+        int otherIdx = 0;
+
+        while (idx < first.size && otherIdx < second.size) {
+            if (first.keys[idx] < second.keys[otherIdx]) {
+                ++idx;
+            }
+            else if (first.keys[idx] > second.keys[otherIdx]) {
+                ++otherIdx;
+            }
+            else {
+                result.append(first.keys[idx], first.containers[idx].and(second.containers[otherIdx]));
+                ++idx;
+                ++otherIdx;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Unite two bitmaps.
+     *
+     * @param first  the first bitmap
+     * @param second the second bitmap
+     *
+     * @return a new bitmap with the values in either
+     */
+    public static RoaringBitmap or(RoaringBitmap first, RoaringBitmap second) {
+        RoaringBitmap result = new RoaringBitmap();
+        int idx = 0;
+        int otherIdx = 0;
+
+        while (idx < first.size || otherIdx < second.size) {
+            if (otherIdx == second.size || (idx < first.size && first.keys[idx] < second.keys[otherIdx])) {
+                result.append(first.keys[idx], first.containers[idx].copy());
+                ++idx;
+            }
+            else if (idx == first.size || first.keys[idx] > second.keys[otherIdx]) {
+                result.append(second.keys[otherIdx], second.containers[otherIdx].copy());
+                ++otherIdx;
+            }
+            else {
+                result.append(first.keys[idx], first.containers[idx].or(second.containers[otherIdx]));
+                ++idx;
+                ++otherIdx;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count the values in both bitmaps without building the intersection.
+     *
+     * @param first  the first bitmap
+     * @param second the second bitmap
+     *
+     * @return the cardinality of the intersection
+     */
+    public static int andCardinality(RoaringBitmap first, RoaringBitmap second) {
+        int count = 0;
+        int idx = 0;
+        int otherIdx = 0;
+
+        while (idx < first.size && otherIdx < second.size) {
+            if (first.keys[idx] < second.keys[otherIdx]) {
+                ++idx;
+            }
+            else if (first.keys[idx] > second.keys[otherIdx]) {
+                ++otherIdx;
+            }
+            else {
+                count += first.containers[idx].andCardinality(second.containers[otherIdx]);
+                ++idx;
+                ++otherIdx;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,388 @@
+package alert;
+
+import com.sun.net.httpserver.HttpServer;
+import destination.Destination;
+import destination.DestinationState;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import probe.TokenBucket;
+
+/**
+ * Test the class AlertService.
+ */
+public class AlertServiceTest {
+
+    /**
+     * Test class constructor.
+     */
+    public AlertServiceTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * A local stand-in collecting the alerts.
+     */
+    private static class CollectingSink implements AlertSink {
+        private final List<Alert> alerts = new ArrayList<>();
+
+        @Override
+        public void send(Alert alert) {
+            alerts.add(alert);
+        }
+    }
+
+    /**
+     * Create an alert service with a collecting sink and without a relevant rate limit.
+     *
+     * @param sink the sink
+     *
+     * @return the service
+     */
+    private static AlertService service(AlertSink sink) {
+        AlertService service = new AlertService(1000, new TokenBucket(1000, 1000));
+        service.addSink(sink);
+        return service;
+    }
+
+    /**
+     * Create a destination.
+     *
+     * @param ip the IP
+     *
+     * @return the destination
+     *
+     * @throws IOException in case of an invalid IP
+     */
+    private static Destination destination(String ip) throws IOException {
+        return new Destination(InetAddress.getByName(ip), 30);
+    }
+
+    /**
+     * Test of coalescing many state changes of a monitor, of class AlertService.
+     *
+     * @throws IOException in case of an invalid IP
+     */
+    @Test
+    public void testCoalesce() throws IOException {
+        System.out.println("coalesce test...");
+        CollectingSink sink = new CollectingSink();
+        AlertService service = service(sink);
+
+        // A core switch failure taking down 2000 hosts in 8 subnets
+        for (int idx = 0; idx < 2000; ++idx) {
+            Destination destination = destination("10.1." + (idx / 250) + '.' + (idx % 250 + 1));
+            service.submit("10.1.0.1-10.1.7.250", destination, DestinationState.UP, DestinationState.DEGRADED);
+            service.submit("10.1.0.1-10.1.7.250", destination, DestinationState.DEGRADED, DestinationState.DOWN);
+        }
+        service.flush();
+
+        Assert.assertEquals(1, sink.alerts.size());
+        Alert alert = sink.alerts.get(0);
+        Assert.assertEquals(Alert.Kind.DOWN, alert.getKind());
+        Assert.assertEquals(2000, alert.getAddresses().size());
+        Assert.assertEquals(8, alert.getSubnets().size());
+        Assert.assertEquals(Integer.valueOf(250), alert.getSubnets().get("10.1.2.0/24"));
+        Assert.assertTrue(alert.getText().startsWith("2000 hosts down in monitor 10.1.0.1-10.1.7.250: 10.1.0.0/24 (250)"));
+    }
+
+    /**
+     * Test of deduplicating state changes, of class AlertService.
+     *
+     * @throws IOException in case of an invalid IP
+     */
+    @Test
+    public void testDeduplicate() throws IOException {
+        System.out.println("deduplicate test...");
+        CollectingSink sink = new CollectingSink();
+        AlertService service = service(sink);
+        Destination destination = destination("10.1.1.1");
+
+        // Down and up again within the window; a first result up is no recovery
+        service.submit("m", destination, DestinationState.UP, DestinationState.DOWN);
+        service.submit("m", destination, DestinationState.DOWN, DestinationState.UP);
+        service.submit("m", destination("10.1.1.2"), null, DestinationState.UP);
+        service.flush();
+        Assert.assertTrue(sink.alerts.isEmpty());
+
+        service.submit("m", destination, DestinationState.UP, DestinationState.DOWN);
+        service.flush();
+        service.submit("m", destination, DestinationState.FLAPPING, DestinationState.DOWN);
+        service.flush();
+        Assert.assertEquals(1, sink.alerts.size());
+
+        service.submit("m", destination, DestinationState.DOWN, DestinationState.UP);
+        service.flush();
+        Assert.assertEquals(2, sink.alerts.size());
+        Assert.assertEquals(Alert.Kind.RECOVERED, sink.alerts.get(1).getKind());
+        Assert.assertEquals("10.1.1.1 recovered in monitor m", sink.alerts.get(1).getText());
+    }
+
+    /**
+     * Test of the rate limit, of class AlertService.
+     *
+     * @throws IOException          in case of an invalid IP
+     * @throws InterruptedException in case the test is interrupted
+     */
+    @Test
+    public void testRateLimit() throws IOException, InterruptedException {
+        System.out.println("rateLimit test...");
+        CollectingSink sink = new CollectingSink();
+        TokenBucket limiter = new TokenBucket(5, 1);
+        AlertService service = new AlertService(1000, limiter);
+        service.addSink(sink);
+
+        for (int idx = 1; idx <= 3; ++idx) {
+            service.submit("m" + idx, destination("10.1.1." + idx), DestinationState.UP, DestinationState.DOWN);
+            service.flush();
+        }
+        Assert.assertEquals(1, sink.alerts.size());
+
+        // Wait for the next token
+        Thread.sleep(300);
+        service.submit("m4", destination("10.1.1.4"), DestinationState.UP, DestinationState.DOWN);
+        service.flush();
+        Assert.assertEquals(2, sink.alerts.size());
+        Assert.assertEquals("m2", sink.alerts.get(1).getMonitorId());
+        Assert.assertEquals(2, sink.alerts.get(1).getSuppressed());
+
+        // The suppressed alerts follow as tokens become available
+        Thread.sleep(300);
+        service.flush();
+        Thread.sleep(300);
+        service.flush();
+        Assert.assertEquals(4, sink.alerts.size());
+        Assert.assertEquals("m3", sink.alerts.get(2).getMonitorId());
+        Assert.assertEquals("m4", sink.alerts.get(3).getMonitorId());
+    }
+
+    /**
+     * Test of a down alert suppressed by the rate limit, of class AlertService.
+     *
+     * @throws IOException          in case of an invalid IP
+     * @throws InterruptedException in case the test is interrupted
+     */
+    @Test
+    public void testRateLimitedDown() throws IOException, InterruptedException {
+        System.out.println("rateLimitedDown test...");
+        CollectingSink sink = new CollectingSink();
+        TokenBucket limiter = new TokenBucket(5, 1);
+        AlertService service = new AlertService(1000, limiter);
+        service.addSink(sink);
+        Destination destination = destination("10.1.1.1");
+
+        // Take the only token; the down alert is suppressed
+        limiter.tryAcquire();
+        service.submit("m", destination, DestinationState.UP, DestinationState.DOWN);
+        service.flush();
+        Assert.assertTrue(sink.alerts.isEmpty());
+
+        // The suppressed down is alerted in the next window without a new change
+        Thread.sleep(300);
+        service.flush();
+        Assert.assertEquals(1, sink.alerts.size());
+        Assert.assertEquals(Alert.Kind.DOWN, sink.alerts.get(0).getKind());
+        Assert.assertEquals(1, sink.alerts.get(0).getSuppressed());
+
+        // A suppressed down which recovers before it is sent gives no alert
+        destination = destination("10.1.1.2");
+        service.submit("m", destination, DestinationState.UP, DestinationState.DOWN);
+        service.flush();
+        Thread.sleep(300);
+        service.submit("m", destination, DestinationState.DOWN, DestinationState.UP);
+        service.flush();
+        Assert.assertEquals(1, sink.alerts.size());
+    }
+
+    /**
+     * Test of an alert no sink accepted, of class AlertService.
+     *
+     * @throws IOException in case of an invalid IP
+     */
+    @Test
+    public void testUndelivered() throws IOException {
+        System.out.println("undelivered test...");
+        CollectingSink sink = new CollectingSink();
+        AlertService service = service((alert) -> {
+            throw new IOException("Sink down");
+        });
+        Destination destination = destination("10.1.1.1");
+
+        service.submit("m", destination, DestinationState.UP, DestinationState.DOWN);
+        service.flush();
+
+        // Kept for the next window, so the down is sent once a sink accepts it
+        service.addSink(sink);
+        service.flush();
+        Assert.assertEquals(1, sink.alerts.size());
+        Assert.assertEquals(Alert.Kind.DOWN, sink.alerts.get(0).getKind());
+
+        service.flush();
+        Assert.assertEquals(1, sink.alerts.size());
+    }
+
+    /**
+     * Test of the same address in two monitors, of class AlertService.
+     *
+     * @throws IOException in case of an invalid IP
+     */
+    @Test
+    public void testSameAddressInTwoMonitors() throws IOException {
+        System.out.println("sameAddressInTwoMonitors test...");
+        CollectingSink sink = new CollectingSink();
+        AlertService service = service(sink);
+        Destination destination = destination("10.1.1.1");
+
+        service.submit("m1", destination, DestinationState.UP, DestinationState.DOWN);
+        service.submit("m2", destination, DestinationState.UP, DestinationState.DOWN);
+        service.flush();
+        Assert.assertEquals(2, sink.alerts.size());
+
+        // The recovery in one monitor does not hide the recovery in the other
+        service.submit("m1", destination, DestinationState.DOWN, DestinationState.UP);
+        service.flush();
+        service.submit("m2", destination, DestinationState.DOWN, DestinationState.UP);
+        service.flush();
+        Assert.assertEquals(4, sink.alerts.size());
+        Assert.assertEquals(Alert.Kind.RECOVERED, sink.alerts.get(2).getKind());
+        Assert.assertEquals("m1", sink.alerts.get(2).getMonitorId());
+        Assert.assertEquals(Alert.Kind.RECOVERED, sink.alerts.get(3).getKind());
+        Assert.assertEquals("m2", sink.alerts.get(3).getMonitorId());
+    }
+
+    /**
+     * Test of the class WebhookSink with a local HTTP server.
+     *
+     * @throws IOException in case of a connection failure
+     */
+    @Test
+    public void testWebhook() throws IOException {
+        System.out.println("webhook test...");
+        AtomicReference<String> body = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/hook", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                body.set(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).readLine());
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            URL url = new URL("http", "127.0.0.1", server.getAddress().getPort(), "/hook");
+            new WebhookSink(url).send(new Alert("m", Alert.Kind.DOWN, Collections.singletonList(InetAddress.getByName("10.1.1.1")), 42, 0));
+        }
+        finally {
+            server.stop(0);
+        }
+
+        Assert.assertEquals("{\"monitor\":\"m\",\"kind\":\"down\",\"count\":1,\"subnets\":{\"10.1.1.0/24\":1},"
+                            + "\"suppressed\":0,\"time\":42,\"text\":\"10.1.1.1 down in monitor m\"}", body.get());
+    }
+
+    /**
+     * Test of the class SmtpSink with a local SMTP stand-in.
+     *
+     * @throws Exception in case of a connection failure
+     */
+    @Test
+    public void testSmtp() throws Exception {
+        System.out.println("smtp test...");
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread relay = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+                    out.write("220 localhost\r\n");
+                    out.flush();
+
+                    boolean data = false;
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        received.add(line);
+                        if (data) {
+                            data = !line.equals(".");
+                            if (data) {
+                                continue;
+                            }
+                            out.write("250 queued\r\n");
+                        }
+                        else if (line.equals("DATA")) {
+                            data = true;
+                            out.write("354 go ahead\r\n");
+                        }
+                        else if (line.equals("QUIT")) {
+                            out.write("221 bye\r\n");
+                        }
+                        else {
+                            out.write("250-localhost\r\n250 ok\r\n");
+                        }
+                        out.flush();
+                    }
+                }
+                catch (IOException ioex) {
+                    received.add(ioex.toString());
+                }
+            });
+            relay.start();
+
+            new SmtpSink("127.0.0.1", server.getLocalPort(), "monitor@example.com", Collections.singletonList("noc@example.com"))
+                    .send(new Alert("m", Alert.Kind.FLAPPING, Collections.singletonList(InetAddress.getByName("10.1.1.1")), 0, 0));
+            relay.join(5000);
+        }
+
+        Assert.assertTrue(received.contains("MAIL FROM:<monitor@example.com>"));
+        Assert.assertTrue(received.contains("RCPT TO:<noc@example.com>"));
+        Assert.assertTrue(received.contains("Subject: [NetworkInfraMonitor] 10.1.1.1 flapping in monitor m"));
+        Assert.assertEquals("QUIT", received.get(received.size() - 1));
+    }
+}
@@ -0,0 +1,119 @@
+package cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class ClusterService.
+ */
+public class ClusterServiceTest {
+    /**
+     * The cluster service of the node 127.0.0.1:40001 with the peer 127.0.0.1:40002.
+     */
+    private ClusterService service;
+
+    /**
+     * Test class constructor.
+     */
+    public ClusterServiceTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+        service = new ClusterService("127.0.0.1:40001", "127.0.0.1:40002,no-port,127.0.0.1:port");
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Build a packet.
+     *
+     * @param type   the packet type
+     * @param sender the node id of the sender
+     * @param flags  the flags of a single delta; negative for none
+     *
+     * @return the packet data
+     *
+     * @throws IOException in case of a write error
+     */
+    private static DataInputStream packet(int type, String sender, int flags) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x4E494D36);
+        out.writeByte(type);
+        out.writeUTF(sender);
+        if (flags >= 0) {
+            out.writeShort(1);
+            out.writeLong(0);
+            out.writeLong(0x0A010101L);
+            out.writeLong(1000L);
+            out.writeByte(flags);
+            out.writeByte(10);
+            out.writeUTF("EchoProbe");
+        }
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    /**
+     * Test of handle method with heartbeats, of class ClusterService.
+     *
+     * @throws IOException in case of an invalid packet
+     */
+    @Test
+    public void testHandleHeartbeat() throws IOException {
+        System.out.println("handleHeartbeat test...");
+        Assert.assertEquals(1, service.getNodes().size());
+
+        // Unknown nodes and configured nodes sending from another address can not join
+        service.handle(packet(1, "127.0.0.1:40003", -1), new InetSocketAddress("127.0.0.1", 40003));
+        service.handle(packet(1, "127.0.0.1:40002", -1), new InetSocketAddress("127.0.0.1", 40003));
+        Assert.assertEquals(1, service.getNodes().size());
+
+        service.handle(packet(1, "127.0.0.1:40002", -1), new InetSocketAddress("127.0.0.1", 40002));
+        Assert.assertEquals(2, service.getNodes().size());
+        Assert.assertTrue(service.getNodes().contains("127.0.0.1:40002"));
+    }
+
+    /**
+     * Test of handle method with an invalid state, of class ClusterService.
+     *
+     * @throws IOException in case of an invalid packet
+     */
+    @Test(expected = IOException.class)
+    public void testHandleInvalidState() throws IOException {
+        System.out.println("handleInvalidState test...");
+        service.handle(packet(2, "127.0.0.1:40002", 0xFF), new InetSocketAddress("127.0.0.1", 40002));
+    }
+}
@@ -0,0 +1,107 @@
+package cluster;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class ConsistentHashRing.
+ */
+public class ConsistentHashRingTest {
+    /**
+     * The number of keys to distribute; a /16 network.
+     */
+    private static final int KEYS = 65536;
+    /**
+     * The first key; 10.1.0.0.
+     */
+    private static final int FIRST_KEY = 0x0A010000;
+
+    /**
+     * Test class constructor.
+     */
+    public ConsistentHashRingTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of owner method with an empty ring, of class ConsistentHashRing.
+     */
+    @Test
+    public void testOwnerEmpty() {
+        System.out.println("ownerEmpty test...");
+        Assert.assertEquals(null, new ConsistentHashRing(Arrays.asList()).owner(FIRST_KEY));
+        Assert.assertEquals("a:1", new ConsistentHashRing(Arrays.asList("a:1")).owner(FIRST_KEY));
+    }
+
+    /**
+     * Test of owner method for an even distribution, of class ConsistentHashRing.
+     */
+    @Test
+    public void testOwnerDistribution() {
+        System.out.println("ownerDistribution test...");
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a:1", "b:2", "c:3"));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int key = FIRST_KEY; key < FIRST_KEY + KEYS; ++key) {
+            counts.merge(ring.owner(key), 1, Integer::sum);
+        }
+
+        Assert.assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            // Each node gets a third of the keys give or take 20 percent
+            Assert.assertEquals(KEYS / 3.0, count, KEYS / 3.0 * 0.2);
+        }
+    }
+
+    /**
+     * Test of owner method when a node leaves, of class ConsistentHashRing.
+     */
+    @Test
+    public void testOwnerRebalance() {
+        System.out.println("ownerRebalance test...");
+        ConsistentHashRing three = new ConsistentHashRing(Arrays.asList("a:1", "b:2", "c:3"));
+        ConsistentHashRing two = new ConsistentHashRing(Arrays.asList("c:3", "a:1"));
+
+        for (int key = FIRST_KEY; key < FIRST_KEY + KEYS; ++key) {
+            String owner = three.owner(key);
+            if (!owner.equals("b:2")) {
+                // Only the keys of the leaving node move
+                Assert.assertEquals(owner, two.owner(key));
+            }
+        }
+    }
+}
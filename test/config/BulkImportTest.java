@@ -0,0 +1,120 @@
+package config;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class BulkImport.
+ */
+public class BulkImportTest {
+
+    /**
+     * Test class constructor.
+     */
+    public BulkImportTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of importRanges method, of class BulkImport.
+     */
+    @Test
+    public void testImportRanges() {
+        System.out.println("importRanges test...");
+        List<MonitorView> monitorList = new ArrayList<>();
+        monitorList.add(new MonitorView("10.10.10.1", "10.10.10.22", "30", "Test"));
+
+        String text = "# Site A\n"
+                + "10.10.11.0/24 Floor 1\n"
+                + "\n"
+                + "10.10.10.20-10.10.10.30\n"
+                + "10.10.12.5 Printer\n"
+                + "10.10.11.128/25\n"
+                + "10.10.300.1\n";
+
+        BulkImport.Result result = BulkImport.importRanges(text, "60", monitorList);
+
+        Assert.assertEquals(2, result.getAccepted().size());
+        Assert.assertEquals(new MonitorView("10.10.11.0", "10.10.11.255", "60", "Floor 1"), result.getAccepted().get(0));
+        Assert.assertEquals(new MonitorView("10.10.12.5", "10.10.12.5", "60", "Printer"), result.getAccepted().get(1));
+        Assert.assertEquals(3, result.getRejected().size());
+    }
+
+    /**
+     * Test of importRanges method with many lines, of class BulkImport.
+     */
+    @Test
+    public void testImportManyRanges() {
+        System.out.println("importManyRanges test...");
+        StringBuilder text = new StringBuilder();
+        for (int idx = 0; idx < 2000; ++idx) {
+            text.append("10.").append(idx / 256).append('.').append(idx % 256).append(".0/24\n");
+        }
+
+        BulkImport.Result result = BulkImport.importRanges(text.toString(), "30", new ArrayList<>());
+
+        Assert.assertEquals(2000, result.getAccepted().size());
+        Assert.assertEquals(0, result.getRejected().size());
+        Assert.assertEquals("10.0.0.0", result.getAccepted().get(0).getStartIp());
+        Assert.assertEquals("10.7.207.255", result.getAccepted().get(1999).getEndIp());
+    }
+
+    /**
+     * Test of importRanges method with blanks in the ranges, of class BulkImport.
+     */
+    @Test
+    public void testImportSpacedRanges() {
+        System.out.println("importSpacedRanges test...");
+        String text = "10.1.1.1 - 10.1.1.254 core\n"
+                + "10.1.2.1 -10.1.2.9\n"
+                + "10.1.3.1- 10.1.3.9 Floor 3 - east\n"
+                + "10.1.4.0 / 24\n"
+                + "10.1.5.1-10.1.5.9 north - south\n";
+
+        BulkImport.Result result = BulkImport.importRanges(text, "30", new ArrayList<>());
+
+        Assert.assertEquals(0, result.getRejected().size());
+        Assert.assertEquals(5, result.getAccepted().size());
+        Assert.assertEquals(new MonitorView("10.1.1.1", "10.1.1.254", "30", "core"), result.getAccepted().get(0));
+        Assert.assertEquals(new MonitorView("10.1.2.1", "10.1.2.9", "30", ""), result.getAccepted().get(1));
+        Assert.assertEquals(new MonitorView("10.1.3.1", "10.1.3.9", "30", "Floor 3 - east"), result.getAccepted().get(2));
+        Assert.assertEquals(new MonitorView("10.1.4.0", "10.1.4.255", "30", ""), result.getAccepted().get(3));
+        Assert.assertEquals(new MonitorView("10.1.5.1", "10.1.5.9", "30", "north - south"), result.getAccepted().get(4));
+
+        // A comment starting with a word is not taken as part of the range
+        Assert.assertEquals(8, BulkImport.rangeEnd("10.1.1.1 core-switch"));
+    }
+}
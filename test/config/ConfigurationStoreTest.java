@@ -0,0 +1,231 @@
+package config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class ConfigurationStore.
+ */
+public class ConfigurationStoreTest {
+    /**
+     * The directory for the store files.
+     */
+    private File directory;
+
+    /**
+     * Test class constructor.
+     */
+    public ConfigurationStoreTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     *
+     * @throws IOException in case the directory can not be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("store").toFile();
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Test of add, remove and load methods, of class ConfigurationStore.
+     *
+     * @throws IOException in case of a store failure
+     */
+    @Test
+    public void testAddRemoveLoad() throws IOException {
+        System.out.println("addRemoveLoad test...");
+        ConfigurationStore store = new ConfigurationStore(directory);
+        Assert.assertEquals(false, store.exists());
+
+        store.add(new MonitorView("10.10.10.1", "10.10.10.22", "30", "Test 1"));
+        store.addAll(Arrays.asList(new MonitorView("10.10.10.23", "10.10.10.30", "30", "Test 2"),
+                                   new MonitorView("10.10.10.31", "10.10.10.40", "30", "Test 3", "10.10.10.1")));
+        store.remove(new MonitorView("10.10.10.23", "10.10.10.30", "30", "Test 2"));
+        // Same range replaces the existing monitor
+        store.add(new MonitorView("10.10.10.1", "10.10.10.22", "60", "Test 1"));
+        Assert.assertEquals(true, store.exists());
+
+        List<MonitorView> loaded = new ConfigurationStore(directory).load();
+        Assert.assertEquals(2, loaded.size());
+        Assert.assertEquals(new MonitorView("10.10.10.1", "10.10.10.22", "60", "Test 1"), loaded.get(0));
+        Assert.assertEquals(new MonitorView("10.10.10.31", "10.10.10.40", "30", "Test 3", "10.10.10.1"), loaded.get(1));
+
+        store.compact();
+        Assert.assertEquals(loaded, new ConfigurationStore(directory).load());
+    }
+
+    /**
+     * Test of load method with a torn journal record, of class ConfigurationStore.
+     *
+     * @throws IOException in case of a store failure
+     */
+    @Test
+    public void testLoadTornJournal() throws IOException {
+        System.out.println("loadTornJournal test...");
+        ConfigurationStore store = new ConfigurationStore(directory);
+        store.add(new MonitorView("10.10.10.1", "10.10.10.22", "30", "Test 1"));
+        store.add(new MonitorView("10.10.10.23", "10.10.10.30", "30", "Test 2"));
+
+        // Cut the last record like a crash while writing would do
+        File journal = new File(directory, "monitors.journal");
+        try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        List<MonitorView> loaded = new ConfigurationStore(directory).load();
+        Assert.assertEquals(1, loaded.size());
+        Assert.assertEquals("10.10.10.1", loaded.get(0).getStartIp());
+
+        // The journal is usable again after the corrupt tail is dropped
+        store = new ConfigurationStore(directory);
+        store.load();
+        store.add(new MonitorView("10.10.10.40", "10.10.10.50", "30", "Test 3"));
+        Assert.assertEquals(2, new ConfigurationStore(directory).load().size());
+    }
+
+    /**
+     * Test of load method with a corrupt journal record before the last one, of class ConfigurationStore.
+     *
+     * @throws IOException in case of a store failure
+     */
+    @Test
+    public void testLoadCorruptJournal() throws IOException {
+        System.out.println("loadCorruptJournal test...");
+        ConfigurationStore store = new ConfigurationStore(directory);
+        store.add(new MonitorView("10.10.10.1", "10.10.10.22", "30", "Test 1"));
+        store.add(new MonitorView("10.10.10.23", "10.10.10.30", "30", "Test 2"));
+
+        // Damage the payload of the first record; the second record is still valid
+        File journal = new File(directory, "monitors.journal");
+        long length = journal.length();
+        try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+            raf.seek(8);
+            raf.write(0x55);
+        }
+
+        store = new ConfigurationStore(directory);
+        try {
+            store.load();
+            Assert.fail("Corrupt journal loaded");
+        }
+        catch (IOException ioex) {
+            Assert.assertTrue(ioex.getMessage().startsWith("Invalid record checksum at offset 0"));
+        }
+
+        // Neither the load nor a change drop the valid records after the corrupt one
+        Assert.assertEquals(length, journal.length());
+        try {
+            store.add(new MonitorView("10.10.10.40", "10.10.10.50", "30", "Test 3"));
+            Assert.fail("Corrupt store changed");
+        }
+        catch (IOException ioex) {
+            Assert.assertEquals(length, journal.length());
+            Assert.assertFalse(new File(directory, "monitors.snapshot").exists());
+        }
+    }
+
+    /**
+     * Test of load method with a corrupt snapshot, of class ConfigurationStore.
+     *
+     * @throws IOException in case of a store failure
+     */
+    @Test
+    public void testLoadCorruptSnapshot() throws IOException {
+        System.out.println("loadCorruptSnapshot test...");
+        ConfigurationStore store = new ConfigurationStore(directory);
+        store.add(new MonitorView("10.10.10.1", "10.10.10.22", "30", "Test 1"));
+        store.add(new MonitorView("10.10.10.23", "10.10.10.30", "30", "Test 2"));
+        store.compact();
+
+        File snapshot = new File(directory, "monitors.snapshot");
+        long length = snapshot.length();
+        try (RandomAccessFile raf = new RandomAccessFile(snapshot, "rw")) {
+            raf.seek(length - 6);
+            raf.write(0x55);
+        }
+
+        store = new ConfigurationStore(directory);
+        try {
+            store.load();
+            Assert.fail("Corrupt snapshot loaded");
+        }
+        catch (IOException ioex) {
+            Assert.assertTrue(ioex.getMessage().startsWith("Corrupt snapshot"));
+        }
+
+        // A change does not overwrite the corrupt snapshot
+        try {
+            store.add(new MonitorView("10.10.10.40", "10.10.10.50", "30", "Test 3"));
+            Assert.fail("Corrupt store changed");
+        }
+        catch (IOException ioex) {
+            Assert.assertEquals(length, snapshot.length());
+            Assert.assertEquals(0, new File(directory, "monitors.journal").length());
+        }
+    }
+
+    /**
+     * Test of importProperties method, of class ConfigurationStore.
+     *
+     * @throws IOException in case of a store failure
+     */
+    @Test
+    public void testImportProperties() throws IOException {
+        System.out.println("importProperties test...");
+        File legacy = new File(directory, "monitors.properties");
+        try (OutputStream out = new FileOutputStream(legacy)) {
+            out.write(("row0=192.168.1.1\\#192.168.1.4\\#10\\#Test 1\n"
+                    + "row2=192.168.1.8\\#192.168.1.9\\#10\\#Test 3\n"
+                    + "row10=192.168.1.20\\#192.168.1.29\\#10\\#Test 10\n").getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        ConfigurationStore store = new ConfigurationStore(directory);
+        List<MonitorView> imported = store.importProperties(legacy);
+        Assert.assertEquals(3, imported.size());
+        Assert.assertEquals("Test 1", imported.get(0).getComment());
+        Assert.assertEquals("Test 3", imported.get(1).getComment());
+        Assert.assertEquals("Test 10", imported.get(2).getComment());
+
+        Assert.assertEquals(imported, new ConfigurationStore(directory).load());
+    }
+}
@@ -0,0 +1,203 @@
+package destination;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class DestinationSnapshot.
+ */
+public class DestinationSnapshotTest {
+    /**
+     * The snapshot file.
+     */
+    private File file;
+
+    /**
+     * Test class constructor.
+     */
+    public DestinationSnapshotTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     *
+     * @throws IOException in case the file can not be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("destinations", ".snapshot");
+        file.delete();
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Create a destination with a probe result. A low quality is taken as degraded state.
+     *
+     * @param ip      the IP
+     * @param quality the quality to reach
+     * @param probe   the successful probe; empty if failed
+     *
+     * @return the destination
+     *
+     * @throws IOException in case the IP is invalid
+     */
+    private static Destination destination(String ip, int quality, String probe) throws IOException {
+        Destination destination = new Destination(InetAddress.getByName(ip), 30);
+        DestinationState state = probe.isEmpty() ? DestinationState.DOWN
+                                 : quality < 7 ? DestinationState.DEGRADED : DestinationState.UP;
+        destination.applyResult(1000L * (quality + 1), !probe.isEmpty(), state, quality, probe);
+        return destination;
+    }
+
+    /**
+     * Test of save, load and apply methods, of class DestinationSnapshot.
+     *
+     * @throws IOException in case of a snapshot failure
+     */
+    @Test
+    public void testSaveLoadApply() throws IOException {
+        System.out.println("saveLoadApply test...");
+        new DestinationSnapshot(file).save(Arrays.asList(destination("10.1.1.2", 7, "EchoProbe"),
+                                                         destination("192.168.1.1", 10, "ServerPortProbe"),
+                                                         destination("10.1.1.1", 0, "")));
+
+        DestinationSnapshot snapshot = new DestinationSnapshot(file);
+        snapshot.load();
+        Assert.assertEquals(3, snapshot.size());
+
+        Destination known = new Destination(InetAddress.getByName("192.168.1.1"), 30);
+        Destination unknown = new Destination(InetAddress.getByName("192.168.1.2"), 30);
+        Assert.assertEquals(1, snapshot.apply(Arrays.asList(known, unknown)));
+        Assert.assertEquals(10, known.getQuality());
+        Assert.assertEquals(true, known.getProbeResult());
+        Assert.assertEquals(DestinationState.UP, known.getState());
+        Assert.assertEquals("ServerPortProbe", known.getProbe());
+        Assert.assertEquals(11000L, known.getLastProbeMillis());
+        Assert.assertEquals(0, unknown.getQuality());
+    }
+
+    /**
+     * Test of save method merging with older states, of class DestinationSnapshot.
+     *
+     * @throws IOException in case of a snapshot failure
+     */
+    @Test
+    public void testSaveMerge() throws IOException {
+        System.out.println("saveMerge test...");
+        DestinationSnapshot snapshot = new DestinationSnapshot(file);
+
+        Destination recent = destination("10.1.1.1", 5, "EchoProbe");
+        recent.setLastProbeNanos(System.nanoTime());
+        snapshot.save(Arrays.asList(recent, destination("10.1.1.2", 5, "EchoProbe")));
+        snapshot.save(Arrays.asList(destination("10.1.1.3", 3, "TimeServerProbe"),
+                                    new Destination(InetAddress.getByName("10.1.1.1"), 30)));
+
+        // The recent state is kept, also over a destination not probed yet; the state older than a day is dropped
+        snapshot = new DestinationSnapshot(file);
+        snapshot.load();
+        Assert.assertEquals(2, snapshot.size());
+
+        Destination restored = new Destination(InetAddress.getByName("10.1.1.1"), 30);
+        Assert.assertEquals(1, snapshot.apply(Collections.singletonList(restored)));
+        Assert.assertEquals(5, restored.getQuality());
+        Assert.assertEquals(DestinationState.DEGRADED, restored.getState());
+    }
+
+    /**
+     * Test of load method with a version 1 file, of class DestinationSnapshot.
+     *
+     * @throws IOException in case of a snapshot failure
+     */
+    @Test
+    public void testLoadVersion1() throws IOException {
+        System.out.println("loadVersion1 test...");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(file)), crc))) {
+            out.writeInt(0x4E494D53);
+            out.writeByte(1);
+            out.writeByte(1);
+            out.writeUTF("EchoProbe");
+            out.writeInt(2);
+            // 10.1.1.1 failed, 10.1.1.2 succeeded
+            out.writeInt(0x0A010101);
+            out.writeLong(1000L);
+            out.writeByte(0);
+            out.writeByte(0);
+            out.writeByte(0);
+            out.writeInt(0x0A010102);
+            out.writeLong(2000L);
+            out.writeByte(1);
+            out.writeByte(10);
+            out.writeByte(0);
+            out.flush();
+            out.writeInt((int) crc.getValue());
+        }
+
+        DestinationSnapshot snapshot = new DestinationSnapshot(file);
+        snapshot.load();
+        Assert.assertEquals(2, snapshot.size());
+
+        Destination failed = new Destination(InetAddress.getByName("10.1.1.1"), 30);
+        Destination succeeded = new Destination(InetAddress.getByName("10.1.1.2"), 30);
+        Assert.assertEquals(2, snapshot.apply(Arrays.asList(failed, succeeded)));
+        Assert.assertEquals(false, failed.getProbeResult());
+        Assert.assertEquals(DestinationState.DOWN, failed.getState());
+        Assert.assertEquals(true, succeeded.getProbeResult());
+        Assert.assertEquals(DestinationState.UP, succeeded.getState());
+        Assert.assertEquals(10, succeeded.getQuality());
+    }
+
+    /**
+     * Test of load method with a corrupt file, of class DestinationSnapshot.
+     *
+     * @throws IOException in case of a snapshot failure
+     */
+    @Test(expected = IOException.class)
+    public void testLoadCorrupt() throws IOException {
+        System.out.println("loadCorrupt test...");
+        new DestinationSnapshot(file).save(Collections.singletonList(destination("10.1.1.1", 5, "EchoProbe")));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 6);
+            raf.write(0x55);
+        }
+
+        new DestinationSnapshot(file).load();
+    }
+}
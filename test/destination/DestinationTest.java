@@ -0,0 +1,176 @@
+package destination;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class Destination.
+ */
+public class DestinationTest {
+
+    /**
+     * Test class constructor.
+     */
+    public DestinationTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Create a destination and apply a sequence of probe results.
+     *
+     * @param results the results in order; '+' for success, '-' for failure
+     *
+     * @return the destination
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    private static Destination probed(String results) throws UnknownHostException {
+        Destination destination = new Destination(InetAddress.getByName("10.1.1.1"), 30);
+        for (char result : results.toCharArray()) {
+            destination.setProbe(result == '+' ? "EchoProbe" : "");
+        }
+        return destination;
+    }
+
+    /**
+     * Test of the first result, of class Destination.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testFirstResult() throws UnknownHostException {
+        System.out.println("firstResult test...");
+        Assert.assertEquals(DestinationState.DOWN, new Destination(InetAddress.getByName("10.1.1.1"), 30).getState());
+        Assert.assertEquals(DestinationState.UP, probed("+").getState());
+        Assert.assertEquals(DestinationState.DOWN, probed("-").getState());
+    }
+
+    /**
+     * Test of the probe times before and after the first probe, of class Destination.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testProbeTimes() throws UnknownHostException {
+        System.out.println("probeTimes test...");
+        Destination destination = new Destination(InetAddress.getByName("10.1.1.1"), 30);
+
+        // The phase offset delays the first probe only; no probe time is shown before it is done
+        long before = System.nanoTime();
+        destination.setPhaseOffset(5000);
+        Assert.assertTrue(destination.getNextProbeNanos() >= before + TimeUnit.SECONDS.toNanos(5));
+        Assert.assertNull(destination.getLastProbe());
+
+        long probed = System.nanoTime();
+        destination.setLastProbeNanos(probed);
+        Assert.assertEquals(probed + TimeUnit.SECONDS.toNanos(30), destination.getNextProbeNanos());
+        Assert.assertNotNull(destination.getLastProbe());
+    }
+
+    /**
+     * Test of the hysteresis going down and up, of class Destination.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testRiseFall() throws UnknownHostException {
+        System.out.println("riseFall test...");
+        Assert.assertEquals(DestinationState.UP, probed("++++-").getState());
+        Assert.assertEquals(DestinationState.DEGRADED, probed("++++--").getState());
+        Assert.assertTrue(probed("++++--").isAvailable());
+        Assert.assertEquals(DestinationState.DOWN, probed("++++---").getState());
+        Assert.assertEquals(DestinationState.DOWN, probed("++++---+").getState());
+        Assert.assertEquals(DestinationState.DEGRADED, probed("++++---++").getState());
+        Assert.assertEquals(DestinationState.UP, probed("++++---++++++++++").getState());
+    }
+
+    /**
+     * Test of the flap detection, of class Destination.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testFlapping() throws UnknownHostException {
+        System.out.println("flapping test...");
+        Destination destination = probed("+-+-+-+");
+        Assert.assertEquals(6, destination.getFlapCount());
+        Assert.assertEquals(DestinationState.FLAPPING, destination.getState());
+        Assert.assertFalse(destination.isAvailable());
+
+        // Stays flapping until the changes leave the window
+        for (int idx = 0; idx < 10; ++idx) {
+            destination.setProbe("EchoProbe");
+        }
+        Assert.assertEquals(DestinationState.FLAPPING, destination.getState());
+        for (int idx = 0; idx < 10; ++idx) {
+            destination.setProbe("EchoProbe");
+        }
+        Assert.assertEquals(DestinationState.UP, destination.getState());
+    }
+
+    /**
+     * Test of the dependency on a parent, of class Destination.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testParent() throws UnknownHostException {
+        System.out.println("parent test...");
+        Destination gateway = new Destination(InetAddress.getByName("10.1.1.254"), 30);
+        Destination child = probed("++");
+        child.setParent(gateway);
+        Assert.assertFalse("A parent not probed yet is not down", child.isParentDown());
+
+        gateway.setProbe("");
+        Assert.assertTrue(child.isParentDown());
+        child.setProbe("");
+        child.setProbe("");
+        child.setProbe("");
+        Assert.assertEquals(DestinationState.UNREACHABLE, child.getState());
+        Assert.assertFalse(child.setUnreachable());
+
+        // The parent recovers; the child is down until it answers again
+        gateway.setProbe("EchoProbe");
+        gateway.setProbe("EchoProbe");
+        Assert.assertFalse(child.isParentDown());
+        child.setProbe("");
+        Assert.assertEquals(DestinationState.DOWN, child.getState());
+        child.setProbe("EchoProbe");
+        child.setProbe("EchoProbe");
+        Assert.assertEquals(DestinationState.DEGRADED, child.getState());
+    }
+}
@@ -0,0 +1,215 @@
+package destination;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import util.IpAddress;
+import util.IpUtils;
+
+/**
+ * Test the class SubnetIndex.
+ */
+public class SubnetIndexTest {
+
+    /**
+     * Test class constructor.
+     */
+    public SubnetIndexTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of add, getNetworks, getSubnets and getHosts methods, of class SubnetIndex.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testHierarchy() throws UnknownHostException {
+        System.out.println("hierarchy test...");
+        SubnetIndex index = new SubnetIndex();
+        for (String ip : new String[]{"10.1.2.3", "10.1.2.1", "10.1.7.1", "10.2.0.1"}) {
+            index.add(new Destination(InetAddress.getByName(ip), 30));
+        }
+
+        List<SubnetIndex.Summary> networks = index.getNetworks();
+        Assert.assertEquals(2, networks.size());
+        Assert.assertEquals("10.1.0.0/16", networks.get(0).getName());
+        Assert.assertEquals("10.2.0.0/16", networks.get(1).getName());
+        Assert.assertEquals(3, networks.get(0).getDown());
+
+        List<SubnetIndex.Summary> subnets = index.getSubnets(networks.get(0).getKey());
+        Assert.assertEquals(2, subnets.size());
+        Assert.assertEquals("10.1.2.0/24", subnets.get(0).getName());
+        Assert.assertEquals("10.1.7.0/24", subnets.get(1).getName());
+
+        List<Destination> hosts = index.getHosts(subnets.get(0).getKey());
+        Assert.assertEquals(2, hosts.size());
+        Assert.assertEquals("10.1.2.1", hosts.get(0).getInetAddr().getHostAddress());
+        Assert.assertEquals("10.1.2.3", hosts.get(1).getInetAddr().getHostAddress());
+    }
+
+    /**
+     * Test of IPv6 destinations, of class SubnetIndex.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testIpv6() throws UnknownHostException {
+        System.out.println("ipv6 test...");
+        SubnetIndex index = new SubnetIndex();
+        for (String ip : new String[]{"2001:db8::1:5", "2001:db8::1:2", "2001:db8::2:1", "10.0.0.1"}) {
+            index.add(new Destination(InetAddress.getByName(ip), 30));
+        }
+
+        List<SubnetIndex.Summary> networks = index.getNetworks();
+        Assert.assertEquals(2, networks.size());
+        Assert.assertEquals("10.0.0.0/16", networks.get(0).getName());
+        Assert.assertEquals("2001:db8::/64", networks.get(1).getName());
+
+        List<SubnetIndex.Summary> subnets = index.getSubnets(networks.get(1).getKey());
+        Assert.assertEquals(2, subnets.size());
+        Assert.assertEquals("2001:db8::1:0/120", subnets.get(0).getName());
+        Assert.assertEquals(2, subnets.get(0).getDown());
+
+        List<Destination> hosts = index.getHosts(subnets.get(0).getKey());
+        Assert.assertEquals(2, hosts.size());
+        Assert.assertEquals("2001:db8::1:2", hosts.get(0).getKey().toString());
+    }
+
+    /**
+     * Test of the incremental counts, of class SubnetIndex.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testCounts() throws UnknownHostException {
+        System.out.println("counts test...");
+        SubnetIndex index = new SubnetIndex();
+        Destination first = new Destination(InetAddress.getByName("192.168.1.1"), 30);
+        Destination second = new Destination(InetAddress.getByName("192.168.1.2"), 30);
+        index.add(first);
+        index.add(second);
+        Assert.assertEquals(0, index.getUp());
+        Assert.assertEquals(2, index.getDown());
+
+        first.setProbe("EchoProbe");
+        second.applyResult(0, true, DestinationState.UP, 5, "EchoProbe");
+        Assert.assertEquals(2, index.getUp());
+        Assert.assertEquals(0, index.getDown());
+
+        // Counted down after the third failure only
+        second.setProbe("");
+        second.setProbe("");
+        Assert.assertEquals(2, index.getUp());
+        second.setProbe("");
+        SubnetIndex.Summary subnet = index.getSubnets(index.getNetworks().get(0).getKey()).get(0);
+        Assert.assertEquals(1, subnet.getUp());
+        Assert.assertEquals(1, subnet.getDown());
+        Assert.assertEquals(1, index.getNetworks().get(0).getUp());
+    }
+
+    /**
+     * Test of the range and single lookups, of class SubnetIndex.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testLookup() throws UnknownHostException {
+        System.out.println("lookup test...");
+        SubnetIndex index = new SubnetIndex();
+        for (String ip : new String[]{"10.1.2.3", "10.1.2.200", "10.1.3.1", "10.2.0.1", "2001:db8::1"}) {
+            index.add(new Destination(InetAddress.getByName(ip), 30));
+        }
+
+        IpAddress[] range = IpUtils.parseAddressRange("10.1.2.128/25");
+        List<Destination> hosts = index.getHosts(range[0], range[1]);
+        Assert.assertEquals(1, hosts.size());
+        Assert.assertEquals("10.1.2.200", hosts.get(0).getKey().toString());
+
+        range = IpUtils.parseAddressRange("10.0.0.0/8");
+        Assert.assertEquals(4, index.getHosts(range[0], range[1]).size());
+        range = IpUtils.parseAddressRange("10.1.2.4-10.1.3.1");
+        Assert.assertEquals(2, index.getHosts(range[0], range[1]).size());
+
+        Assert.assertEquals("10.1.3.1", index.get(IpAddress.parse("10.1.3.1")).getKey().toString());
+        Assert.assertNotNull(index.get(IpAddress.parse("2001:db8::1")));
+        Assert.assertNull(index.get(IpAddress.parse("10.1.3.2")));
+        Assert.assertNull(index.get(IpAddress.parse("10.3.0.1")));
+    }
+
+    /**
+     * Test of the state and probe bitmaps, of class SubnetIndex.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testBitmaps() throws UnknownHostException {
+        System.out.println("bitmaps test...");
+        SubnetIndex index = new SubnetIndex();
+        Destination[] destinations = new Destination[4];
+        for (int idx = 0; idx < destinations.length; ++idx) {
+            destinations[idx] = new Destination(InetAddress.getByName("10.9.0." + (idx + 1)), 30);
+            index.add(destinations[idx]);
+        }
+        Assert.assertEquals(4, index.count(EnumSet.of(DestinationState.DOWN), null));
+
+        destinations[0].setProbe("EchoProbe");
+        destinations[1].setProbe("PingProbe");
+        destinations[2].setProbe("EchoProbe");
+        Set<DestinationState> up = EnumSet.of(DestinationState.UP);
+        Assert.assertEquals(3, index.count(up, null));
+        Assert.assertEquals(2, index.count(up, "EchoProbe"));
+        Assert.assertEquals(1, index.count(null, "PingProbe"));
+        Assert.assertEquals(0, index.count(up, "TimeServerProbe"));
+
+        List<Destination> echo = index.getDestinations(index.select(up, "EchoProbe"), 0, 10);
+        Assert.assertEquals(2, echo.size());
+        Assert.assertSame(destinations[0], echo.get(0));
+        Assert.assertSame(destinations[2], echo.get(1));
+        Assert.assertSame(destinations[2], index.getDestinations(index.select(null, null), 2, 1).get(0));
+
+        // A failure removes the probe; the state follows after the third failure only
+        destinations[2].setProbe("");
+        Assert.assertEquals(1, index.count(up, "EchoProbe"));
+        Assert.assertEquals(3, index.count(up, null));
+        destinations[2].setProbe("");
+        destinations[2].setProbe("");
+        Assert.assertEquals(2, index.count(up, null));
+        Assert.assertEquals(2, index.count(EnumSet.of(DestinationState.DOWN, DestinationState.DEGRADED), null));
+    }
+}
@@ -0,0 +1,186 @@
+package discovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.NoRouteToHostException;
+import java.net.ServerSocket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import probe.TokenBucket;
+import util.IpAddress;
+
+/**
+ * Test the classes HostDiscovery and NeighborTable.
+ */
+public class HostDiscoveryTest {
+    /**
+     * A neighbor table with complete and incomplete entries.
+     */
+    private static final String ARP = "IP address       HW type     Flags       HW address            Mask     Device\n"
+                                      + "10.1.2.1         0x1         0x2         02:fc:00:00:00:05     *        eth0\n"
+                                      + "10.1.2.9         0x1         0x0         00:00:00:00:00:00     *        eth0\n"
+                                      + "10.9.0.1         0x1         0x2         02:fc:00:00:00:06     *        eth0\n";
+    /**
+     * An IPv6 neighbor table with complete and incomplete entries.
+     */
+    private static final String NDP = "2001:db8::5 dev eth0 lladdr 02:fc:00:00:00:05 REACHABLE\n"
+                                      + "2001:db8::9 dev eth0  FAILED\n"
+                                      + "2001:db8::1 dev eth0 lladdr 02:fc:00:00:00:01 router STALE\n"
+                                      + "2001:db8:1::7 dev eth1 INCOMPLETE\n"
+                                      + "fe80::1 dev eth0 lladdr 02:fc:00:00:00:01 router DELAY\n";
+
+    /**
+     * Test class constructor.
+     */
+    public HostDiscoveryTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of parse method, of class NeighborTable.
+     *
+     * @throws IOException in case of an error
+     */
+    @Test
+    public void testParseNeighbors() throws IOException {
+        System.out.println("parseNeighbors test...");
+        List<IpAddress> addresses = NeighborTable.parse(new StringReader(ARP));
+        Assert.assertEquals(Arrays.asList(IpAddress.parse("10.1.2.1"), IpAddress.parse("10.9.0.1")), addresses);
+        Assert.assertTrue(new NeighborTable(new File("does/not/exist")).read().isEmpty());
+    }
+
+    /**
+     * Test of discover method with the neighbor table only, of class HostDiscovery.
+     *
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testDiscoverNeighbors() throws Exception {
+        System.out.println("discoverNeighbors test...");
+        File file = File.createTempFile("arp", ".txt");
+        try {
+            Files.write(file.toPath(), ARP.getBytes(StandardCharsets.US_ASCII));
+            HostDiscovery discovery = new HostDiscovery(IpAddress.parse("10.1.0.0"), IpAddress.parse("10.1.255.255"),
+                                                        new NeighborTable(file), new int[0], 100,
+                                                        new TokenBucket(1000, 100));
+
+            List<InetAddress> hosts = discovery.discover(Collections.emptySet());
+            Assert.assertEquals(Collections.singletonList(InetAddress.getByName("10.1.2.1")), hosts);
+
+            // Known hosts are not discovered again
+            hosts = discovery.discover(Collections.singleton(IpAddress.parse("10.1.2.1")));
+            Assert.assertTrue(hosts.isEmpty());
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test of parseIpv6 method, of class NeighborTable.
+     *
+     * @throws IOException in case of an error
+     */
+    @Test
+    public void testParseIpv6Neighbors() throws IOException {
+        System.out.println("parseIpv6Neighbors test...");
+        List<IpAddress> addresses = NeighborTable.parseIpv6(new StringReader(NDP));
+        Assert.assertEquals(Arrays.asList(IpAddress.parse("2001:db8::5"), IpAddress.parse("2001:db8::1"),
+                                          IpAddress.parse("fe80::1")), addresses);
+        Assert.assertTrue(new NeighborTable(new File("does/not/exist"), Arrays.asList("does-not-exist")).read().isEmpty());
+    }
+
+    /**
+     * Test of discover method for an IPv6 range too large for a sweep, of class HostDiscovery.
+     *
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testDiscoverIpv6Neighbors() throws Exception {
+        System.out.println("discoverIpv6Neighbors test...");
+        File file = File.createTempFile("ndp", ".txt");
+        try {
+            Files.write(file.toPath(), NDP.getBytes(StandardCharsets.US_ASCII));
+            HostDiscovery discovery = new HostDiscovery(IpAddress.parse("2001:db8::"), IpAddress.parse("2001:db8::ffff:ffff:ffff:ffff"),
+                                                        new NeighborTable(new File("does/not/exist"), Arrays.asList("cat", file.getPath())),
+                                                        new int[]{7}, 100, new TokenBucket(1000, 100));
+
+            List<InetAddress> hosts = discovery.discover(Collections.emptySet());
+            Assert.assertEquals(Arrays.asList(InetAddress.getByName("2001:db8::1"), InetAddress.getByName("2001:db8::5")), hosts);
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test of discover method with a connect sweep, of class HostDiscovery.
+     *
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testSweep() throws Exception {
+        System.out.println("sweep test...");
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            HostDiscovery discovery = new HostDiscovery(IpAddress.parse("127.0.0.1"), IpAddress.parse("127.0.0.1"),
+                                                        new NeighborTable(new File("does/not/exist")),
+                                                        new int[]{server.getLocalPort()}, 1000,
+                                                        new TokenBucket(1000, 100));
+
+            Assert.assertEquals(Collections.singletonList(InetAddress.getByName("127.0.0.1")),
+                                discovery.discover(Collections.emptySet()));
+        }
+    }
+
+    /**
+     * Test of isRefused method, of class HostDiscovery.
+     */
+    @Test
+    public void testIsRefused() {
+        System.out.println("isRefused test...");
+        Assert.assertTrue(HostDiscovery.isRefused(new ConnectException("Verbindungsaufbau abgelehnt")));
+        Assert.assertTrue(HostDiscovery.isRefused(new ConnectException()));
+        Assert.assertFalse(HostDiscovery.isRefused(new NoRouteToHostException("No route to host")));
+        Assert.assertFalse(HostDiscovery.isRefused(new SocketException("Connection refused")));
+    }
+}
@@ -0,0 +1,85 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class Histogram.
+ */
+public class HistogramTest {
+
+    /**
+     * Test class constructor.
+     */
+    public HistogramTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of record and getCumulativeCounts methods, of class Histogram.
+     */
+    @Test
+    public void testRecord() {
+        System.out.println("record test...");
+        Histogram histogram = new Histogram(new long[]{1, 10, 100});
+
+        // A bucket counts the values less or equal its bound; negative values count as 0
+        histogram.record(-5);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1) + 1);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+        histogram.record(TimeUnit.SECONDS.toNanos(2));
+
+        Assert.assertArrayEquals(new long[]{1, 10, 100}, histogram.getBoundsMillis());
+        Assert.assertArrayEquals(new long[]{2, 3, 4, 5}, histogram.getCumulativeCounts());
+        Assert.assertEquals(5, histogram.getCount());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(2052) + 1, histogram.getSumNanos());
+    }
+
+    /**
+     * Test of getMeanMillis method, of class Histogram.
+     */
+    @Test
+    public void testGetMeanMillis() {
+        System.out.println("getMeanMillis test...");
+        Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.getMeanMillis(), 0);
+
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(30));
+        Assert.assertEquals(20, histogram.getMeanMillis(), 0.001);
+        Assert.assertEquals(13, histogram.getCumulativeCounts().length);
+    }
+}
@@ -0,0 +1,101 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class LagRecorder.
+ */
+public class LagRecorderTest {
+
+    /**
+     * Test class constructor.
+     */
+    public LagRecorderTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of record and percentile methods, of class LagRecorder.
+     */
+    @Test
+    public void testPercentile() {
+        System.out.println("percentile test...");
+        LagRecorder recorder = new LagRecorder();
+        Assert.assertEquals(0, recorder.percentile(50));
+
+        for (int millis = 100; millis >= 1; --millis) {
+            recorder.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        Assert.assertEquals(100, recorder.getCycles());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(50), recorder.percentile(50));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(99), recorder.percentile(99));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), recorder.percentile(0));
+        Assert.assertEquals(100.0, recorder.percentileMillis(100), 0);
+    }
+
+    /**
+     * Test of the recent samples kept, of class LagRecorder.
+     */
+    @Test
+    public void testRecentSamples() {
+        System.out.println("recentSamples test...");
+        LagRecorder recorder = new LagRecorder();
+
+        // A long lag in the past is dropped once enough newer samples are recorded
+        recorder.record(TimeUnit.SECONDS.toNanos(10));
+        for (int idx = 0; idx < 1024; ++idx) {
+            recorder.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        Assert.assertEquals(1025, recorder.getCycles());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), recorder.percentile(100));
+    }
+
+    /**
+     * Test of overrun method, of class LagRecorder.
+     */
+    @Test
+    public void testOverrun() {
+        System.out.println("overrun test...");
+        LagRecorder recorder = new LagRecorder();
+        recorder.overrun();
+        recorder.overrun();
+
+        Assert.assertEquals(2, recorder.getOverruns());
+        Assert.assertEquals(0, recorder.getCycles());
+    }
+}
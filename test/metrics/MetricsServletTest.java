@@ -0,0 +1,97 @@
+package metrics;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class MetricsServlet.
+ */
+public class MetricsServletTest {
+
+    /**
+     * Test class constructor.
+     */
+    public MetricsServletTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of the Prometheus text format written, of class MetricsServlet.
+     */
+    @Test
+    public void testWrite() {
+        System.out.println("write test...");
+        ProbeMetrics metrics = new ProbeMetrics();
+        metrics.probeStarted();
+        metrics.probeFinished("EchoProbe", true, false, TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.probeStarted();
+        metrics.recordLag(TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.probeSuppressed();
+
+        StringWriter text = new StringWriter();
+        try (PrintWriter out = new PrintWriter(text)) {
+            MetricsServlet.write(out, metrics);
+        }
+        List<String> lines = Arrays.asList(text.toString().split("\\r?\\n"));
+
+        Assert.assertTrue(lines.contains("# HELP networkinframonitor_probes_total Probe attempts by probe type and outcome."));
+        Assert.assertTrue(lines.contains("# TYPE networkinframonitor_probes_total counter"));
+        Assert.assertTrue(lines.contains("networkinframonitor_probes_total{probe=\"EchoProbe\",outcome=\"success\"} 1"));
+        Assert.assertTrue(lines.contains("networkinframonitor_probes_total{probe=\"EchoProbe\",outcome=\"timeout\"} 0"));
+
+        // The histogram buckets are cumulative and end with +Inf, the bounds are in seconds
+        Assert.assertTrue(lines.contains("# TYPE networkinframonitor_probe_latency_seconds histogram"));
+        Assert.assertTrue(lines.contains("networkinframonitor_probe_latency_seconds_bucket{probe=\"EchoProbe\",le=\"0.01\"} 0"));
+        Assert.assertTrue(lines.contains("networkinframonitor_probe_latency_seconds_bucket{probe=\"EchoProbe\",le=\"0.025\"} 1"));
+        Assert.assertTrue(lines.contains("networkinframonitor_probe_latency_seconds_bucket{probe=\"EchoProbe\",le=\"+Inf\"} 1"));
+        Assert.assertTrue(lines.contains("networkinframonitor_probe_latency_seconds_sum{probe=\"EchoProbe\"} 0.02"));
+        Assert.assertTrue(lines.contains("networkinframonitor_probe_latency_seconds_count{probe=\"EchoProbe\"} 1"));
+        Assert.assertTrue(lines.contains("networkinframonitor_scheduler_lag_seconds_bucket{le=\"0.005\"} 1"));
+        Assert.assertTrue(lines.contains("networkinframonitor_scheduler_lag_seconds_count 1"));
+
+        Assert.assertTrue(lines.contains("networkinframonitor_probes_suppressed_total 1"));
+        Assert.assertTrue(lines.contains("networkinframonitor_probes_in_flight 1"));
+        Assert.assertTrue(lines.contains("networkinframonitor_prober_threads 0"));
+
+        // Every sample line belongs to a declared metric
+        for (String line : lines) {
+            Assert.assertTrue(line, line.startsWith("# ") || line.startsWith("networkinframonitor_"));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class ProbeMetrics.
+ */
+public class ProbeMetricsTest {
+
+    /**
+     * Test class constructor.
+     */
+    public ProbeMetricsTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of probeStarted and probeFinished methods, of class ProbeMetrics.
+     */
+    @Test
+    public void testProbeFinished() {
+        System.out.println("probeFinished test...");
+        ProbeMetrics metrics = new ProbeMetrics();
+
+        metrics.probeStarted();
+        metrics.probeStarted();
+        metrics.probeFinished("EchoProbe", true, false, TimeUnit.MILLISECONDS.toNanos(3));
+        Assert.assertEquals(1, metrics.getInFlight());
+
+        metrics.probeFinished("EchoProbe", false, true, TimeUnit.SECONDS.toNanos(3));
+        Assert.assertEquals(0, metrics.getInFlight());
+        Assert.assertEquals(2, metrics.getProbesTotal());
+        Assert.assertEquals(1, metrics.getSuccessTotal());
+        Assert.assertEquals(1, metrics.getFailureTotal());
+        Assert.assertEquals(1, metrics.getTimeoutTotal());
+        Assert.assertEquals(1501.5, metrics.getMeanLatencyMillis(), 0.001);
+    }
+
+    /**
+     * Test of the probe rate, of class ProbeMetrics.
+     */
+    @Test
+    public void testProbesPerSecond() {
+        System.out.println("probesPerSecond test...");
+        ProbeMetrics metrics = new ProbeMetrics();
+        long start = TimeUnit.SECONDS.toNanos(1000);
+
+        // 20 probes per second for 10 seconds; the current second is not counted yet
+        for (int second = 0; second < 11; ++second) {
+            for (int probe = 0; probe < 20; ++probe) {
+                metrics.countProbe(start + TimeUnit.SECONDS.toNanos(second));
+            }
+        }
+        Assert.assertEquals(20, metrics.probesPerSecond(start + TimeUnit.SECONDS.toNanos(10)), 0.001);
+
+        // Reading does not change the rate
+        Assert.assertEquals(20, metrics.probesPerSecond(start + TimeUnit.SECONDS.toNanos(10)), 0.001);
+
+        // Seconds without probes lower the rate until the window is empty
+        Assert.assertEquals(10, metrics.probesPerSecond(start + TimeUnit.SECONDS.toNanos(16)), 0.001);
+        Assert.assertEquals(0, metrics.probesPerSecond(start + TimeUnit.SECONDS.toNanos(30)), 0.001);
+
+        // A slot is reused for a later second
+        metrics.countProbe(start + TimeUnit.SECONDS.toNanos(30));
+        Assert.assertEquals(0.1, metrics.probesPerSecond(start + TimeUnit.SECONDS.toNanos(31)), 0.001);
+    }
+}
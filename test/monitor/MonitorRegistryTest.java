@@ -0,0 +1,120 @@
+package monitor;
+
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class MonitorRegistry.
+ */
+public class MonitorRegistryTest {
+
+    /**
+     * Test class constructor.
+     */
+    public MonitorRegistryTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of add, get, remove and clear methods, of class MonitorRegistry.
+     */
+    @Test
+    public void testAddRemove() {
+        System.out.println("addRemove test...");
+        MonitorRegistry registry = new MonitorRegistry();
+        Monitor first = new Monitor("10.1.1.1", "10.1.1.10", 30, "First");
+        Monitor second = new Monitor("10.1.2.1", "10.1.2.10", 30, "Second");
+
+        Assert.assertTrue(registry.add(first));
+        Assert.assertTrue(registry.add(second));
+        Assert.assertFalse(registry.add(new Monitor("10.1.1.1", "10.1.1.10", 60, "Same range")));
+        Assert.assertEquals(2, registry.size());
+        Assert.assertSame(second, registry.get("10.1.2.1-10.1.2.10"));
+        Assert.assertNull(registry.get("10.1.3.1-10.1.3.10"));
+
+        List<Monitor> snapshot = registry.getMonitors();
+        Assert.assertTrue(registry.remove(first));
+        Assert.assertFalse(registry.remove(first));
+        Assert.assertNull(registry.get(first.getId()));
+
+        // A snapshot taken before is not changed
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertSame(first, snapshot.get(0));
+        Assert.assertEquals(1, registry.getMonitors().size());
+
+        Assert.assertEquals(1, registry.clear().size());
+        Assert.assertEquals(0, registry.size());
+    }
+
+    /**
+     * Test of concurrent readers and writers, of class MonitorRegistry.
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        System.out.println("concurrent test...");
+        MonitorRegistry registry = new MonitorRegistry();
+        Thread[] writers = new Thread[4];
+
+        for (int idx = 0; idx < writers.length; ++idx) {
+            int net = idx;
+            writers[idx] = new Thread(() -> {
+                for (int host = 1; host <= 100; ++host) {
+                    Monitor monitor = new Monitor("10." + net + ".0." + host, "10." + net + ".0." + host, 30, "");
+                    registry.add(monitor);
+                    if (host % 2 == 0) {
+                        registry.remove(monitor);
+                    }
+                }
+            });
+            writers[idx].start();
+        }
+
+        // Iterating while the writers change the registry must not fail
+        boolean writing = true;
+        while (writing) {
+            writing = false;
+            for (Thread writer : writers) {
+                writing |= writer.isAlive();
+            }
+            for (Monitor monitor : registry.getMonitors()) {
+                Assert.assertNotNull(monitor.getId());
+            }
+        }
+
+        Assert.assertEquals(200, registry.size());
+    }
+}
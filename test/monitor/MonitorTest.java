@@ -0,0 +1,226 @@
+package monitor;
+
+import destination.Destination;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class Monitor.
+ */
+public class MonitorTest {
+
+    /**
+     * Test class constructor.
+     */
+    public MonitorTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of the lazy creation of the destinations, of class Monitor.
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    @Test
+    public void testLazyDestinations() throws InterruptedException {
+        System.out.println("lazyDestinations test...");
+        Monitor monitor = new Monitor("127.0.0.1", "127.0.0.4", 2, "Test");
+        monitor.setGateway("127.0.0.2");
+        Assert.assertEquals(4, monitor.getPlanned());
+        Assert.assertTrue(monitor.getDestinations().isEmpty());
+
+        monitor.start();
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (monitor.getDestinations().size() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(4, monitor.getDestinations().size());
+        }
+        finally {
+            monitor.stop();
+        }
+
+        // The gateway in the range is taken over, not probed twice
+        for (Destination destination : monitor.getDestinations()) {
+            if (destination.getKey().equals(monitor.getGatewayDestination().getKey())) {
+                Assert.assertSame(monitor.getGatewayDestination(), destination);
+                Assert.assertNull(destination.getParent());
+            }
+            else {
+                Assert.assertSame(monitor.getGatewayDestination(), destination.getParent());
+            }
+        }
+    }
+
+    /**
+     * Test of setDiscoveryEnabled method, of class Monitor.
+     */
+    @Test
+    public void testDiscoveryEnabled() {
+        System.out.println("discoveryEnabled test...");
+        Monitor monitor = new Monitor("10.1.1.1", "10.1.1.4", 2, "Test");
+        Assert.assertFalse(monitor.isDiscoveryEnabled());
+        Assert.assertEquals(4, monitor.getPlanned());
+
+        // Only the discovered hosts are probed
+        monitor.setDiscoveryEnabled(true);
+        Assert.assertEquals(0, monitor.getPlanned());
+        monitor.setDiscoveryEnabled(false);
+        Assert.assertEquals(4, monitor.getPlanned());
+
+        // A range too large is not built without the discovery
+        Assert.assertEquals(0, new Monitor("10.0.0.0", "10.255.255.255", 2, "Test").getPlanned());
+    }
+
+    /**
+     * Test of changing a running monitor, of class Monitor.
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    @Test
+    public void testChangeRunning() throws InterruptedException {
+        System.out.println("changeRunning test...");
+        Monitor monitor = new Monitor("127.0.0.1", "127.0.0.4", 2, "Test");
+        Monitor same = new Monitor("127.0.0.1", "127.0.0.4", 2, "Test");
+
+        monitor.start();
+        try {
+            awaitDestinations(monitor, 4);
+            monitor.setInterval(5);
+            monitor.setComment("Changed");
+            for (Destination destination : monitor.getDestinations()) {
+                Assert.assertEquals(5L, destination.getInterval());
+            }
+        }
+        finally {
+            monitor.stop();
+        }
+
+        // The range identifies the monitor, so a changed monitor is still found
+        Assert.assertEquals(same, monitor);
+        Assert.assertEquals(same.hashCode(), monitor.hashCode());
+        Assert.assertEquals(same.getId(), monitor.getId());
+        Assert.assertNotEquals(new Monitor("127.0.0.1", "127.0.0.5", 5, "Changed"), monitor);
+    }
+
+    /**
+     * Test of stopping one of two running monitors, of class Monitor.
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    @Test
+    public void testStopOne() throws InterruptedException {
+        System.out.println("stopOne test...");
+        Monitor stopped = new Monitor("127.0.0.1", "127.0.0.2", 1, "Stopped");
+        Monitor running = new Monitor("127.0.0.3", "127.0.0.4", 1, "Running");
+
+        stopped.start();
+        running.start();
+        try {
+            awaitDestinations(stopped, 2);
+            awaitDestinations(running, 2);
+            stopped.stop();
+
+            // The other monitor keeps probing
+            Assert.assertTrue(awaitProbe(running, LocalDateTime.now()));
+        }
+        finally {
+            running.stop();
+        }
+    }
+
+    /**
+     * Test of stop method, of class Monitor.
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    @Test
+    public void testBoundedStop() throws InterruptedException {
+        System.out.println("boundedStop test...");
+        Monitor monitor = new Monitor("127.0.0.1", "127.0.0.4", 1, "Test");
+
+        monitor.start();
+        awaitDestinations(monitor, 4);
+        long start = System.nanoTime();
+        int stragglers = monitor.stop();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Probes in progress are aborted, so stopping does not wait for their timeouts
+        Assert.assertEquals(0, stragglers);
+        Assert.assertTrue("Stopped after " + millis + " ms", millis <= Monitor.getStopTimeout());
+    }
+
+    /**
+     * Wait until a monitor has created its destinations.
+     *
+     * @param monitor the monitor
+     * @param count   the number of destinations
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    private static void awaitDestinations(Monitor monitor, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (monitor.getDestinations().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(count, monitor.getDestinations().size());
+    }
+
+    /**
+     * Wait until a destination of a monitor is probed.
+     *
+     * @param monitor the monitor
+     * @param after   the time the probe has to be after
+     *
+     * @return true if probed in time
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    private static boolean awaitProbe(Monitor monitor, LocalDateTime after) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            for (Destination destination : monitor.getDestinations()) {
+                LocalDateTime lastProbe = destination.getLastProbe();
+                if (lastProbe != null && lastProbe.isAfter(after)) {
+                    return true;
+                }
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,146 @@
+package probe;
+
+import destination.Destination;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class ProbeRegistry.
+ */
+public class ProbeRegistryTest {
+
+    /**
+     * A provider with given costs for testing.
+     */
+    private static class TestProvider implements ProbeProvider {
+        private final String name;
+        private final int cost;
+        private final long latency;
+        private final int maxConcurrency;
+        private final boolean standard;
+
+        TestProvider(String name, int cost, long latency, int maxConcurrency, boolean standard) {
+            this.name = name;
+            this.cost = cost;
+            this.latency = latency;
+            this.maxConcurrency = maxConcurrency;
+            this.standard = standard;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Probe create(Destination destination) {
+            return null;
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+
+        @Override
+        public long getExpectedLatencyMillis() {
+            return latency;
+        }
+
+        @Override
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        @Override
+        public boolean isDefault() {
+            return standard;
+        }
+    }
+
+    /**
+     * Test class constructor.
+     */
+    public ProbeRegistryTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of the built-in probes discovered by the ServiceLoader, of class ProbeRegistry.
+     */
+    @Test
+    public void testBuiltIn() {
+        System.out.println("builtIn test...");
+        ProbeRegistry registry = ProbeRegistry.getInstance();
+
+        List<ProbeProvider> profile = registry.getProfile("");
+        Assert.assertEquals(3, profile.size());
+        Assert.assertEquals("ServerPortProbe", profile.get(0).getName());
+        Assert.assertEquals("EchoProbe", profile.get(1).getName());
+        Assert.assertEquals("TimeServerProbe", profile.get(2).getName());
+
+        Assert.assertNotNull(registry.getProvider("PingProbe"));
+        Assert.assertEquals(1, registry.getProfile("PingProbe").size());
+        Assert.assertNotNull(registry.getLimit("PingProbe"));
+        Assert.assertNull(registry.getLimit("EchoProbe"));
+    }
+
+    /**
+     * Test of the profiles ordered by cost, of class ProbeRegistry.
+     */
+    @Test
+    public void testProfiles() {
+        System.out.println("profiles test...");
+        ProbeProvider slow = new TestProvider("Slow", 5, 2000, 2, false);
+        ProbeProvider fast = new TestProvider("Fast", 1, 10, 0, true);
+        ProbeProvider medium = new TestProvider("Medium", 1, 200, 0, true);
+        ProbeRegistry registry = new ProbeRegistry(Arrays.asList(slow, medium, fast, new TestProvider("Fast", 9, 9, 0, true)),
+                                                   "full=Slow,Fast,Medium,Unknown; quick = Fast ;invalid");
+
+        Assert.assertEquals(Arrays.asList(fast, medium), registry.getProfile(ProbeRegistry.DEFAULT_PROFILE));
+        Assert.assertEquals(Arrays.asList(fast, medium, slow), registry.getProfile("full"));
+        Assert.assertEquals(Arrays.asList(fast), registry.getProfile("quick"));
+        Assert.assertEquals(Arrays.asList(slow), registry.getProfile("Slow"));
+
+        // Unknown profiles fall back to the default profile
+        Assert.assertFalse(registry.hasProfile("invalid"));
+        Assert.assertTrue(registry.hasProfile(""));
+        Assert.assertEquals(registry.getProfile(""), registry.getProfile("invalid"));
+
+        Assert.assertEquals(2, registry.getLimit("Slow").availablePermits());
+        Assert.assertNull(registry.getLimit("Fast"));
+    }
+}
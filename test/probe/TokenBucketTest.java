@@ -0,0 +1,90 @@
+package probe;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test TokenBucket.
+ */
+public class TokenBucketTest {
+
+    /**
+     * Test class constructor.
+     */
+    public TokenBucketTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of tryAcquire method, of class TokenBucket.
+     */
+    @Test
+    public void testTryAcquire() {
+        System.out.println("tryAcquire");
+        TokenBucket bucket = new TokenBucket(1, 3);
+        Assert.assertEquals(true, bucket.tryAcquire());
+        Assert.assertEquals(true, bucket.tryAcquire());
+        Assert.assertEquals(true, bucket.tryAcquire());
+        Assert.assertEquals(false, bucket.tryAcquire());
+    }
+
+    /**
+     * Test of acquire method, of class TokenBucket.
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    @Test
+    public void testAcquire() throws InterruptedException {
+        System.out.println("acquire");
+        TokenBucket bucket = new TokenBucket(20, 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; ++i) {
+            bucket.acquire();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        // The first token is available at once, the other four need 50ms each
+        Assert.assertTrue(elapsedMillis >= 190);
+    }
+
+    /**
+     * Test of getRatePerSecond method, of class TokenBucket.
+     */
+    @Test
+    public void testGetRatePerSecond() {
+        System.out.println("getRatePerSecond");
+        Assert.assertEquals(50.0, new TokenBucket(50, 10).getRatePerSecond(), 0.001);
+        Assert.assertEquals(1.0, new TokenBucket(0, 0).getRatePerSecond(), 0.001);
+        Assert.assertEquals(1, new TokenBucket(0, 0).getCapacity());
+    }
+}
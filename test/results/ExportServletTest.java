@@ -0,0 +1,110 @@
+package results;
+
+import destination.Destination;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class ExportServlet.
+ */
+public class ExportServletTest {
+
+    /**
+     * Test class constructor.
+     */
+    public ExportServletTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of parseFormat, parseHistory and acceptsGzip methods, of class ExportServlet.
+     */
+    @Test
+    public void testParameters() {
+        System.out.println("parameters test...");
+        Assert.assertEquals(ExportServlet.Format.CSV, ExportServlet.parseFormat(null));
+        Assert.assertEquals(ExportServlet.Format.NDJSON, ExportServlet.parseFormat("NDJSON"));
+        Assert.assertNull(ExportServlet.parseFormat("xml"));
+
+        Assert.assertEquals(0, ExportServlet.parseHistory(null));
+        Assert.assertEquals(20, ExportServlet.parseHistory("20"));
+        Assert.assertEquals(-1, ExportServlet.parseHistory("65"));
+        Assert.assertEquals(-1, ExportServlet.parseHistory("many"));
+
+        Assert.assertFalse(ExportServlet.acceptsGzip(null));
+        Assert.assertTrue(ExportServlet.acceptsGzip("gzip, deflate, br"));
+        Assert.assertTrue(ExportServlet.acceptsGzip("deflate, GZIP;q=0.5"));
+        Assert.assertFalse(ExportServlet.acceptsGzip("gzip;q=0, deflate"));
+        Assert.assertFalse(ExportServlet.acceptsGzip("deflate"));
+    }
+
+    /**
+     * Test of writeHeader and writeRow methods, of class ExportServlet.
+     *
+     * @throws IOException in case of a write error
+     */
+    @Test
+    public void testWrite() throws IOException {
+        System.out.println("write test...");
+        Destination destination = new Destination(InetAddress.getByName("10.1.1.1"), 30);
+        destination.setProbe("EchoProbe");
+        destination.setProbe("");
+        destination.setProbe("Echo\"Probe");
+
+        StringWriter csv = new StringWriter();
+        ExportServlet.writeHeader(csv, ExportServlet.Format.CSV, 4);
+        ExportServlet.writeRow(csv, ExportServlet.Format.CSV, "m,1", destination, 4);
+        String[] lines = csv.toString().split("\n");
+        Assert.assertEquals("monitor,ip,hostname,state,result,quality,probe,lastProbe,history,availability", lines[0]);
+        Assert.assertTrue(lines[1], lines[1].startsWith("\"m,1\",10.1.1.1,,"));
+        Assert.assertTrue(lines[1], lines[1].contains(",\"Echo\"\"Probe\","));
+        Assert.assertTrue(lines[1], lines[1].endsWith(",101,66"));
+
+        StringWriter json = new StringWriter();
+        ExportServlet.writeHeader(json, ExportServlet.Format.NDJSON, 0);
+        ExportServlet.writeRow(json, ExportServlet.Format.NDJSON, "m1", destination, 0);
+        String line = json.toString();
+        Assert.assertTrue(line, line.startsWith("{\"monitor\":\"m1\",\"ip\":\"10.1.1.1\",\"hostname\":null,"));
+        Assert.assertTrue(line, line.contains("\"probe\":\"Echo\\\"Probe\""));
+        Assert.assertTrue(line, line.endsWith("}\n"));
+
+        StringWriter empty = new StringWriter();
+        ExportServlet.write(empty, Collections.emptyList(), null, ExportServlet.Format.NDJSON, 0);
+        Assert.assertEquals("", empty.toString());
+    }
+}
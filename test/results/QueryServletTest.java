@@ -0,0 +1,100 @@
+package results;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import util.IpAddress;
+
+/**
+ * Test the class QueryServlet.
+ */
+public class QueryServletTest {
+
+    /**
+     * Test class constructor.
+     */
+    public QueryServletTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of buildEtag, matchesEtag and parseInt methods, of class QueryServlet.
+     */
+    @Test
+    public void testParameters() {
+        System.out.println("parameters test...");
+        // A new version or a new period of the maximum age gives a new ETag
+        Assert.assertEquals("W/\"7.2\"", QueryServlet.buildEtag(7, 10999, 5000));
+        Assert.assertEquals(QueryServlet.buildEtag(7, 10000, 5000), QueryServlet.buildEtag(7, 14999, 5000));
+        Assert.assertNotEquals(QueryServlet.buildEtag(7, 14999, 5000), QueryServlet.buildEtag(7, 15000, 5000));
+        Assert.assertNotEquals(QueryServlet.buildEtag(7, 10000, 5000), QueryServlet.buildEtag(8, 10000, 5000));
+
+        Assert.assertFalse(QueryServlet.matchesEtag(null, "W/\"7\""));
+        Assert.assertTrue(QueryServlet.matchesEtag("W/\"7\"", "W/\"7\""));
+        Assert.assertTrue(QueryServlet.matchesEtag("\"6\", \"7\"", "W/\"7\""));
+        Assert.assertTrue(QueryServlet.matchesEtag("*", "W/\"7\""));
+        Assert.assertFalse(QueryServlet.matchesEtag("W/\"6\"", "W/\"7\""));
+
+        Assert.assertEquals(100, QueryServlet.parseInt(null, 100, 0, 1000));
+        Assert.assertEquals(5, QueryServlet.parseInt("5", 100, 0, 1000));
+        try {
+            QueryServlet.parseInt("1001", 100, 0, 1000);
+            Assert.fail("Out of range");
+        }
+        catch (IllegalArgumentException iaex) {
+            // Expected
+        }
+    }
+
+    /**
+     * Test of writeMonitors, writeDestinations and writeDestination methods without monitors, of class QueryServlet.
+     *
+     * @throws IOException in case of a write error
+     */
+    @Test
+    public void testWriteEmpty() throws IOException {
+        System.out.println("writeEmpty test...");
+        StringWriter monitors = new StringWriter();
+        QueryServlet.writeMonitors(monitors, Collections.emptyList());
+        Assert.assertEquals("[\n]\n", monitors.toString());
+
+        StringWriter destinations = new StringWriter();
+        QueryServlet.writeDestinations(destinations, Collections.emptyList(), new QueryServlet.Query(), 0, 10);
+        Assert.assertEquals("{\"items\":[],\"offset\":0,\"limit\":10,\"total\":0}\n", destinations.toString());
+
+        Assert.assertFalse(QueryServlet.writeDestination(new StringWriter(), Collections.emptyList(), IpAddress.parse("10.1.1.1")));
+    }
+}
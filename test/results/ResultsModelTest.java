@@ -0,0 +1,122 @@
+package results;
+
+import destination.Destination;
+import destination.DestinationState;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import monitor.Monitor;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class ResultsModel.
+ */
+public class ResultsModelTest {
+
+    /**
+     * Test class constructor.
+     */
+    public ResultsModelTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of get method, of class ResultsModel.
+     */
+    @Test
+    public void testGet() {
+        System.out.println("get test...");
+        ResultsModel model = ResultsModel.getInstance();
+        List<Monitor> monitors = Collections.unmodifiableList(Arrays.asList(new Monitor("10.1.1.1", "10.1.1.10", 30, "Model")));
+
+        ResultsModel.Snapshot first = model.get(monitors);
+        Assert.assertSame(monitors, first.getMonitors());
+
+        // Nothing changed: the same snapshot and its views are shared
+        ResultsModel.Snapshot same = model.get(monitors);
+        Assert.assertSame(first, same);
+        Assert.assertSame(first.getDestinations(), same.getDestinations());
+        Object view = first.getView("view", Object::new);
+        Assert.assertSame(view, same.getView("view", Object::new));
+
+        // A new list of running monitors is a new version
+        List<Monitor> changed = Collections.emptyList();
+        ResultsModel.Snapshot next = model.get(changed);
+        Assert.assertTrue(next.getVersion() > first.getVersion());
+        Assert.assertTrue(next.getDestinations().isEmpty());
+    }
+
+    /**
+     * Test of the state counts and filters taken from the subnet indexes, of class ResultsModel.
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    @Test
+    public void testCountsAndFilters() throws InterruptedException {
+        System.out.println("countsAndFilters test...");
+        Monitor monitor = new Monitor("127.0.0.1", "127.0.0.4", 2, "Model");
+        monitor.start();
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (monitor.getDestinations().size() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+        finally {
+            monitor.stop();
+        }
+
+        ResultsModel.Snapshot snapshot = ResultsModel.getInstance().get(Collections.unmodifiableList(Arrays.asList(monitor)));
+        Map<DestinationState, Integer> counts = snapshot.getStateCounts();
+        Assert.assertEquals(4, counts.values().stream().mapToInt(Integer::intValue).sum());
+
+        // The bitmaps give the same answers as a scan of the destinations
+        for (DestinationState state : DestinationState.values()) {
+            List<Destination> selected = snapshot.getDestinations(EnumSet.of(state), null);
+            Assert.assertEquals(counts.get(state).intValue(), selected.size());
+            for (Destination destination : selected) {
+                Assert.assertEquals(state, destination.getState());
+            }
+        }
+        for (String probe : snapshot.getProbes()) {
+            long scanned = snapshot.getDestinations().stream().filter(item -> probe.equals(item.getProbe())).count();
+            Assert.assertEquals(scanned, snapshot.getDestinations(null, probe).size());
+        }
+        Assert.assertTrue(snapshot.getDestinations(null, "NoSuchProbe").isEmpty());
+        Assert.assertSame(snapshot.getDestinations(), snapshot.getDestinations(null, null));
+    }
+}
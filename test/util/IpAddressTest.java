@@ -0,0 +1,114 @@
+package util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test IpAddress.
+ */
+public class IpAddressTest {
+
+    /**
+     * Test class constructor.
+     */
+    public IpAddressTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of parse and toString methods, of class IpAddress.
+     */
+    @Test
+    public void testParse() {
+        System.out.println("parse");
+        Assert.assertEquals("192.168.1.23", IpAddress.parse("192.168.1.23").toString());
+        Assert.assertEquals("2001:db8::1", IpAddress.parse("2001:0DB8:0:0:0:0:0:1").toString());
+        Assert.assertEquals("::", IpAddress.parse("::").toString());
+        Assert.assertEquals("::1", IpAddress.parse("::1").toString());
+        Assert.assertEquals("fe80::", IpAddress.parse("fe80::").toString());
+        Assert.assertEquals("2001:db8:0:1:1:1:1:1", IpAddress.parse("2001:db8:0:1:1:1:1:1").toString());
+        Assert.assertEquals("2001:0:0:1::1", IpAddress.parse("2001:0:0:1:0:0:0:1").toString());
+        Assert.assertEquals(IpAddress.parse("10.1.2.3"), IpAddress.parse("::ffff:10.1.2.3"));
+        Assert.assertTrue(IpAddress.parse("10.1.2.3").isV4());
+        Assert.assertFalse(IpAddress.parse("::1").isV4());
+
+        Assert.assertNull(IpAddress.parse("1::2::3"));
+        Assert.assertNull(IpAddress.parse("1:2:3:4:5:6:7"));
+        Assert.assertNull(IpAddress.parse("1:2:3:4:5:6:7:8:9"));
+        Assert.assertNull(IpAddress.parse("12345::"));
+        Assert.assertNull(IpAddress.parse(":1::"));
+        Assert.assertNull(IpAddress.parse("1:"));
+        Assert.assertNull(IpAddress.parse("g::1"));
+        Assert.assertNull(IpAddress.parse("1.2.3"));
+    }
+
+    /**
+     * Test of of and toInetAddress methods, of class IpAddress.
+     *
+     * @throws UnknownHostException in case of an invalid IP
+     */
+    @Test
+    public void testInetAddress() throws UnknownHostException {
+        System.out.println("inetAddress");
+        for (String ip : new String[]{"10.1.2.3", "2001:db8::ff:1", "::1"}) {
+            InetAddress inetAddr = InetAddress.getByName(ip);
+            Assert.assertEquals(IpAddress.parse(ip), IpAddress.of(inetAddr));
+            Assert.assertEquals(inetAddr, IpAddress.parse(ip).toInetAddress());
+        }
+    }
+
+    /**
+     * Test of compareTo, add, prefix, last and count methods, of class IpAddress.
+     */
+    @Test
+    public void testArithmetic() {
+        System.out.println("arithmetic");
+        IpAddress ip = IpAddress.parse("2001:db8::ffff:ffff:ffff:ffff");
+        Assert.assertEquals("2001:db8:0:1::", ip.add(1).toString());
+        Assert.assertTrue(ip.compareTo(ip.add(1)) < 0);
+        Assert.assertTrue(IpAddress.parse("255.255.255.255").compareTo(IpAddress.parse("8000::")) < 0);
+
+        Assert.assertEquals("10.1.0.0", IpAddress.parse("10.1.2.3").prefix(16).toString());
+        Assert.assertEquals("10.1.2.255", IpAddress.parse("10.1.2.3").last(24).toString());
+        Assert.assertEquals("2001:db8::", IpAddress.parse("2001:db8::1:2").prefix(64).toString());
+        Assert.assertEquals("2001:db8::1:ff", IpAddress.parse("2001:db8::1:2").last(120).toString());
+
+        Assert.assertEquals(256, IpAddress.count(IpAddress.parse("10.1.2.0"), IpAddress.parse("10.1.2.255")));
+        Assert.assertEquals(1, IpAddress.count(ip, ip));
+        Assert.assertEquals(2, IpAddress.count(ip, ip.add(1)));
+        Assert.assertEquals(Long.MAX_VALUE, IpAddress.count(IpAddress.parse("2001:db8::"), IpAddress.parse("2001:db8::ffff:ffff:ffff:ffff")));
+    }
+}
@@ -110,4 +110,41 @@ public class IpUtilsTest {
         System.out.println("longToIp");
         Assert.assertEquals("0.0.0.255", IpUtils.longToIp(255));
     }
+
+    /**
+     * Test of parseIp method, of class IpUtils.
+     */
+    @Test
+    public void testParseIp() {
+        System.out.println("parseIp");
+        Assert.assertEquals(0, IpUtils.parseIp("0.0.0.0"));
+        Assert.assertEquals(0xC0A80001L, IpUtils.parseIp("192.168.0.1"));
+        Assert.assertEquals(0xFFFFFFFFL, IpUtils.parseIp("255.255.255.255"));
+        Assert.assertEquals(-1, IpUtils.parseIp("1.1.1"));
+        Assert.assertEquals(-1, IpUtils.parseIp("1.1.1."));
+        Assert.assertEquals(-1, IpUtils.parseIp("1.256.1.10"));
+        Assert.assertEquals(-1, IpUtils.parseIp("1.1.1.1.1"));
+        Assert.assertEquals(-1, IpUtils.parseIp("a.b.c.d"));
+    }
+
+    /**
+     * Test of parseAddressRange and validIpRange methods with IPv6, of class IpUtils.
+     */
+    @Test
+    public void testParseAddressRange() {
+        System.out.println("parseAddressRange");
+        IpAddress[] range = IpUtils.parseAddressRange("2001:db8::1/64");
+        Assert.assertEquals("2001:db8::", range[0].toString());
+        Assert.assertEquals("2001:db8::ffff:ffff:ffff:ffff", range[1].toString());
+        range = IpUtils.parseAddressRange("10.1.2.7/24");
+        Assert.assertEquals("10.1.2.0", range[0].toString());
+        Assert.assertEquals("10.1.2.255", range[1].toString());
+        range = IpUtils.parseAddressRange("2001:db8::1 - 2001:db8::ff");
+        Assert.assertEquals("2001:db8::ff", range[1].toString());
+        Assert.assertNull(IpUtils.parseAddressRange("2001:db8::/129"));
+        Assert.assertNull(IpUtils.parseAddressRange("10.1.2.1-2001:db8::1"));
+        Assert.assertTrue(IpUtils.validIp("2001:db8::1"));
+        Assert.assertTrue(IpUtils.validIpRange("2001:db8::1", "2001:db8::ff"));
+        Assert.assertFalse(IpUtils.validIpRange("2001:db8::ff", "2001:db8::1"));
+    }
 }
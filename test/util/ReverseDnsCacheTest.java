@@ -0,0 +1,182 @@
+package util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the class ReverseDnsCache.
+ */
+public class ReverseDnsCacheTest {
+    /**
+     * The number of lookups by address.
+     */
+    private final Map<InetAddress, AtomicInteger> lookups = new ConcurrentHashMap<>();
+    /**
+     * The cache under test.
+     */
+    private ReverseDnsCache cache;
+
+    /**
+     * Test class constructor.
+     */
+    public ReverseDnsCacheTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+        lookups.clear();
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.stop();
+        }
+    }
+
+    /**
+     * A lookup giving a name for the addresses ending with 1 only.
+     *
+     * @param inetAddr the address
+     *
+     * @return the name or null
+     */
+    private String resolve(InetAddress inetAddr) {
+        lookups.computeIfAbsent(inetAddr, (key) -> new AtomicInteger()).incrementAndGet();
+
+        byte[] bytes = inetAddr.getAddress();
+        return bytes[bytes.length - 1] == 1 ? "host" + (bytes[bytes.length - 2] & 0xFF) : null;
+    }
+
+    /**
+     * Get the number of lookups of an address.
+     *
+     * @param inetAddr the address
+     *
+     * @return the count
+     */
+    private int lookups(InetAddress inetAddr) {
+        AtomicInteger count = lookups.get(inetAddr);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Wait until a condition is met, but not longer than 5 seconds.
+     *
+     * @param condition the condition
+     *
+     * @throws InterruptedException in case the test is interrupted
+     */
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * Test of getHostName method with hits, misses, expiry and negative caching, of class ReverseDnsCache.
+     *
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testGetHostName() throws Exception {
+        System.out.println("getHostName test...");
+        cache = new ReverseDnsCache(true, 16, TimeUnit.HOURS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(500), this::resolve);
+        InetAddress named = InetAddress.getByName("10.1.2.1");
+        InetAddress unnamed = InetAddress.getByName("10.1.2.2");
+
+        // A miss is resolved in the background
+        Assert.assertNull(cache.getHostName(named));
+        Assert.assertNull(cache.getHostName(unnamed));
+        await(() -> cache.size() == 2);
+
+        // Hits do not look up again; the missing name is cached too
+        Assert.assertEquals("host2", cache.getHostName(named));
+        Assert.assertNull(cache.getHostName(unnamed));
+        Assert.assertEquals(1, lookups(named));
+        Assert.assertEquals(1, lookups(unnamed));
+
+        // The missing name expires earlier
+        Thread.sleep(600);
+        Assert.assertEquals("host2", cache.getHostName(named));
+        Assert.assertNull(cache.getHostName(unnamed));
+        await(() -> lookups(unnamed) == 2);
+        Assert.assertEquals(1, lookups(named));
+    }
+
+    /**
+     * Test of the size bound, of class ReverseDnsCache.
+     *
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testLeastRecentlyUsed() throws Exception {
+        System.out.println("leastRecentlyUsed test...");
+        cache = new ReverseDnsCache(true, 2, TimeUnit.HOURS.toNanos(1), TimeUnit.HOURS.toNanos(1), this::resolve);
+        InetAddress first = InetAddress.getByName("10.1.1.1");
+        InetAddress second = InetAddress.getByName("10.1.2.1");
+        InetAddress third = InetAddress.getByName("10.1.3.1");
+
+        cache.getHostName(first);
+        await(() -> "host1".equals(cache.getHostName(first)));
+        cache.getHostName(second);
+        await(() -> "host2".equals(cache.getHostName(second)));
+
+        // The first is used last, so the second is dropped for the third
+        Assert.assertEquals("host1", cache.getHostName(first));
+        cache.getHostName(third);
+        await(() -> "host3".equals(cache.getHostName(third)));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals("host1", cache.getHostName(first));
+        Assert.assertNull(cache.getHostName(second));
+        await(() -> lookups(second) == 2);
+    }
+
+    /**
+     * Test of a disabled cache, of class ReverseDnsCache.
+     *
+     * @throws UnknownHostException in case the address is invalid
+     */
+    @Test
+    public void testDisabled() throws UnknownHostException {
+        System.out.println("disabled test...");
+        cache = new ReverseDnsCache(false, 16, 0, 0, this::resolve);
+
+        Assert.assertNull(cache.getHostName(InetAddress.getByName("10.1.2.1")));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertTrue(lookups.isEmpty());
+    }
+}
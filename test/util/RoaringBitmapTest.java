@@ -0,0 +1,144 @@
+package util;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test RoaringBitmap.
+ */
+public class RoaringBitmapTest {
+
+    /**
+     * Test class constructor.
+     */
+    public RoaringBitmapTest() {
+    }
+
+    /**
+     * What to do before before creating the test class.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    /**
+     * What to do after finalizing the test class.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    /**
+     * What to do before testing.
+     */
+    @Before
+    public void setUp() {
+    }
+
+    /**
+     * What to do after testing.
+     */
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of add, remove and contains methods across array and bitmap chunks, of class RoaringBitmap.
+     */
+    @Test
+    public void testAddRemove() {
+        System.out.println("addRemove test...");
+        RoaringBitmap bitmap = new RoaringBitmap();
+        Assert.assertTrue(bitmap.isEmpty());
+
+        // The first chunk becomes a bitmap, the second one stays an array
+        for (int value = 0; value < 10000; value += 2) {
+            bitmap.add(value);
+        }
+        bitmap.add(70000);
+        bitmap.add(70000);
+        Assert.assertEquals(5001, bitmap.getCardinality());
+        Assert.assertTrue(bitmap.contains(9998));
+        Assert.assertFalse(bitmap.contains(9999));
+        Assert.assertTrue(bitmap.contains(70000));
+
+        // Back to an array after removing
+        for (int value = 0; value < 4000; value += 2) {
+            bitmap.remove(value);
+        }
+        Assert.assertEquals(3001, bitmap.getCardinality());
+        Assert.assertFalse(bitmap.contains(0));
+        Assert.assertTrue(bitmap.contains(4000));
+
+        bitmap.remove(70000);
+        Assert.assertFalse(bitmap.contains(70000));
+        Assert.assertEquals(3000, bitmap.getCardinality());
+
+        int[] sum = {0};
+        bitmap.forEach(value -> sum[0] += value == 4000 ? 1 : 0);
+        Assert.assertEquals(1, sum[0]);
+    }
+
+    /**
+     * Test of and, or and andCardinality methods compared to BitSet, of class RoaringBitmap.
+     */
+    @Test
+    public void testOperations() {
+        System.out.println("operations test...");
+        Random random = new Random(49);
+
+        for (int round = 0; round < 5; ++round) {
+            RoaringBitmap first = new RoaringBitmap();
+            RoaringBitmap second = new RoaringBitmap();
+            BitSet firstSet = new BitSet();
+            BitSet secondSet = new BitSet();
+
+            // Dense and sparse chunks of different densities
+            for (int idx = 0; idx < 30000; ++idx) {
+                int value = random.nextInt(round % 2 == 0 ? 70000 : 400000);
+                first.add(value);
+                firstSet.set(value);
+                value = random.nextInt(200000);
+                second.add(value);
+                secondSet.set(value);
+            }
+
+            BitSet andSet = (BitSet) firstSet.clone();
+            andSet.and(secondSet);
+            BitSet orSet = (BitSet) firstSet.clone();
+            orSet.or(secondSet);
+
+            Assert.assertEquals(firstSet.cardinality(), first.getCardinality());
+            Assert.assertEquals(andSet, toBitSet(RoaringBitmap.and(first, second)));
+            Assert.assertEquals(orSet, toBitSet(RoaringBitmap.or(first, second)));
+            Assert.assertEquals(andSet.cardinality(), RoaringBitmap.andCardinality(first, second));
+            Assert.assertEquals(firstSet, toBitSet(first.copy()));
+        }
+    }
+
+    /**
+     * Convert a bitmap to a BitSet.
+     *
+     * @param bitmap the bitmap
+     *
+     * @return the BitSet
+     */
+    private static BitSet toBitSet(RoaringBitmap bitmap) {
+        BitSet result = new BitSet();
+        int[] previous = {-1};
+
+        bitmap.forEach(value -> {
+            Assert.assertTrue("Ascending order", value > previous[0]);
+            previous[0] = value;
+            result.set(value);
+        });
+        Assert.assertEquals(result.cardinality(), bitmap.getCardinality());
+        return result;
+    }
+}